@@ -12,6 +12,7 @@ import org.osgi.framework.BundleContext;
 
 import com.aptana.core.build.IBuildParticipantManager;
 import com.aptana.core.internal.build.BuildParticipantManager;
+import com.aptana.core.internal.build.ValidationResultCache;
 
 public class BuildPathCorePlugin extends Plugin
 {
@@ -19,7 +20,10 @@ public class BuildPathCorePlugin extends Plugin
 
 	public static final String PLUGIN_ID = "com.aptana.buildpath.core"; //$NON-NLS-1$
 
+	private static final String VALIDATION_CACHE_FILE = "validation.cache"; //$NON-NLS-1$
+
 	private IBuildParticipantManager fBuildParticipantManager;
+	private ValidationResultCache fValidationResultCache;
 
 	/**
 	 * Returns the shared instance
@@ -47,6 +51,11 @@ public class BuildPathCorePlugin extends Plugin
 	 */
 	public void stop(BundleContext bundleContext) throws Exception
 	{
+		if (fValidationResultCache != null)
+		{
+			fValidationResultCache.save();
+			fValidationResultCache = null;
+		}
 		fBuildParticipantManager = null;
 		plugin = null;
 		super.stop(bundleContext);
@@ -60,4 +69,17 @@ public class BuildPathCorePlugin extends Plugin
 		}
 		return fBuildParticipantManager;
 	}
+
+	/**
+	 * The problems reported by the cacheable build participants, persisted in the state location of this plugin.
+	 */
+	public synchronized ValidationResultCache getValidationResultCache()
+	{
+		if (fValidationResultCache == null)
+		{
+			fValidationResultCache = new ValidationResultCache(getStateLocation().append(VALIDATION_CACHE_FILE)
+					.toFile());
+		}
+		return fValidationResultCache;
+	}
 }
@@ -36,6 +36,7 @@ import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
+import org.osgi.framework.Bundle;
 import org.osgi.service.prefs.BackingStoreException;
 
 import com.aptana.buildpath.core.BuildPathCorePlugin;
@@ -167,6 +168,28 @@ public abstract class AbstractBuildParticipant implements IBuildParticipant, IEx
 		return Arrays.asList(filterSplitter.split(rawFilters));
 	}
 
+	/**
+	 * The settings key of the participants that implement {@link ICacheableBuildParticipant}: the version of the
+	 * contributing plugin and the filters. Subclasses with more settings should append theirs.
+	 *
+	 * @param context
+	 * @return
+	 */
+	public String getSettingsKey(BuildContext context)
+	{
+		StringBuilder key = new StringBuilder();
+		Bundle bundle = (contributor == null) ? null : Platform.getBundle(contributor);
+		if (bundle != null)
+		{
+			key.append(bundle.getVersion());
+		}
+		for (String filter : getFilters())
+		{
+			key.append(FILTER_DELIMITER).append(filter);
+		}
+		return key.toString();
+	}
+
 	private String getFiltersPreferenceKey()
 	{
 		return PreferenceUtil.getFiltersKey(getId());
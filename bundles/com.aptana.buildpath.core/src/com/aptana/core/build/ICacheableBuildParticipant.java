@@ -0,0 +1,31 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.core.build;
+
+import com.aptana.index.core.build.BuildContext;
+
+/**
+ * A build participant whose only output is the problems it puts in the {@link BuildContext}, and whose problems only
+ * depend on the contents of the file and on its settings (typically a validator). The {@link UnifiedBuilder} keeps the
+ * problems these participants report across sessions and cleans, and doesn't call
+ * {@link #buildFile(BuildContext, org.eclipse.core.runtime.IProgressMonitor)} again for a file whose contents and
+ * settings haven't changed since.
+ */
+public interface ICacheableBuildParticipant extends IBuildParticipant
+{
+
+	/**
+	 * Returns a key describing everything besides the contents of the file the problems reported for it depend on
+	 * (version, filters, preferences, configuration files...). The problems reported for the file are reused as long
+	 * as the contents and this key stay the same.
+	 *
+	 * @param context
+	 * @return the key, or <code>null</code> if the problems can't be reused this time.
+	 */
+	public String getSettingsKey(BuildContext context);
+}
@@ -11,6 +11,7 @@ import java.net.URI;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -44,11 +45,13 @@ import com.aptana.core.IDebugScopes;
 import com.aptana.core.IFilter;
 import com.aptana.core.IMap;
 import com.aptana.core.build.IBuildParticipant.BuildType;
+import com.aptana.core.internal.build.ValidationResultCache;
 import com.aptana.core.logging.IdeLog;
 import com.aptana.core.resources.IMarkerConstants;
 import com.aptana.core.util.ArrayUtil;
 import com.aptana.core.util.CollectionsUtil;
 import com.aptana.core.util.ResourceUtil;
+import com.aptana.core.util.StringUtil;
 import com.aptana.index.core.FileStoreBuildContext;
 import com.aptana.index.core.IIndexFileContributor;
 import com.aptana.index.core.IndexContainerJob;
@@ -301,10 +304,15 @@ public class UnifiedBuilder extends IncrementalProjectBuilder
 			return;
 		}
 
+		ValidationResultCache cache = getValidationResultCache();
 		SubMonitor sub = SubMonitor.convert(monitor, participants.size());
 		for (IBuildParticipant participant : participants)
 		{
 			participant.deleteFile(context, sub.newChild(1));
+			if (cache != null && participant instanceof ICacheableBuildParticipant && participant.getId() != null)
+			{
+				cache.remove(participant.getId(), context.getURI());
+			}
 		}
 		sub.done();
 	}
@@ -315,6 +323,12 @@ public class UnifiedBuilder extends IncrementalProjectBuilder
 		return (plugin == null) ? null : plugin.getBuildParticipantManager();
 	}
 
+	protected ValidationResultCache getValidationResultCache()
+	{
+		BuildPathCorePlugin plugin = BuildPathCorePlugin.getDefault();
+		return (plugin == null) ? null : plugin.getValidationResultCache();
+	}
+
 	/**
 	 * For a full build, we grab all files inside the project and then call build on each file.
 	 * 
@@ -342,6 +356,13 @@ public class UnifiedBuilder extends IncrementalProjectBuilder
 		sub.worked(2);
 		buildFiles(participants, visitor.files, sub.newChild(40));
 
+		// Persist the problems, the ones from incremental builds are persisted when shutting down
+		ValidationResultCache cache = getValidationResultCache();
+		if (cache != null)
+		{
+			cache.save();
+		}
+
 		sub.done();
 	}
 
@@ -608,10 +629,22 @@ public class UnifiedBuilder extends IncrementalProjectBuilder
 		}
 
 		SubMonitor sub = SubMonitor.convert(monitor, 2 * participants.size());
+		String contentHash = null;
+		if (getValidationResultCache() != null)
+		{
+			for (IBuildParticipant participant : participants)
+			{
+				if (participant instanceof ICacheableBuildParticipant)
+				{
+					contentHash = StringUtil.md5(context.getContents());
+					break;
+				}
+			}
+		}
 		for (IBuildParticipant participant : participants)
 		{
 			long startTime = System.nanoTime();
-			participant.buildFile(context, sub.newChild(1));
+			buildFile(context, participant, contentHash, sub.newChild(1));
 			if (traceParticipantsEnabled)
 			{
 				double endTime = ((double) System.nanoTime() - startTime) / 1000000;
@@ -631,6 +664,57 @@ public class UnifiedBuilder extends IncrementalProjectBuilder
 		sub.done();
 	}
 
+	/**
+	 * Runs a participant on a file. For an {@link ICacheableBuildParticipant}, the problems it reported the last time
+	 * it ran on the same contents with the same settings are put in the context instead, if there are any.
+	 */
+	private void buildFile(BuildContext context, IBuildParticipant participant, String contentHash,
+			IProgressMonitor monitor)
+	{
+		ValidationResultCache cache = getValidationResultCache();
+		String id = participant.getId();
+		String settingsKey = null;
+		if (cache != null && contentHash != null && id != null && participant instanceof ICacheableBuildParticipant)
+		{
+			settingsKey = ((ICacheableBuildParticipant) participant).getSettingsKey(context);
+		}
+		if (settingsKey == null)
+		{
+			participant.buildFile(context, monitor);
+			return;
+		}
+
+		URI uri = context.getURI();
+		Map<String, Collection<IProblem>> cached = cache.get(id, uri, settingsKey, contentHash);
+		if (cached != null)
+		{
+			for (Map.Entry<String, Collection<IProblem>> entry : cached.entrySet())
+			{
+				context.putProblems(entry.getKey(), entry.getValue());
+			}
+			return;
+		}
+
+		Map<String, Collection<IProblem>> before = new HashMap<String, Collection<IProblem>>(context.getProblems());
+		participant.buildFile(context, monitor);
+		Map<String, Collection<IProblem>> after = context.getProblems();
+		if (!after.keySet().containsAll(before.keySet()))
+		{
+			// removing problems can't be replayed
+			cache.remove(id, uri);
+			return;
+		}
+		Map<String, Collection<IProblem>> reported = new HashMap<String, Collection<IProblem>>();
+		for (Map.Entry<String, Collection<IProblem>> entry : after.entrySet())
+		{
+			if (before.get(entry.getKey()) != entry.getValue())
+			{
+				reported.put(entry.getKey(), entry.getValue());
+			}
+		}
+		cache.put(id, uri, settingsKey, contentHash, reported);
+	}
+
 	private void updateMarkers(BuildContext context, IProgressMonitor monitor)
 	{
 		final IFile file = context.getFile();
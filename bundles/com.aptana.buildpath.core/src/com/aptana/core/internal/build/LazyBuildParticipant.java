@@ -15,6 +15,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import com.aptana.buildpath.core.BuildPathCorePlugin;
 import com.aptana.core.build.AbstractBuildParticipant;
 import com.aptana.core.build.IBuildParticipant;
+import com.aptana.core.build.ICacheableBuildParticipant;
 import com.aptana.core.logging.IdeLog;
 import com.aptana.index.core.build.BuildContext;
 
@@ -24,7 +25,7 @@ import com.aptana.index.core.build.BuildContext;
  * 
  * @author cwilliams
  */
-public class LazyBuildParticipant extends AbstractBuildParticipant
+public class LazyBuildParticipant extends AbstractBuildParticipant implements ICacheableBuildParticipant
 {
 
 	private IConfigurationElement ice;
@@ -77,6 +78,20 @@ public class LazyBuildParticipant extends AbstractBuildParticipant
 		getParticipant().deleteFile(context, monitor);
 	}
 
+	/**
+	 * The problems of the wrapped participant can only be reused if it is an {@link ICacheableBuildParticipant}.
+	 */
+	@Override
+	public String getSettingsKey(BuildContext context)
+	{
+		IBuildParticipant participant = getParticipant();
+		if (participant instanceof ICacheableBuildParticipant)
+		{
+			return ((ICacheableBuildParticipant) participant).getSettingsKey(context);
+		}
+		return null;
+	}
+
 	@Override
 	public boolean isEnabled(BuildType type)
 	{
@@ -0,0 +1,472 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.core.internal.build;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.aptana.buildpath.core.BuildPathCorePlugin;
+import com.aptana.core.build.ICacheableBuildParticipant;
+import com.aptana.core.build.IProblem;
+import com.aptana.core.build.Problem;
+import com.aptana.core.logging.IdeLog;
+import com.aptana.core.util.IOUtil;
+import com.aptana.core.util.StringUtil;
+
+/**
+ * A persistent cache of the problems the {@link ICacheableBuildParticipant}s reported for a file. There is one entry
+ * per participant and file, holding the problems by marker type along with the hashes of the file contents and of the
+ * participant settings they were computed for; an entry is only returned while both still match.
+ * <p>
+ * The cache is kept in memory and rewritten as a whole on {@link #save()}. The least recently used entries are dropped
+ * past {@value #MAX_ENTRIES} entries, which also takes care of the files deleted while the IDE wasn't running.
+ */
+public class ValidationResultCache
+{
+
+	private static final int VERSION = 1;
+
+	static final int MAX_ENTRIES = 20000;
+
+	private static final byte STRING = 'S';
+	private static final byte INTEGER = 'I';
+	private static final byte BOOLEAN = 'B';
+
+	private static class Entry
+	{
+		final String settingsHash;
+		final String contentHash;
+		final Map<String, List<IProblem>> problems;
+
+		Entry(String settingsHash, String contentHash, Map<String, List<IProblem>> problems)
+		{
+			this.settingsHash = settingsHash;
+			this.contentHash = contentHash;
+			this.problems = problems;
+		}
+	}
+
+	private final File file;
+
+	/**
+	 * The entries, by participant id and file URI, in access order.
+	 */
+	private Map<String, Entry> entries;
+
+	private boolean dirty;
+
+	/**
+	 * @param file
+	 *            the file to persist the cache to, or <code>null</code> to keep it in memory only
+	 */
+	public ValidationResultCache(File file)
+	{
+		this.file = file;
+	}
+
+	/**
+	 * Returns copies of the problems cached for the given participant and file, by marker type, or <code>null</code>
+	 * if they weren't computed for the same contents and settings.
+	 *
+	 * @param participantId
+	 * @param uri
+	 * @param settingsKey
+	 *            see {@link ICacheableBuildParticipant#getSettingsKey(com.aptana.index.core.build.BuildContext)}
+	 * @param contentHash
+	 *            the MD5 hash of the file contents
+	 * @return
+	 */
+	public synchronized Map<String, Collection<IProblem>> get(String participantId, URI uri, String settingsKey,
+			String contentHash)
+	{
+		Entry entry = entries().get(getKey(participantId, uri));
+		if (entry == null || !entry.settingsHash.equals(StringUtil.md5(settingsKey))
+				|| !entry.contentHash.equals(contentHash))
+		{
+			return null;
+		}
+		Map<String, Collection<IProblem>> result = new HashMap<String, Collection<IProblem>>(entry.problems.size());
+		for (Map.Entry<String, List<IProblem>> problems : entry.problems.entrySet())
+		{
+			List<IProblem> copies = new ArrayList<IProblem>(problems.getValue().size());
+			for (IProblem problem : problems.getValue())
+			{
+				copies.add(copy(problem));
+			}
+			result.put(problems.getKey(), copies);
+		}
+		return result;
+	}
+
+	/**
+	 * Caches the problems a participant reported for a file, by marker type. Nothing is cached if a problem carries
+	 * attributes that can't be persisted (only strings, integers and booleans can).
+	 *
+	 * @param participantId
+	 * @param uri
+	 * @param settingsKey
+	 * @param contentHash
+	 * @param problems
+	 */
+	public synchronized void put(String participantId, URI uri, String settingsKey, String contentHash,
+			Map<String, Collection<IProblem>> problems)
+	{
+		String key = getKey(participantId, uri);
+		Map<String, List<IProblem>> copies = new HashMap<String, List<IProblem>>(problems.size());
+		for (Map.Entry<String, Collection<IProblem>> entry : problems.entrySet())
+		{
+			Collection<IProblem> typeProblems = entry.getValue();
+			List<IProblem> typeCopies = new ArrayList<IProblem>(typeProblems == null ? 0 : typeProblems.size());
+			if (typeProblems != null)
+			{
+				for (IProblem problem : typeProblems)
+				{
+					if (!isPersistable(problem))
+					{
+						remove(key);
+						return;
+					}
+					typeCopies.add(copy(problem));
+				}
+			}
+			copies.put(entry.getKey(), typeCopies);
+		}
+		entries().put(key, new Entry(StringUtil.md5(settingsKey), contentHash, copies));
+		dirty = true;
+	}
+
+	/**
+	 * Drops the problems cached for the given participant and file.
+	 *
+	 * @param participantId
+	 * @param uri
+	 */
+	public synchronized void remove(String participantId, URI uri)
+	{
+		remove(getKey(participantId, uri));
+	}
+
+	private void remove(String key)
+	{
+		if (entries().remove(key) != null)
+		{
+			dirty = true;
+		}
+	}
+
+	public synchronized int size()
+	{
+		return entries().size();
+	}
+
+	/**
+	 * Writes the cache to its file, if it changed since it was read.
+	 */
+	public synchronized void save()
+	{
+		if (file == null || !dirty)
+		{
+			return;
+		}
+		File dir = file.getParentFile();
+		if (dir != null && !dir.isDirectory() && !dir.mkdirs())
+		{
+			return;
+		}
+		// write to a temporary file first so a crash doesn't leave a partial cache behind
+		File temp = new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		DataOutputStream out = null;
+		try
+		{
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			out.writeInt(VERSION);
+			out.writeInt(entries.size());
+			for (Map.Entry<String, Entry> entry : entries.entrySet())
+			{
+				out.writeUTF(entry.getKey());
+				writeEntry(entry.getValue(), out);
+			}
+			out.close();
+			out = null;
+			if ((!file.exists() || file.delete()) && temp.renameTo(file))
+			{
+				dirty = false;
+			}
+		}
+		catch (IOException e)
+		{
+			IdeLog.logWarning(BuildPathCorePlugin.getDefault(), e);
+		}
+		finally
+		{
+			if (out != null)
+			{
+				try
+				{
+					out.close();
+				}
+				catch (IOException e)
+				{
+					// ignore
+				}
+			}
+			temp.delete();
+		}
+	}
+
+	private Map<String, Entry> entries()
+	{
+		if (entries == null)
+		{
+			entries = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+				{
+					return size() > MAX_ENTRIES;
+				}
+			};
+			load();
+		}
+		return entries;
+	}
+
+	private void load()
+	{
+		if (file == null || !file.isFile())
+		{
+			return;
+		}
+		DataInputStream in = null;
+		try
+		{
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if (in.readInt() != VERSION)
+			{
+				// unknown format, start over
+				dirty = true;
+				return;
+			}
+			int count = in.readInt();
+			for (int i = 0; i < count; i++)
+			{
+				String key = in.readUTF();
+				entries.put(key, readEntry(in));
+			}
+		}
+		catch (IOException e)
+		{
+			// a truncated or corrupted file, start over
+			IdeLog.logWarning(BuildPathCorePlugin.getDefault(), e);
+			entries.clear();
+			dirty = true;
+		}
+		finally
+		{
+			if (in != null)
+			{
+				try
+				{
+					in.close();
+				}
+				catch (IOException e)
+				{
+					// ignore
+				}
+			}
+		}
+	}
+
+	private static String getKey(String participantId, URI uri)
+	{
+		return participantId + '\n' + uri;
+	}
+
+	private static boolean isPersistable(IProblem problem)
+	{
+		if (problem == null)
+		{
+			return false;
+		}
+		Map<String, Object> attributes = problem.getAttributes();
+		if (attributes != null)
+		{
+			for (Object value : attributes.values())
+			{
+				if (!(value instanceof String || value instanceof Integer || value instanceof Boolean))
+				{
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static IProblem copy(IProblem problem)
+	{
+		Problem copy = new Problem(problem.getSeverity().intValue(), problem.getMessage(), problem.getOffset(),
+				problem.getLength(), problem.getLineNumber(), problem.getSourcePath(), problem.getPriority());
+		Map<String, Object> attributes = problem.getAttributes();
+		if (attributes != null)
+		{
+			for (Map.Entry<String, Object> attribute : attributes.entrySet())
+			{
+				copy.setAttribute(attribute.getKey(), attribute.getValue());
+			}
+		}
+		return copy;
+	}
+
+	private static void writeEntry(Entry entry, DataOutputStream out) throws IOException
+	{
+		out.writeUTF(entry.settingsHash);
+		out.writeUTF(entry.contentHash);
+		out.writeInt(entry.problems.size());
+		for (Map.Entry<String, List<IProblem>> problems : entry.problems.entrySet())
+		{
+			out.writeUTF(problems.getKey());
+			out.writeInt(problems.getValue().size());
+			for (IProblem problem : problems.getValue())
+			{
+				writeProblem(problem, out);
+			}
+		}
+	}
+
+	private static Entry readEntry(DataInputStream in) throws IOException
+	{
+		String settingsHash = in.readUTF();
+		String contentHash = in.readUTF();
+		int typeCount = in.readInt();
+		Map<String, List<IProblem>> problems = new HashMap<String, List<IProblem>>(typeCount);
+		for (int i = 0; i < typeCount; i++)
+		{
+			String markerType = in.readUTF();
+			int count = in.readInt();
+			List<IProblem> typeProblems = new ArrayList<IProblem>(count);
+			for (int j = 0; j < count; j++)
+			{
+				typeProblems.add(readProblem(in));
+			}
+			problems.put(markerType, typeProblems);
+		}
+		return new Entry(settingsHash, contentHash, problems);
+	}
+
+	private static void writeProblem(IProblem problem, DataOutputStream out) throws IOException
+	{
+		out.writeInt(problem.getSeverity().intValue());
+		writeString(problem.getMessage(), out);
+		out.writeInt(problem.getOffset());
+		out.writeInt(problem.getLength());
+		out.writeInt(problem.getLineNumber());
+		writeString(problem.getSourcePath(), out);
+		out.writeInt(problem.getPriority());
+		Map<String, Object> attributes = problem.getAttributes();
+		out.writeInt(attributes == null ? 0 : attributes.size());
+		if (attributes != null)
+		{
+			for (Map.Entry<String, Object> attribute : attributes.entrySet())
+			{
+				out.writeUTF(attribute.getKey());
+				Object value = attribute.getValue();
+				if (value instanceof Integer)
+				{
+					out.writeByte(INTEGER);
+					out.writeInt((Integer) value);
+				}
+				else if (value instanceof Boolean)
+				{
+					out.writeByte(BOOLEAN);
+					out.writeBoolean((Boolean) value);
+				}
+				else
+				{
+					out.writeByte(STRING);
+					writeString((String) value, out);
+				}
+			}
+		}
+	}
+
+	private static IProblem readProblem(DataInputStream in) throws IOException
+	{
+		int severity = in.readInt();
+		String message = readString(in);
+		int offset = in.readInt();
+		int length = in.readInt();
+		int lineNumber = in.readInt();
+		String sourcePath = readString(in);
+		int priority = in.readInt();
+		Problem problem = new Problem(severity, message, offset, length, lineNumber, sourcePath, priority);
+		int attributeCount = in.readInt();
+		for (int i = 0; i < attributeCount; i++)
+		{
+			String name = in.readUTF();
+			byte type = in.readByte();
+			switch (type)
+			{
+				case INTEGER:
+					problem.setAttribute(name, in.readInt());
+					break;
+				case BOOLEAN:
+					problem.setAttribute(name, in.readBoolean());
+					break;
+				case STRING:
+					problem.setAttribute(name, readString(in));
+					break;
+				default:
+					throw new IOException("Unknown attribute type: " + type); //$NON-NLS-1$
+			}
+		}
+		return problem;
+	}
+
+	/**
+	 * Writes a string that may be <code>null</code> or longer than what {@link DataOutputStream#writeUTF(String)}
+	 * supports.
+	 */
+	private static void writeString(String string, DataOutputStream out) throws IOException
+	{
+		if (string == null)
+		{
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = string.getBytes(IOUtil.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException
+	{
+		int length = in.readInt();
+		if (length < 0)
+		{
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, IOUtil.UTF_8);
+	}
+}
@@ -22,7 +22,12 @@ import java.lang.reflect.InvocationTargetException;
 import java.net.ProtocolException;
 import java.net.SocketTimeoutException;
 import java.net.URI;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -41,6 +46,7 @@ import org.eclipse.ecf.filetransfer.IFileTransferListener;
 import org.eclipse.ecf.filetransfer.IFileTransferPausable;
 import org.eclipse.ecf.filetransfer.IIncomingFileTransfer;
 import org.eclipse.ecf.filetransfer.IRetrieveFileTransferContainerAdapter;
+import org.eclipse.ecf.filetransfer.IRetrieveFileTransferOptions;
 import org.eclipse.ecf.filetransfer.IncomingFileTransferException;
 import org.eclipse.ecf.filetransfer.events.IFileTransferConnectStartEvent;
 import org.eclipse.ecf.filetransfer.events.IFileTransferEvent;
@@ -420,6 +426,28 @@ public class FileReader extends FileTransferJob implements IFileTransferListener
 	 */
 	public void readInto(URI uri, OutputStream anOutputStream, long startPos, IProgressMonitor monitor) //
 			throws CoreException, FileNotFoundException, ProtocolException
+	{
+		readInto(uri, anOutputStream, startPos, 0, monitor);
+	}
+
+	/**
+	 * Read the content from the given position into the given output stream, provided the content wasn't modified
+	 * since the given time (sent as an If-Range validator). If it was, the server sends the whole content instead.
+	 * 
+	 * @param uri
+	 * @param anOutputStream
+	 * @param startPos
+	 * @param lastModified
+	 *            the modification time of the content when it was first read (see {@link #getLastFileInfo()}), or 0
+	 *            to read the range whatever the content
+	 * @param monitor
+	 *            - A progress monitor. It's up to the caller to call done on this one.
+	 * @throws CoreException
+	 * @throws FileNotFoundException
+	 * @throws ProtocolException
+	 */
+	public void readInto(URI uri, OutputStream anOutputStream, long startPos, long lastModified,
+			IProgressMonitor monitor) throws CoreException, FileNotFoundException, ProtocolException
 	{
 		if (monitor == null)
 		{
@@ -427,8 +455,8 @@ public class FileReader extends FileTransferJob implements IFileTransferListener
 		}
 		try
 		{
-			sendRetrieveRequest(uri, anOutputStream, (startPos != -1 ? new DownloadRange(startPos) : null), true,
-					monitor);
+			sendRetrieveRequest(uri, anOutputStream, (startPos != -1 ? new DownloadRange(startPos, lastModified)
+					: null), true, monitor);
 			getTheJobManager().join(this, new SubProgressMonitor(monitor, 0));
 			waitPaused(uri, anOutputStream, startPos, monitor);
 			if (monitor.isCanceled() && connectEvent != null)
@@ -524,7 +552,7 @@ public class FileReader extends FileTransferJob implements IFileTransferListener
 				IFileID fileID = getFileIDFactory().createFileID(adapter.getRetrieveNamespace(), uri.toString());
 				if (range != null)
 				{
-					adapter.sendRetrieveRequest(fileID, range, this, null);
+					adapter.sendRetrieveRequest(fileID, range, this, range.getOptions());
 				}
 				else
 				{
@@ -688,11 +716,32 @@ public class FileReader extends FileTransferJob implements IFileTransferListener
 	private static class DownloadRange implements IFileRangeSpecification
 	{
 
+		private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss 'GMT'"; //$NON-NLS-1$
+		private static final String IF_RANGE = "If-Range"; //$NON-NLS-1$
+
 		private long startPosition;
+		private long lastModified;
 
-		public DownloadRange(long startPos)
+		public DownloadRange(long startPos, long lastModified)
 		{
 			startPosition = startPos;
+			this.lastModified = lastModified;
+		}
+
+		/**
+		 * Returns the options of the request for the range, which only asks for the range if the content is
+		 * unchanged, or null if there's no modification time to check.
+		 */
+		public Map<String, Object> getOptions()
+		{
+			if (startPosition <= 0 || lastModified <= 0)
+			{
+				return null;
+			}
+			SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+			format.setTimeZone(TimeZone.getTimeZone("GMT")); //$NON-NLS-1$
+			Map<String, String> headers = Collections.singletonMap(IF_RANGE, format.format(new Date(lastModified)));
+			return Collections.<String, Object> singletonMap(IRetrieveFileTransferOptions.REQUEST_HEADERS, headers);
 		}
 
 		public long getEndPosition()
@@ -0,0 +1,206 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.core.io.vfs;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Path;
+
+import com.aptana.core.io.efs.VirtualFile;
+import com.aptana.core.logging.IdeLog;
+import com.aptana.ide.core.io.CoreIOPlugin;
+import com.aptana.ide.core.io.IConnectionPoint;
+
+/**
+ * A bounded pool of extra file managers for a single connection point. Every operation of a
+ * {@link BaseConnectionFileManager} is serialized on its one connection, so operations that should run in parallel
+ * (e.g. transferring many files) each need a manager of their own. Managers are created lazily, up to the pool size,
+ * and kept connected until the pool is disposed.
+ */
+public class ConnectionFileManagerPool
+{
+
+	private final IConnectionFileManagerFactory factory;
+	private final int maxSize;
+	private final List<IConnectionFileManager> all = new ArrayList<IConnectionFileManager>();
+	private final LinkedList<IConnectionFileManager> idle = new LinkedList<IConnectionFileManager>();
+	private boolean disposed;
+
+	/**
+	 * @param connectionPoint
+	 *            the connection point to create file managers for; must be {@link #isSupported(IConnectionPoint)
+	 *            supported}
+	 * @param maxSize
+	 *            the maximum number of file managers (and so connections) to open
+	 */
+	public ConnectionFileManagerPool(IConnectionPoint connectionPoint, int maxSize)
+	{
+		this.factory = getFactory(connectionPoint);
+		if (factory == null)
+		{
+			throw new IllegalArgumentException("Connection point does not support multiple connections"); //$NON-NLS-1$
+		}
+		this.maxSize = Math.max(1, maxSize);
+	}
+
+	/**
+	 * Returns whether file managers for the given connection point can be pooled.
+	 */
+	public static boolean isSupported(IConnectionPoint connectionPoint)
+	{
+		return getFactory(connectionPoint) != null;
+	}
+
+	private static IConnectionFileManagerFactory getFactory(IConnectionPoint connectionPoint)
+	{
+		if (connectionPoint instanceof IConnectionFileManagerFactory)
+		{
+			return (IConnectionFileManagerFactory) connectionPoint;
+		}
+		return (connectionPoint == null) ? null : (IConnectionFileManagerFactory) connectionPoint
+				.getAdapter(IConnectionFileManagerFactory.class);
+	}
+
+	/**
+	 * Takes a connected file manager out of the pool, creating one if the pool isn't full yet or waiting for one to be
+	 * released otherwise.
+	 * 
+	 * @param monitor
+	 *            checked for cancellation while waiting and used for connecting
+	 * @return a connected file manager, to be handed back with {@link #release(IConnectionFileManager)}
+	 * @throws CoreException
+	 *             if a new file manager fails to connect
+	 */
+	public IConnectionFileManager acquire(IProgressMonitor monitor) throws CoreException
+	{
+		monitor = Policy.monitorFor(monitor);
+		IConnectionFileManager fileManager = null;
+		synchronized (this)
+		{
+			while (fileManager == null)
+			{
+				if (disposed)
+				{
+					throw new IllegalStateException("Pool has been disposed"); //$NON-NLS-1$
+				}
+				if (!idle.isEmpty())
+				{
+					fileManager = idle.removeFirst();
+				}
+				else if (all.size() < maxSize)
+				{
+					fileManager = factory.createConnectionFileManager();
+					all.add(fileManager);
+				}
+				else
+				{
+					Policy.checkCanceled(monitor);
+					try
+					{
+						wait(250);
+					}
+					catch (InterruptedException e)
+					{
+						throw new OperationCanceledException();
+					}
+				}
+			}
+		}
+		if (!fileManager.isConnected())
+		{
+			try
+			{
+				fileManager.connect(monitor);
+			}
+			catch (CoreException e)
+			{
+				discard(fileManager);
+				throw e;
+			}
+		}
+		return fileManager;
+	}
+
+	/**
+	 * Hands a file manager obtained from {@link #acquire(IProgressMonitor)} back to the pool.
+	 */
+	public synchronized void release(IConnectionFileManager fileManager)
+	{
+		if (fileManager != null && all.contains(fileManager) && !idle.contains(fileManager))
+		{
+			idle.addLast(fileManager);
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Returns the equivalent of the given file store (of this pool's connection point) backed by the given file
+	 * manager. Stores not backed by a connection file manager are returned as is.
+	 */
+	public static IFileStore getFileStore(IConnectionFileManager fileManager, IFileStore fileStore)
+	{
+		if (fileStore instanceof VirtualFile)
+		{
+			URI uri = fileStore.toURI();
+			return new VirtualFile(fileManager, VirtualConnectionManager.getVirtualRootURI(uri), new Path(uri.getPath()));
+		}
+		return fileStore;
+	}
+
+	/**
+	 * Disconnects all file managers created by this pool.
+	 */
+	public void dispose(IProgressMonitor monitor)
+	{
+		List<IConnectionFileManager> fileManagers;
+		synchronized (this)
+		{
+			disposed = true;
+			fileManagers = new ArrayList<IConnectionFileManager>(all);
+			all.clear();
+			idle.clear();
+			notifyAll();
+		}
+		for (IConnectionFileManager fileManager : fileManagers)
+		{
+			disconnect(fileManager, monitor);
+		}
+	}
+
+	private void discard(IConnectionFileManager fileManager)
+	{
+		synchronized (this)
+		{
+			all.remove(fileManager);
+			notifyAll();
+		}
+		disconnect(fileManager, null);
+	}
+
+	private static void disconnect(IConnectionFileManager fileManager, IProgressMonitor monitor)
+	{
+		try
+		{
+			if (fileManager.isConnected())
+			{
+				fileManager.disconnect(monitor);
+			}
+		}
+		catch (CoreException e)
+		{
+			IdeLog.logWarning(CoreIOPlugin.getDefault(), e);
+		}
+	}
+}
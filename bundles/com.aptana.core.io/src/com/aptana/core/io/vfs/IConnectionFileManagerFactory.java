@@ -0,0 +1,26 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.core.io.vfs;
+
+/**
+ * Implemented by (or adapted from) connection points able to open more than one connection to their remote side at a
+ * time.
+ * 
+ * @see ConnectionFileManagerPool
+ */
+public interface IConnectionFileManagerFactory
+{
+
+	/**
+	 * Creates a new file manager for the connection point, configured like the one backing its file stores but with
+	 * its own connection. The caller is responsible for disconnecting it.
+	 * 
+	 * @return a new, not yet connected file manager
+	 */
+	public IConnectionFileManager createConnectionFileManager();
+}
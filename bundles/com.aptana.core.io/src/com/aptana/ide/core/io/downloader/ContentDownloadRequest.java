@@ -1,6 +1,6 @@
 /**
  * Aptana Studio
- * Copyright (c) 2005-2011 by Appcelerator, Inc. All Rights Reserved.
+ * Copyright (c) 2005-2014 by Appcelerator, Inc. All Rights Reserved.
  * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
  * Please see the license.html included with this distribution for details.
  * Any modifications to this file must keep this entire header intact.
@@ -8,11 +8,15 @@
 package com.aptana.ide.core.io.downloader;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.math.BigInteger;
 import java.net.URI;
+import java.security.MessageDigest;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
@@ -25,23 +29,52 @@ import org.eclipse.ecf.core.security.IConnectContext;
 import org.eclipse.osgi.util.NLS;
 
 import com.aptana.core.epl.downloader.ConnectionData;
+import com.aptana.core.epl.downloader.FileInfo;
 import com.aptana.core.epl.downloader.FileReader;
 import com.aptana.core.util.FileUtil;
 import com.aptana.core.util.StringUtil;
 import com.aptana.ide.core.io.CoreIOPlugin;
 
 /**
- * A single content download request.
+ * A single content download request.<br>
+ * When a transfer breaks off, the download is resumed from where it stopped (using an HTTP range request) rather than
+ * started over, either right away or on the next {@link #execute(ConnectionData, IProgressMonitor)}. Downloads are only
+ * resumed when the length and modification time of the content are known. The range is only asked for if the content
+ * wasn't modified since (If-Range), and the length of the response tells whether the server sent that range or the
+ * whole content again.
  * 
  * @author Shalom Gibly <sgibly@aptana.com>
  */
 public class ContentDownloadRequest
 {
+	/**
+	 * How many times in a row a download is resumed before giving up.
+	 */
+	private static final int MAX_RESUME_ATTEMPTS = 5;
+
 	protected final URI uri;
 	private File saveTo;
 	private IStatus result;
 	private IConnectContext context;
 
+	private String checksumAlgorithm;
+	private String checksum;
+
+	/**
+	 * The number of bytes of the content already written to the file by previous attempts.
+	 */
+	private long resumeOffset;
+
+	/**
+	 * The length of the whole content, as reported when it was first requested, or -1 if unknown.
+	 */
+	private long contentLength = -1;
+
+	/**
+	 * The modification time of the content, as reported when it was first requested, or 0 if unknown.
+	 */
+	private long lastModified;
+
 	public ContentDownloadRequest(URI uri) throws CoreException
 	{
 		this(uri, getTempFile(uri));
@@ -88,6 +121,20 @@ public class ContentDownloadRequest
 		this.result = result;
 	}
 
+	/**
+	 * Sets the checksum the downloaded content has to match for the download to succeed.
+	 * 
+	 * @param algorithm
+	 *            A {@link MessageDigest} algorithm name, e.g. "SHA-1"
+	 * @param checksum
+	 *            The expected digest, in hexadecimal
+	 */
+	public void setChecksum(String algorithm, String checksum)
+	{
+		this.checksumAlgorithm = algorithm;
+		this.checksum = checksum;
+	}
+
 	public void execute(IProgressMonitor monitor)
 	{
 		execute(null, monitor);
@@ -111,40 +158,165 @@ public class ContentDownloadRequest
 	 */
 	private IStatus download(ConnectionData data, IProgressMonitor monitor)
 	{
-		// perform the download
-		try
+		for (int attempt = 0;; attempt++)
 		{
-			// Use ECF FileTransferJob implementation to get the remote file.
-			FileReader reader = createReader(data);
-			OutputStream anOutputStream = createOutputStream(this.saveTo);
-			reader.readInto(this.uri, anOutputStream, 0, monitor);
-			// check that job ended ok - throw exceptions otherwise
-			IStatus result = reader.getResult();
-			if (result != null)
+			if (contentLength < 0 || lastModified <= 0)
+			{
+				// we couldn't tell a partial response from the whole content, or whether the content changed
+				resumeOffset = 0;
+			}
+			long offset = resumeOffset;
+			// perform the download
+			try
 			{
-				if (result.getSeverity() == IStatus.CANCEL)
+				// Use ECF FileTransferJob implementation to get the remote file.
+				FileReader reader = createReader(data);
+				OutputStream anOutputStream = (offset > 0) ? new ResumedOutputStream(reader, offset)
+						: createOutputStream(this.saveTo);
+				try
+				{
+					if (offset > 0)
+					{
+						reader.readInto(this.uri, anOutputStream, offset, lastModified, monitor);
+					}
+					else
+					{
+						reader.readInto(this.uri, anOutputStream, offset, monitor);
+					}
+				}
+				finally
 				{
+					if (offset == 0)
+					{
+						contentLength = getResponseLength(reader);
+						lastModified = getResponseLastModified(reader);
+					}
+				}
+				// check that job ended ok - throw exceptions otherwise
+				IStatus result = reader.getResult();
+				if (result != null)
+				{
+					if (result.getSeverity() == IStatus.CANCEL)
+					{
+						keepPartialContent();
+						return Status.CANCEL_STATUS;
+					}
+					if (!result.isOK())
+					{
+						throw new CoreException(result);
+					}
+				}
+				resumeOffset = 0;
+				return verifyChecksum();
+			}
+			catch (OperationCanceledException e)
+			{
+				keepPartialContent();
+				return Status.CANCEL_STATUS;
+			}
+			catch (Throwable t)
+			{
+				if (monitor != null && monitor.isCanceled())
+				{
+					keepPartialContent();
 					return Status.CANCEL_STATUS;
 				}
-				if (!result.isOK())
+				keepPartialContent();
+				if (attempt < MAX_RESUME_ATTEMPTS)
 				{
-					throw new CoreException(result);
+					if (resumeOffset > offset)
+					{
+						// we got some more of it, so pick up from there
+						continue;
+					}
+					if (offset > 0)
+					{
+						// resuming didn't work (the server may not support ranges), so start over
+						resumeOffset = 0;
+						continue;
+					}
 				}
+				return new Status(IStatus.ERROR, CoreIOPlugin.PLUGIN_ID, t.getMessage(), t);
 			}
 		}
-		catch (OperationCanceledException e)
+	}
+
+	/**
+	 * Returns the length of the content the given reader received (or is receiving), or -1 if unknown.
+	 */
+	private static long getResponseLength(FileReader reader)
+	{
+		FileInfo info = reader.getLastFileInfo();
+		return (info == null || info.getSize() <= 0) ? -1 : info.getSize();
+	}
+
+	/**
+	 * Returns the modification time of the content the given reader received (or is receiving), or 0 if unknown.
+	 */
+	private static long getResponseLastModified(FileReader reader)
+	{
+		FileInfo info = reader.getLastFileInfo();
+		return (info == null) ? 0 : info.getLastModified();
+	}
+
+	/**
+	 * Remembers how much of the content was written to the file so that a later attempt resumes from there.
+	 */
+	private void keepPartialContent()
+	{
+		resumeOffset = (saveTo == null) ? 0 : saveTo.length();
+	}
+
+	/**
+	 * Checks the downloaded file against the expected checksum, if one was set. A file which doesn't match is deleted.
+	 * 
+	 * @return
+	 */
+	private IStatus verifyChecksum()
+	{
+		if (StringUtil.isEmpty(checksum))
 		{
-			return Status.CANCEL_STATUS;
+			return Status.OK_STATUS;
 		}
-		catch (Throwable t)
+		InputStream in = null;
+		try
 		{
-			if (monitor != null && monitor.isCanceled())
+			MessageDigest digest = MessageDigest.getInstance(checksumAlgorithm);
+			in = new FileInputStream(saveTo);
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1)
 			{
-				return Status.CANCEL_STATUS;
+				digest.update(buffer, 0, read);
+			}
+			byte[] bytes = digest.digest();
+			String actual = StringUtil.pad(new BigInteger(1, bytes).toString(16), bytes.length * 2, '0');
+			if (actual.equalsIgnoreCase(checksum))
+			{
+				return Status.OK_STATUS;
+			}
+		}
+		catch (Exception e)
+		{
+			return new Status(IStatus.ERROR, CoreIOPlugin.PLUGIN_ID, e.getMessage(), e);
+		}
+		finally
+		{
+			if (in != null)
+			{
+				try
+				{
+					in.close();
+				}
+				catch (IOException e)
+				{
+					// ignore
+				}
 			}
-			return new Status(IStatus.ERROR, CoreIOPlugin.PLUGIN_ID, t.getMessage(), t);
 		}
-		return Status.OK_STATUS;
+		saveTo.delete();
+		return new Status(IStatus.ERROR, CoreIOPlugin.PLUGIN_ID, NLS.bind(
+				Messages.ContentDownloadRequest_checksumMismatch, uri.toString()));
 	}
 
 	protected FileReader createReader(ConnectionData data)
@@ -157,6 +329,88 @@ public class ContentDownloadRequest
 		return new FileOutputStream(dest);
 	}
 
+	/**
+	 * Returns a stream to write the rest of the content to, after what previous attempts already wrote to the file.
+	 * 
+	 * @param dest
+	 * @param append
+	 * @return
+	 * @throws FileNotFoundException
+	 */
+	protected OutputStream createOutputStream(File dest, boolean append) throws FileNotFoundException
+	{
+		return new FileOutputStream(dest, append);
+	}
+
+	/**
+	 * The stream a resumed transfer writes to. The server sends the whole content again when it changed since the
+	 * first request, or when it ignores ranges, so when the first bytes come in, the length of the response decides
+	 * whether they're appended to what we already have or replace it.
+	 */
+	private class ResumedOutputStream extends OutputStream
+	{
+		private final FileReader reader;
+		private final long offset;
+		private OutputStream out;
+
+		ResumedOutputStream(FileReader reader, long offset)
+		{
+			this.reader = reader;
+			this.offset = offset;
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			open().write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			open().write(b, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException
+		{
+			if (out != null)
+			{
+				out.flush();
+			}
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			if (out != null)
+			{
+				out.close();
+			}
+		}
+
+		private OutputStream open() throws IOException
+		{
+			if (out == null)
+			{
+				long length = getResponseLength(reader);
+				if (length == contentLength - offset)
+				{
+					// partial content, as requested
+					out = createOutputStream(saveTo, true);
+				}
+				else
+				{
+					// the whole content, possibly changed, so start over
+					contentLength = length;
+					lastModified = getResponseLastModified(reader);
+					out = createOutputStream(saveTo);
+				}
+			}
+			return out;
+		}
+	}
+
 	/**
 	 * Returns a temporary file with a name based on the URL file name.<br>
 	 * In case no URL file name exists, we try to generate a temp file with an 'aptana' prefix.
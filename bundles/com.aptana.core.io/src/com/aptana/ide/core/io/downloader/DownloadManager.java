@@ -15,6 +15,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.runtime.CoreException;
@@ -22,6 +25,7 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 
@@ -38,9 +42,20 @@ import com.aptana.ide.core.io.CoreIOPlugin;
  */
 public class DownloadManager
 {
+	/**
+	 * The ticks of progress each download counts for when several are run at a time.
+	 */
+	private static final int TICKS_PER_DOWNLOAD = 1000;
+
+	/**
+	 * How often (in milliseconds) the progress of concurrent downloads is reported.
+	 */
+	private static final long PROGRESS_INTERVAL = 200;
+
 	private List<ContentDownloadRequest> downloads;
 	private List<IPath> completedDownloadsPaths;
 	private ConnectionData connectData;
+	private int maxConcurrentDownloads = 1;
 
 	/**
 	 * Constructs a new DownloadManager
@@ -187,6 +202,16 @@ public class DownloadManager
 		this.connectData = connectData;
 	}
 
+	/**
+	 * Sets how many downloads may run at a time (one by default, i.e. they're run one after another).
+	 * 
+	 * @param maxConcurrentDownloads
+	 */
+	public void setMaxConcurrentDownloads(int maxConcurrentDownloads)
+	{
+		this.maxConcurrentDownloads = Math.max(1, maxConcurrentDownloads);
+	}
+
 	/**
 	 * Download the remote content.
 	 * 
@@ -194,6 +219,11 @@ public class DownloadManager
 	 */
 	protected IStatus download(IProgressMonitor monitor)
 	{
+		if (maxConcurrentDownloads > 1 && downloads.size() > 1)
+		{
+			return downloadConcurrently(monitor);
+		}
+
 		SubMonitor subMonitor = SubMonitor.convert(monitor, Messages.DownloadManager_downloadingContent,
 				downloads.size());
 		MultiStatus multi = new MultiStatus(CoreIOPlugin.PLUGIN_ID, IStatus.OK, null, null);
@@ -228,6 +258,197 @@ public class DownloadManager
 		return multi;
 	}
 
+	/**
+	 * Runs up to {@link #maxConcurrentDownloads} downloads at a time, reporting their overall progress.
+	 * 
+	 * @param monitor
+	 */
+	private IStatus downloadConcurrently(IProgressMonitor monitor)
+	{
+		List<ContentDownloadRequest> requests = new ArrayList<ContentDownloadRequest>(downloads);
+		SubMonitor subMonitor = SubMonitor.convert(monitor, Messages.DownloadManager_downloadingContent,
+				requests.size() * TICKS_PER_DOWNLOAD);
+		MultiStatus multi = new MultiStatus(CoreIOPlugin.PLUGIN_ID, IStatus.OK, null, null);
+		completedDownloadsPaths = new ArrayList<IPath>(requests.size());
+
+		final List<DownloadProgressMonitor> monitors = new ArrayList<DownloadProgressMonitor>(requests.size());
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxConcurrentDownloads, requests.size()));
+		for (final ContentDownloadRequest request : requests)
+		{
+			final DownloadProgressMonitor requestMonitor = new DownloadProgressMonitor();
+			monitors.add(requestMonitor);
+			executor.execute(new Runnable()
+			{
+				public void run()
+				{
+					if (requestMonitor.isCanceled())
+					{
+						return;
+					}
+					requestMonitor.started = true;
+					try
+					{
+						request.execute(connectData, requestMonitor);
+					}
+					finally
+					{
+						requestMonitor.done();
+					}
+				}
+			});
+		}
+		executor.shutdown();
+
+		int reported = 0;
+		try
+		{
+			while (!executor.awaitTermination(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS))
+			{
+				if (subMonitor.isCanceled())
+				{
+					for (DownloadProgressMonitor requestMonitor : monitors)
+					{
+						requestMonitor.setCanceled(true);
+					}
+				}
+				reported = reportProgress(subMonitor, monitors, reported);
+			}
+		}
+		catch (InterruptedException e)
+		{
+			for (DownloadProgressMonitor requestMonitor : monitors)
+			{
+				requestMonitor.setCanceled(true);
+			}
+			executor.shutdownNow();
+			subMonitor.setCanceled(true);
+		}
+		reportProgress(subMonitor, monitors, reported);
+
+		// collect the results in the order the downloads were added
+		for (int i = 0; i < requests.size(); i++)
+		{
+			if (!monitors.get(i).started)
+			{
+				continue;
+			}
+			ContentDownloadRequest request = requests.get(i);
+			IStatus result = request.getResult();
+			if (result != null)
+			{
+				if (result.isOK())
+				{
+					completedDownloadsPaths.add(request.getDownloadLocation());
+					downloads.remove(request);
+				}
+				multi.add(result);
+			}
+		}
+		if (subMonitor.isCanceled())
+		{
+			multi.add(Status.CANCEL_STATUS);
+		}
+		return multi;
+	}
+
+	/**
+	 * Reports the progress made by the downloads since it was last reported.
+	 * 
+	 * @return the total progress reported so far
+	 */
+	private int reportProgress(SubMonitor monitor, List<DownloadProgressMonitor> monitors, int reported)
+	{
+		int total = 0;
+		String task = null;
+		for (DownloadProgressMonitor requestMonitor : monitors)
+		{
+			total += requestMonitor.getProgress();
+			if (task == null && requestMonitor.started && !requestMonitor.isDone())
+			{
+				task = requestMonitor.getTask();
+			}
+		}
+		if (task != null)
+		{
+			monitor.subTask(task);
+		}
+		if (total > reported)
+		{
+			monitor.worked(total - reported);
+		}
+		return Math.max(total, reported);
+	}
+
+	/**
+	 * Keeps track of the progress of one of the downloads run at a time, to be reported from the calling thread (as
+	 * progress monitors aren't meant to be used from several threads).
+	 */
+	private static class DownloadProgressMonitor extends NullProgressMonitor
+	{
+		volatile boolean started;
+		private int totalWork;
+		private double worked;
+		private boolean done;
+		private String task;
+
+		@Override
+		public synchronized void beginTask(String name, int totalWork)
+		{
+			this.totalWork = totalWork;
+			this.worked = 0;
+		}
+
+		@Override
+		public synchronized void internalWorked(double work)
+		{
+			worked += work;
+		}
+
+		@Override
+		public void worked(int work)
+		{
+			internalWorked(work);
+		}
+
+		@Override
+		public synchronized void subTask(String name)
+		{
+			task = name;
+		}
+
+		@Override
+		public synchronized void done()
+		{
+			done = true;
+		}
+
+		synchronized boolean isDone()
+		{
+			return done;
+		}
+
+		synchronized String getTask()
+		{
+			return task;
+		}
+
+		/**
+		 * Returns the progress in ticks, out of {@link DownloadManager#TICKS_PER_DOWNLOAD}.
+		 */
+		synchronized int getProgress()
+		{
+			if (done)
+			{
+				return TICKS_PER_DOWNLOAD;
+			}
+			if (totalWork <= 0)
+			{
+				return 0;
+			}
+			return (int) (Math.min(1, worked / totalWork) * TICKS_PER_DOWNLOAD);
+		}
+	}
+
 	/**
 	 * Returns the location paths where the requested content was downloaded to.
 	 * 
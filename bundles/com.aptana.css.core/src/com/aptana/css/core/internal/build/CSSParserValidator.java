@@ -20,6 +20,7 @@ import org.eclipse.jface.text.IDocument;
 
 import com.aptana.core.IMap;
 import com.aptana.core.build.AbstractBuildParticipant;
+import com.aptana.core.build.ICacheableBuildParticipant;
 import com.aptana.core.build.IProblem;
 import com.aptana.core.build.Problem;
 import com.aptana.core.logging.IdeLog;
@@ -34,7 +35,7 @@ import com.aptana.parsing.ast.IParseError;
  * 
  * @author cwilliams
  */
-public class CSSParserValidator extends AbstractBuildParticipant
+public class CSSParserValidator extends AbstractBuildParticipant implements ICacheableBuildParticipant
 {
 	public static final String ID = "com.aptana.css.core.CSSParserValidator"; //$NON-NLS-1$
 
@@ -1,72 +1,59 @@
 /**
  * Aptana Studio
- * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Copyright (c) 2005-2014 by Appcelerator, Inc. All Rights Reserved.
  * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
  * Please see the license.html included with this distribution for details.
  * Any modifications to this file must keep this entire header intact.
  */
 package com.aptana.css.core.internal.build;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
-import java.lang.reflect.Field;
-import java.net.MalformedURLException;
-import java.net.URI;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
-import org.w3c.css.css.StyleSheet;
-import org.w3c.css.css.StyleSheetParser;
-import org.w3c.css.parser.CssError;
-import org.w3c.css.parser.CssErrorToken;
-import org.w3c.css.parser.CssParseException;
-import org.w3c.css.parser.Errors;
-import org.w3c.css.properties.PropertiesLoader;
-import org.w3c.css.util.ApplContext;
-import org.w3c.css.util.Utf8Properties;
-import org.w3c.css.util.Warning;
-import org.w3c.css.util.Warnings;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
 
 import com.aptana.core.build.AbstractBuildParticipant;
+import com.aptana.core.build.ICacheableBuildParticipant;
 import com.aptana.core.build.IProblem;
-import com.aptana.core.logging.IdeLog;
-import com.aptana.core.util.IOUtil;
-import com.aptana.css.core.CSSCorePlugin;
+import com.aptana.core.util.StringUtil;
 import com.aptana.css.core.ICSSConstants;
+import com.aptana.css.core.index.CSSIndexQueryHelper;
+import com.aptana.css.core.model.PropertyElement;
+import com.aptana.css.core.model.ValueElement;
+import com.aptana.css.core.parsing.ast.CSSDeclarationNode;
+import com.aptana.css.core.parsing.ast.CSSErrorDeclarationNode;
+import com.aptana.css.core.parsing.ast.CSSExpressionNode;
+import com.aptana.css.core.parsing.ast.CSSFontFaceNode;
+import com.aptana.css.core.parsing.ast.CSSPageNode;
+import com.aptana.css.core.parsing.ast.CSSParseRootNode;
+import com.aptana.css.core.parsing.ast.CSSRuleNode;
+import com.aptana.css.core.parsing.ast.CSSTreeWalker;
 import com.aptana.index.core.build.BuildContext;
+import com.aptana.parsing.ast.IParseRootNode;
 
 /**
+ * Validates the properties of the CSS declarations and their values. This works on the AST the CSS parser built for
+ * the file: property names are checked against the CSS metadata and the bundled value grammars (see
+ * {@link CSSValueGrammars}), and values against the grammar of their property.
+ * <p>
+ * Vendor specific properties and values, and values using functions the grammars don't know about, aren't checked.
+ * Syntax errors are left to {@link CSSParserValidator}.
+ *
  * @author cwilliams
  */
-public class CSSValidator extends AbstractBuildParticipant
+public class CSSValidator extends AbstractBuildParticipant implements ICacheableBuildParticipant
 {
 
 	public static final String ID = "com.aptana.css.core.W3CValidator"; //$NON-NLS-1$
 
-	private static final String APTANA_PROFILE = "AptanaProfile"; //$NON-NLS-1$
-	private static final String CONFIG_FILE = "AptanaCSSConfig.properties"; //$NON-NLS-1$
-	private static final String PROFILES_CONFIG_FILE = "AptanaCSSProfiles.properties"; //$NON-NLS-1$
-
-	// CSS3 properties that the validator doesn't recognize yet and need to be ignored
-	@SuppressWarnings("nls")
-	private static final String[] CSS3_PROPERTIES = { "behavior", "box-shadow", "box-sizing", "column-count",
-			"column-width", "column-gap", "column-rule", "border-radius", "background-clip", "background-origin",
-			"background-quantity", "background-size", "border-top-right-radius", "border-bottom-right-radius",
-			"border-bottom-left-radius", "border-top-left-radius", "font-family", "font-weight", "font-style",
-			"outline-offset", "resize", "size", "src", "transform", "transition", "user-select", "word-break" };
-
-	@SuppressWarnings("nls")
-	private static final String[] CSS3_AT_RULES = { "@namespace" };
-
-	// other messages that should be filtered automatically
-	@SuppressWarnings("nls")
-	private static final String[] FILTERED_MESSAGES = { "unrecognized media only", "linear-gradient" };
-
 	@SuppressWarnings("nls")
 	public static final String[] DEFAULT_FILTERS = new String[] { ".*Unknown pseudo-element.*",
 			"Property\\s*[-_].*doesn't exist.*", ".*-moz-.*", ".*-o-*", ".*opacity.*", ".*overflow-.*",
@@ -77,196 +64,262 @@ public class CSSValidator extends AbstractBuildParticipant
 			".*Too many values or values are not recognized.*", Pattern.quote(
 					"Value Error : background (http://www.w3.org/TR/REC-CSS2/colors.html#propdef-background) , is an incorrect operator :") };
 
-	static
-	{
-		loadAptanaCSSProfile();
-	}
+	private static final String FONT_FAMILY = "font-family"; //$NON-NLS-1$
+
+	/**
+	 * The grammars, once the CSS metadata they depend on could be read.
+	 */
+	private static CSSValueGrammars GRAMMARS;
 
-	private void processErrorsInReport(Errors errors, String sourcePath, List<IProblem> items, List<String> filters)
+	private static synchronized CSSValueGrammars getGrammars()
 	{
-		CssError[] cssErrors = errors.getErrors();
-		for (CssError cssError : cssErrors)
+		if (GRAMMARS != null)
 		{
-			Throwable t = cssError.getException();
-			String message = (t == null) ? "" : t.getMessage(); //$NON-NLS-1$
-			if (cssError instanceof CssErrorToken)
-			{
-				CssErrorToken cet = (CssErrorToken) cssError;
-				message = cet.getErrorDescription();
-			}
-			else if (t instanceof CssParseException)
-			{
-				message = "Parse Error"; // to retain backwards compat on message //$NON-NLS-1$
-			}
-			int lineNumber = cssError.getLine();
-			if (!isIgnored(message, filters) && !containsCSS3Property(message) && !containsCSS3AtRule(message)
-					&& !isFiltered(message))
+			return GRAMMARS;
+		}
+		Map<String, List<String>> metadata = new HashMap<String, List<String>>();
+		for (PropertyElement property : new CSSIndexQueryHelper().getProperties())
+		{
+			List<String> values = new ArrayList<String>();
+			for (ValueElement value : property.getValues())
 			{
-				items.add(createError(message, lineNumber, 0, 0, sourcePath));
+				values.add(value.getName());
 			}
+			metadata.put(property.getName().toLowerCase(), values);
+		}
+		CSSValueGrammars grammars = new CSSValueGrammars(CSSValueGrammars.loadDefinitions(), metadata);
+		if (grammars.hasMetadata())
+		{
+			GRAMMARS = grammars;
 		}
+		return grammars;
 	}
 
-	private void processWarningsInReport(Warnings warnings, String sourcePath, List<IProblem> items,
-			List<String> filters)
+	public void buildFile(BuildContext context, IProgressMonitor monitor)
 	{
-		Warning[] warningsArray = warnings.getWarnings();
-		for (Warning warning : warningsArray)
+		if (context == null)
 		{
-			String message = warning.getWarningMessage();
-			if (!isIgnored(message, filters) && !containsCSS3Property(message) && !containsCSS3AtRule(message)
-					&& !isFiltered(message))
+			return;
+		}
+
+		List<IProblem> problems = new ArrayList<IProblem>();
+		try
+		{
+			IParseRootNode ast = context.getAST();
+			if (ast instanceof CSSParseRootNode)
 			{
-				items.add(createWarning(message, warning.getLine(), 0, 0, sourcePath));
+				Walker walker = new Walker(context.getContents(), context.getURI().toString(), getFilters(),
+						getGrammars(), problems);
+				((CSSParseRootNode) ast).accept(walker);
 			}
 		}
+		catch (CoreException e)
+		{
+			// the parse errors are reported by CSSParserValidator
+		}
+
+		context.putProblems(ICSSConstants.W3C_PROBLEM, problems);
 	}
 
 	/**
-	 * Loads our CSS profile.
-	 * 
-	 * @throws IOException
-	 *             if profile loading fails
+	 * Nothing is reused until the CSS metadata could be read, as unknown properties aren't reported before.
 	 */
-	private static void loadAptanaCSSProfile()
+	@Override
+	public String getSettingsKey(BuildContext context)
 	{
-		InputStream configStream = CSSValidator.class.getResourceAsStream(CONFIG_FILE);
-		InputStream profilesStream = CSSValidator.class.getResourceAsStream(PROFILES_CONFIG_FILE);
-
-		try
-		{
-			// loads our config
-			PropertiesLoader.config.load(configStream);
-
-			// loads our profile
-			Utf8Properties profiles = new Utf8Properties();
-			profiles.load(profilesStream);
-			// a hack, but no other way since PropertiesLoader provides no public access to stored profiles
-			Field field = PropertiesLoader.class.getDeclaredField("profiles"); //$NON-NLS-1$
-			field.setAccessible(true);
-			field.set(null, profiles);
-		}
-		catch (Exception e)
+		if (!getGrammars().hasMetadata())
 		{
-			IdeLog.logError(CSSCorePlugin.getDefault(), Messages.CSSValidator_ERR_FailToLoadProfile, e);
+			return null;
 		}
-		finally
+		return super.getSettingsKey(context);
+	}
+
+	public void deleteFile(BuildContext context, IProgressMonitor monitor)
+	{
+		if (context == null)
 		{
-			try
-			{
-				configStream.close();
-			}
-			catch (IOException e)
-			{
-			}
-			try
-			{
-				profilesStream.close();
-			}
-			catch (IOException e)
-			{
-			}
+			return;
 		}
+
+		context.removeProblems(ICSSConstants.W3C_PROBLEM);
 	}
 
 	/**
-	 * Gets the validation report from the validator.
-	 * 
-	 * @param source
-	 *            the source text
-	 * @param path
-	 *            the source path
-	 * @return the report
+	 * Checks the declarations of the rules, @media, @page and @font-face.
 	 */
-	private static StyleSheet getReport(String source, URI path)
+	private class Walker extends CSSTreeWalker
 	{
-		StyleSheetParser parser = new StyleSheetParser();
-		ApplContext ac = new ApplContext("en"); //$NON-NLS-1$
-		ac.setProfile(APTANA_PROFILE);
-		try
+		private final String source;
+		private final String path;
+		private final List<String> filters;
+		private final CSSValueGrammars grammars;
+		private final List<IProblem> problems;
+		private IDocument document;
+
+		Walker(String source, String path, List<String> filters, CSSValueGrammars grammars, List<IProblem> problems)
 		{
-			parser.parseStyleElement(ac, new ByteArrayInputStream(source.getBytes(IOUtil.UTF_8)), null, null,
-					path.toURL(), 0);
+			this.source = source;
+			this.path = path;
+			this.filters = filters;
+			this.grammars = grammars;
+			this.problems = problems;
 		}
-		catch (MalformedURLException e)
+
+		@Override
+		public void visit(CSSRuleNode node)
 		{
-			IdeLog.logError(CSSCorePlugin.getDefault(),
-					MessageFormat.format(Messages.CSSValidator_ERR_InvalidPath, path), e);
+			for (CSSDeclarationNode declaration : node.getDeclarations())
+			{
+				checkDeclaration(declaration, false);
+			}
 		}
-		catch (UnsupportedEncodingException e)
+
+		@Override
+		public void visit(CSSPageNode node)
 		{
-			IdeLog.logError(CSSCorePlugin.getDefault(), e);
+			for (CSSDeclarationNode declaration : node.getDeclarations())
+			{
+				checkDeclaration(declaration, false);
+			}
 		}
 
-		StyleSheet stylesheet = parser.getStyleSheet();
-		stylesheet.findConflicts(ac);
-		return stylesheet;
-	}
-
-	private static boolean containsCSS3Property(String message)
-	{
-		for (String property : CSS3_PROPERTIES)
+		@Override
+		public void visit(CSSFontFaceNode node)
 		{
-			if (message.indexOf("Property " + property) > -1) //$NON-NLS-1$
+			boolean hasFontFamily = false;
+			for (CSSDeclarationNode declaration : node.getDeclarations())
+			{
+				checkDeclaration(declaration, true);
+				hasFontFamily |= FONT_FAMILY.equalsIgnoreCase(declaration.getIdentifier());
+			}
+			if (!hasFontFamily)
 			{
-				return true;
+				String message = MessageFormat.format(Messages.CSSValidator_MissingDescriptor, FONT_FAMILY);
+				if (!isIgnored(message, filters))
+				{
+					problems.add(createWarning(message, getLine(node.getStartingOffset()), node.getStartingOffset(),
+							node.getLength(), path));
+				}
 			}
 		}
-		return false;
-	}
 
-	private static boolean containsCSS3AtRule(String message)
-	{
-		for (String rule : CSS3_AT_RULES)
+		private void checkDeclaration(CSSDeclarationNode declaration, boolean fontFace)
 		{
-			if (message.indexOf(MessageFormat.format("the at-rule {0} is not implemented", rule)) > -1) //$NON-NLS-1$
+			String name = declaration.getIdentifier();
+			if (declaration instanceof CSSErrorDeclarationNode || StringUtil.isEmpty(name)
+					|| isVendorSpecific(name))
+			{
+				return;
+			}
+			name = name.toLowerCase();
+			CSSExpressionNode value = declaration.getAssignedValue();
+
+			CSSValueGrammar grammar;
+			if (fontFace && grammars.isFontFaceDescriptor(name))
+			{
+				grammar = grammars.getFontFaceDescriptorGrammar(name);
+			}
+			else if (grammars.isProperty(name))
+			{
+				grammar = grammars.getPropertyGrammar(name);
+			}
+			else
+			{
+				if (grammars.hasMetadata())
+				{
+					String message = MessageFormat.format(Messages.CSSValidator_ERR_UnknownProperty, name,
+							getText(value));
+					addError(message, declaration.getStartingOffset(), name.length());
+				}
+				return;
+			}
+			if (grammar == null || value == null)
+			{
+				return;
+			}
+
+			List<CSSValueToken> tokens = CSSValueToken.tokenize(value);
+			if (!isCheckable(tokens) || grammar.matches(tokens))
 			{
-				return true;
+				return;
 			}
+			int length = grammar.matchLength(tokens);
+			CSSValueToken token = tokens.get(Math.max(0, Math.min(length, tokens.size() - 1)));
+			String message = MessageFormat.format(Messages.CSSValidator_ERR_InvalidValue, name, token,
+					getText(value));
+			addError(message, token.start, token.end - token.start + 1);
 		}
-		return false;
-	}
 
-	private static boolean isFiltered(String message)
-	{
-		for (String filtered : FILTERED_MESSAGES)
+		/**
+		 * Values made of a global keyword are always valid, values with vendor specific or unknown parts are left
+		 * alone.
+		 */
+		private boolean isCheckable(List<CSSValueToken> tokens)
 		{
-			if (message.indexOf(filtered) > -1)
+			if (tokens.isEmpty())
 			{
-				return true;
+				return false;
 			}
+			if (tokens.size() == 1 && tokens.get(0).type == CSSValueToken.IDENT
+					&& CSSValueGrammar.GLOBAL_KEYWORDS.contains(tokens.get(0).text))
+			{
+				return false;
+			}
+			for (CSSValueToken token : tokens)
+			{
+				if (token.isVendorSpecific()
+						|| (token.type == CSSValueToken.FUNCTION && !grammars.isFunction(token.text)))
+				{
+					return false;
+				}
+			}
+			return true;
 		}
-		return false;
-	}
 
-	public void buildFile(BuildContext context, IProgressMonitor monitor)
-	{
-		if (context == null)
+		private boolean isVendorSpecific(String name)
 		{
-			return;
+			// also covers the _property and *property hacks
+			char c = name.charAt(0);
+			return c == '-' || c == '_' || c == '*';
 		}
 
-		List<IProblem> problems = new ArrayList<IProblem>();
-
-		String source = context.getContents();
-		URI uri = context.getURI();
-		String path = uri.toString();
-
-		StyleSheet sheet = getReport(source, uri);
-		List<String> filters = getFilters();
-		processErrorsInReport(sheet.getErrors(), path, problems, filters);
-		processWarningsInReport(sheet.getWarnings(), path, problems, filters);
-
-		context.putProblems(ICSSConstants.W3C_PROBLEM, problems);
-	}
+		private void addError(String message, int offset, int length)
+		{
+			if (!isIgnored(message, filters))
+			{
+				problems.add(createError(message, getLine(offset), offset, length, path));
+			}
+		}
 
-	public void deleteFile(BuildContext context, IProgressMonitor monitor)
-	{
-		if (context == null)
+		private String getText(CSSExpressionNode value)
 		{
-			return;
+			if (value == null)
+			{
+				return StringUtil.EMPTY;
+			}
+			int start = value.getStartingOffset();
+			int end = value.getEndingOffset() + 1;
+			if (start < 0 || end > source.length() || start > end)
+			{
+				return value.toString();
+			}
+			return source.substring(start, end);
 		}
 
-		context.removeProblems(ICSSConstants.W3C_PROBLEM);
+		private int getLine(int offset)
+		{
+			if (document == null)
+			{
+				document = new Document(source);
+			}
+			try
+			{
+				return document.getLineOfOffset(offset) + 1;
+			}
+			catch (BadLocationException e)
+			{
+				return -1;
+			}
+		}
 	}
 }
@@ -0,0 +1,697 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.css.core.internal.build;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import com.aptana.core.util.CollectionsUtil;
+
+/**
+ * A compiled CSS value definition (see http://www.w3.org/TR/css3-values/#value-defs), matched against the
+ * {@link CSSValueToken}s of a declaration. The supported syntax is:
+ * <ul>
+ * <li>keywords (<code>auto</code>), literal commas and slashes, and functions (<code>rgb()</code>, whose arguments
+ * aren't checked)</li>
+ * <li>types (<code>&lt;length&gt;</code>), either basic ones or defined in {@link CSSValueGrammars}, and references to
+ * the value of a property (<code>&lt;'border-width'&gt;</code>)</li>
+ * <li>juxtaposition, <code>&amp;&amp;</code>, <code>||</code> and <code>|</code> (in order of precedence), and
+ * <code>[ ]</code> for grouping</li>
+ * <li>the multipliers <code>?</code>, <code>*</code>, <code>+</code>, <code>{m}</code>, <code>{m,}</code>,
+ * <code>{m,n}</code> and <code>#</code> (a comma separated list)</li>
+ * </ul>
+ * Matching computes the set of token positions each part of the definition may end at, so no backtracking is needed.
+ */
+/* package */class CSSValueGrammar
+{
+
+	// @formatter:off
+	@SuppressWarnings("nls")
+	private static final Set<String> LENGTH_UNITS = CollectionsUtil.newSet(
+		"px", "em", "ex", "ch", "rem", "vw", "vh", "vmin", "vmax", "cm", "mm", "q", "in", "pt", "pc"
+	);
+	@SuppressWarnings("nls")
+	private static final Set<String> ANGLE_UNITS = CollectionsUtil.newSet("deg", "grad", "rad", "turn");
+	@SuppressWarnings("nls")
+	private static final Set<String> TIME_UNITS = CollectionsUtil.newSet("s", "ms");
+	@SuppressWarnings("nls")
+	private static final Set<String> FREQUENCY_UNITS = CollectionsUtil.newSet("hz", "khz");
+	@SuppressWarnings("nls")
+	private static final Set<String> RESOLUTION_UNITS = CollectionsUtil.newSet("dpi", "dpcm", "dppx", "x");
+	@SuppressWarnings("nls")
+	private static final Set<String> FLEX_UNITS = CollectionsUtil.newSet("fr");
+
+	/**
+	 * The functions that may stand for any numeric value.
+	 */
+	@SuppressWarnings("nls")
+	static final Set<String> MATH_FUNCTIONS = CollectionsUtil.newSet("calc", "min", "max", "clamp");
+
+	/**
+	 * The keywords every property accepts.
+	 */
+	@SuppressWarnings("nls")
+	static final Set<String> GLOBAL_KEYWORDS = CollectionsUtil.newSet("inherit", "initial", "unset");
+
+	private static final Pattern HEX_COLOR = Pattern
+			.compile("#(?:[0-9a-fA-F]{3,4}|[0-9a-fA-F]{6}|[0-9a-fA-F]{8})"); //$NON-NLS-1$
+
+	@SuppressWarnings("nls")
+	private static final Set<String> BASIC_TYPES = CollectionsUtil.newSet(
+		"length", "percentage", "number", "integer", "angle", "time", "frequency", "resolution", "flex", "string",
+		"url", "hex-color", "custom-ident", "ident"
+	);
+	// @formatter:on
+
+	private final Node root;
+
+	private CSSValueGrammar(Node root)
+	{
+		this.root = root;
+	}
+
+	/**
+	 * Returns whether the grammar matches all the given tokens.
+	 */
+	boolean matches(List<CSSValueToken> tokens)
+	{
+		return match(tokens).get(tokens.size());
+	}
+
+	/**
+	 * Returns the number of tokens of the longest prefix of the given tokens that the grammar matches, or -1 if it
+	 * doesn't match any prefix.
+	 */
+	int matchLength(List<CSSValueToken> tokens)
+	{
+		return match(tokens).length() - 1;
+	}
+
+	private BitSet match(List<CSSValueToken> tokens)
+	{
+		return root.match(tokens, 0);
+	}
+
+	static boolean isBasicType(String name)
+	{
+		return BASIC_TYPES.contains(name);
+	}
+
+	/**
+	 * Compiles the given value definition.
+	 *
+	 * @param definition
+	 *            the value definition
+	 * @param grammars
+	 *            the grammars that types and properties are resolved against, when matching
+	 * @throws IllegalArgumentException
+	 *             if the definition has syntax errors
+	 */
+	static CSSValueGrammar compile(String definition, CSSValueGrammars grammars)
+	{
+		return new CSSValueGrammar(new Compiler(definition, grammars).compile());
+	}
+
+	/**
+	 * A part of a grammar.
+	 */
+	private static abstract class Node
+	{
+		/**
+		 * Returns the positions at which a match of this node starting at the given position may end.
+		 */
+		abstract BitSet match(List<CSSValueToken> tokens, int start);
+	}
+
+	/**
+	 * A node matching a single token.
+	 */
+	private static abstract class TokenNode extends Node
+	{
+		@Override
+		BitSet match(List<CSSValueToken> tokens, int start)
+		{
+			BitSet ends = new BitSet();
+			if (start < tokens.size() && accept(tokens.get(start)))
+			{
+				ends.set(start + 1);
+			}
+			return ends;
+		}
+
+		abstract boolean accept(CSSValueToken token);
+	}
+
+	private static class Keyword extends TokenNode
+	{
+		private final String keyword;
+
+		Keyword(String keyword)
+		{
+			this.keyword = keyword;
+		}
+
+		@Override
+		boolean accept(CSSValueToken token)
+		{
+			// numbers are keywords of some metadata values (e.g. font-weight)
+			return (token.type == CSSValueToken.IDENT || token.type == CSSValueToken.NUMBER)
+					&& keyword.equals(token.text);
+		}
+	}
+
+	private static class Literal extends TokenNode
+	{
+		private final int type;
+
+		Literal(int type)
+		{
+			this.type = type;
+		}
+
+		@Override
+		boolean accept(CSSValueToken token)
+		{
+			return token.type == type;
+		}
+	}
+
+	private static class Function extends TokenNode
+	{
+		private final String name;
+
+		Function(String name)
+		{
+			this.name = name;
+		}
+
+		@Override
+		boolean accept(CSSValueToken token)
+		{
+			return token.type == CSSValueToken.FUNCTION && name.equals(token.text);
+		}
+	}
+
+	private static class BasicType extends TokenNode
+	{
+		private final String name;
+
+		BasicType(String name)
+		{
+			this.name = name;
+		}
+
+		@SuppressWarnings("nls")
+		@Override
+		boolean accept(CSSValueToken token)
+		{
+			switch (token.type)
+			{
+				case CSSValueToken.IDENT:
+					return "ident".equals(name)
+							|| ("custom-ident".equals(name) && !GLOBAL_KEYWORDS.contains(token.text) && !"default"
+									.equals(token.text));
+				case CSSValueToken.NUMBER:
+					return "number".equals(name) || ("integer".equals(name) && token.isInteger())
+							|| ("length".equals(name) && token.isZero());
+				case CSSValueToken.PERCENTAGE:
+					return "percentage".equals(name);
+				case CSSValueToken.DIMENSION:
+					return unitsOf(name).contains(token.unit);
+				case CSSValueToken.STRING:
+					return "string".equals(name);
+				case CSSValueToken.URL:
+					return "url".equals(name);
+				case CSSValueToken.HASH:
+					return "hex-color".equals(name) && HEX_COLOR.matcher(token.text).matches();
+				case CSSValueToken.FUNCTION:
+					return MATH_FUNCTIONS.contains(token.text) && isNumeric(name);
+				default:
+					return false;
+			}
+		}
+
+		@SuppressWarnings("nls")
+		private static Set<String> unitsOf(String name)
+		{
+			if ("length".equals(name))
+			{
+				return LENGTH_UNITS;
+			}
+			if ("angle".equals(name))
+			{
+				return ANGLE_UNITS;
+			}
+			if ("time".equals(name))
+			{
+				return TIME_UNITS;
+			}
+			if ("frequency".equals(name))
+			{
+				return FREQUENCY_UNITS;
+			}
+			if ("resolution".equals(name))
+			{
+				return RESOLUTION_UNITS;
+			}
+			if ("flex".equals(name))
+			{
+				return FLEX_UNITS;
+			}
+			return Collections.emptySet();
+		}
+
+		@SuppressWarnings("nls")
+		private static boolean isNumeric(String name)
+		{
+			return "number".equals(name) || "integer".equals(name) || "percentage".equals(name)
+					|| !unitsOf(name).isEmpty();
+		}
+	}
+
+	/**
+	 * A type or property defined in {@link CSSValueGrammars}, resolved the first time it's matched (so definitions may
+	 * refer to each other in any order).
+	 */
+	private static class Reference extends Node
+	{
+		private final String name;
+		private final boolean property;
+		private final CSSValueGrammars grammars;
+		private CSSValueGrammar grammar;
+
+		Reference(String name, boolean property, CSSValueGrammars grammars)
+		{
+			this.name = name;
+			this.property = property;
+			this.grammars = grammars;
+		}
+
+		@Override
+		BitSet match(List<CSSValueToken> tokens, int start)
+		{
+			if (grammar == null)
+			{
+				grammar = property ? grammars.getPropertyGrammar(name) : grammars.getTypeGrammar(name);
+				if (grammar == null)
+				{
+					// an undefined type, or a property whose values aren't checked
+					return new BitSet();
+				}
+			}
+			return grammar.root.match(tokens, start);
+		}
+	}
+
+	private static class Sequence extends Node
+	{
+		private final Node[] children;
+
+		Sequence(List<Node> children)
+		{
+			this.children = children.toArray(new Node[children.size()]);
+		}
+
+		@Override
+		BitSet match(List<CSSValueToken> tokens, int start)
+		{
+			BitSet current = new BitSet();
+			current.set(start);
+			for (Node child : children)
+			{
+				BitSet next = new BitSet();
+				for (int i = current.nextSetBit(0); i >= 0; i = current.nextSetBit(i + 1))
+				{
+					next.or(child.match(tokens, i));
+				}
+				if (next.isEmpty())
+				{
+					return next;
+				}
+				current = next;
+			}
+			return current;
+		}
+	}
+
+	private static class Alternatives extends Node
+	{
+		private final Node[] children;
+
+		Alternatives(List<Node> children)
+		{
+			this.children = children.toArray(new Node[children.size()]);
+		}
+
+		@Override
+		BitSet match(List<CSSValueToken> tokens, int start)
+		{
+			BitSet ends = new BitSet();
+			for (Node child : children)
+			{
+				ends.or(child.match(tokens, start));
+			}
+			return ends;
+		}
+	}
+
+	/**
+	 * The children in any order, either all of them (&&) or at least one of them (||), each one at most once.
+	 */
+	private static class AnyOrder extends Node
+	{
+		private final Node[] children;
+		private final boolean all;
+
+		AnyOrder(List<Node> children, boolean all)
+		{
+			this.children = children.toArray(new Node[children.size()]);
+			this.all = all;
+		}
+
+		@Override
+		BitSet match(List<CSSValueToken> tokens, int start)
+		{
+			return match(tokens, start, 0, new HashMap<Long, BitSet>());
+		}
+
+		private BitSet match(List<CSSValueToken> tokens, int start, int used, Map<Long, BitSet> memo)
+		{
+			Long key = ((long) start << children.length) | used;
+			BitSet ends = memo.get(key);
+			if (ends != null)
+			{
+				return ends;
+			}
+			ends = new BitSet();
+			if (all ? used == (1 << children.length) - 1 : used != 0)
+			{
+				ends.set(start);
+			}
+			for (int i = 0; i < children.length; i++)
+			{
+				if ((used & (1 << i)) == 0)
+				{
+					BitSet childEnds = children[i].match(tokens, start);
+					for (int end = childEnds.nextSetBit(0); end >= 0; end = childEnds.nextSetBit(end + 1))
+					{
+						ends.or(match(tokens, end, used | (1 << i), memo));
+					}
+				}
+			}
+			memo.put(key, ends);
+			return ends;
+		}
+	}
+
+	private static class Repetition extends Node
+	{
+		private final Node child;
+		private final int min;
+		/**
+		 * The maximum number of repetitions, or -1 for no limit.
+		 */
+		private final int max;
+		private final boolean commaSeparated;
+
+		Repetition(Node child, int min, int max, boolean commaSeparated)
+		{
+			this.child = child;
+			this.min = min;
+			this.max = max;
+			this.commaSeparated = commaSeparated;
+		}
+
+		@Override
+		BitSet match(List<CSSValueToken> tokens, int start)
+		{
+			BitSet ends = new BitSet();
+			if (min == 0)
+			{
+				ends.set(start);
+			}
+			// every repetition that matters consumes a token, unless there's a minimum count to reach
+			int limit = (max == -1) ? Math.max(min, tokens.size() - start + 1) : max;
+			BitSet current = new BitSet();
+			current.set(start);
+			for (int count = 1; count <= limit && !current.isEmpty(); count++)
+			{
+				BitSet next = new BitSet();
+				for (int i = current.nextSetBit(0); i >= 0; i = current.nextSetBit(i + 1))
+				{
+					int position = i;
+					if (commaSeparated && count > 1)
+					{
+						if (i >= tokens.size() || tokens.get(i).type != CSSValueToken.COMMA)
+						{
+							continue;
+						}
+						position++;
+					}
+					next.or(child.match(tokens, position));
+				}
+				if (count >= min)
+				{
+					ends.or(next);
+				}
+				current = next;
+			}
+			return ends;
+		}
+	}
+
+	/**
+	 * A recursive descent compiler of value definitions.
+	 */
+	private static class Compiler
+	{
+		private final String definition;
+		private final CSSValueGrammars grammars;
+		private int offset;
+
+		Compiler(String definition, CSSValueGrammars grammars)
+		{
+			this.definition = definition;
+			this.grammars = grammars;
+		}
+
+		Node compile()
+		{
+			Node node = alternatives();
+			skipWhitespace();
+			if (offset < definition.length())
+			{
+				throw error();
+			}
+			return node;
+		}
+
+		private Node alternatives()
+		{
+			List<Node> children = new ArrayList<Node>();
+			children.add(anyOrder());
+			while (consume("|")) //$NON-NLS-1$
+			{
+				children.add(anyOrder());
+			}
+			return (children.size() == 1) ? children.get(0) : new Alternatives(children);
+		}
+
+		private Node anyOrder()
+		{
+			List<Node> children = new ArrayList<Node>();
+			children.add(allOf());
+			while (consume("||")) //$NON-NLS-1$
+			{
+				children.add(allOf());
+			}
+			return (children.size() == 1) ? children.get(0) : new AnyOrder(children, false);
+		}
+
+		private Node allOf()
+		{
+			List<Node> children = new ArrayList<Node>();
+			children.add(sequence());
+			while (consume("&&")) //$NON-NLS-1$
+			{
+				children.add(sequence());
+			}
+			return (children.size() == 1) ? children.get(0) : new AnyOrder(children, true);
+		}
+
+		private Node sequence()
+		{
+			List<Node> children = new ArrayList<Node>();
+			while (true)
+			{
+				skipWhitespace();
+				if (offset >= definition.length() || definition.charAt(offset) == ']'
+						|| definition.charAt(offset) == '|' || definition.startsWith("&&", offset)) //$NON-NLS-1$
+				{
+					break;
+				}
+				children.add(multipliers(term()));
+			}
+			if (children.isEmpty())
+			{
+				throw error();
+			}
+			return (children.size() == 1) ? children.get(0) : new Sequence(children);
+		}
+
+		private Node term()
+		{
+			char c = definition.charAt(offset);
+			switch (c)
+			{
+				case '[':
+					offset++;
+					Node group = alternatives();
+					if (!consume("]")) //$NON-NLS-1$
+					{
+						throw error();
+					}
+					return group;
+				case ',':
+					offset++;
+					return new Literal(CSSValueToken.COMMA);
+				case '/':
+					offset++;
+					return new Literal(CSSValueToken.SLASH);
+				case '<':
+					int end = definition.indexOf('>', offset);
+					if (end == -1)
+					{
+						throw error();
+					}
+					String name = definition.substring(offset + 1, end);
+					offset = end + 1;
+					if (name.length() > 2 && name.charAt(0) == '\'' && name.charAt(name.length() - 1) == '\'')
+					{
+						return new Reference(name.substring(1, name.length() - 1), true, grammars);
+					}
+					return isBasicType(name) ? new BasicType(name) : new Reference(name, false, grammars);
+				default:
+					int start = offset;
+					while (offset < definition.length() && isNameChar(definition.charAt(offset)))
+					{
+						offset++;
+					}
+					if (start == offset)
+					{
+						throw error();
+					}
+					String keyword = definition.substring(start, offset).toLowerCase();
+					if (definition.startsWith("()", offset)) //$NON-NLS-1$
+					{
+						offset += 2;
+						return new Function(keyword);
+					}
+					return new Keyword(keyword);
+			}
+		}
+
+		private Node multipliers(Node node)
+		{
+			while (offset < definition.length())
+			{
+				char c = definition.charAt(offset);
+				if (c == '?')
+				{
+					node = new Repetition(node, 0, 1, false);
+				}
+				else if (c == '*')
+				{
+					node = new Repetition(node, 0, -1, false);
+				}
+				else if (c == '+')
+				{
+					node = new Repetition(node, 1, -1, false);
+				}
+				else if (c == '#')
+				{
+					node = new Repetition(node, 1, -1, true);
+				}
+				else if (c == '{')
+				{
+					int end = definition.indexOf('}', offset);
+					if (end == -1)
+					{
+						throw error();
+					}
+					String range = definition.substring(offset + 1, end);
+					int comma = range.indexOf(',');
+					try
+					{
+						int min = Integer.parseInt((comma == -1 ? range : range.substring(0, comma)).trim());
+						int max = min;
+						if (comma != -1)
+						{
+							String upper = range.substring(comma + 1).trim();
+							max = (upper.length() == 0) ? -1 : Integer.parseInt(upper);
+						}
+						node = new Repetition(node, min, max, false);
+					}
+					catch (NumberFormatException e)
+					{
+						throw error();
+					}
+					offset = end;
+				}
+				else
+				{
+					break;
+				}
+				offset++;
+			}
+			return node;
+		}
+
+		private boolean consume(String text)
+		{
+			skipWhitespace();
+			if (!definition.startsWith(text, offset))
+			{
+				return false;
+			}
+			// don't take the first char of || for a |
+			if ("|".equals(text) && definition.startsWith("||", offset)) //$NON-NLS-1$ //$NON-NLS-2$
+			{
+				return false;
+			}
+			offset += text.length();
+			return true;
+		}
+
+		private void skipWhitespace()
+		{
+			while (offset < definition.length() && Character.isWhitespace(definition.charAt(offset)))
+			{
+				offset++;
+			}
+		}
+
+		private static boolean isNameChar(char c)
+		{
+			return Character.isLetterOrDigit(c) || c == '-' || c == '_';
+		}
+
+		private IllegalArgumentException error()
+		{
+			return new IllegalArgumentException(MessageFormat.format(
+					"Syntax error at offset {0} of value definition: {1}", offset, definition)); //$NON-NLS-1$
+		}
+	}
+}
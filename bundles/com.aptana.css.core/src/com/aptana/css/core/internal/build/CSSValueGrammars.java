@@ -0,0 +1,229 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.css.core.internal.build;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.aptana.core.logging.IdeLog;
+import com.aptana.core.util.StringUtil;
+import com.aptana.css.core.CSSCorePlugin;
+
+/**
+ * The value grammars of the CSS properties, compiled on first use. They come from the definitions bundled in
+ * {@value #DEFINITIONS_FILE}, or else from the keywords the CSS metadata lists for a property.
+ */
+/* package */class CSSValueGrammars
+{
+
+	private static final String DEFINITIONS_FILE = "CSSValueGrammars.properties"; //$NON-NLS-1$
+	private static final String FONT_FACE_PREFIX = "@font-face."; //$NON-NLS-1$
+
+	private static final Pattern FUNCTION = Pattern.compile("([\\w-]+)\\(\\)"); //$NON-NLS-1$
+	private static final Pattern KEYWORD = Pattern.compile("[\\w-]+"); //$NON-NLS-1$
+
+	/**
+	 * The property and type definitions, by name (types are enclosed in angle brackets).
+	 */
+	private final Map<String, String> definitions;
+
+	/**
+	 * The values the metadata lists for every property.
+	 */
+	private final Map<String, List<String>> metadata;
+
+	/**
+	 * The functions used in the definitions, along with the math ones.
+	 */
+	private final Set<String> functions;
+
+	/**
+	 * The compiled grammars, by definition name; <code>null</code> for the properties whose values aren't checked.
+	 */
+	private final Map<String, CSSValueGrammar> grammars = new HashMap<String, CSSValueGrammar>();
+
+	/**
+	 * @param definitions
+	 *            the definitions of properties and types
+	 * @param metadata
+	 *            the values of every property of the CSS metadata
+	 */
+	CSSValueGrammars(Map<String, String> definitions, Map<String, List<String>> metadata)
+	{
+		this.definitions = definitions;
+		this.metadata = metadata;
+		this.functions = new HashSet<String>(CSSValueGrammar.MATH_FUNCTIONS);
+		for (String definition : definitions.values())
+		{
+			Matcher matcher = FUNCTION.matcher(definition);
+			while (matcher.find())
+			{
+				functions.add(matcher.group(1).toLowerCase());
+			}
+		}
+	}
+
+	/**
+	 * @return whether the metadata was available, i.e. whether any property that is unknown here is truly unknown.
+	 */
+	boolean hasMetadata()
+	{
+		return !metadata.isEmpty();
+	}
+
+	boolean isProperty(String name)
+	{
+		return definitions.containsKey(name) || metadata.containsKey(name);
+	}
+
+	boolean isFontFaceDescriptor(String name)
+	{
+		return definitions.containsKey(FONT_FACE_PREFIX + name);
+	}
+
+	/**
+	 * @return whether the grammars know the given function, i.e. whether a value calling it can be checked.
+	 */
+	boolean isFunction(String name)
+	{
+		return functions.contains(name);
+	}
+
+	/**
+	 * @return the grammar of the given property, or <code>null</code> if its values can't be checked.
+	 */
+	synchronized CSSValueGrammar getPropertyGrammar(String name)
+	{
+		if (grammars.containsKey(name))
+		{
+			return grammars.get(name);
+		}
+		String definition = definitions.get(name);
+		if (definition == null)
+		{
+			definition = getMetadataDefinition(metadata.get(name));
+		}
+		return compile(name, definition);
+	}
+
+	/**
+	 * @return the grammar of the given @font-face descriptor, or <code>null</code> if its values can't be checked.
+	 */
+	synchronized CSSValueGrammar getFontFaceDescriptorGrammar(String name)
+	{
+		String key = FONT_FACE_PREFIX + name;
+		if (grammars.containsKey(key))
+		{
+			return grammars.get(key);
+		}
+		return compile(key, definitions.get(key));
+	}
+
+	/**
+	 * @return the grammar of the given type, or <code>null</code> if it isn't defined.
+	 */
+	synchronized CSSValueGrammar getTypeGrammar(String name)
+	{
+		String key = '<' + name + '>';
+		if (grammars.containsKey(key))
+		{
+			return grammars.get(key);
+		}
+		return compile(key, definitions.get(key));
+	}
+
+	private CSSValueGrammar compile(String key, String definition)
+	{
+		CSSValueGrammar grammar = null;
+		if (!StringUtil.isEmpty(definition))
+		{
+			try
+			{
+				grammar = CSSValueGrammar.compile(definition, this);
+			}
+			catch (IllegalArgumentException e)
+			{
+				IdeLog.logError(CSSCorePlugin.getDefault(), e);
+			}
+		}
+		grammars.put(key, grammar);
+		return grammar;
+	}
+
+	/**
+	 * Turns the values of a property in the metadata into a definition, if they're all keywords.
+	 */
+	private static String getMetadataDefinition(List<String> values)
+	{
+		if (values == null || values.isEmpty())
+		{
+			return null;
+		}
+		StringBuilder definition = new StringBuilder();
+		for (String value : values)
+		{
+			if (!KEYWORD.matcher(value).matches())
+			{
+				// "*", types or functions, these are only hints
+				return null;
+			}
+			if (definition.length() > 0)
+			{
+				definition.append(" | "); //$NON-NLS-1$
+			}
+			definition.append(value);
+		}
+		return definition.toString();
+	}
+
+	/**
+	 * Reads the bundled definitions.
+	 */
+	static Map<String, String> loadDefinitions()
+	{
+		Map<String, String> definitions = new HashMap<String, String>();
+		InputStream stream = CSSValueGrammars.class.getResourceAsStream(DEFINITIONS_FILE);
+		if (stream == null)
+		{
+			return definitions;
+		}
+		try
+		{
+			Properties properties = new Properties();
+			properties.load(stream);
+			for (Map.Entry<Object, Object> entry : properties.entrySet())
+			{
+				definitions.put((String) entry.getKey(), ((String) entry.getValue()).trim());
+			}
+		}
+		catch (IOException e)
+		{
+			IdeLog.logError(CSSCorePlugin.getDefault(), e);
+		}
+		finally
+		{
+			try
+			{
+				stream.close();
+			}
+			catch (IOException e)
+			{
+				// ignore
+			}
+		}
+		return definitions;
+	}
+}
@@ -0,0 +1,216 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.css.core.internal.build;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.aptana.css.core.parsing.ast.CSSExpressionNode;
+import com.aptana.css.core.parsing.ast.CSSFunctionNode;
+import com.aptana.css.core.parsing.ast.CSSTermListNode;
+import com.aptana.css.core.parsing.ast.CSSTermNode;
+
+/**
+ * A component value of a declaration, as seen by {@link CSSValueGrammar}. The tokens of a value are read from the
+ * expression the CSS parser built for it: the terms, the functions (whose arguments aren't looked into) and the
+ * separators between them.
+ */
+/* package */class CSSValueToken
+{
+
+	static final int IDENT = 0;
+	static final int NUMBER = 1;
+	static final int PERCENTAGE = 2;
+	static final int DIMENSION = 3;
+	static final int STRING = 4;
+	static final int URL = 5;
+	static final int HASH = 6;
+	static final int FUNCTION = 7;
+	static final int COMMA = 8;
+	static final int SLASH = 9;
+	/**
+	 * Any other separator (+, -, =).
+	 */
+	static final int OPERATOR = 10;
+
+	private static final Pattern NUMERIC = Pattern
+			.compile("([+-]?(?:\\d+(?:\\.\\d*)?|\\.\\d+)(?:[eE][+-]?\\d+)?)(%|[a-zA-Z]+)?"); //$NON-NLS-1$
+
+	final int type;
+
+	/**
+	 * The text of the token, lower case for identifiers; the name of a function, the number of a dimension or
+	 * percentage.
+	 */
+	final String text;
+
+	/**
+	 * The lower case unit of a dimension.
+	 */
+	final String unit;
+
+	final int start;
+	final int end;
+
+	CSSValueToken(int type, String text, String unit, int start, int end)
+	{
+		this.type = type;
+		this.text = text;
+		this.unit = unit;
+		this.start = start;
+		this.end = end;
+	}
+
+	boolean isInteger()
+	{
+		return type == NUMBER && text.indexOf('.') == -1 && text.indexOf('e') == -1 && text.indexOf('E') == -1;
+	}
+
+	boolean isZero()
+	{
+		return type == NUMBER && Double.parseDouble(text) == 0;
+	}
+
+	/**
+	 * @return whether the token is an identifier or a function with a vendor prefix.
+	 */
+	boolean isVendorSpecific()
+	{
+		return (type == IDENT || type == FUNCTION) && text.length() > 1 && text.charAt(0) == '-'
+				&& !Character.isDigit(text.charAt(1));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString()
+	{
+		switch (type)
+		{
+			case FUNCTION:
+				return text + "()"; //$NON-NLS-1$
+			case DIMENSION:
+				return text + unit;
+			case PERCENTAGE:
+				return text + '%';
+			default:
+				return text;
+		}
+	}
+
+	/**
+	 * Returns the tokens of the given expression, in source order.
+	 */
+	static List<CSSValueToken> tokenize(CSSExpressionNode expression)
+	{
+		List<CSSValueToken> tokens = new ArrayList<CSSValueToken>();
+		if (expression != null)
+		{
+			tokenize(expression, tokens);
+		}
+		return tokens;
+	}
+
+	private static void tokenize(CSSExpressionNode expression, List<CSSValueToken> tokens)
+	{
+		if (expression instanceof CSSTermListNode)
+		{
+			CSSTermListNode list = (CSSTermListNode) expression;
+			tokenize(list.getLeftExpression(), tokens);
+			String separator = list.getSeparator();
+			CSSExpressionNode right = list.getRightExpression();
+			if (separator != null)
+			{
+				int type = OPERATOR;
+				if (",".equals(separator)) //$NON-NLS-1$
+				{
+					type = COMMA;
+				}
+				else if ("/".equals(separator)) //$NON-NLS-1$
+				{
+					type = SLASH;
+				}
+				int offset = right.getStartingOffset() - 1;
+				tokens.add(new CSSValueToken(type, separator, null, offset, offset));
+			}
+			tokenize(right, tokens);
+		}
+		else if (expression instanceof CSSFunctionNode)
+		{
+			tokens.add(new CSSValueToken(FUNCTION, ((CSSFunctionNode) expression).getName().toLowerCase(), null,
+					expression.getStartingOffset(), expression.getEndingOffset()));
+		}
+		else if (expression instanceof CSSTermNode)
+		{
+			add(createTerm(expression.toString(), expression.getStartingOffset(), expression.getEndingOffset()),
+					tokens);
+		}
+		else
+		{
+			// an error in the expression, which the parser already reported
+			tokens.add(new CSSValueToken(OPERATOR, expression.toString(), null, expression.getStartingOffset(),
+					expression.getEndingOffset()));
+		}
+	}
+
+	/**
+	 * Adds a term to the tokens, merging a number and a unit the lexer doesn't know (e.g. 1.5vw) back into a
+	 * dimension.
+	 */
+	private static void add(CSSValueToken token, List<CSSValueToken> tokens)
+	{
+		int last = tokens.size() - 1;
+		if (token.type == IDENT && last >= 0)
+		{
+			CSSValueToken previous = tokens.get(last);
+			if (previous.type == NUMBER && previous.end + 1 == token.start)
+			{
+				tokens.set(last, new CSSValueToken(DIMENSION, previous.text, token.text, previous.start, token.end));
+				return;
+			}
+		}
+		tokens.add(token);
+	}
+
+	private static CSSValueToken createTerm(String text, int start, int end)
+	{
+		char first = text.length() == 0 ? 0 : text.charAt(0);
+		if (first == '"' || first == '\'')
+		{
+			return new CSSValueToken(STRING, text, null, start, end);
+		}
+		if (first == '#')
+		{
+			return new CSSValueToken(HASH, text, null, start, end);
+		}
+		if (text.regionMatches(true, 0, "url(", 0, 4)) //$NON-NLS-1$
+		{
+			return new CSSValueToken(URL, text, null, start, end);
+		}
+		Matcher matcher = NUMERIC.matcher(text);
+		if (matcher.matches())
+		{
+			String number = matcher.group(1);
+			String unit = matcher.group(2);
+			if (unit == null)
+			{
+				return new CSSValueToken(NUMBER, number, null, start, end);
+			}
+			if ("%".equals(unit)) //$NON-NLS-1$
+			{
+				return new CSSValueToken(PERCENTAGE, number, null, start, end);
+			}
+			return new CSSValueToken(DIMENSION, number, unit.toLowerCase(), start, end);
+		}
+		return new CSSValueToken(IDENT, text.toLowerCase(), null, start, end);
+	}
+}
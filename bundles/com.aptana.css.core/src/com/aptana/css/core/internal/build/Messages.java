@@ -14,11 +14,9 @@ public class Messages extends NLS
 
 	private static final String BUNDLE_NAME = "com.aptana.css.core.internal.build.messages"; //$NON-NLS-1$
 
-	public static String AptanaCSSInheritanceProperties_ERR_FailToLoad;
-	public static String AptanaCSSStyle_ERR_CreatingNewInstance;
-	public static String AptanaCSSStyle_ERR_UnableToLoadProperties;
-	public static String CSSValidator_ERR_FailToLoadProfile;
-	public static String CSSValidator_ERR_InvalidPath;
+	public static String CSSValidator_ERR_InvalidValue;
+	public static String CSSValidator_ERR_UnknownProperty;
+	public static String CSSValidator_MissingDescriptor;
 
 	static
 	{
@@ -0,0 +1,674 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.css.core.parsing;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import beaver.Symbol;
+
+import com.aptana.css.core.CSSCorePlugin;
+import com.aptana.css.core.parsing.ast.CSSAtRuleNode;
+import com.aptana.css.core.parsing.ast.CSSAttributeSelectorNode;
+import com.aptana.css.core.parsing.ast.CSSCharSetNode;
+import com.aptana.css.core.parsing.ast.CSSCommentNode;
+import com.aptana.css.core.parsing.ast.CSSDeclarationNode;
+import com.aptana.css.core.parsing.ast.CSSErrorDeclarationNode;
+import com.aptana.css.core.parsing.ast.CSSErrorExpressionNode;
+import com.aptana.css.core.parsing.ast.CSSExpressionNode;
+import com.aptana.css.core.parsing.ast.CSSFontFaceNode;
+import com.aptana.css.core.parsing.ast.CSSFunctionNode;
+import com.aptana.css.core.parsing.ast.CSSImportNode;
+import com.aptana.css.core.parsing.ast.CSSList;
+import com.aptana.css.core.parsing.ast.CSSMediaNode;
+import com.aptana.css.core.parsing.ast.CSSMozDocument;
+import com.aptana.css.core.parsing.ast.CSSMsViewPort;
+import com.aptana.css.core.parsing.ast.CSSNamespaceNode;
+import com.aptana.css.core.parsing.ast.CSSNode;
+import com.aptana.css.core.parsing.ast.CSSPageNode;
+import com.aptana.css.core.parsing.ast.CSSPageSelectorNode;
+import com.aptana.css.core.parsing.ast.CSSParseRootNode;
+import com.aptana.css.core.parsing.ast.CSSRuleNode;
+import com.aptana.css.core.parsing.ast.CSSSelectorNode;
+import com.aptana.css.core.parsing.ast.CSSSimpleSelectorNode;
+import com.aptana.css.core.parsing.ast.CSSTermListNode;
+import com.aptana.css.core.parsing.ast.CSSTermNode;
+import com.aptana.css.core.parsing.ast.CSSTextNode;
+import com.aptana.parsing.IParseResultSerializer;
+import com.aptana.parsing.ast.IParseNode;
+import com.aptana.parsing.ast.IParseRootNode;
+import com.aptana.parsing.ast.ParseNode;
+import com.aptana.parsing.lexer.IRange;
+
+/**
+ * Serializes the ASTs produced by the {@link CSSParser}. Nodes are written depth-first with their offsets as variable
+ * length ints relative to the previous node and their strings through a string table, and the parent of each node is
+ * written at the end (the parser sets parents that are not the node holding them, i.e.: declarations have the first
+ * selector of their rule as parent), so that the tree read back is the same as the one the parser produced.
+ */
+public class CSSParseResultSerializer implements IParseResultSerializer
+{
+
+	/**
+	 * Must be increased when the encoding changes.
+	 */
+	private static final String ENCODING_VERSION = "1"; //$NON-NLS-1$
+
+	private static final byte NULL = 0;
+	private static final byte REFERENCE = 1;
+	private static final byte AT_RULE = 2;
+	private static final byte ATTRIBUTE_SELECTOR = 3;
+	private static final byte CHAR_SET = 4;
+	private static final byte COMMENT = 5;
+	private static final byte DECLARATION = 6;
+	private static final byte ERROR_DECLARATION = 7;
+	private static final byte ERROR_EXPRESSION = 8;
+	private static final byte FONTFACE = 9;
+	private static final byte FUNCTION = 10;
+	private static final byte IMPORT = 11;
+	private static final byte LIST = 12;
+	private static final byte MEDIA = 13;
+	private static final byte MOZ_DOCUMENT = 14;
+	private static final byte MS_VIEWPORT = 15;
+	private static final byte NAMESPACE = 16;
+	private static final byte PAGE = 17;
+	private static final byte PAGE_SELECTOR = 18;
+	private static final byte RULE = 19;
+	private static final byte SELECTOR = 20;
+	private static final byte SIMPLE_SELECTOR = 21;
+	private static final byte TERM_LIST = 22;
+	private static final byte TERM = 23;
+	private static final byte TEXT = 24;
+
+	private static final Map<Class<?>, Byte> TAGS = new HashMap<Class<?>, Byte>();
+	static
+	{
+		TAGS.put(CSSAtRuleNode.class, AT_RULE);
+		TAGS.put(CSSAttributeSelectorNode.class, ATTRIBUTE_SELECTOR);
+		TAGS.put(CSSCharSetNode.class, CHAR_SET);
+		TAGS.put(CSSCommentNode.class, COMMENT);
+		TAGS.put(CSSDeclarationNode.class, DECLARATION);
+		TAGS.put(CSSErrorDeclarationNode.class, ERROR_DECLARATION);
+		TAGS.put(CSSErrorExpressionNode.class, ERROR_EXPRESSION);
+		TAGS.put(CSSFontFaceNode.class, FONTFACE);
+		TAGS.put(CSSFunctionNode.class, FUNCTION);
+		TAGS.put(CSSImportNode.class, IMPORT);
+		TAGS.put(CSSList.class, LIST);
+		TAGS.put(CSSMediaNode.class, MEDIA);
+		TAGS.put(CSSMozDocument.class, MOZ_DOCUMENT);
+		TAGS.put(CSSMsViewPort.class, MS_VIEWPORT);
+		TAGS.put(CSSNamespaceNode.class, NAMESPACE);
+		TAGS.put(CSSPageNode.class, PAGE);
+		TAGS.put(CSSPageSelectorNode.class, PAGE_SELECTOR);
+		TAGS.put(CSSRuleNode.class, RULE);
+		TAGS.put(CSSSelectorNode.class, SELECTOR);
+		TAGS.put(CSSSimpleSelectorNode.class, SIMPLE_SELECTOR);
+		TAGS.put(CSSTermListNode.class, TERM_LIST);
+		TAGS.put(CSSTermNode.class, TERM);
+		TAGS.put(CSSTextNode.class, TEXT);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.parsing.IParseResultSerializer#getVersion()
+	 */
+	public String getVersion()
+	{
+		CSSCorePlugin plugin = CSSCorePlugin.getDefault();
+		if (plugin == null)
+		{
+			return ENCODING_VERSION;
+		}
+		return ENCODING_VERSION + '_' + plugin.getBundle().getVersion();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.parsing.IParseResultSerializer#write(com.aptana.parsing.ast.IParseRootNode, java.io.DataOutput)
+	 */
+	public void write(IParseRootNode root, DataOutput output) throws IOException
+	{
+		if (root.getClass() != CSSParseRootNode.class)
+		{
+			throw new IOException("Unexpected root node: " + root.getClass().getName()); //$NON-NLS-1$
+		}
+		new Writer(output).writeRoot((CSSParseRootNode) root);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.parsing.IParseResultSerializer#read(java.io.DataInput)
+	 */
+	public IParseRootNode read(DataInput input) throws IOException
+	{
+		return new Reader(input).readRoot();
+	}
+
+	private static class Writer
+	{
+		private final DataOutput fOutput;
+		private final Map<IParseNode, Integer> fIds = new IdentityHashMap<IParseNode, Integer>();
+		private final List<IParseNode> fNodes = new ArrayList<IParseNode>();
+		private final Map<String, Integer> fStrings = new HashMap<String, Integer>();
+		private int fLastStart;
+
+		Writer(DataOutput output)
+		{
+			fOutput = output;
+		}
+
+		void writeRoot(CSSParseRootNode root) throws IOException
+		{
+			fIds.put(root, 0);
+			fNodes.add(root);
+			writeInt(root.getNodeType());
+			writeOffsets(root);
+			writeNodes(root.getChildren());
+			writeNodes(root.getCommentNodes());
+
+			// parents are written as the distance to the node (usually small), 0 being no parent.
+			int size = fNodes.size();
+			for (int i = 0; i < size; i++)
+			{
+				IParseNode node = fNodes.get(i);
+				IParseNode parent = node.getParent();
+				if (parent == null)
+				{
+					writeSignedInt(0);
+					continue;
+				}
+				Integer id = fIds.get(parent);
+				if (id == null || id == i)
+				{
+					throw new IOException("Unexpected parent for node: " + node); //$NON-NLS-1$
+				}
+				writeSignedInt(i - id);
+			}
+		}
+
+		private void writeNode(IParseNode node) throws IOException
+		{
+			if (node == null)
+			{
+				fOutput.writeByte(NULL);
+				return;
+			}
+			Integer id = fIds.get(node);
+			if (id != null)
+			{
+				fOutput.writeByte(REFERENCE);
+				writeInt(id);
+				return;
+			}
+			Byte tag = TAGS.get(node.getClass());
+			if (tag == null)
+			{
+				throw new IOException("Unexpected node: " + node.getClass().getName()); //$NON-NLS-1$
+			}
+
+			fIds.put(node, fNodes.size());
+			fNodes.add(node);
+			fOutput.writeByte(tag);
+			writeOffsets(node);
+
+			switch (tag.byteValue())
+			{
+				case AT_RULE:
+					CSSAtRuleNode atRule = (CSSAtRuleNode) node;
+					writeString(atRule.getName());
+					writeString(atRule.getRuleId());
+					break;
+
+				case ATTRIBUTE_SELECTOR:
+					writeString(((CSSAttributeSelectorNode) node).getAttributeText());
+					break;
+
+				case CHAR_SET:
+					writeString(((CSSCharSetNode) node).getEncoding());
+					break;
+
+				case COMMENT:
+					writeString(node.getText());
+					break;
+
+				case DECLARATION:
+					CSSDeclarationNode declaration = (CSSDeclarationNode) node;
+					writeString(declaration.getIdentifier());
+					writeString(declaration.getStatus());
+					if (declaration.getStatus() != null)
+					{
+						IRange range = declaration.getStatusRange();
+						writeSignedInt(range.getStartingOffset() - fLastStart);
+						writeInt(range.getEndingOffset() - range.getStartingOffset() + 1);
+					}
+					fOutput.writeBoolean(declaration.hasSemicolon());
+					break;
+
+				case FUNCTION:
+					writeString(((CSSFunctionNode) node).getName());
+					break;
+
+				case IMPORT:
+					CSSImportNode importNode = (CSSImportNode) node;
+					writeString(importNode.getUri());
+					writeNodes(importNode.getMedias());
+					break;
+
+				case MEDIA:
+					writeNodes(((CSSMediaNode) node).getMedias());
+					break;
+
+				case MS_VIEWPORT:
+					writeNodes(((CSSMsViewPort) node).getDeclarations());
+					break;
+
+				case NAMESPACE:
+					CSSNamespaceNode namespace = (CSSNamespaceNode) node;
+					writeString(namespace.getPrefix());
+					writeString(namespace.getUri());
+					break;
+
+				case PAGE:
+					writeNode(((CSSPageNode) node).getSelector());
+					break;
+
+				case PAGE_SELECTOR:
+				case TEXT:
+					writeString(node.getText());
+					break;
+
+				case RULE:
+					CSSRuleNode rule = (CSSRuleNode) node;
+					writeNodes(rule.getSelectors());
+					writeNodes(rule.getDeclarations());
+					break;
+
+				case SELECTOR:
+					writeString(((CSSSelectorNode) node).getCombinator());
+					break;
+
+				case SIMPLE_SELECTOR:
+					writeString(((CSSSimpleSelectorNode) node).getTypeSelector());
+					break;
+
+				case TERM_LIST:
+					writeString(((CSSTermListNode) node).getSeparator());
+					break;
+
+				case TERM:
+					writeString(((CSSTermNode) node).getTerm());
+					break;
+
+				default:
+					// no fields
+					break;
+			}
+
+			writeNodes(node.getChildren());
+		}
+
+		private void writeNodes(IParseNode[] nodes) throws IOException
+		{
+			writeInt(nodes.length);
+			for (IParseNode node : nodes)
+			{
+				writeNode(node);
+			}
+		}
+
+		private void writeOffsets(IParseNode node) throws IOException
+		{
+			int start = node.getStartingOffset();
+			writeSignedInt(start - fLastStart);
+			fLastStart = start;
+			// the length may be 0 for empty nodes.
+			writeInt(node.getEndingOffset() - start + 1);
+		}
+
+		/**
+		 * Writes a string: 0 for null, 1 followed by the string the first time a string is written and the index of the
+		 * string + 2 afterwards.
+		 */
+		private void writeString(String string) throws IOException
+		{
+			if (string == null)
+			{
+				writeInt(0);
+				return;
+			}
+			Integer index = fStrings.get(string);
+			if (index != null)
+			{
+				writeInt(index + 2);
+				return;
+			}
+			fStrings.put(string, fStrings.size());
+			writeInt(1);
+			fOutput.writeUTF(string);
+		}
+
+		/**
+		 * Writes a non-negative int in as many bytes as needed (7 bits per byte).
+		 */
+		private void writeInt(int value) throws IOException
+		{
+			if (value < 0)
+			{
+				throw new IOException("Unexpected negative value: " + value); //$NON-NLS-1$
+			}
+			while ((value & ~0x7F) != 0)
+			{
+				fOutput.writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			fOutput.writeByte(value);
+		}
+
+		/**
+		 * Writes an int that may be negative, mapping small negative values to small positive ones first.
+		 */
+		private void writeSignedInt(int value) throws IOException
+		{
+			writeInt((value << 1) ^ (value >> 31));
+		}
+	}
+
+	private static class Reader
+	{
+		private final DataInput fInput;
+		private final List<IParseNode> fNodes = new ArrayList<IParseNode>();
+		private final List<String> fStrings = new ArrayList<String>();
+		private int fLastStart;
+
+		Reader(DataInput input)
+		{
+			fInput = input;
+		}
+
+		CSSParseRootNode readRoot() throws IOException
+		{
+			fNodes.add(null);
+			short nodeType = (short) readInt();
+			int start = readStart();
+			int end = start + readInt() - 1;
+			IParseNode[] children = readNodes();
+			CSSParseRootNode root = new CSSParseRootNode(Arrays.asList(children).toArray(new Symbol[children.length]));
+			fNodes.set(0, root);
+			root.setLocation(start, end);
+			root.setNodeType(nodeType);
+			root.setCommentNodes(readNodes());
+
+			int size = fNodes.size();
+			for (int i = 0; i < size; i++)
+			{
+				int distance = readSignedInt();
+				((ParseNode) fNodes.get(i)).setParent((distance == 0) ? null : getNode(i - distance));
+			}
+			return root;
+		}
+
+		private IParseNode readNode() throws IOException
+		{
+			byte tag = fInput.readByte();
+			if (tag == NULL)
+			{
+				return null;
+			}
+			if (tag == REFERENCE)
+			{
+				return getNode(readInt());
+			}
+
+			int id = fNodes.size();
+			fNodes.add(null);
+			int start = readStart();
+			int end = start + readInt() - 1;
+
+			CSSNode node;
+			switch (tag)
+			{
+				case AT_RULE:
+					node = new CSSAtRuleNode(readString(), readString());
+					break;
+
+				case ATTRIBUTE_SELECTOR:
+					String text = readString();
+					IParseNode[] function = readNodes();
+					node = (text != null) ? new CSSAttributeSelectorNode(text) : new CSSAttributeSelectorNode(
+							(CSSExpressionNode) getChild(function, 0));
+					return setNode(id, node, start, end, function);
+
+				case CHAR_SET:
+					node = new CSSCharSetNode(readString());
+					break;
+
+				case COMMENT:
+					node = new CSSCommentNode(readString(), start, end);
+					break;
+
+				case DECLARATION:
+					String identifier = readString();
+					String status = readString();
+					Symbol statusSymbol = null;
+					if (status != null)
+					{
+						int statusStart = start + readSignedInt();
+						int statusEnd = statusStart + readInt() - 1;
+						statusSymbol = new Symbol((short) 0, statusStart, statusEnd, status);
+					}
+					boolean hasSemicolon = fInput.readBoolean();
+					IParseNode[] value = readNodes();
+					CSSDeclarationNode declaration = new CSSDeclarationNode(identifier,
+							(CSSExpressionNode) getChild(value, 0), statusSymbol);
+					if (hasSemicolon)
+					{
+						declaration.setHasSemicolon(new Symbol((short) 0, end, end, null));
+					}
+					return setNode(id, declaration, start, end, value);
+
+				case ERROR_DECLARATION:
+					node = new CSSErrorDeclarationNode();
+					break;
+
+				case ERROR_EXPRESSION:
+					node = new CSSErrorExpressionNode();
+					break;
+
+				case FONTFACE:
+					node = new CSSFontFaceNode();
+					break;
+
+				case FUNCTION:
+					node = new CSSFunctionNode(readString(), null);
+					break;
+
+				case IMPORT:
+					String uri = readString();
+					IParseNode[] medias = readNodes();
+					node = new CSSImportNode(uri, Arrays.asList(medias).toArray(new CSSTextNode[medias.length]));
+					break;
+
+				case LIST:
+					node = new CSSList();
+					break;
+
+				case MEDIA:
+					IParseNode[] mediaList = readNodes();
+					node = new CSSMediaNode(Arrays.asList(mediaList).toArray(new CSSTextNode[mediaList.length]));
+					break;
+
+				case MOZ_DOCUMENT:
+					node = new CSSMozDocument();
+					break;
+
+				case MS_VIEWPORT:
+					node = new CSSMsViewPort(readList(CSSDeclarationNode.class));
+					break;
+
+				case NAMESPACE:
+					node = new CSSNamespaceNode(readString(), readString());
+					break;
+
+				case PAGE:
+					CSSPageNode page = new CSSPageNode();
+					page.setSelector((CSSPageSelectorNode) readNode());
+					node = page;
+					break;
+
+				case PAGE_SELECTOR:
+					node = new CSSPageSelectorNode(readString());
+					break;
+
+				case RULE:
+					List<CSSSelectorNode> selectors = readList(CSSSelectorNode.class);
+					node = new CSSRuleNode(selectors, readList(CSSDeclarationNode.class));
+					break;
+
+				case SELECTOR:
+					CSSSelectorNode selector = new CSSSelectorNode();
+					String combinator = readString();
+					if (combinator.length() > 0)
+					{
+						selector.setCombinator(combinator);
+					}
+					node = selector;
+					break;
+
+				case SIMPLE_SELECTOR:
+					node = new CSSSimpleSelectorNode(readString(), new CSSAttributeSelectorNode[0]);
+					break;
+
+				case TERM_LIST:
+					String separator = readString();
+					IParseNode[] terms = readNodes();
+					node = new CSSTermListNode((CSSExpressionNode) getChild(terms, 0),
+							(CSSExpressionNode) getChild(terms, 1), separator);
+					return setNode(id, node, start, end, terms);
+
+				case TERM:
+					node = new CSSTermNode(readString());
+					break;
+
+				case TEXT:
+					node = new CSSTextNode(readString());
+					break;
+
+				default:
+					throw new IOException("Unexpected node tag: " + tag); //$NON-NLS-1$
+			}
+			return setNode(id, node, start, end, readNodes());
+		}
+
+		private IParseNode setNode(int id, CSSNode node, int start, int end, IParseNode[] children)
+		{
+			if (children.length > 0)
+			{
+				node.setChildren(children);
+			}
+			node.setLocation(start, end);
+			fNodes.set(id, node);
+			return node;
+		}
+
+		private IParseNode[] readNodes() throws IOException
+		{
+			int count = readInt();
+			IParseNode[] nodes = new IParseNode[count];
+			for (int i = 0; i < count; i++)
+			{
+				nodes[i] = readNode();
+			}
+			return nodes;
+		}
+
+		private <T extends IParseNode> List<T> readList(Class<T> type) throws IOException
+		{
+			IParseNode[] nodes = readNodes();
+			List<T> list = new ArrayList<T>(nodes.length);
+			for (IParseNode node : nodes)
+			{
+				list.add(type.cast(node));
+			}
+			return list;
+		}
+
+		private IParseNode getNode(int id) throws IOException
+		{
+			if (id < 0 || id >= fNodes.size() || fNodes.get(id) == null)
+			{
+				throw new IOException("Unexpected node reference: " + id); //$NON-NLS-1$
+			}
+			return fNodes.get(id);
+		}
+
+		private IParseNode getChild(IParseNode[] children, int index) throws IOException
+		{
+			if (index >= children.length)
+			{
+				throw new IOException("Missing child node"); //$NON-NLS-1$
+			}
+			return children[index];
+		}
+
+		private String readString() throws IOException
+		{
+			int index = readInt();
+			switch (index)
+			{
+				case 0:
+					return null;
+
+				case 1:
+					String string = fInput.readUTF();
+					fStrings.add(string);
+					return string;
+
+				default:
+					if (index - 2 >= fStrings.size())
+					{
+						throw new IOException("Unexpected string reference: " + index); //$NON-NLS-1$
+					}
+					return fStrings.get(index - 2);
+			}
+		}
+
+		private int readStart() throws IOException
+		{
+			fLastStart += readSignedInt();
+			return fLastStart;
+		}
+
+		private int readSignedInt() throws IOException
+		{
+			int value = readInt();
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		private int readInt() throws IOException
+		{
+			int value = 0;
+			for (int shift = 0; shift < 32; shift += 7)
+			{
+				int b = fInput.readByte();
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0)
+				{
+					return value;
+				}
+			}
+			throw new IOException("Malformed int"); //$NON-NLS-1$
+		}
+	}
+}
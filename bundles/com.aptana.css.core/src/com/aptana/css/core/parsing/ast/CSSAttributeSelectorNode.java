@@ -32,6 +32,16 @@ public class CSSAttributeSelectorNode extends CSSNode
 		fAttributeText = text;
 	}
 
+	/**
+	 * getAttributeText
+	 * 
+	 * @return String or null if this selector is a function
+	 */
+	public String getAttributeText()
+	{
+		return fAttributeText;
+	}
+
 	@Override
 	public short getNodeType()
 	{
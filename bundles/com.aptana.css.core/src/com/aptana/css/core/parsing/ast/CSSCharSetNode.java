@@ -22,6 +22,16 @@ public class CSSCharSetNode extends CSSNode
 		fEncoding = encoding;
 	}
 
+	/**
+	 * getEncoding
+	 * 
+	 * @return
+	 */
+	public String getEncoding()
+	{
+		return fEncoding;
+	}
+
 	@Override
 	public short getNodeType()
 	{
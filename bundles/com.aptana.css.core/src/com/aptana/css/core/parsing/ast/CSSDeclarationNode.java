@@ -152,6 +152,16 @@ public class CSSDeclarationNode extends CSSNode
 		return (fStatus != null) ? new Range(fStatusStart, fStatusEnd) : Range.EMPTY;
 	}
 
+	/**
+	 * hasSemicolon
+	 * 
+	 * @return
+	 */
+	public boolean hasSemicolon()
+	{
+		return fHasSemicolon;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see com.aptana.parsing.ast.ParseNode#hashCode()
@@ -8,6 +8,10 @@
 package com.aptana.css.core.parsing.ast;
 
 import java.util.Arrays;
+import java.util.Map;
+
+import com.aptana.parsing.ast.IParseNode;
+import com.aptana.parsing.ast.ParseNode;
 
 public class CSSImportNode extends CSSNode
 {
@@ -102,4 +106,15 @@ public class CSSImportNode extends CSSNode
 
 		return text.toString();
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.parsing.ast.ParseNode#copyReferences(java.util.Map)
+	 */
+	@Override
+	protected void copyReferences(Map<IParseNode, ParseNode> copies)
+	{
+		super.copyReferences(copies);
+		fMediaList = copyNodes(fMediaList, copies);
+	}
 }
@@ -9,8 +9,10 @@ package com.aptana.css.core.parsing.ast;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import com.aptana.parsing.ast.IParseNode;
+import com.aptana.parsing.ast.ParseNode;
 
 public class CSSMediaNode extends CSSNode
 {
@@ -130,4 +132,15 @@ public class CSSMediaNode extends CSSNode
 
 		return fText;
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.parsing.ast.ParseNode#copyReferences(java.util.Map)
+	 */
+	@Override
+	protected void copyReferences(Map<IParseNode, ParseNode> copies)
+	{
+		super.copyReferences(copies);
+		fMedias = copyNodes(fMedias, copies);
+	}
 }
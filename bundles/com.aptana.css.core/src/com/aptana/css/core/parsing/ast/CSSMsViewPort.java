@@ -8,6 +8,10 @@
 package com.aptana.css.core.parsing.ast;
 
 import java.util.List;
+import java.util.Map;
+
+import com.aptana.parsing.ast.IParseNode;
+import com.aptana.parsing.ast.ParseNode;
 
 /**
  * CSSMsViewPort
@@ -85,4 +89,15 @@ public class CSSMsViewPort extends CSSNode
 
 		return text.toString();
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.parsing.ast.ParseNode#copyReferences(java.util.Map)
+	 */
+	@Override
+	protected void copyReferences(Map<IParseNode, ParseNode> copies)
+	{
+		super.copyReferences(copies);
+		fDeclarations = copyNodes(fDeclarations, copies);
+	}
 }
@@ -35,6 +35,26 @@ public class CSSNamespaceNode extends CSSNode
 		fUriStr = uri;
 	}
 
+	/**
+	 * getPrefix
+	 * 
+	 * @return String or null
+	 */
+	public String getPrefix()
+	{
+		return fPrefix;
+	}
+
+	/**
+	 * getUri
+	 * 
+	 * @return
+	 */
+	public String getUri()
+	{
+		return fUriStr;
+	}
+
 	@Override
 	public short getNodeType()
 	{
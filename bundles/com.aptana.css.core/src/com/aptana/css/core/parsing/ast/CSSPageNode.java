@@ -9,8 +9,10 @@ package com.aptana.css.core.parsing.ast;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import com.aptana.parsing.ast.IParseNode;
+import com.aptana.parsing.ast.ParseNode;
 
 public class CSSPageNode extends CSSNode
 {
@@ -136,4 +138,18 @@ public class CSSPageNode extends CSSNode
 
 		return text.toString();
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.parsing.ast.ParseNode#copyReferences(java.util.Map)
+	 */
+	@Override
+	protected void copyReferences(Map<IParseNode, ParseNode> copies)
+	{
+		super.copyReferences(copies);
+		if (fPageSelector != null)
+		{
+			fPageSelector = copyNodes(new CSSPageSelectorNode[] { fPageSelector }, copies)[0];
+		}
+	}
 }
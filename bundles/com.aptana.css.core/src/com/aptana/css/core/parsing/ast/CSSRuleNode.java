@@ -8,9 +8,11 @@
 package com.aptana.css.core.parsing.ast;
 
 import java.util.List;
+import java.util.Map;
 
 import com.aptana.core.util.StringUtil;
 import com.aptana.parsing.ast.IParseNode;
+import com.aptana.parsing.ast.ParseNode;
 
 public class CSSRuleNode extends CSSNode
 {
@@ -243,4 +245,16 @@ public class CSSRuleNode extends CSSNode
 
 		return text.toString();
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.parsing.ast.ParseNode#copyReferences(java.util.Map)
+	 */
+	@Override
+	protected void copyReferences(Map<IParseNode, ParseNode> copies)
+	{
+		super.copyReferences(copies);
+		fSelectors = copyNodes(fSelectors, copies);
+		fDeclarations = copyNodes(fDeclarations, copies);
+	}
 }
@@ -89,6 +89,16 @@ public class CSSTermListNode extends CSSExpressionNode
 		return (CSSExpressionNode) getChild(1);
 	}
 
+	/**
+	 * getSeparator
+	 * 
+	 * @return the separator between the two expressions, or null if they are only separated by whitespace
+	 */
+	public String getSeparator()
+	{
+		return fSeparator;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see com.aptana.parsing.ast.ParseNode#hashCode()
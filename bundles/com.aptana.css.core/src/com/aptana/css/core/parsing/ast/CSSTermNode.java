@@ -21,6 +21,16 @@ public class CSSTermNode extends CSSExpressionNode
 		fTerm = term;
 	}
 
+	/**
+	 * getTerm
+	 * 
+	 * @return
+	 */
+	public String getTerm()
+	{
+		return fTerm;
+	}
+
 	@Override
 	public short getNodeType()
 	{
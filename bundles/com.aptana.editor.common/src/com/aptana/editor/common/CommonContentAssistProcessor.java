@@ -9,6 +9,8 @@ package com.aptana.editor.common;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
@@ -21,10 +23,16 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.PerformanceStats;
 import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
 import org.eclipse.core.runtime.preferences.InstanceScope;
@@ -32,7 +40,10 @@ import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.resource.ImageRegistry;
 import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.ISynchronizable;
 import org.eclipse.jface.text.ITextViewer;
 import org.eclipse.jface.text.contentassist.CompletionProposal;
 import org.eclipse.jface.text.contentassist.ICompletionProposal;
@@ -55,6 +66,7 @@ import com.aptana.editor.common.contentassist.CommonCompletionProposal;
 import com.aptana.editor.common.contentassist.CompletionProposalComparator;
 import com.aptana.editor.common.contentassist.ICommonCompletionProposal;
 import com.aptana.editor.common.contentassist.ICommonContentAssistProcessor;
+import com.aptana.editor.common.contentassist.ILateProposalsListener;
 import com.aptana.editor.common.contentassist.IPreferenceConstants;
 import com.aptana.editor.common.contentassist.UserAgentFilterType;
 import com.aptana.editor.common.contentassist.UserAgentManager;
@@ -65,10 +77,12 @@ import com.aptana.index.core.Index;
 import com.aptana.index.core.QueryResult;
 import com.aptana.index.core.SearchPattern;
 import com.aptana.parsing.ast.IParseNode;
+import com.aptana.scripting.ScriptingEngine;
 import com.aptana.scripting.model.BundleManager;
 import com.aptana.scripting.model.CommandContext;
 import com.aptana.scripting.model.CommandResult;
 import com.aptana.scripting.model.ContentAssistElement;
+import com.aptana.scripting.model.RunType;
 import com.aptana.scripting.model.filters.ScopeFilter;
 import com.aptana.ui.util.UIUtils;
 
@@ -89,6 +103,20 @@ public class CommonContentAssistProcessor implements IContentAssistProcessor, IC
 	private static final String TOOL_TIP = "tool_tip"; //$NON-NLS-1$
 	private static final String LOCATION = "location"; //$NON-NLS-1$
 
+	/**
+	 * Keys of the context of content assist coming from Rubles. The document is given as input, which is only read
+	 * when the command asks for it.
+	 */
+	private static final String CONTEXT_OFFSET = "offset"; //$NON-NLS-1$
+	private static final String CONTEXT_LINE = "line"; //$NON-NLS-1$
+	private static final String CONTEXT_PREFIX = "prefix"; //$NON-NLS-1$
+
+	/**
+	 * How long (in milliseconds) to wait for the proposals of the sources running in the background before giving
+	 * those of the others, when late proposals can be given later.
+	 */
+	private static final long LATENCY_BUDGET = 100;
+
 	private static final String PERFORMANCE_EVENT_PREFIX = CommonEditorPlugin.PLUGIN_ID + "/perf/content_assist"; //$NON-NLS-1$
 	private static final String RUBLE_PERF = PERFORMANCE_EVENT_PREFIX + "/rubles"; //$NON-NLS-1$
 	private static final String SNIPPET_PERF = PERFORMANCE_EVENT_PREFIX + "/snippets"; //$NON-NLS-1$
@@ -103,6 +131,12 @@ public class CommonContentAssistProcessor implements IContentAssistProcessor, IC
 
 	protected final AbstractThemeableEditor editor;
 
+	/**
+	 * Language proposals may be computed in the background; this keeps them from being computed concurrently, as the
+	 * processors keep the state of a computation in fields.
+	 */
+	private final Object languageProposalsLock = new Object();
+
 	/**
 	 * IndexContentAssistProcessor
 	 * 
@@ -171,20 +205,66 @@ public class CommonContentAssistProcessor implements IContentAssistProcessor, IC
 	 * 
 	 * @param viewer
 	 * @param offset
-	 * @param ruby
-	 *            shared Ruby interpreter we're launching the content assist inside.
 	 * @param ce
 	 *            The content assist element contributed by a ruble.
 	 * @return
 	 */
-	protected Collection<? extends ICompletionProposal> addRubleCAProposals(ITextViewer viewer, int offset, Ruby ruby,
+	protected Collection<? extends ICompletionProposal> addRubleCAProposals(ITextViewer viewer, int offset,
+			ContentAssistElement ce)
+	{
+		IDocument document = viewer.getDocument();
+		DocumentSnapshot snapshot = new DocumentSnapshot(document);
+		try
+		{
+			CommandContext context = createRubleContext(document, snapshot, offset, ce);
+			return createRubleProposals(executeRuble(ce, context), offset);
+		}
+		finally
+		{
+			snapshot.dispose();
+		}
+	}
+
+	/**
+	 * Creates the context to execute a content assist element in.
+	 * 
+	 * @param document
+	 * @param snapshot
+	 *            the contents of the document to give as input
+	 * @param offset
+	 * @param ce
+	 * @return
+	 */
+	private CommandContext createRubleContext(IDocument document, DocumentSnapshot snapshot, int offset,
 			ContentAssistElement ce)
+	{
+		CommandContext context = ce.createCommandContext();
+		context.put(CONTEXT_OFFSET, offset);
+		try
+		{
+			context.put(CONTEXT_LINE, document.getLineOfOffset(offset));
+		}
+		catch (BadLocationException e)
+		{
+			// leave the line out
+		}
+		context.put(CONTEXT_PREFIX, SnippetsCompletionProcessor.extractPrefixFromDocument(document, offset));
+		context.setInputStream(new DocumentInputStream(snapshot));
+		return context;
+	}
+
+	/**
+	 * Executes a content assist element.
+	 * 
+	 * @param ce
+	 * @param context
+	 * @return the result, or null if the element wasn't executable
+	 */
+	private CommandResult executeRuble(ContentAssistElement ce, CommandContext context)
 	{
 		final boolean recordPerf = PerformanceStats.isEnabled(RUBLE_PERF);
 		PerformanceStats stats = null;
 
-		CommandContext context = ce.createCommandContext();
-		context.setInputStream(new ByteArrayInputStream(viewer.getDocument().get().getBytes()));
 		if (recordPerf)
 		{
 			stats = PerformanceStats.getStats(RUBLE_PERF, ce.getDisplayName());
@@ -195,18 +275,42 @@ public class CommonContentAssistProcessor implements IContentAssistProcessor, IC
 		{
 			stats.endRun();
 		}
+		return result;
+	}
+
+	/**
+	 * Turns the result of a content assist element into proposals.
+	 * 
+	 * @param result
+	 * @param offset
+	 * @return
+	 */
+	private List<ICompletionProposal> createRubleProposals(CommandResult result, int offset)
+	{
 		if (result == null || !result.executedSuccessfully())
 		{
 			return Collections.emptyList();
 		}
-		String output = result.getOutputString();
-		if (StringUtil.isEmpty(output))
+		IRubyObject returned = result.getReturnObject();
+		RubyArray object;
+		if (returned instanceof RubyArray)
 		{
-			return Collections.emptyList();
+			// blocks return their proposals directly
+			object = (RubyArray) returned;
+		}
+		else
+		{
+			String output = result.getOutputString();
+			if (StringUtil.isEmpty(output))
+			{
+				return Collections.emptyList();
+			}
+			// This assumes that the command is returning an array that is output as a
+			// string I can eval (via inspect)!
+			Ruby runtime = ScriptingEngine.getInstance().getInitializedScriptingContainer().getProvider().getRuntime();
+			object = (RubyArray) runtime.evalScriptlet(output);
 		}
-		// This assumes that the command is returning an array that is output as a
-		// string I can eval (via inspect)!
-		RubyArray object = (RubyArray) ruby.evalScriptlet(output);
+		Ruby ruby = object.getRuntime();
 		RubySymbol insertSymbol = RubySymbol.newSymbol(ruby, INSERT);
 		RubySymbol displaySymbol = RubySymbol.newSymbol(ruby, DISPLAY);
 		RubySymbol imageSymbol = RubySymbol.newSymbol(ruby, IMAGE);
@@ -317,26 +421,38 @@ public class CommonContentAssistProcessor implements IContentAssistProcessor, IC
 	protected List<ICompletionProposal> addRubleProposals(ITextViewer viewer, int offset)
 	{
 		ArrayList<ICompletionProposal> proposals = new ArrayList<ICompletionProposal>();
+		for (ContentAssistElement ce : getRubleContentAssists(viewer, offset))
+		{
+			proposals.addAll(addRubleCAProposals(viewer, offset, ce));
+		}
+
+		proposals.trimToSize();
+		return proposals;
+	}
+
+	/**
+	 * Returns the content assist elements contributed by rubles for the scope at the given offset.
+	 * 
+	 * @param viewer
+	 * @param offset
+	 * @return
+	 */
+	private List<ContentAssistElement> getRubleContentAssists(ITextViewer viewer, int offset)
+	{
 		try
 		{
 			String scope = getDocumentScopeManager().getScopeAtOffset(viewer, offset);
 			List<ContentAssistElement> commands = getBundleManager().getContentAssists(new ScopeFilter(scope));
-			if (!CollectionsUtil.isEmpty(commands))
+			if (commands != null)
 			{
-				Ruby ruby = Ruby.newInstance();
-				for (ContentAssistElement ce : commands)
-				{
-					proposals.addAll(addRubleCAProposals(viewer, offset, ruby, ce));
-				}
+				return commands;
 			}
 		}
 		catch (BadLocationException e)
 		{
 			IdeLog.logError(CommonEditorPlugin.getDefault(), e);
 		}
-
-		proposals.trimToSize();
-		return proposals;
+		return Collections.emptyList();
 	}
 
 	/**
@@ -399,6 +515,18 @@ public class CommonContentAssistProcessor implements IContentAssistProcessor, IC
 	 */
 	public ICompletionProposal[] computeCompletionProposals(ITextViewer viewer, int offset, char activationChar,
 			boolean autoActivated)
+	{
+		return computeCompletionProposals(viewer, offset, activationChar, autoActivated, null);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * com.aptana.editor.common.contentassist.ICommonContentAssistProcessor#computeCompletionProposals(org.eclipse.jface
+	 * .text.ITextViewer, int, char, boolean, com.aptana.editor.common.contentassist.ILateProposalsListener)
+	 */
+	public ICompletionProposal[] computeCompletionProposals(ITextViewer viewer, int offset, char activationChar,
+			boolean autoActivated, ILateProposalsListener listener)
 	{
 		PerformanceStats stats = null;
 		try
@@ -409,42 +537,65 @@ public class CommonContentAssistProcessor implements IContentAssistProcessor, IC
 				stats.startRun();
 			}
 
-			Collection<ICompletionProposal> rubleProposals = addRubleProposals(viewer, offset);
+			// Rubles and language proposals are computed in the background while the snippets, which use the viewer,
+			// are computed on this thread
+			long start = System.currentTimeMillis();
+			UIThreadRunner runner = null;
+			RubleContentAssistJob rubleJob = null;
+			LanguageProposalsJob languageJob = null;
+			Collection<ICompletionProposal> rubleProposals = Collections.emptyList();
+			ICompletionProposal[] others = null;
+			if (listener == null)
+			{
+				rubleProposals = addRubleProposals(viewer, offset);
+			}
+			else
+			{
+				runner = new UIThreadRunner();
+				List<ContentAssistElement> commands = getRubleContentAssists(viewer, offset);
+				if (!commands.isEmpty())
+				{
+					rubleJob = new RubleContentAssistJob(runner, viewer.getDocument(), offset, commands);
+					rubleJob.schedule();
+				}
+				languageJob = new LanguageProposalsJob(runner, viewer, offset, activationChar, autoActivated);
+				languageJob.schedule();
+			}
 			Collection<ICompletionProposal> snippetProposals = addSnippetProposals(viewer, offset);
 
-			Collection<ICompletionProposal> proposals = CollectionsUtil.union(rubleProposals, snippetProposals);
-
-			ICompletionProposal[] others = this.doComputeCompletionProposals(viewer, offset, activationChar,
-					autoActivated);
-
-			// create empty array to simplify logic
-			if (others == null)
+			boolean rublesLate = false;
+			boolean languageLate = false;
+			if (listener == null)
 			{
-				others = NO_PROPOSALS;
+				others = computeLanguageProposals(viewer, offset, activationChar, autoActivated);
 			}
-
-			if (IdeLog.isTraceEnabled(CommonEditorPlugin.getDefault(), IDebugScopes.CONTENT_ASSIST))
+			else
 			{
-				IdeLog.logTrace(CommonEditorPlugin.getDefault(), MessageFormat.format(
-						"Generated {0} ruble proposals, {0} snippet proposals, and {0} language proposals", //$NON-NLS-1$
-						rubleProposals.size(), snippetProposals.size(), others.length), IDebugScopes.CONTENT_ASSIST);
+				runner.await(LATENCY_BUDGET - (System.currentTimeMillis() - start), rubleJob, languageJob);
+				if (rubleJob != null)
+				{
+					rublesLate = !rubleJob.isDone();
+					if (!rublesLate)
+					{
+						rubleProposals = createRubleProposals(rubleJob.getValue(), offset);
+					}
+				}
+				languageLate = !languageJob.isDone();
+				if (!languageLate)
+				{
+					others = languageJob.getValue();
+				}
 			}
 
-			// Combine the two
-			ICompletionProposal[] combined = new ICompletionProposal[proposals.size() + others.length];
-			proposals.toArray(combined);
-			System.arraycopy(others, 0, combined, proposals.size(), others.length);
+			ICompletionProposal[] combined = combineProposals(rubleProposals, snippetProposals, others);
 
-			if (IdeLog.isTraceEnabled(CommonEditorPlugin.getDefault(), IDebugScopes.CONTENT_ASSIST))
+			if (rublesLate || languageLate)
 			{
-				IdeLog.logTrace(CommonEditorPlugin.getDefault(),
-						MessageFormat.format("Combined {0} total proposals", combined.length), //$NON-NLS-1$
-						IDebugScopes.CONTENT_ASSIST);
+				listener.proposalsPending(offset);
+				addLateProposals(offset, rublesLate ? rubleJob : null, rubleProposals, snippetProposals,
+						languageLate ? languageJob : null, others, listener);
 			}
 
-			// sort proposals using default mechanism
-			sortProposals(combined);
-
 			// selection currently is set to first item in list
 			return combined;
 		}
@@ -457,6 +608,149 @@ public class CommonContentAssistProcessor implements IContentAssistProcessor, IC
 		}
 	}
 
+	/**
+	 * Turns the results of the content assist elements into proposals.
+	 * 
+	 * @param results
+	 *            may be null
+	 * @param offset
+	 * @return
+	 */
+	private List<ICompletionProposal> createRubleProposals(List<CommandResult> results, int offset)
+	{
+		List<ICompletionProposal> proposals = new ArrayList<ICompletionProposal>();
+		for (CommandResult result : CollectionsUtil.getListValue(results))
+		{
+			proposals.addAll(createRubleProposals(result, offset));
+		}
+		return proposals;
+	}
+
+	/**
+	 * Combines the proposals of the sources and sorts them.
+	 * 
+	 * @param rubleProposals
+	 * @param snippetProposals
+	 * @param others
+	 *            the language proposals, may be null
+	 * @return
+	 */
+	private ICompletionProposal[] combineProposals(Collection<ICompletionProposal> rubleProposals,
+			Collection<ICompletionProposal> snippetProposals, ICompletionProposal[] others)
+	{
+		// create empty array to simplify logic
+		if (others == null)
+		{
+			others = NO_PROPOSALS;
+		}
+
+		if (IdeLog.isTraceEnabled(CommonEditorPlugin.getDefault(), IDebugScopes.CONTENT_ASSIST))
+		{
+			IdeLog.logTrace(CommonEditorPlugin.getDefault(), MessageFormat.format(
+					"Generated {0} ruble proposals, {0} snippet proposals, and {0} language proposals", //$NON-NLS-1$
+					rubleProposals.size(), snippetProposals.size(), others.length), IDebugScopes.CONTENT_ASSIST);
+		}
+
+		// Combine the two
+		Collection<ICompletionProposal> proposals = CollectionsUtil.union(rubleProposals, snippetProposals);
+		ICompletionProposal[] combined = new ICompletionProposal[proposals.size() + others.length];
+		proposals.toArray(combined);
+		System.arraycopy(others, 0, combined, proposals.size(), others.length);
+
+		if (IdeLog.isTraceEnabled(CommonEditorPlugin.getDefault(), IDebugScopes.CONTENT_ASSIST))
+		{
+			IdeLog.logTrace(CommonEditorPlugin.getDefault(),
+					MessageFormat.format("Combined {0} total proposals", combined.length), //$NON-NLS-1$
+					IDebugScopes.CONTENT_ASSIST);
+		}
+
+		// sort proposals using default mechanism
+		sortProposals(combined);
+		return combined;
+	}
+
+	/**
+	 * Gives all the proposals to the listener once the sources which missed the budget complete (on the UI thread, as
+	 * creating the proposals of the rubles may create images). The proposals already returned are given again as they
+	 * are, and the listener is called even if the late sources have none.
+	 * 
+	 * @param offset
+	 * @param rubleJob
+	 *            the job of the rubles if they're late, or null
+	 * @param rubleProposals
+	 *            the proposals of the rubles if they're on time
+	 * @param snippetProposals
+	 * @param languageJob
+	 *            the job of the language proposals if they're late, or null
+	 * @param others
+	 *            the language proposals if they're on time
+	 * @param listener
+	 */
+	private void addLateProposals(final int offset, final RubleContentAssistJob rubleJob,
+			final Collection<ICompletionProposal> rubleProposals,
+			final Collection<ICompletionProposal> snippetProposals, final LanguageProposalsJob languageJob,
+			final ICompletionProposal[] others, final ILateProposalsListener listener)
+	{
+		final Runnable addProposals = new Runnable()
+		{
+			public void run()
+			{
+				Collection<ICompletionProposal> rubles = (rubleJob == null) ? rubleProposals : createRubleProposals(
+						rubleJob.getValue(), offset);
+				ICompletionProposal[] language = (languageJob == null) ? others : languageJob.getValue();
+				listener.proposalsComputed(offset, combineProposals(rubles, snippetProposals, language));
+			}
+		};
+		if (rubleJob == null)
+		{
+			languageJob.whenDone(addProposals);
+		}
+		else if (languageJob == null)
+		{
+			rubleJob.whenDone(addProposals);
+		}
+		else
+		{
+			rubleJob.whenDone(new Runnable()
+			{
+				public void run()
+				{
+					languageJob.whenDone(addProposals);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Computes the language proposals, one computation at a time.
+	 * 
+	 * @param viewer
+	 * @param offset
+	 * @param activationChar
+	 * @param autoActivated
+	 * @return
+	 */
+	private ICompletionProposal[] computeLanguageProposals(ITextViewer viewer, int offset, char activationChar,
+			boolean autoActivated)
+	{
+		synchronized (languageProposalsLock)
+		{
+			return doComputeCompletionProposals(viewer, offset, activationChar, autoActivated);
+		}
+	}
+
+	/**
+	 * Returns whether the element runs on the thread executing it, rather than in a job or thread of its own. Content
+	 * assist used to execute the elements on the UI thread, so those may rely on it.
+	 * 
+	 * @param ce
+	 * @return
+	 */
+	private static boolean runsOnCallingThread(ContentAssistElement ce)
+	{
+		return RunType.CURRENT_THREAD.getName().equals(ce.getRunType());
+	}
+
 	/**
 	 * computeCompletionProposalsUsingIndex
 	 * 
@@ -853,4 +1147,410 @@ public class CommonContentAssistProcessor implements IContentAssistProcessor, IC
 		Arrays.sort(proposals, CompletionProposalComparator.descending(CompletionProposalComparator.getComparator(
 				CompletionProposalComparator.RelevanceSort, CompletionProposalComparator.NameSort)));
 	}
+
+	/**
+	 * The contents of a document as they were when the snapshot was taken. They're only copied when they're first read,
+	 * or before the document changes: a document with a lock object can be read from any thread under its lock. The
+	 * contents of the other documents are copied right away.
+	 */
+	private static class DocumentSnapshot implements IDocumentListener
+	{
+		private final IDocument document;
+		private final Object lock;
+		private String contents;
+
+		DocumentSnapshot(IDocument document)
+		{
+			this.document = document;
+			this.lock = (document instanceof ISynchronizable) ? ((ISynchronizable) document).getLockObject() : null;
+			if (lock == null)
+			{
+				contents = document.get();
+			}
+			else
+			{
+				document.addDocumentListener(this);
+			}
+		}
+
+		String get()
+		{
+			if (lock == null)
+			{
+				return contents;
+			}
+			synchronized (lock)
+			{
+				if (contents == null)
+				{
+					contents = document.get();
+				}
+				return contents;
+			}
+		}
+
+		public void documentAboutToBeChanged(DocumentEvent event)
+		{
+			get();
+			dispose();
+		}
+
+		public void documentChanged(DocumentEvent event)
+		{
+		}
+
+		void dispose()
+		{
+			if (lock != null)
+			{
+				document.removeDocumentListener(this);
+			}
+		}
+	}
+
+	/**
+	 * The contents of a document snapshot as an input stream, which only gets them once they're read.
+	 */
+	private static class DocumentInputStream extends InputStream
+	{
+		private final DocumentSnapshot snapshot;
+		private InputStream stream;
+
+		DocumentInputStream(DocumentSnapshot snapshot)
+		{
+			this.snapshot = snapshot;
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			return getStream().read();
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			return getStream().read(b, off, len);
+		}
+
+		@Override
+		public int available() throws IOException
+		{
+			return getStream().available();
+		}
+
+		private synchronized InputStream getStream()
+		{
+			if (stream == null)
+			{
+				stream = new ByteArrayInputStream(snapshot.get().getBytes());
+			}
+			return stream;
+		}
+	}
+
+	/**
+	 * Runs on the UI thread what the background sources of an invocation can't run elsewhere. While the UI thread waits
+	 * for the sources, it runs that itself, as the display can't; the rest goes through the display.
+	 */
+	private static class UIThreadRunner
+	{
+		private final List<FutureTask<Object>> tasks = new ArrayList<FutureTask<Object>>();
+		private boolean waiting;
+
+		/**
+		 * Runs the runnable on the UI thread, and waits for it to complete.
+		 * 
+		 * @param runnable
+		 */
+		void syncExec(Runnable runnable)
+		{
+			FutureTask<Object> task;
+			synchronized (this)
+			{
+				if (!waiting)
+				{
+					task = null;
+				}
+				else
+				{
+					task = new FutureTask<Object>(runnable, null);
+					tasks.add(task);
+					notifyAll();
+				}
+			}
+			if (task == null)
+			{
+				UIUtils.getDisplay().syncExec(runnable);
+				return;
+			}
+
+			try
+			{
+				task.get();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException e)
+			{
+				IdeLog.logError(CommonEditorPlugin.getDefault(), e.getCause());
+			}
+		}
+
+		/**
+		 * Waits on the UI thread for the jobs to be done, at most the given time, running their tasks meanwhile. The
+		 * tasks left are then given to the display.
+		 * 
+		 * @param timeout
+		 *            in milliseconds
+		 * @param jobs
+		 *            the jobs to wait for, null ones are ignored
+		 */
+		void await(long timeout, ContentAssistJob<?>... jobs)
+		{
+			long end = System.currentTimeMillis() + timeout;
+			synchronized (this)
+			{
+				waiting = true;
+			}
+			try
+			{
+				while (true)
+				{
+					FutureTask<Object> task;
+					synchronized (this)
+					{
+						long remaining = end - System.currentTimeMillis();
+						if (tasks.isEmpty())
+						{
+							if (remaining <= 0 || isDone(jobs))
+							{
+								break;
+							}
+							try
+							{
+								wait(remaining);
+							}
+							catch (InterruptedException e)
+							{
+								break;
+							}
+							continue;
+						}
+						task = tasks.remove(0);
+					}
+					task.run();
+				}
+			}
+			finally
+			{
+				List<FutureTask<Object>> left;
+				synchronized (this)
+				{
+					waiting = false;
+					left = new ArrayList<FutureTask<Object>>(tasks);
+					tasks.clear();
+				}
+				for (FutureTask<Object> task : left)
+				{
+					UIUtils.getDisplay().asyncExec(task);
+				}
+			}
+		}
+
+		private synchronized boolean isDone(ContentAssistJob<?>... jobs)
+		{
+			for (ContentAssistJob<?> job : jobs)
+			{
+				if (job != null && !job.isDone())
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Computes the proposals of a source in the background. The runner of the invocation is told when it's done.
+	 */
+	private abstract static class ContentAssistJob<T> extends Job
+	{
+		private final UIThreadRunner runner;
+		private boolean done;
+		private T value;
+		private Runnable whenDone;
+
+		ContentAssistJob(String name, UIThreadRunner runner)
+		{
+			super(name);
+			setSystem(true);
+			this.runner = runner;
+		}
+
+		/**
+		 * Computes the result of the source.
+		 * 
+		 * @param monitor
+		 * @return
+		 */
+		protected abstract T compute(IProgressMonitor monitor);
+
+		protected UIThreadRunner getRunner()
+		{
+			return runner;
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor)
+		{
+			T computed = null;
+			try
+			{
+				computed = compute(monitor);
+			}
+			catch (RuntimeException e)
+			{
+				IdeLog.logError(CommonEditorPlugin.getDefault(), e);
+			}
+
+			Runnable runnable;
+			synchronized (runner)
+			{
+				value = computed;
+				done = true;
+				runnable = whenDone;
+				runner.notifyAll();
+			}
+			if (runnable != null)
+			{
+				UIUtils.getDisplay().asyncExec(runnable);
+			}
+			return Status.OK_STATUS;
+		}
+
+		boolean isDone()
+		{
+			synchronized (runner)
+			{
+				return done;
+			}
+		}
+
+		/**
+		 * @return the computed value, or null if the source failed or isn't done
+		 */
+		T getValue()
+		{
+			synchronized (runner)
+			{
+				return value;
+			}
+		}
+
+		/**
+		 * Runs the runnable on the UI thread once the job is done.
+		 * 
+		 * @param runnable
+		 */
+		void whenDone(Runnable runnable)
+		{
+			synchronized (runner)
+			{
+				if (!done)
+				{
+					whenDone = runnable;
+					return;
+				}
+			}
+			UIUtils.getDisplay().asyncExec(runnable);
+		}
+	}
+
+	/**
+	 * Executes content assist elements in the background. The contexts are created up front, as context contributors
+	 * may need to run on the UI thread, on a snapshot of the document: the job mustn't read the one of the editor. The
+	 * elements which run on the thread executing them are executed on the UI thread, as they used to.
+	 */
+	private class RubleContentAssistJob extends ContentAssistJob<List<CommandResult>>
+	{
+		private final List<ContentAssistElement> commands;
+		private final List<CommandContext> contexts;
+		private final DocumentSnapshot snapshot;
+
+		RubleContentAssistJob(UIThreadRunner runner, IDocument document, int offset,
+				List<ContentAssistElement> commands)
+		{
+			super("Ruble content assist", runner); //$NON-NLS-1$
+			this.commands = commands;
+			this.contexts = new ArrayList<CommandContext>(commands.size());
+			this.snapshot = new DocumentSnapshot(document);
+			for (ContentAssistElement ce : commands)
+			{
+				contexts.add(createRubleContext(document, snapshot, offset, ce));
+			}
+		}
+
+		@Override
+		protected List<CommandResult> compute(IProgressMonitor monitor)
+		{
+			final List<CommandResult> results = new ArrayList<CommandResult>(commands.size());
+			try
+			{
+				for (int i = 0; i < commands.size(); i++)
+				{
+					final ContentAssistElement ce = commands.get(i);
+					final CommandContext context = contexts.get(i);
+					if (runsOnCallingThread(ce))
+					{
+						getRunner().syncExec(new Runnable()
+						{
+							public void run()
+							{
+								results.add(executeRuble(ce, context));
+							}
+						});
+					}
+					else
+					{
+						results.add(executeRuble(ce, context));
+					}
+				}
+			}
+			finally
+			{
+				snapshot.dispose();
+			}
+			return results;
+		}
+	}
+
+	/**
+	 * Computes the language proposals in the background.
+	 */
+	private class LanguageProposalsJob extends ContentAssistJob<ICompletionProposal[]>
+	{
+		private final ITextViewer viewer;
+		private final int offset;
+		private final char activationChar;
+		private final boolean autoActivated;
+
+		LanguageProposalsJob(UIThreadRunner runner, ITextViewer viewer, int offset, char activationChar,
+				boolean autoActivated)
+		{
+			super("Language content assist", runner); //$NON-NLS-1$
+			this.viewer = viewer;
+			this.offset = offset;
+			this.activationChar = activationChar;
+			this.autoActivated = autoActivated;
+		}
+
+		@Override
+		protected ICompletionProposal[] compute(IProgressMonitor monitor)
+		{
+			return computeLanguageProposals(viewer, offset, activationChar, autoActivated);
+		}
+	}
 }
@@ -8,6 +8,7 @@
 package com.aptana.editor.common.contentassist;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -65,7 +66,7 @@ public abstract class AbstractLexemeProvider<T, U> implements ILexemeProvider<T>
 		{
 		}
 
-		this.createLexemeList(document, start, end - start, scanner);
+		this.loadLexemeList(document, start, end - start, scanner);
 	}
 
 	/**
@@ -78,7 +79,7 @@ public abstract class AbstractLexemeProvider<T, U> implements ILexemeProvider<T>
 	 */
 	protected AbstractLexemeProvider(IDocument document, IRange range, U scanner)
 	{
-		this.createLexemeList(document, range.getStartingOffset(), range.getLength(), scanner);
+		this.loadLexemeList(document, range.getStartingOffset(), range.getLength(), scanner);
 	}
 
 	/**
@@ -94,6 +95,37 @@ public abstract class AbstractLexemeProvider<T, U> implements ILexemeProvider<T>
 
 	protected abstract void createLexemeList(IDocument document, int offset, int length, U scanner);
 
+	/**
+	 * Gets the lexemes of the specified range from those already scanned for the document by the same kind of provider
+	 * with the same kind of scanner, scanning them if needed.
+	 * 
+	 * @param document
+	 * @param offset
+	 * @param length
+	 * @param scanner
+	 */
+	@SuppressWarnings("unchecked")
+	private void loadLexemeList(IDocument document, int offset, int length, U scanner)
+	{
+		if (document == null || scanner == null)
+		{
+			this.createLexemeList(document, offset, length, scanner);
+			return;
+		}
+
+		DocumentTokenStore store = DocumentTokenStore.getInstance(document);
+		List<Object> key = Arrays.<Object> asList(this.getClass(), scanner.getClass());
+		List<Lexeme<T>> lexemes = (List<Lexeme<T>>) store.get(document, key, offset, offset + length);
+
+		if (lexemes == null)
+		{
+			this.createLexemeList(document, offset, length, scanner);
+			lexemes = store.put(document, key, offset, offset + length, this._lexemes);
+		}
+
+		this._lexemes = lexemes;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see com.aptana.editor.common.contentassist.ILexemeProvider#getCeilingLexeme(int)
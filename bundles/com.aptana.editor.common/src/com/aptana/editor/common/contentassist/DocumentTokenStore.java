@@ -0,0 +1,331 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.common.contentassist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.DocumentPartitioningChangedEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension3;
+import org.eclipse.jface.text.IDocumentExtension4;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.IDocumentPartitioningListener;
+import org.eclipse.jface.text.IDocumentPartitioningListenerExtension2;
+import org.eclipse.jface.text.IRegion;
+
+import com.aptana.parsing.lexer.Lexeme;
+
+/**
+ * The lexemes scanned from the ranges of a document, shared by the lexeme providers created for it so that looking
+ * around the caret again (e.g. for auto-activation, then proposals, then context information) doesn't rescan.
+ * <p>
+ * The store follows the changes of the document: the lexemes of a range before a change are kept, and those of a range
+ * containing it are dropped, as scanners may carry state from one token to the next. What the scanners see at the
+ * start of a range after a change also depends on the text before it (a comment or a block may have been opened), so
+ * those ranges are dropped up to the end of the region whose partitioning changed, and only the ones past it are
+ * moved. When the document isn't partitioned, all of them are dropped.
+ */
+/* package */final class DocumentTokenStore implements IDocumentListener, IDocumentPartitioningListener,
+		IDocumentPartitioningListenerExtension2
+{
+
+	/**
+	 * How many ranges are kept per document.
+	 */
+	private static final int MAX_RUNS = 8;
+
+	private static final Map<IDocument, DocumentTokenStore> STORES = new WeakHashMap<IDocument, DocumentTokenStore>();
+
+	/**
+	 * The lexemes of a range, as scanned by a kind of provider.
+	 */
+	private static class Run
+	{
+		final Object key;
+		int start;
+		int end;
+		List<? extends Lexeme<?>> lexemes;
+
+		/**
+		 * How much the lexemes have to be moved (which is done when they're next used).
+		 */
+		int delta;
+
+		Run(Object key, int start, int end, List<? extends Lexeme<?>> lexemes)
+		{
+			this.key = key;
+			this.start = start;
+			this.end = end;
+			this.lexemes = lexemes;
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		List<? extends Lexeme<?>> getLexemes()
+		{
+			if (delta != 0)
+			{
+				List<Lexeme<?>> moved = new ArrayList<Lexeme<?>>(lexemes.size());
+				for (Lexeme<?> lexeme : lexemes)
+				{
+					moved.add(new Lexeme(lexeme.getType(), lexeme.getStartingOffset() + delta, lexeme.getEndingOffset()
+							+ delta, lexeme.getText()));
+				}
+				lexemes = Collections.unmodifiableList(moved);
+				delta = 0;
+			}
+			return lexemes;
+		}
+	}
+
+	/**
+	 * The ranges, most recently used first.
+	 */
+	private final LinkedList<Run> fRuns = new LinkedList<Run>();
+
+	/**
+	 * The modification stamp of the document the ranges are up to date with.
+	 */
+	private long fModificationStamp;
+
+	/**
+	 * Whether the document is being changed, between documentAboutToBeChanged and documentChanged.
+	 */
+	private boolean fChanging;
+
+	/**
+	 * The end of the region whose partitioning was changed by the change being made, -1 if it wasn't.
+	 */
+	private int fPartitioningChangeEnd = -1;
+
+	private DocumentTokenStore(IDocument document)
+	{
+		fModificationStamp = getModificationStamp(document);
+	}
+
+	/**
+	 * Returns the store of the given document, creating it if needed.
+	 *
+	 * @param document
+	 * @return
+	 */
+	static DocumentTokenStore getInstance(IDocument document)
+	{
+		synchronized (STORES)
+		{
+			DocumentTokenStore store = STORES.get(document);
+			if (store == null)
+			{
+				store = new DocumentTokenStore(document);
+				document.addDocumentListener(store);
+				document.addDocumentPartitioningListener(store);
+				STORES.put(document, store);
+			}
+			return store;
+		}
+	}
+
+	/**
+	 * Returns the lexemes scanned from the given range by the given kind of provider, or null if they aren't known.
+	 *
+	 * @param document
+	 * @param key
+	 *            identifies how the lexemes were scanned
+	 * @param start
+	 * @param end
+	 * @return an unmodifiable list of lexemes, or null
+	 */
+	synchronized List<? extends Lexeme<?>> get(IDocument document, Object key, int start, int end)
+	{
+		if (!isUpToDate(document))
+		{
+			return null;
+		}
+		for (Iterator<Run> i = fRuns.iterator(); i.hasNext();)
+		{
+			Run run = i.next();
+			if (run.start == start && run.end == end && run.key.equals(key))
+			{
+				i.remove();
+				fRuns.addFirst(run);
+				return run.getLexemes();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Stores the lexemes scanned from the given range by the given kind of provider.
+	 *
+	 * @param document
+	 * @param key
+	 *            identifies how the lexemes were scanned
+	 * @param start
+	 * @param end
+	 * @param lexemes
+	 * @return the unmodifiable list of lexemes that was stored
+	 */
+	synchronized <T> List<Lexeme<T>> put(IDocument document, Object key, int start, int end, List<Lexeme<T>> lexemes)
+	{
+		List<Lexeme<T>> stored = Collections.unmodifiableList(lexemes);
+		if (isUpToDate(document))
+		{
+			fRuns.addFirst(new Run(key, start, end, stored));
+			if (fRuns.size() > MAX_RUNS)
+			{
+				fRuns.removeLast();
+			}
+		}
+		return stored;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.jface.text.IDocumentListener#documentAboutToBeChanged(org.eclipse.jface.text.DocumentEvent)
+	 */
+	public synchronized void documentAboutToBeChanged(DocumentEvent event)
+	{
+		fChanging = true;
+		fPartitioningChangeEnd = -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.jface.text.IDocumentListener#documentChanged(org.eclipse.jface.text.DocumentEvent)
+	 */
+	public synchronized void documentChanged(DocumentEvent event)
+	{
+		int offset = event.getOffset();
+		int removedEnd = offset + event.getLength();
+		int insertedEnd = offset + ((event.getText() == null) ? 0 : event.getText().length());
+		int delta = insertedEnd - removedEnd;
+		// from where the scanners are sure to start in the same state as before the change
+		int unchangedStart = isPartitioned(event.getDocument()) ? Math.max(insertedEnd, fPartitioningChangeEnd)
+				: Integer.MAX_VALUE;
+
+		for (Iterator<Run> i = fRuns.iterator(); i.hasNext();)
+		{
+			Run run = i.next();
+			if (run.end <= offset)
+			{
+				// the text of the range didn't change
+				continue;
+			}
+			if (removedEnd <= run.start && run.start + delta >= unchangedStart)
+			{
+				// the text of the range just moved
+				run.start += delta;
+				run.end += delta;
+				run.delta += delta;
+			}
+			else
+			{
+				i.remove();
+			}
+		}
+		fModificationStamp = getModificationStamp(event.getDocument());
+		fChanging = false;
+		fPartitioningChangeEnd = -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.jface.text.IDocumentPartitioningListener#documentPartitioningChanged(org.eclipse.jface.text.
+	 * IDocument)
+	 */
+	public synchronized void documentPartitioningChanged(IDocument document)
+	{
+		partitioningChanged(0, Integer.MAX_VALUE);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.jface.text.IDocumentPartitioningListenerExtension2#documentPartitioningChanged(org.eclipse.
+	 * jface.text.DocumentPartitioningChangedEvent)
+	 */
+	public synchronized void documentPartitioningChanged(DocumentPartitioningChangedEvent event)
+	{
+		IRegion coverage = event.getCoverage();
+		if (coverage == null)
+		{
+			partitioningChanged(0, Integer.MAX_VALUE);
+		}
+		else
+		{
+			partitioningChanged(coverage.getOffset(), coverage.getOffset() + coverage.getLength());
+		}
+	}
+
+	/**
+	 * Records where the partitioning changed along with the change being made, or drops the ranges in the region when
+	 * it changed on its own (e.g. when a partitioner is connected).
+	 *
+	 * @param start
+	 * @param end
+	 */
+	private void partitioningChanged(int start, int end)
+	{
+		if (fChanging)
+		{
+			fPartitioningChangeEnd = Math.max(fPartitioningChangeEnd, end);
+			return;
+		}
+		for (Iterator<Run> i = fRuns.iterator(); i.hasNext();)
+		{
+			Run run = i.next();
+			if (run.end >= start && run.start <= end)
+			{
+				i.remove();
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the document has a partitioner, which tells where its partitioning changes.
+	 *
+	 * @param document
+	 * @return
+	 */
+	private static boolean isPartitioned(IDocument document)
+	{
+		if (document.getDocumentPartitioner() != null)
+		{
+			return true;
+		}
+		return (document instanceof IDocumentExtension3)
+				&& ((IDocumentExtension3) document).getPartitionings().length > 0;
+	}
+
+	/**
+	 * Returns whether the ranges are up to date with the document (as providers could be created by listeners notified
+	 * of a change before this one).
+	 *
+	 * @param document
+	 * @return
+	 */
+	private boolean isUpToDate(IDocument document)
+	{
+		return getModificationStamp(document) == fModificationStamp
+				&& fModificationStamp != IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	}
+
+	private static long getModificationStamp(IDocument document)
+	{
+		if (document instanceof IDocumentExtension4)
+		{
+			return ((IDocumentExtension4) document).getModificationStamp();
+		}
+		return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	}
+}
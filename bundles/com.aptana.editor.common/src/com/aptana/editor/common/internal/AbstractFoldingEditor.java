@@ -8,10 +8,6 @@
 package com.aptana.editor.common.internal;
 
 import java.lang.reflect.Field;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -23,7 +19,6 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.text.Position;
-import org.eclipse.jface.text.source.Annotation;
 import org.eclipse.jface.text.source.ISourceViewer;
 import org.eclipse.jface.text.source.IVerticalRuler;
 import org.eclipse.jface.text.source.projection.ProjectionAnnotation;
@@ -44,6 +39,7 @@ import com.aptana.core.logging.IdeLog;
 import com.aptana.core.util.CollectionsUtil;
 import com.aptana.editor.common.CommonEditorPlugin;
 import com.aptana.editor.common.IFoldingEditor;
+import com.aptana.editor.common.text.reconciler.FoldingStructureUpdate;
 import com.aptana.editor.epl.AbstractBaseTextEditor;
 import com.aptana.index.core.IndexFilesOfProjectJob;
 import com.aptana.index.core.RemoveIndexOfFilesOfProjectJob;
@@ -138,7 +134,11 @@ public class AbstractFoldingEditor extends AbstractBaseTextEditor implements IFo
 		return viewer;
 	}
 
-	private static final Object lockUpdateFoldingStructure = new Object();
+	/**
+	 * Guards the updates of this editor's folding structure. Each editor has its own, as the folding of one editor has
+	 * nothing to do with the folding of another.
+	 */
+	private final Object lockUpdateFoldingStructure = new Object();
 
 	//@formatter:off
 	/*
@@ -160,34 +160,12 @@ public class AbstractFoldingEditor extends AbstractBaseTextEditor implements IFo
 	{
 		synchronized (lockUpdateFoldingStructure)
 		{
-			List<Annotation> deletions = new ArrayList<Annotation>();
-			Collection<Position> additions = annotations.values();
 			ProjectionAnnotationModel currentModel = getAnnotationModel();
 			if (currentModel == null)
 			{
 				return;
 			}
-			for (@SuppressWarnings("rawtypes")
-			Iterator iter = currentModel.getAnnotationIterator(); iter.hasNext();)
-			{
-				Object annotation = iter.next();
-				if (annotation instanceof ProjectionAnnotation)
-				{
-					Position position = currentModel.getPosition((Annotation) annotation);
-					if (additions.contains(position))
-					{
-						additions.remove(position);
-					}
-					else
-					{
-						deletions.add((Annotation) annotation);
-					}
-				}
-			}
-			if (annotations.size() != 0 || deletions.size() != 0)
-			{
-				currentModel.modifyAnnotations(deletions.toArray(new Annotation[deletions.size()]), annotations, null);
-			}
+			FoldingStructureUpdate.apply(currentModel, annotations);
 		}
 	}
 
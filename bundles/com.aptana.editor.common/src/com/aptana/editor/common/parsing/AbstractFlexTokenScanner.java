@@ -8,12 +8,18 @@
 package com.aptana.editor.common.parsing;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.ITypedRegion;
+import org.eclipse.jface.text.Region;
+import org.eclipse.jface.text.TypedRegion;
 import org.eclipse.jface.text.rules.IToken;
 import org.eclipse.jface.text.rules.ITokenScanner;
 import org.eclipse.jface.text.rules.Token;
@@ -28,10 +34,22 @@ import com.aptana.editor.common.CommonEditorPlugin;
  * Abstract implementation of a JFlex scanner. Deals with generating whitespace tokens (which are usually not generated
  * by JFlex). Also provides facilities for doing lookaheads and a common approach for mapping the tokens returned by
  * JFlex.
+ * <p>
+ * Scanners which keep state from one token to the next (see {@link #getLexerState()}) have it checkpointed at the
+ * beginning of each line they scan, so that they can resume from the line a range starts at (and so that
+ * {@link #getDamageRegion(IDocument, IRegion)} can tell where the effects of a change stop). Only the partitions the
+ * scanner colors (see {@link #isOwnPartition(String)}) are checkpointed and scanned when resuming, the state carrying
+ * over the others (i.e.: comments, or the HTML between two style elements).
  */
 public abstract class AbstractFlexTokenScanner implements ITokenScanner
 {
 
+	/**
+	 * The number of chars scanned at first when looking for the end of the damage of a change (doubled each time the
+	 * scanner still didn't get back to its previous state).
+	 */
+	private static final int DAMAGE_SCAN_LENGTH = 4096;
+
 	/**
 	 * Queue used to put symbols we look-ahead
 	 */
@@ -64,6 +82,31 @@ public abstract class AbstractFlexTokenScanner implements ITokenScanner
 
 	protected final Scanner fScanner;
 
+	/**
+	 * The document checkpointed and its checkpoints (only for scanners keeping state), which listen to its changes
+	 * until another document is scanned or the scanner is disposed.
+	 */
+	private IDocument fCheckpointedDocument;
+	private LexerStateCheckpoints fDocumentCheckpoints;
+
+	/**
+	 * The checkpoints of the document being scanned (null if the scanner doesn't keep state, or if the range isn't in
+	 * one of its own partitions), and the type of the partitions scanned.
+	 */
+	private LexerStateCheckpoints fCheckpoints;
+	private String fPartitionType;
+	private IDocument fDocument;
+	private int fNextLine;
+	private int fNextLineOffset;
+	private Object fLastCheckpoint;
+
+	/**
+	 * The first line from which getting back to the checkpointed state ends the damage of a change (-1 when not looking
+	 * for the end of a damage).
+	 */
+	private int fConvergenceLine = -1;
+	private int fConvergenceOffset;
+
 	protected AbstractFlexTokenScanner(Scanner scanner)
 	{
 		fScanner = scanner;
@@ -89,7 +132,34 @@ public abstract class AbstractFlexTokenScanner implements ITokenScanner
 
 		try
 		{
+			fCheckpoints = null;
+			fPartitionType = document.getPartition(offset).getType();
+			if (isOwnPartition(fPartitionType))
+			{
+				fCheckpoints = getCheckpoints(document);
+			}
+			if (fCheckpoints == null)
+			{
+				// i.e.: an attribute value in an HTML tag, scanned on its own
+				setSource(document.get(offset, length));
+				resetLexerState(document, offset);
+				return;
+			}
+			if (fConvergenceLine == -1)
+			{
+				fCheckpoints.dropUnverified();
+			}
+			Object state = resumeFromCheckpoint(document, offset);
+			startCheckpoints(document, offset);
 			setSource(document.get(offset, length));
+			if (state != null)
+			{
+				setLexerState(state);
+			}
+			else
+			{
+				resetLexerState(document, offset);
+			}
 		}
 		catch (BadLocationException e)
 		{
@@ -102,6 +172,305 @@ public abstract class AbstractFlexTokenScanner implements ITokenScanner
 	 */
 	protected abstract void setSource(String source);
 
+	/**
+	 * Returns the state the scanner carries from one token to the next (i.e.: whether it's inside a rule in CSS), which
+	 * is checkpointed at the beginning of lines. States must be immutable and implement equals. The default
+	 * implementation returns null, for scanners which keep no state (and don't need checkpoints).
+	 *
+	 * @return
+	 */
+	protected Object getLexerState()
+	{
+		return null;
+	}
+
+	/**
+	 * Puts the scanner back in a state returned by {@link #getLexerState()}. Called after the source is set.
+	 *
+	 * @param state
+	 */
+	protected void setLexerState(Object state)
+	{
+	}
+
+	/**
+	 * Puts the scanner in the state it's in at the given offset when there's no checkpoint to resume from. Called after
+	 * the source is set.
+	 *
+	 * @param document
+	 * @param offset
+	 */
+	protected void resetLexerState(IDocument document, int offset)
+	{
+	}
+
+	/**
+	 * Returns whether partitions of the given type hold the code this scanner colors, as opposed to the comments and
+	 * strings of its language, the partitions of other languages, or the partitions it's only run on a part of (i.e.:
+	 * HTML tags, for the values of their attributes). The default implementation returns false, so that nothing is
+	 * checkpointed.
+	 *
+	 * @param contentType
+	 * @return
+	 */
+	protected boolean isOwnPartition(String contentType)
+	{
+		return false;
+	}
+
+	/**
+	 * Releases the checkpoints of the document last scanned, and stops listening to its changes.
+	 */
+	public synchronized void dispose()
+	{
+		if (fCheckpointedDocument != null)
+		{
+			fCheckpointedDocument.removeDocumentListener(fDocumentCheckpoints);
+			fCheckpointedDocument = null;
+			fDocumentCheckpoints = null;
+		}
+		fCheckpoints = null;
+		fDocument = null;
+	}
+
+	/**
+	 * Extends a region damaged by a change (which must start at the beginning of a line) up to the first line after it
+	 * where the scanner gets back to the state it had been in before the change, as nothing changes from there on (but
+	 * everything up to there may, i.e.: an opening curly changes the scopes of all the following lines in CSS).
+	 *
+	 * @param document
+	 * @param damage
+	 * @return
+	 */
+	public IRegion getDamageRegion(IDocument document, IRegion damage)
+	{
+		String partitionType;
+		try
+		{
+			partitionType = document.getPartition(damage.getOffset()).getType();
+		}
+		catch (BadLocationException e)
+		{
+			return damage;
+		}
+		LexerStateCheckpoints checkpoints = isOwnPartition(partitionType) ? getCheckpoints(document) : null;
+		if (checkpoints == null)
+		{
+			return damage;
+		}
+		if (checkpoints.isVerified())
+		{
+			int damageEnd = checkpoints.getDamageEnd();
+			if (damageEnd > damage.getOffset() + damage.getLength() && damage.getOffset() < damageEnd)
+			{
+				return new Region(damage.getOffset(), damageEnd - damage.getOffset());
+			}
+			return damage;
+		}
+		int damageEnd = damage.getOffset() + damage.getLength();
+		try
+		{
+			int offset = damage.getOffset();
+			if (checkpoints.getCheckpointLine(document.getLineOfOffset(offset)) == -1)
+			{
+				// nothing scanned before the change
+				checkpoints.dropUnverified();
+				return damage;
+			}
+			// the first line starting after the damage
+			fConvergenceLine = document.getLineOfOffset(damageEnd);
+			int convergenceLineOffset = document.getLineOffset(fConvergenceLine);
+			if (convergenceLineOffset <= offset || convergenceLineOffset < damageEnd)
+			{
+				fConvergenceLine++;
+			}
+			fConvergenceOffset = -1;
+			int documentLength = document.getLength();
+			int length = DAMAGE_SCAN_LENGTH;
+			while (fConvergenceOffset == -1 && offset < documentLength)
+			{
+				int end = documentLength;
+				if (offset + length < documentLength)
+				{
+					// scan up to the beginning of a line, so that the next range resumes from its checkpoint
+					int line = document.getLineOfOffset(offset + length) + 1;
+					if (line < document.getNumberOfLines())
+					{
+						end = document.getLineOffset(line);
+					}
+				}
+				ITypedRegion[] regions = getPartitions(document, partitionType, offset, end);
+				for (int i = 0; fConvergenceOffset == -1 && i < regions.length; i++)
+				{
+					setRange(document, regions[i].getOffset(), regions[i].getLength());
+					while (fConvergenceOffset == -1 && !nextToken().isEOF())
+					{
+						// scan up to where the state doesn't change anymore
+					}
+				}
+				offset = end;
+				length *= 2;
+			}
+			if (fConvergenceOffset == -1)
+			{
+				damageEnd = documentLength;
+			}
+			else if (fConvergenceOffset > document.getLineOffset(fConvergenceLine))
+			{
+				// the lines from the one after the damage up to the one where the state converged changed too
+				damageEnd = Math.max(damageEnd, fConvergenceOffset);
+			}
+			checkpoints.setVerified(damageEnd);
+			return (damageEnd == damage.getOffset() + damage.getLength()) ? damage : new Region(damage.getOffset(),
+					damageEnd - damage.getOffset());
+		}
+		catch (BadLocationException e)
+		{
+			checkpoints.dropUnverified();
+			return damage;
+		}
+		finally
+		{
+			fConvergenceLine = -1;
+		}
+	}
+
+	private synchronized LexerStateCheckpoints getCheckpoints(IDocument document)
+	{
+		if (getLexerState() == null)
+		{
+			return null;
+		}
+		if (document != fCheckpointedDocument)
+		{
+			dispose();
+			fDocumentCheckpoints = new LexerStateCheckpoints();
+			document.addDocumentListener(fDocumentCheckpoints);
+			fCheckpointedDocument = document;
+		}
+		fDocumentCheckpoints.sync(document);
+		return fDocumentCheckpoints;
+	}
+
+	/**
+	 * Returns the regions of the partitions of the given type between the given offsets, adjacent partitions being
+	 * merged.
+	 */
+	private ITypedRegion[] getPartitions(IDocument document, String partitionType, int start, int end)
+			throws BadLocationException
+	{
+		List<ITypedRegion> regions = new ArrayList<ITypedRegion>();
+		int regionStart = -1;
+		int regionEnd = -1;
+		for (ITypedRegion partition : document.computePartitioning(start, end - start))
+		{
+			int partitionStart = Math.max(partition.getOffset(), start);
+			int partitionEnd = Math.min(partition.getOffset() + partition.getLength(), end);
+			if (partitionStart >= partitionEnd || !partitionType.equals(partition.getType()))
+			{
+				continue;
+			}
+			if (partitionStart != regionEnd)
+			{
+				if (regionStart != -1)
+				{
+					regions.add(new TypedRegion(regionStart, regionEnd - regionStart, partitionType));
+				}
+				regionStart = partitionStart;
+			}
+			regionEnd = partitionEnd;
+		}
+		if (regionStart != -1)
+		{
+			regions.add(new TypedRegion(regionStart, regionEnd - regionStart, partitionType));
+		}
+		return regions.toArray(new ITypedRegion[regions.size()]);
+	}
+
+	/**
+	 * Scans the partitions being scanned from the last checkpoint before the given offset up to it.
+	 *
+	 * @return the state at the offset, or null if there's no checkpoint before it.
+	 */
+	private Object resumeFromCheckpoint(IDocument document, int offset) throws BadLocationException
+	{
+		int line = fCheckpoints.getCheckpointLine(document.getLineOfOffset(offset));
+		if (line == -1)
+		{
+			return null;
+		}
+		Object state = fCheckpoints.get(line);
+		int lineOffset = document.getLineOffset(line);
+		if (lineOffset < offset)
+		{
+			for (ITypedRegion region : getPartitions(document, fPartitionType, lineOffset, offset))
+			{
+				fOffset = region.getOffset();
+				startCheckpoints(document, region.getOffset());
+				setSource(document.get(region.getOffset(), region.getLength()));
+				setLexerState(state);
+				while (!nextToken().isEOF())
+				{
+					// scan the text before the range
+				}
+				state = getLexerState();
+				fLookAheadQueue.clear();
+				fLastWasWhitespace = false;
+			}
+			fOffset = offset;
+		}
+		return state;
+	}
+
+	private void startCheckpoints(IDocument document, int offset) throws BadLocationException
+	{
+		fDocument = document;
+		fLastSymbol = new Symbol((short) -1, -1, -1);
+		fLastCheckpoint = null;
+		fNextLine = document.getLineOfOffset(offset);
+		fNextLineOffset = document.getLineOffset(fNextLine);
+		if (fNextLineOffset < offset)
+		{
+			nextCheckpointLine();
+		}
+	}
+
+	/**
+	 * Checkpoints the current state at the beginning of the lines before the given symbol (unless the previous symbol
+	 * runs over them, as scanning can't resume from inside a symbol).
+	 */
+	private void recordCheckpoints(Symbol symbol) throws BadLocationException
+	{
+		int start = fOffset + symbol.getStart();
+		while (fNextLineOffset <= start)
+		{
+			if (fOffset + fLastSymbol.getEnd() < fNextLineOffset)
+			{
+				Object state = getLexerState();
+				if (state.equals(fLastCheckpoint))
+				{
+					// share equal states
+					state = fLastCheckpoint;
+				}
+				Object previous = fCheckpoints.set(fNextLine, state);
+				fLastCheckpoint = state;
+				if (fConvergenceLine != -1 && fNextLine >= fConvergenceLine && state.equals(previous))
+				{
+					fConvergenceOffset = fNextLineOffset;
+					return;
+				}
+			}
+			nextCheckpointLine();
+		}
+	}
+
+	private void nextCheckpointLine() throws BadLocationException
+	{
+		fNextLine++;
+		fNextLineOffset = (fNextLine < fDocument.getNumberOfLines()) ? fDocument.getLineOffset(fNextLine)
+				: Integer.MAX_VALUE;
+	}
+
 	/**
 	 * Gathers the next token based on the Scanner. Note that it does some manipulations to create whitespace tokens
 	 * (which the jflex scanner does not return).
@@ -126,6 +495,10 @@ public abstract class AbstractFlexTokenScanner implements ITokenScanner
 				{
 					symbol = fScanner.nextToken();
 				}
+				if (fCheckpoints != null)
+				{
+					recordCheckpoints(symbol);
+				}
 				// Emulate whitespace token creation.
 				if (symbol.getStart() > fLastSymbol.getEnd() + 1)
 				{
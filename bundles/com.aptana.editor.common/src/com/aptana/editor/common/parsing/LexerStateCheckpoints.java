@@ -0,0 +1,238 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.common.parsing;
+
+import java.util.Arrays;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+
+/**
+ * The state a scanner was in at the beginning of each line of a document (see
+ * {@link AbstractFlexTokenScanner#getLexerState()}), so that it can resume scanning from the line before a change
+ * instead of from the start of the partition.
+ * <p>
+ * Changes shift the checkpoints of the lines after them, which are then only good to tell whether re-scanning got back
+ * to the state the scanner had been in before the change: if the scanner doesn't check that (see
+ * {@link AbstractFlexTokenScanner#getDamageRegion(IDocument, org.eclipse.jface.text.IRegion)}) before scanning
+ * something else, they're dropped.
+ */
+/* package */class LexerStateCheckpoints implements IDocumentListener
+{
+
+	/**
+	 * The checkpoints by line (null when unknown).
+	 */
+	private Object[] fStates = new Object[64];
+
+	/**
+	 * The first line whose checkpoint may have been changed by the last change (-1 when there's none).
+	 */
+	private int fUnverifiedLine = -1;
+
+	/**
+	 * The end of the damage of the last change, once checked (-1 otherwise).
+	 */
+	private int fDamageEnd = -1;
+
+	/**
+	 * The last change, which is applied to the checkpoints once the document has been changed.
+	 */
+	private boolean fChangePending;
+	private int fChangeFirstLine;
+	private int fChangeLastLine;
+	private int fChangeEnd;
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.jface.text.IDocumentListener#documentAboutToBeChanged(org.eclipse.jface.text.DocumentEvent)
+	 */
+	public synchronized void documentAboutToBeChanged(DocumentEvent event)
+	{
+		IDocument document = event.getDocument();
+		sync(document);
+		try
+		{
+			fChangeFirstLine = document.getLineOfOffset(event.getOffset());
+			fChangeLastLine = document.getLineOfOffset(event.getOffset() + event.getLength());
+			fChangeEnd = event.getOffset() + ((event.getText() == null) ? 0 : event.getText().length());
+			fChangePending = true;
+		}
+		catch (BadLocationException e)
+		{
+			clear(0);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.jface.text.IDocumentListener#documentChanged(org.eclipse.jface.text.DocumentEvent)
+	 */
+	public synchronized void documentChanged(DocumentEvent event)
+	{
+		sync(event.getDocument());
+	}
+
+	/**
+	 * Applies the last change to the checkpoints. Called on each access, as the damage of a change may be computed by
+	 * a listener notified before this one.
+	 *
+	 * @param document
+	 */
+	synchronized void sync(IDocument document)
+	{
+		if (!fChangePending)
+		{
+			return;
+		}
+		fChangePending = false;
+		fDamageEnd = -1;
+		if (fUnverifiedLine != -1)
+		{
+			// the previous change was never checked
+			clear(fUnverifiedLine);
+		}
+		try
+		{
+			// The lines after the first changed one are replaced, the following ones just move. The state at the
+			// beginning of the first changed line only depends on what comes before it, so it's still good.
+			int removed = fChangeLastLine - fChangeFirstLine;
+			int added = document.getLineOfOffset(fChangeEnd) - fChangeFirstLine;
+			int from = fChangeFirstLine + 1;
+			if (from < fStates.length && removed != added)
+			{
+				int moved = fStates.length - from - removed;
+				if (added > removed)
+				{
+					ensureCapacity(fStates.length + added - removed);
+				}
+				if (moved > 0)
+				{
+					System.arraycopy(fStates, from + removed, fStates, from + added, moved);
+				}
+			}
+			if (from < fStates.length)
+			{
+				Arrays.fill(fStates, from, Math.min(from + added, fStates.length), null);
+				if (added < removed)
+				{
+					Arrays.fill(fStates, Math.max(from, fStates.length - removed + added), fStates.length, null);
+				}
+			}
+			fUnverifiedLine = from;
+		}
+		catch (BadLocationException e)
+		{
+			clear(0);
+		}
+	}
+
+	/**
+	 * Returns whether the checkpoints after the last change still have to be checked.
+	 *
+	 * @return
+	 */
+	synchronized boolean isVerified()
+	{
+		return fUnverifiedLine == -1;
+	}
+
+	/**
+	 * Marks the checkpoints after the last change as good (when re-scanning from before the change got back to the
+	 * state it had been in, or re-recorded them all).
+	 *
+	 * @param damageEnd
+	 *            where re-scanning got back to the previous state
+	 */
+	synchronized void setVerified(int damageEnd)
+	{
+		fUnverifiedLine = -1;
+		fDamageEnd = damageEnd;
+	}
+
+	/**
+	 * Returns the end of the damage of the last change (as the damage of a change may be asked for more than once),
+	 * or -1 if it wasn't checked.
+	 *
+	 * @return
+	 */
+	synchronized int getDamageEnd()
+	{
+		return fDamageEnd;
+	}
+
+	/**
+	 * Drops the checkpoints after the last change as re-scanning didn't check them.
+	 */
+	synchronized void dropUnverified()
+	{
+		if (fUnverifiedLine != -1)
+		{
+			clear(fUnverifiedLine);
+			fUnverifiedLine = -1;
+		}
+	}
+
+	synchronized Object get(int line)
+	{
+		return (line < fStates.length) ? fStates[line] : null;
+	}
+
+	/**
+	 * Returns the last line at or before the given one which has a checkpoint, or -1 if there's none.
+	 *
+	 * @param line
+	 * @return
+	 */
+	synchronized int getCheckpointLine(int line)
+	{
+		for (int i = Math.min(line, fStates.length - 1); i >= 0; i--)
+		{
+			if (fStates[i] != null)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Sets the checkpoint of a line.
+	 *
+	 * @param line
+	 * @param state
+	 * @return the previous checkpoint of the line
+	 */
+	synchronized Object set(int line, Object state)
+	{
+		ensureCapacity(line + 1);
+		Object previous = fStates[line];
+		fStates[line] = state;
+		return previous;
+	}
+
+	private void clear(int fromLine)
+	{
+		if (fromLine < fStates.length)
+		{
+			Arrays.fill(fStates, fromLine, fStates.length, null);
+		}
+	}
+
+	private void ensureCapacity(int capacity)
+	{
+		if (capacity > fStates.length)
+		{
+			Object[] states = new Object[Math.max(capacity, fStates.length * 2)];
+			System.arraycopy(fStates, 0, states, 0, fStates.length);
+			fStates = states;
+		}
+	}
+}
@@ -311,7 +311,7 @@ public class SnippetsCompletionProcessor extends TemplateCompletionProcessor
 	 * @param offset
 	 * @return
 	 */
-	static String extractPrefixFromDocument(IDocument document, int offset)
+	public static String extractPrefixFromDocument(IDocument document, int offset)
 	{
 		if (offset > document.getLength())
 			return StringUtil.EMPTY;
@@ -1,10 +1,13 @@
 package com.aptana.editor.common.text;
 
 import java.text.MessageFormat;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.SubMonitor;
@@ -16,6 +19,7 @@ import org.eclipse.jface.text.source.projection.ProjectionAnnotation;
 import com.aptana.core.logging.IdeLog;
 import com.aptana.editor.common.AbstractThemeableEditor;
 import com.aptana.editor.common.CommonEditorPlugin;
+import com.aptana.editor.common.text.reconciler.FoldingStructureUpdate;
 import com.aptana.editor.common.text.reconciler.IFoldingComputer;
 import com.aptana.editor.common.text.reconciler.Messages;
 import com.aptana.parsing.ast.IParseNode;
@@ -32,7 +36,7 @@ public abstract class AbstractFoldingComputer implements IFoldingComputer
 
 	private IDocument fDocument;
 	private AbstractThemeableEditor fEditor;
-	private ArrayList<Integer> fLines;
+	private Set<Integer> fLines;
 	private boolean initialReconcile;
 
 	protected AbstractFoldingComputer(AbstractThemeableEditor editor, IDocument document)
@@ -61,7 +65,7 @@ public abstract class AbstractFoldingComputer implements IFoldingComputer
 			IParseRootNode parseNode) throws BadLocationException
 	{
 		this.initialReconcile = initialReconcile;
-		fLines = new ArrayList<Integer>();
+		fLines = new HashSet<Integer>();
 		int lineCount = getDocument().getNumberOfLines();
 		if (lineCount <= 1) // Quick hack fix for minified files. We need at least two lines to have folding!
 		{
@@ -93,7 +97,7 @@ public abstract class AbstractFoldingComputer implements IFoldingComputer
 			{
 				monitor.setCanceled(true);
 			}
-			return positions;
+			return sort(positions);
 		}
 		finally
 		{
@@ -105,6 +109,22 @@ public abstract class AbstractFoldingComputer implements IFoldingComputer
 		}
 	}
 
+	/**
+	 * Returns the given positions ordered by offset, so that {@link FoldingStructureUpdate} can merge them with the
+	 * editor's folding structure without sorting them again.
+	 */
+	private Map<ProjectionAnnotation, Position> sort(Map<ProjectionAnnotation, Position> positions)
+	{
+		List<Map.Entry<ProjectionAnnotation, Position>> entries = FoldingStructureUpdate.sort(positions);
+		Map<ProjectionAnnotation, Position> sorted = new LinkedHashMap<ProjectionAnnotation, Position>(
+				entries.size() * 4 / 3 + 1);
+		for (Map.Entry<ProjectionAnnotation, Position> entry : entries)
+		{
+			sorted.put(entry.getKey(), entry.getValue());
+		}
+		return sorted;
+	}
+
 	protected IParseNode[] getChildren(IParseNode parseNode)
 	{
 		IParseNode[] children = parseNode.getChildren();
@@ -135,13 +155,24 @@ public abstract class AbstractFoldingComputer implements IFoldingComputer
 	protected Map<ProjectionAnnotation, Position> getPositions(IProgressMonitor monitor, IParseNode parseNode)
 	{
 		Map<ProjectionAnnotation, Position> newPositions = new HashMap<ProjectionAnnotation, Position>();
+		addPositions(monitor, parseNode, newPositions);
+		return newPositions;
+	}
+
+	/**
+	 * Adds the folding positions of the children of the given node to the given map, recursively, so that nested nodes
+	 * don't copy their positions into their parent's map.
+	 */
+	private void addPositions(IProgressMonitor monitor, IParseNode parseNode,
+			Map<ProjectionAnnotation, Position> newPositions)
+	{
 		IParseNode[] children = getChildren(parseNode);
 		SubMonitor sub = SubMonitor.convert(monitor, 2 * children.length);
 		for (IParseNode child : children)
 		{
 			if (sub.isCanceled())
 			{
-				return newPositions;
+				return;
 			}
 			if (isFoldable(child))
 			{
@@ -199,12 +230,11 @@ public abstract class AbstractFoldingComputer implements IFoldingComputer
 			if (traverseInto(child))
 			{
 				// Recurse into AST!
-				newPositions.putAll(getPositions(sub.newChild(1), child));
+				addPositions(sub.newChild(1), child, newPositions);
 			}
 			sub.worked(1);
 		}
 		sub.done();
-		return newPositions;
 	}
 
 	/**
@@ -96,6 +96,9 @@ public class CommonPresentationReconciler extends PresentationReconciler
 		delayedRegions.clear();
 		textViewer = null;
 		super.uninstall();
+		// lets the damagers and repairers release what they keep for the document
+		setDocumentToDamagers(null);
+		setDocumentToRepairers(null);
 	}
 
 	/*
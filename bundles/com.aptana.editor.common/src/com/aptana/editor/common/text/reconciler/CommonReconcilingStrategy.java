@@ -9,6 +9,7 @@ package com.aptana.editor.common.text.reconciler;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -220,11 +221,12 @@ public class CommonReconcilingStrategy implements IReconcilingStrategy, IReconci
 		AbstractThemeableEditor editor = fEditor;
 		if (editor != null)
 		{
-			HashMap<ProjectionAnnotation, Position> positions;
+			Map<ProjectionAnnotation, Position> positions;
 			synchronized (fPositionsLock)
 			{
-				// Create a copy to pass to updateFoldingStructure, as it may take more time there.
-				positions = new HashMap<ProjectionAnnotation, Position>(fPositions);
+				// Create a copy to pass to updateFoldingStructure, as it may take more time there. Keep the order of
+				// the positions, so that FoldingStructureUpdate doesn't have to sort them again.
+				positions = new LinkedHashMap<ProjectionAnnotation, Position>(fPositions);
 			}
 			editor.updateFoldingStructure(positions);
 		}
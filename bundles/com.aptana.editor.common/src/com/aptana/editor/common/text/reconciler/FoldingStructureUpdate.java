@@ -0,0 +1,227 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.common.text.reconciler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.source.Annotation;
+import org.eclipse.jface.text.source.projection.ProjectionAnnotation;
+import org.eclipse.jface.text.source.projection.ProjectionAnnotationModel;
+
+/**
+ * Applies newly computed folding positions to a {@link ProjectionAnnotationModel}. Both the current and the new
+ * positions are sorted by offset and walked side by side, so that the annotations whose position didn't change are kept
+ * (along with their collapsed state), the ones whose position went away are deleted and only the new positions are
+ * added.
+ */
+public class FoldingStructureUpdate
+{
+	/**
+	 * Orders positions by offset, then by length.
+	 */
+	public static final Comparator<Position> POSITION_ORDER = new Comparator<Position>()
+	{
+		public int compare(Position p1, Position p2)
+		{
+			if (p1.getOffset() != p2.getOffset())
+			{
+				return (p1.getOffset() < p2.getOffset()) ? -1 : 1;
+			}
+			if (p1.getLength() != p2.getLength())
+			{
+				return (p1.getLength() < p2.getLength()) ? -1 : 1;
+			}
+			return 0;
+		}
+	};
+
+	private static final Comparator<Map.Entry<?, Position>> ENTRY_ORDER = new Comparator<Map.Entry<?, Position>>()
+	{
+		public int compare(Map.Entry<?, Position> e1, Map.Entry<?, Position> e2)
+		{
+			return POSITION_ORDER.compare(e1.getValue(), e2.getValue());
+		}
+	};
+
+	private final List<Annotation> deletions;
+	private final Map<ProjectionAnnotation, Position> additions;
+	private int kept;
+
+	private FoldingStructureUpdate()
+	{
+		deletions = new ArrayList<Annotation>();
+		additions = new HashMap<ProjectionAnnotation, Position>();
+	}
+
+	/**
+	 * Updates the folding annotations of the given model to match the given ones, and returns what was done.
+	 *
+	 * @param model
+	 * @param annotations
+	 *            the new folding annotations and their positions, in any order. When they're already ordered by
+	 *            position (as {@link com.aptana.editor.common.text.AbstractFoldingComputer} emits them), they aren't
+	 *            sorted again.
+	 * @return
+	 */
+	public static FoldingStructureUpdate apply(ProjectionAnnotationModel model,
+			Map<ProjectionAnnotation, Position> annotations)
+	{
+		FoldingStructureUpdate update = new FoldingStructureUpdate();
+		update.diff(update.getCurrentAnnotations(model), sort(annotations));
+		if (update.hasChanges())
+		{
+			model.modifyAnnotations(update.deletions.toArray(new Annotation[update.deletions.size()]),
+					update.additions, null);
+		}
+		return update;
+	}
+
+	/**
+	 * Returns the given folding annotations sorted by position. Annotations that are already in order are returned as
+	 * they are iterated.
+	 *
+	 * @param annotations
+	 * @return
+	 */
+	public static <A extends Annotation> List<Map.Entry<A, Position>> sort(Map<A, Position> annotations)
+	{
+		List<Map.Entry<A, Position>> entries = new ArrayList<Map.Entry<A, Position>>(annotations.entrySet());
+		if (!isSorted(entries))
+		{
+			Collections.sort(entries, ENTRY_ORDER);
+		}
+		return entries;
+	}
+
+	private static boolean isSorted(List<? extends Map.Entry<?, Position>> entries)
+	{
+		for (int i = 1; i < entries.size(); i++)
+		{
+			if (ENTRY_ORDER.compare(entries.get(i - 1), entries.get(i)) > 0)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the folding annotations of the given model sorted by position. The ones whose position has been deleted
+	 * are scheduled for deletion right away.
+	 */
+	private List<Map.Entry<Annotation, Position>> getCurrentAnnotations(ProjectionAnnotationModel model)
+	{
+		Map<Annotation, Position> current = new HashMap<Annotation, Position>();
+		for (@SuppressWarnings("rawtypes")
+		Iterator iter = model.getAnnotationIterator(); iter.hasNext();)
+		{
+			Object annotation = iter.next();
+			if (annotation instanceof ProjectionAnnotation)
+			{
+				Position position = model.getPosition((Annotation) annotation);
+				if (position == null || position.isDeleted())
+				{
+					deletions.add((Annotation) annotation);
+				}
+				else
+				{
+					current.put((Annotation) annotation, position);
+				}
+			}
+		}
+		return sort(current);
+	}
+
+	/**
+	 * Returns whether the model had to be modified.
+	 *
+	 * @return
+	 */
+	public boolean hasChanges()
+	{
+		return !deletions.isEmpty() || !additions.isEmpty();
+	}
+
+	/**
+	 * Returns how many annotations were added to the model.
+	 *
+	 * @return
+	 */
+	public int getAddedCount()
+	{
+		return additions.size();
+	}
+
+	/**
+	 * Returns how many annotations were removed from the model.
+	 *
+	 * @return
+	 */
+	public int getDeletedCount()
+	{
+		return deletions.size();
+	}
+
+	/**
+	 * Returns how many annotations of the model were kept as is, their position being unchanged.
+	 *
+	 * @return
+	 */
+	public int getKeptCount()
+	{
+		return kept;
+	}
+
+	/**
+	 * Merges the sorted current and new annotations.
+	 */
+	private void diff(List<Map.Entry<Annotation, Position>> current,
+			List<Map.Entry<ProjectionAnnotation, Position>> updated)
+	{
+		int i = 0;
+		int j = 0;
+		while (i < current.size() && j < updated.size())
+		{
+			Map.Entry<Annotation, Position> existing = current.get(i);
+			Map.Entry<ProjectionAnnotation, Position> added = updated.get(j);
+			int comparison = POSITION_ORDER.compare(existing.getValue(), added.getValue());
+			if (comparison == 0)
+			{
+				// Same position, keep the existing annotation so it stays collapsed or expanded
+				kept++;
+				i++;
+				j++;
+			}
+			else if (comparison < 0)
+			{
+				deletions.add(existing.getKey());
+				i++;
+			}
+			else
+			{
+				additions.put(added.getKey(), added.getValue());
+				j++;
+			}
+		}
+		for (; i < current.size(); i++)
+		{
+			deletions.add(current.get(i).getKey());
+		}
+		for (; j < updated.size(); j++)
+		{
+			additions.put(updated.get(j).getKey(), updated.get(j).getValue());
+		}
+	}
+}
@@ -18,6 +18,8 @@ import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.eclipse.jface.text.AbstractDocument;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.BadPositionCategoryException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITypedRegion;
 import org.eclipse.jface.text.Position;
@@ -35,6 +37,7 @@ import com.aptana.core.util.StringUtil;
 import com.aptana.editor.common.CommonEditorPlugin;
 import com.aptana.editor.common.ICommonConstants;
 import com.aptana.editor.common.IDebugScopes;
+import com.aptana.editor.common.parsing.AbstractFlexTokenScanner;
 import com.aptana.editor.common.preferences.IPreferenceConstants;
 import com.aptana.editor.common.scripting.IDocumentScopeManager;
 import com.aptana.theme.IThemeManager;
@@ -78,6 +81,29 @@ public class ThemeingDamagerRepairer extends DefaultDamagerRepairer
 				new IScopeContext[] { InstanceScope.INSTANCE, DefaultScope.INSTANCE });
 	}
 
+	@Override
+	public void setDocument(IDocument document)
+	{
+		if (fScanner instanceof AbstractFlexTokenScanner)
+		{
+			// Stops keeping checkpoints for the previous document
+			((AbstractFlexTokenScanner) fScanner).dispose();
+		}
+		super.setDocument(document);
+	}
+
+	@Override
+	public IRegion getDamageRegion(ITypedRegion partition, DocumentEvent e, boolean documentPartitioningChanged)
+	{
+		IRegion damage = super.getDamageRegion(partition, e, documentPartitioningChanged);
+		if (!documentPartitioningChanged && fScanner instanceof AbstractFlexTokenScanner)
+		{
+			// Goes on past the changed lines while the scanner doesn't get back to the state it had before the change
+			return ((AbstractFlexTokenScanner) fScanner).getDamageRegion(e.getDocument(), damage);
+		}
+		return damage;
+	}
+
 	@Override
 	public void createPresentation(TextPresentation presentation, ITypedRegion region)
 	{
@@ -42,6 +42,56 @@ public class CSSCodeScannerFlex extends AbstractFlexTokenScanner
 	protected boolean fInSelector;
 	private String fContextToAppend = ""; //$NON-NLS-1$
 
+	/**
+	 * The nesting level and media flag of the flex scanner (which don't match ours when @media isn't at the top level),
+	 * tracked to restore them from checkpoints.
+	 */
+	private int fScannerNestingLevel;
+	private boolean fScannerInMedia;
+
+	/**
+	 * The state checkpointed at the beginning of lines.
+	 */
+	private static final class LexerState
+	{
+		private final int curlyState;
+		private final boolean inMedia;
+		private final boolean inPropertyValue;
+		private final boolean inSelector;
+		private final int scannerNestingLevel;
+		private final boolean scannerInMedia;
+
+		private LexerState(CSSCodeScannerFlex scanner)
+		{
+			this.curlyState = scanner.fCurlyState;
+			this.inMedia = scanner.fInMedia;
+			this.inPropertyValue = scanner.fInPropertyValue;
+			this.inSelector = scanner.fInSelector;
+			this.scannerNestingLevel = scanner.fScannerNestingLevel;
+			this.scannerInMedia = scanner.fScannerInMedia;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof LexerState))
+			{
+				return false;
+			}
+			LexerState other = (LexerState) obj;
+			return curlyState == other.curlyState && inMedia == other.inMedia
+					&& inPropertyValue == other.inPropertyValue && inSelector == other.inSelector
+					&& scannerNestingLevel == other.scannerNestingLevel && scannerInMedia == other.scannerInMedia;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return (curlyState * 31 + scannerNestingLevel) * 16 + (inMedia ? 8 : 0) + (inPropertyValue ? 4 : 0)
+					+ (inSelector ? 2 : 0) + (scannerInMedia ? 1 : 0);
+		}
+	}
+
 	private static final Set<String> HTML_TAGS = CollectionsUtil.newSet(CSSCodeScannerRuleBased.HTML_TAGS);
 	private static final Set<String> PROPERTY_NAMES = CollectionsUtil.newSet(CSSCodeScannerRuleBased.PROPERTY_NAMES);
 	private static final Set<String> PROPERTY_VALUES = CollectionsUtil.newSet(CSSCodeScannerRuleBased.PROPERTY_VALUES);
@@ -63,10 +113,34 @@ public class CSSCodeScannerFlex extends AbstractFlexTokenScanner
 	}
 
 	@Override
-	public void setRange(IDocument document, int offset, int length)
+	protected Object getLexerState()
+	{
+		return new LexerState(this);
+	}
+
+	@Override
+	protected void setLexerState(Object state)
+	{
+		LexerState lexerState = (LexerState) state;
+		this.fCurlyState = lexerState.curlyState;
+		this.fInMedia = lexerState.inMedia;
+		this.fInPropertyValue = lexerState.inPropertyValue;
+		this.fInSelector = lexerState.inSelector;
+		this.fScannerNestingLevel = lexerState.scannerNestingLevel;
+		this.fScannerInMedia = lexerState.scannerInMedia;
+		((CSSColoringFlexScanner) fScanner).setNestingLevel(fScannerNestingLevel, fScannerInMedia);
+		buildContext();
+	}
+
+	@Override
+	protected boolean isOwnPartition(String contentType)
 	{
-		super.setRange(document, offset, length);
+		return IDocument.DEFAULT_CONTENT_TYPE.equals(contentType) || CSSSourceConfiguration.DEFAULT.equals(contentType);
+	}
 
+	@Override
+	protected void resetLexerState(IDocument document, int offset)
+	{
 		this.fCurlyState = 0;
 		this.fInMedia = false;
 		this.fInPropertyValue = false;
@@ -77,14 +151,12 @@ public class CSSCodeScannerFlex extends AbstractFlexTokenScanner
 			try
 			{
 				// Note: keeping same approach from rule-based parser to discover if in media/curly state
-				// but this may be very slow on a large document.
+				// but this may be very slow on a large document (only done when there's no checkpoint to resume from).
 				ITypedRegion[] partitions = document.computePartitioning(0, offset);
 				for (ITypedRegion region : partitions)
 				{
-					// skip strings and comments
-					if (CSSSourceConfiguration.MULTILINE_COMMENT.equals(region.getType())
-							|| CSSSourceConfiguration.STRING_DOUBLE.equals(region.getType())
-							|| CSSSourceConfiguration.STRING_SINGLE.equals(region.getType()))
+					// skip strings and comments (and the partitions of other languages)
+					if (!isOwnPartition(region.getType()))
 					{
 						continue;
 					}
@@ -119,6 +191,9 @@ public class CSSCodeScannerFlex extends AbstractFlexTokenScanner
 				// ignore
 			}
 		}
+		this.fScannerNestingLevel = fCurlyState;
+		this.fScannerInMedia = fInMedia;
+		((CSSColoringFlexScanner) fScanner).setNestingLevel(fScannerNestingLevel, fScannerInMedia);
 		buildContext();
 	}
 
@@ -127,6 +202,7 @@ public class CSSCodeScannerFlex extends AbstractFlexTokenScanner
 	{
 		CSSTokenTypeSymbol tokenTypeSymbol = (CSSTokenTypeSymbol) symbol;
 		CSSTokenType tokenData;
+		trackScannerNesting(tokenTypeSymbol.token);
 		// System.out.println(symbol.value + " - " + symbol.getId());
 		switch (tokenTypeSymbol.token)
 		{
@@ -185,6 +261,34 @@ public class CSSCodeScannerFlex extends AbstractFlexTokenScanner
 		return makeTokenWithContext(tokenData, false);
 	}
 
+	/**
+	 * Follows the changes the flex scanner made to its nesting level when returning the given token.
+	 */
+	private void trackScannerNesting(CSSTokenType token)
+	{
+		switch (token)
+		{
+			case MEDIA_KEYWORD:
+				fScannerInMedia = true;
+				break;
+
+			case LCURLY:
+				fScannerNestingLevel++;
+				break;
+
+			case RCURLY:
+				fScannerNestingLevel--;
+				if (fScannerNestingLevel == 0)
+				{
+					fScannerInMedia = false;
+				}
+				break;
+
+			default:
+				break;
+		}
+	}
+
 	@Override
 	protected IToken getWhitespace()
 	{
@@ -29,7 +29,6 @@ import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.ImageData;
 import org.eclipse.swt.graphics.PaletteData;
 import org.eclipse.swt.graphics.RGB;
-import org.eclipse.swt.widgets.Display;
 
 import com.aptana.core.util.CollectionsUtil;
 import com.aptana.core.util.StringUtil;
@@ -54,6 +53,7 @@ import com.aptana.editor.css.parsing.lexer.CSSLexemeProvider;
 import com.aptana.parsing.lexer.IRange;
 import com.aptana.parsing.lexer.Lexeme;
 import com.aptana.parsing.lexer.Range;
+import com.aptana.ui.util.UIUtils;
 
 /**
  * Supplies proposals for content assist in the CSS editor.
@@ -471,7 +471,7 @@ public class CSSContentAssistProcessor extends CommonContentAssistProcessor
 							RGB rgb = new RGB(r, g, b);
 							PaletteData pd = new PaletteData(new RGB[] { rgb });
 							ImageData data = new ImageData(16, 16, 1, pd);
-							img = new Image(Display.getCurrent(), data);
+							img = new Image(UIUtils.getDisplay(), data);
 							reg.put(color, img);
 						}
 
@@ -552,6 +552,16 @@ public class CSSColoringFlexScanner extends Scanner {
 		_nestingLevel = 0;
 	}
 
+	/**
+	 * Sets the curly brace nesting level and whether we're inside of a @media block, for a source which starts inside of
+	 * them. Must be called after the source is set.
+	 */
+	public void setNestingLevel(int nestingLevel, boolean inMedia)
+	{
+		_nestingLevel = nestingLevel;
+		_inMedia = inMedia;
+	}
+
 
   /**
    * Creates a new scanner
@@ -38,7 +38,6 @@ import org.eclipse.jface.text.IFindReplaceTarget;
 import org.eclipse.jface.text.IFindReplaceTargetExtension3;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextSelection;
-import org.eclipse.jface.text.Region;
 import org.eclipse.jface.text.TextSelection;
 import org.eclipse.jface.text.TextUtilities;
 import org.eclipse.jface.text.source.ISourceViewer;
@@ -203,6 +202,12 @@ public class FindBarDecorator implements IFindBarDecorator, SelectionListener
 
 	private FindBarFinder findBarFinder;
 
+	/**
+	 * The matches of the find text in the current document, used to show the match count (only created while counting
+	 * is on).
+	 */
+	private FindMatchIndex matchIndex;
+
 	private SearchOnTextChangedModifyListener modifyListener = new SearchOnTextChangedModifyListener();
 
 	private final List<EntriesControlHandle> entriesControlHandles = new ArrayList<FindBarEntriesHelper.EntriesControlHandle>();
@@ -1117,6 +1122,7 @@ public class FindBarDecorator implements IFindBarDecorator, SelectionListener
 		}
 		findBarEntriesHelper.unregister(entriesControlHandles);
 		entriesControlHandles.clear();
+		disposeMatchIndex();
 
 		if (sourceViewer.getTextWidget() != null && !sourceViewer.getTextWidget().isDisposed())
 		{
@@ -1312,6 +1318,7 @@ public class FindBarDecorator implements IFindBarDecorator, SelectionListener
 			findBarFinder.resetScope();
 			removeComboSearchOnTextChangeListener();
 			statusLineManager.setMessage(false, StringUtil.EMPTY, null);
+			disposeMatchIndex();
 		}
 		if (updateFocus)
 		{
@@ -1458,6 +1465,7 @@ public class FindBarDecorator implements IFindBarDecorator, SelectionListener
 	}
 
 	private static final int TOO_MANY = Integer.getInteger(FindBarDecorator.class.getName() + ".TOO_MANY", 100); //$NON-NLS-1$
+	private static final int MAX_INDEXED_MATCHES = 100000;
 
 	private Label sashSeparator;
 
@@ -1468,6 +1476,7 @@ public class FindBarDecorator implements IFindBarDecorator, SelectionListener
 		if (!countMatches.getSelection())
 		{
 			countMatches.setText(StringUtil.EMPTY);
+			disposeMatchIndex();
 			return;
 		}
 
@@ -1475,59 +1484,23 @@ public class FindBarDecorator implements IFindBarDecorator, SelectionListener
 
 		int currentCount = 0;
 		int total = 0;
+		boolean tooMany = false;
 		if (isTextFindValid())
 		{
-			String text = sourceViewer.getDocument().get();
-			Pattern pattern = createFindPattern();
-			IRegion scope = findBarFinder.getScope();
-
-			// Truncate the search string if there is a scope set
-			if (scope != null)
-			{
-				text = text.substring(scope.getOffset(), scope.getOffset() + scope.getLength());
-			}
-			else
-			{
-				scope = new Region(0, text.length());
-			}
-
-			Matcher matcher = pattern.matcher(text);
-
-			if (matcher.find(0))
+			FindMatchIndex index = getMatchIndex();
+			index.setPattern(createFindPattern());
+			if (!index.isUpToDate())
 			{
-				total = 1;
-
-				FindBarConfiguration configuration = getConfiguration();
-				if ((!configuration.getSearchBackward() && lastCountOffset > (matcher.start() + scope.getOffset()))
-						|| (configuration.getSearchBackward() && lastCountOffset >= (matcher.start() + scope
-								.getOffset())))
-				{
-					currentCount = total;
-				}
-				while (matcher.find())
-				{
-					++total;
-
-					if ((!configuration.getSearchBackward() && lastCountOffset > (matcher.start() + scope.getOffset()))
-							|| (configuration.getSearchBackward() && lastCountOffset >= (matcher.start() + scope
-									.getOffset())))
-					{
-						currentCount = total;
-					}
-
-					if ((TOO_MANY != -1) && total > TOO_MANY)
-					{
-						break;
-					}
-				}
+				// The matches are being counted in the background, we'll be called again when that's done.
+				return;
 			}
 
-			if (currentCount > total)
-			{
-				currentCount = currentCount - total;
-			}
+			IRegion scope = findBarFinder.getScope();
+			total = index.getCount(scope);
+			currentCount = index.getCountBefore(scope, lastCountOffset, getConfiguration().getSearchBackward());
+			tooMany = index.isOverflow() || ((TOO_MANY != -1) && total > TOO_MANY);
 		}
-		if ((TOO_MANY != -1) && total > TOO_MANY)
+		if (tooMany)
 		{
 			countMatches.setText("> " + TOO_MANY); //$NON-NLS-1$
 			lastCountPosition = -1;
@@ -1543,6 +1516,42 @@ public class FindBarDecorator implements IFindBarDecorator, SelectionListener
 		findBar.layout(true, true);
 	}
 
+	/**
+	 * @return the index of the matches in the current document, creating it if needed.
+	 */
+	private FindMatchIndex getMatchIndex()
+	{
+		IDocument document = sourceViewer.getDocument();
+		if (matchIndex != null && matchIndex.getDocument() != document)
+		{
+			disposeMatchIndex();
+		}
+		if (matchIndex == null)
+		{
+			int maxMatches = (TOO_MANY == -1) ? Integer.MAX_VALUE : Math.max(TOO_MANY + 1, MAX_INDEXED_MATCHES);
+			matchIndex = new FindMatchIndex(document, maxMatches, new Runnable()
+			{
+				public void run()
+				{
+					if (!findBar.isDisposed() && isVisible())
+					{
+						showCountTotal();
+					}
+				}
+			});
+		}
+		return matchIndex;
+	}
+
+	private void disposeMatchIndex()
+	{
+		if (matchIndex != null)
+		{
+			matchIndex.dispose();
+			matchIndex = null;
+		}
+	}
+
 	Pattern createFindPattern()
 	{
 		String originalPattern = textFind.getText();
@@ -0,0 +1,503 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.findbar.impl;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.IRegion;
+
+import com.aptana.ui.util.UIUtils;
+
+/**
+ * Keeps the offsets of all the matches of the find pattern in a document, so that the find bar can show the match
+ * count (and the position of the current match) without scanning the whole document on every keystroke.
+ * <p>
+ * The full scan is done in a background job (the count is updated through the listener given in the constructor once
+ * it's done), on a copy of the text taken where the scan is scheduled: the job never reads the document. Afterwards
+ * the index is kept up to date with the document changes: when the pattern can't match across lines, only the lines
+ * touched by a change are scanned again; otherwise a new full scan is scheduled.
+ */
+/* default */class FindMatchIndex implements IDocumentListener
+{
+
+	/**
+	 * How long to wait for more document changes before re-scanning the whole document.
+	 */
+	private static final long RESCAN_DELAY = 200;
+
+	/**
+	 * The escapes (after a backslash) that can't match a line delimiter.
+	 */
+	private static final String LINE_BOUND_ESCAPES = "bBdwtf"; //$NON-NLS-1$
+
+	private final IDocument document;
+	private final Runnable onUpdate;
+	private final int maxMatches;
+	private final ScanJob scanJob = new ScanJob();
+
+	// All of these are guarded by this object's lock
+	private Pattern pattern;
+	private boolean lineBound;
+	private int[] starts = new int[16];
+	private int[] ends = new int[16];
+	private int count;
+	private boolean overflow;
+	private boolean upToDate;
+	private int generation;
+	// The modification stamp of the document as of the last change
+	private long stamp;
+	// The text to scan and the modification stamp it was taken at, set when a scan is scheduled
+	private String scanText;
+	private long scanStamp;
+
+	// The lines touched by the change being made (set in documentAboutToBeChanged), or -1
+	private int changeStart = -1;
+	private int changeEnd = -1;
+
+	/**
+	 * @param document
+	 *            the document to index (the index listens to its changes until {@link #dispose()} is called)
+	 * @param maxMatches
+	 *            the maximum number of matches to keep track of
+	 * @param onUpdate
+	 *            run in the UI thread whenever a background scan made the index up to date
+	 */
+	FindMatchIndex(IDocument document, int maxMatches, Runnable onUpdate)
+	{
+		this.document = document;
+		this.maxMatches = maxMatches;
+		this.onUpdate = onUpdate;
+		this.stamp = getModificationStamp(document);
+		document.addDocumentListener(this);
+	}
+
+	public IDocument getDocument()
+	{
+		return document;
+	}
+
+	public void dispose()
+	{
+		document.removeDocumentListener(this);
+		synchronized (this)
+		{
+			pattern = null;
+			scanText = null;
+			generation++;
+			upToDate = false;
+		}
+		scanJob.cancel();
+	}
+
+	/**
+	 * Sets the pattern to index the matches of. Nothing is done if it's the same as the current one; otherwise a full
+	 * scan is scheduled.
+	 */
+	public synchronized void setPattern(Pattern newPattern)
+	{
+		if (pattern != null && pattern.pattern().equals(newPattern.pattern()) && pattern.flags() == newPattern.flags())
+		{
+			return;
+		}
+		pattern = newPattern;
+		lineBound = isLineBound(newPattern);
+		rescan(0);
+	}
+
+	/**
+	 * @return whether the index reflects the current contents of the document. When it doesn't, a scan is on its way.
+	 */
+	public synchronized boolean isUpToDate()
+	{
+		return upToDate;
+	}
+
+	/**
+	 * @return whether there were more matches than the index keeps track of (in which case the counts are not
+	 *         accurate).
+	 */
+	public synchronized boolean isOverflow()
+	{
+		return overflow;
+	}
+
+	/**
+	 * Returns the number of matches fully inside the given scope (<code>null</code> for the whole document).
+	 */
+	public synchronized int getCount(IRegion scope)
+	{
+		if (scope == null)
+		{
+			return count;
+		}
+		int scopeEnd = scope.getOffset() + scope.getLength();
+		// matches don't overlap, so both starts and ends are sorted
+		return Math.max(0, countLessOrEqual(ends, scopeEnd) - countLess(starts, scope.getOffset()));
+	}
+
+	/**
+	 * Returns the number of matches fully inside the given scope (<code>null</code> for the whole document) that start
+	 * before the given offset (or at it, when inclusive is set).
+	 */
+	public synchronized int getCountBefore(IRegion scope, int offset, boolean inclusive)
+	{
+		int before = inclusive ? countLessOrEqual(starts, offset) : countLess(starts, offset);
+		if (scope == null)
+		{
+			return before;
+		}
+		return Math.max(0, Math.min(getCount(scope), before - countLess(starts, scope.getOffset())));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.jface.text.IDocumentListener#documentAboutToBeChanged(org.eclipse.jface.text.DocumentEvent)
+	 */
+	public synchronized void documentAboutToBeChanged(DocumentEvent event)
+	{
+		changeStart = -1;
+		changeEnd = -1;
+		if (pattern == null || !upToDate || !lineBound || overflow)
+		{
+			return;
+		}
+		try
+		{
+			changeStart = document.getLineOffset(document.getLineOfOffset(event.getOffset()));
+			IRegion lastLine = document.getLineInformationOfOffset(event.getOffset() + event.getLength());
+			int lastLineEnd = lastLine.getOffset() + lastLine.getLength();
+			String delimiter = document.getLineDelimiter(document.getLineOfOffset(lastLineEnd));
+			changeEnd = lastLineEnd + (delimiter == null ? 0 : delimiter.length());
+		}
+		catch (BadLocationException e)
+		{
+			changeStart = -1;
+			changeEnd = -1;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.jface.text.IDocumentListener#documentChanged(org.eclipse.jface.text.DocumentEvent)
+	 */
+	public synchronized void documentChanged(DocumentEvent event)
+	{
+		stamp = getModificationStamp(document);
+		if (pattern == null)
+		{
+			return;
+		}
+		if (changeStart == -1 || !upToDate)
+		{
+			rescan(RESCAN_DELAY);
+			return;
+		}
+
+		String text = event.getText();
+		int delta = (text == null ? 0 : text.length()) - event.getLength();
+		int from = countLess(starts, changeStart);
+		int to = countLess(starts, changeEnd);
+		String changedLines;
+		try
+		{
+			// the text after the change was not touched, so the region still ends on a line boundary
+			changedLines = document.get(changeStart, changeEnd + delta - changeStart);
+		}
+		catch (BadLocationException e)
+		{
+			rescan(RESCAN_DELAY);
+			return;
+		}
+
+		// the matches of the lines that changed go away, the ones after them are shifted
+		int removed = to - from;
+		System.arraycopy(starts, to, starts, from, count - to);
+		System.arraycopy(ends, to, ends, from, count - to);
+		count -= removed;
+		for (int i = from; i < count; i++)
+		{
+			starts[i] += delta;
+			ends[i] += delta;
+		}
+
+		// and the lines are scanned again
+		int[] newStarts = new int[4];
+		int[] newEnds = new int[4];
+		int found = 0;
+		Matcher matcher = pattern.matcher(changedLines);
+		while (matcher.find())
+		{
+			if (matcher.start() == changedLines.length())
+			{
+				// an empty match at the start of the next line, which we already have
+				break;
+			}
+			if (found == newStarts.length)
+			{
+				newStarts = grow(newStarts, found);
+				newEnds = grow(newEnds, found);
+			}
+			newStarts[found] = changeStart + matcher.start();
+			newEnds[found] = changeStart + matcher.end();
+			found++;
+		}
+		if (count + found > maxMatches)
+		{
+			overflow = true;
+			rescan(RESCAN_DELAY);
+			return;
+		}
+		ensureCapacity(count + found);
+		System.arraycopy(starts, from, starts, from + found, count - from);
+		System.arraycopy(ends, from, ends, from + found, count - from);
+		System.arraycopy(newStarts, 0, starts, from, found);
+		System.arraycopy(newEnds, 0, ends, from, found);
+		count += found;
+		changeStart = -1;
+		changeEnd = -1;
+	}
+
+	/**
+	 * Marks the index as out of date and schedules a full scan after the given delay. This is called from the thread
+	 * changing the document, so the text to scan is taken here.
+	 */
+	private void rescan(long delay)
+	{
+		generation++;
+		upToDate = false;
+		changeStart = -1;
+		changeEnd = -1;
+		scanText = document.get();
+		scanStamp = stamp;
+		scanJob.cancel();
+		scanJob.schedule(delay);
+	}
+
+	private void ensureCapacity(int capacity)
+	{
+		if (capacity > starts.length)
+		{
+			int newLength = Math.max(capacity, (starts.length * 3) / 2 + 1);
+			int[] newStarts = new int[newLength];
+			int[] newEnds = new int[newLength];
+			System.arraycopy(starts, 0, newStarts, 0, count);
+			System.arraycopy(ends, 0, newEnds, 0, count);
+			starts = newStarts;
+			ends = newEnds;
+		}
+	}
+
+	private int countLess(int[] offsets, int offset)
+	{
+		int low = 0;
+		int high = count;
+		while (low < high)
+		{
+			int mid = (low + high) >>> 1;
+			if (offsets[mid] < offset)
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private int countLessOrEqual(int[] offsets, int offset)
+	{
+		return offset == Integer.MAX_VALUE ? count : countLess(offsets, offset + 1);
+	}
+
+	private static long getModificationStamp(IDocument document)
+	{
+		if (document instanceof IDocumentExtension4)
+		{
+			return ((IDocumentExtension4) document).getModificationStamp();
+		}
+		return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	}
+
+	private static int[] grow(int[] array, int length)
+	{
+		int[] newArray = new int[length * 2];
+		System.arraycopy(array, 0, newArray, 0, length);
+		return newArray;
+	}
+
+	/**
+	 * Returns whether matches of the given pattern are always contained in a single line (i.e. can't contain line
+	 * delimiters) and don't depend on what's before or after the line, so that a line can be scanned on its own. This
+	 * errs on the side of caution: anything with anchors, inline flags, negated classes or escapes that may match a
+	 * line delimiter is considered as not line bound.
+	 */
+	static boolean isLineBound(Pattern pattern)
+	{
+		if ((pattern.flags() & (Pattern.DOTALL | Pattern.MULTILINE | Pattern.COMMENTS | Pattern.LITERAL)) != 0)
+		{
+			return false;
+		}
+		String regex = pattern.pattern();
+		int length = regex.length();
+		for (int i = 0; i < length; i++)
+		{
+			char c = regex.charAt(i);
+			switch (c)
+			{
+				case '\n':
+				case '\r':
+				case '\u0085':
+				case '\u2028':
+				case '\u2029':
+				case '^':
+				case '$':
+					return false;
+
+				case '(':
+					if (i + 1 < length && regex.charAt(i + 1) == '?')
+					{
+						return false;
+					}
+					break;
+
+				case '[':
+					if (i + 1 < length && regex.charAt(i + 1) == '^')
+					{
+						return false;
+					}
+					break;
+
+				case '\\':
+					if (i + 1 >= length)
+					{
+						return false;
+					}
+					char escaped = regex.charAt(++i);
+					if (escaped == 'Q')
+					{
+						// quoted text, only a literal line delimiter could be a problem
+						int end = regex.indexOf("\\E", i + 1); //$NON-NLS-1$
+						String quoted = (end == -1) ? regex.substring(i + 1) : regex.substring(i + 1, end);
+						if (quoted.indexOf('\n') != -1 || quoted.indexOf('\r') != -1 || quoted.indexOf('\u0085') != -1
+								|| quoted.indexOf('\u2028') != -1 || quoted.indexOf('\u2029') != -1)
+						{
+							return false;
+						}
+						i = (end == -1) ? length : end + 1;
+					}
+					else if (Character.isLetterOrDigit(escaped) && LINE_BOUND_ESCAPES.indexOf(escaped) == -1)
+					{
+						return false;
+					}
+					break;
+
+				default:
+					break;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Scans the whole document for the matches of the current pattern.
+	 */
+	private class ScanJob extends Job
+	{
+		ScanJob()
+		{
+			super("Counting find bar matches"); //$NON-NLS-1$
+			setSystem(true);
+			setPriority(SHORT);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor)
+		{
+			int scanGeneration;
+			Pattern scanPattern;
+			String text;
+			long textStamp;
+			synchronized (FindMatchIndex.this)
+			{
+				scanGeneration = generation;
+				scanPattern = pattern;
+				text = scanText;
+				textStamp = scanStamp;
+			}
+			if (scanPattern == null || text == null)
+			{
+				return Status.CANCEL_STATUS;
+			}
+
+			int[] newStarts = new int[16];
+			int[] newEnds = new int[16];
+			int found = 0;
+			boolean newOverflow = false;
+			Matcher matcher = scanPattern.matcher(text);
+			while (matcher.find())
+			{
+				if (found == maxMatches)
+				{
+					newOverflow = true;
+					break;
+				}
+				if ((found & 0x3ff) == 0 && monitor.isCanceled())
+				{
+					return Status.CANCEL_STATUS;
+				}
+				if (found == newStarts.length)
+				{
+					newStarts = grow(newStarts, found);
+					newEnds = grow(newEnds, found);
+				}
+				newStarts[found] = matcher.start();
+				newEnds[found] = matcher.end();
+				found++;
+			}
+
+			synchronized (FindMatchIndex.this)
+			{
+				// Any change to the document or the pattern while we're scanning makes the result stale, a new scan has
+				// been scheduled in that case
+				if (scanGeneration != generation || textStamp != stamp)
+				{
+					return Status.CANCEL_STATUS;
+				}
+				scanText = null;
+				starts = newStarts;
+				ends = newEnds;
+				count = found;
+				overflow = newOverflow;
+				upToDate = true;
+			}
+			UIUtils.getDisplay().asyncExec(new Runnable()
+			{
+				public void run()
+				{
+					if (isUpToDate())
+					{
+						onUpdate.run();
+					}
+				}
+			});
+			return Status.OK_STATUS;
+		}
+	}
+}
@@ -8,6 +8,7 @@
 package com.aptana.editor.html.parsing.ast;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -116,6 +117,37 @@ public class HTMLElementNode extends HTMLNode
 		super.addOffset(offset);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.parsing.ast.ParseNode#copyReferences(java.util.Map)
+	 */
+	@Override
+	protected void copyReferences(Map<IParseNode, ParseNode> copies)
+	{
+		super.copyReferences(copies);
+		if (fAttributes != null)
+		{
+			Map<String, IParseNodeAttribute> attributes = new HashMap<String, IParseNodeAttribute>(fAttributes.size());
+			for (Map.Entry<String, IParseNodeAttribute> entry : fAttributes.entrySet())
+			{
+				IParseNodeAttribute attr = entry.getValue();
+				attributes.put(entry.getKey(), new ParseNodeAttribute(this, attr.getName(), attr.getValue(),
+						attr.getNameRange(), attr.getValueRange()));
+			}
+			fAttributes = attributes;
+		}
+		if (fCSSStyleNodes != null)
+		{
+			fCSSStyleNodes = new ArrayList<IParseNode>(Arrays.asList(copyNodes(
+					fCSSStyleNodes.toArray(new IParseNode[fCSSStyleNodes.size()]), copies)));
+		}
+		if (fJSAttributeNodes != null)
+		{
+			fJSAttributeNodes = new ArrayList<IParseNode>(Arrays.asList(copyNodes(
+					fJSAttributeNodes.toArray(new IParseNode[fJSAttributeNodes.size()]), copies)));
+		}
+	}
+
 	public void addCSSStyleNode(IParseNode node)
 	{
 		if (fCSSStyleNodes == null)
@@ -15,6 +15,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -24,10 +27,12 @@ import org.eclipse.jface.text.rules.ITokenScanner;
 import beaver.Scanner.Exception;
 import beaver.Symbol;
 
+import com.aptana.core.logging.IdeLog;
 import com.aptana.core.util.StringUtil;
 import com.aptana.css.core.ICSSConstants;
 import com.aptana.css.core.parsing.ast.CSSDeclarationNode;
 import com.aptana.css.core.parsing.ast.CSSRuleNode;
+import com.aptana.editor.html.HTMLPlugin;
 import com.aptana.editor.html.core.IHTMLConstants;
 import com.aptana.editor.html.parsing.ast.HTMLCommentNode;
 import com.aptana.editor.html.parsing.ast.HTMLElementNode;
@@ -40,8 +45,6 @@ import com.aptana.js.core.IJSConstants;
 import com.aptana.parsing.AbstractParser;
 import com.aptana.parsing.IParseState;
 import com.aptana.parsing.ParseResult;
-import com.aptana.parsing.ParseState;
-import com.aptana.parsing.ParserPoolFactory;
 import com.aptana.parsing.WorkingParseResult;
 import com.aptana.parsing.ast.IParseError;
 import com.aptana.parsing.ast.IParseNode;
@@ -78,6 +81,45 @@ public class HTMLParser extends AbstractParser
 	private List<IParseNode> fCommentNodes;
 	private boolean previousSymbolSkipped;
 	private WorkingParseResult fWorkingParseResult;
+	private List<SubParse> fPendingSubParses;
+
+	/**
+	 * The parse of the content of a &lt;script&gt; or &lt;style&gt; block; the ones that missed the cache are run once
+	 * the whole document was scanned, concurrently when there are several of them.
+	 */
+	private static class SubParse implements Callable<ParseResult>
+	{
+		final String language;
+		final String source;
+		final int start;
+		final int end;
+		final HTMLSpecialNode node;
+
+		/**
+		 * Where the errors of this sub-parse go in the errors of the document, so they stay in the document order.
+		 */
+		final int errorIndex;
+
+		/**
+		 * The result of the sub-parse, once there is one.
+		 */
+		ParseResult result;
+
+		SubParse(String language, String source, int start, int end, HTMLSpecialNode node, int errorIndex)
+		{
+			this.language = language;
+			this.source = source;
+			this.start = start;
+			this.end = end;
+			this.node = node;
+			this.errorIndex = errorIndex;
+		}
+
+		public ParseResult call() throws java.lang.Exception
+		{
+			return parseSubLanguage(language, source, start);
+		}
+	}
 
 	/**
 	 * parse
@@ -88,6 +130,7 @@ public class HTMLParser extends AbstractParser
 		fScanner = new HTMLParserScanner();
 		fElementStack = new Stack<IParseNode>();
 		fCommentNodes = new ArrayList<IParseNode>();
+		fPendingSubParses = new ArrayList<SubParse>();
 		fWorkingParseResult = working;
 
 		String source = parseState.getSource();
@@ -110,6 +153,7 @@ public class HTMLParser extends AbstractParser
 			fCurrentElement = root;
 
 			parseAll(source);
+			runPendingSubParses();
 			root.setCommentNodes(fCommentNodes.toArray(new IParseNode[fCommentNodes.size()]));
 		}
 		finally
@@ -123,6 +167,7 @@ public class HTMLParser extends AbstractParser
 			fCurrentSymbol = null;
 			fParseState = null;
 			fCommentNodes = null;
+			fPendingSubParses = null;
 		}
 
 		// trim the tree and set the result only after clearing for garbage collection.
@@ -180,14 +225,16 @@ public class HTMLParser extends AbstractParser
 			((HTMLTokenScanner) tokenScanner).setInsideSpecialTag(false);
 		}
 
-		IParseNode[] nested = getParseResult(language, start, end);
+		HTMLSpecialNode node = null;
 		if (fCurrentElement != null)
 		{
-			HTMLSpecialNode node = new HTMLSpecialNode(startTag, nested, startTag.getStart(), fCurrentSymbol.getEnd());
+			node = new HTMLSpecialNode(startTag, HTMLParserConstants.NO_PARSE_NODES, startTag.getStart(),
+					fCurrentSymbol.getEnd());
 			node.setEndNode(fCurrentSymbol.getStart(), fCurrentSymbol.getEnd());
 			parseAttribute(node, startTag);
 			fCurrentElement.addChild(node);
 		}
+		addSubParse(language, start, end, node);
 	}
 
 	protected HTMLElementNode processCurrentTag()
@@ -269,35 +316,142 @@ public class HTMLParser extends AbstractParser
 		return false;
 	}
 
-	private IParseNode[] getParseResult(String language, int start, int end)
+	/**
+	 * Sets up the parse of the given range of the source as the given language, to become the content of the given node
+	 * (if any). Unchanged content is taken from the cache right away, the rest is parsed by
+	 * {@link #runPendingSubParses()}.
+	 */
+	private void addSubParse(String language, int start, int end, HTMLSpecialNode node)
+	{
+		if (start > end)
+		{
+			return;
+		}
+		String text;
+		try
+		{
+			text = fScanner.getSource().get(start, end - start + 1);
+		}
+		catch (java.lang.Exception e)
+		{
+			IdeLog.logError(HTMLPlugin.getDefault(), e);
+			return;
+		}
+		SubParse subParse = new SubParse(language, text, start, end, node, fWorkingParseResult.getErrors().size());
+		if (language == null)
+		{
+			subParse.result = ParseResult.EMPTY;
+		}
+		else
+		{
+			subParse.result = HTMLSubParseCache.getInstance().get(language, text, start);
+		}
+		fPendingSubParses.add(subParse);
+	}
+
+	/**
+	 * Parses the sub-languages that missed the cache and adds all the sub-parse results to the AST.
+	 */
+	private void runPendingSubParses() throws InterruptedException
 	{
-		if (start <= end)
+		List<SubParse> toParse = new ArrayList<SubParse>();
+		for (SubParse subParse : fPendingSubParses)
+		{
+			if (subParse.result == null)
+			{
+				toParse.add(subParse);
+			}
+		}
+		int size = toParse.size();
+		if (size == 0 || fMonitor.isCanceled())
 		{
+			// nothing to parse, or the results are going to be thrown away
+		}
+		else if (size == 1)
+		{
+			SubParse subParse = toParse.get(0);
 			try
 			{
-				String text = fScanner.getSource().get(start, end - start + 1);
-
-				ParseState subParseState = new ParseState(text,start);
-				// FIXME We need to propagate options down to sub-languages, i.e. JS's attach/collect comments
-				ParseResult subParseResult = ParserPoolFactory.parse(language, subParseState);
-				IParseNode node = subParseResult.getRootNode();
-				for (IParseError subError : subParseResult.getErrors())
+				subParse.result = subParse.call();
+			}
+			catch (java.lang.Exception e)
+			{
+				IdeLog.logError(HTMLPlugin.getDefault(), getSubParseErrorMessage(subParse), e);
+			}
+		}
+		else
+		{
+			// the blocks are independent from each other, so parse them in parallel
+			List<Future<ParseResult>> futures = HTMLSubParseCache.getExecutor().invokeAll(toParse);
+			for (int i = 0; i < size; i++)
+			{
+				SubParse subParse = toParse.get(i);
+				try
 				{
-					// Shift the line/offsets based on the starting offset/line of the sub-language!
-					fWorkingParseResult.addError(new ParseError(language, start + subError.getOffset(), subError
-							.getLength(), subError.getMessage(), subError.getSeverity()));
+					subParse.result = futures.get(i).get();
 				}
-				if (node == null)
+				catch (ExecutionException e)
 				{
-					node = new HTMLTextNode(text, start, end);
+					IdeLog.logError(HTMLPlugin.getDefault(), getSubParseErrorMessage(subParse), e.getCause());
 				}
-				return new IParseNode[] { node };
 			}
-			catch (java.lang.Exception e)
+		}
+
+		int addedErrors = 0;
+		for (SubParse subParse : fPendingSubParses)
+		{
+			addedErrors += finishSubParse(subParse, subParse.errorIndex + addedErrors);
+		}
+		fPendingSubParses.clear();
+	}
+
+	private static String getSubParseErrorMessage(SubParse subParse)
+	{
+		return MessageFormat.format("Unable to parse the {0} content at offset {1}", subParse.language, //$NON-NLS-1$
+				subParse.start);
+	}
+
+	/**
+	 * Inserts the errors of the given sub-parse at the given index of the errors of the document, and sets its AST as
+	 * the content of the node the sub-parse was done for. A <code>null</code> result means the parse failed.
+	 * 
+	 * @return the number of errors inserted
+	 */
+	private int finishSubParse(SubParse subParse, int errorIndex)
+	{
+		ParseResult result = subParse.result;
+		if (result == null)
+		{
+			return 0;
+		}
+		List<IParseError> errors = result.getErrors();
+		for (int i = 0; i < errors.size(); i++)
+		{
+			IParseError subError = errors.get(i);
+			// Shift the line/offsets based on the starting offset/line of the sub-language!
+			fWorkingParseResult.addError(errorIndex + i, new ParseError(subParse.language, subParse.start
+					+ subError.getOffset(), subError.getLength(), subError.getMessage(), subError.getSeverity()));
+		}
+		if (subParse.node != null)
+		{
+			IParseNode node = result.getRootNode();
+			if (node == null)
 			{
+				node = new HTMLTextNode(subParse.source, subParse.start, subParse.end);
 			}
+			subParse.node.setChildren(new IParseNode[] { node });
 		}
-		return HTMLParserConstants.NO_PARSE_NODES;
+		return errors.size();
+	}
+
+	/**
+	 * Parses the given source as the given language, taking the result of a previous parse of the same source from the
+	 * cache when there's one. The returned tree belongs to the caller.
+	 */
+	private static ParseResult parseSubLanguage(String language, String source, int startingOffset)
+			throws java.lang.Exception
+	{
+		return HTMLSubParseCache.getInstance().parse(language, source, startingOffset);
 	}
 
 	private void processComment()
@@ -498,7 +652,7 @@ public class HTMLParser extends AbstractParser
 					{
 
 						int startingOffset = absoluteOffset - (tagName.length() + 1);
-						IParseNode node = ParserPoolFactory.parse(ICSSConstants.CONTENT_TYPE_CSS, text, startingOffset)
+						IParseNode node = parseSubLanguage(ICSSConstants.CONTENT_TYPE_CSS, text, startingOffset)
 								.getRootNode();
 
 						// should always have a rule node
@@ -525,7 +679,7 @@ public class HTMLParser extends AbstractParser
 					try
 					{
 						int startingOffset = absoluteOffset + 1;
-						IParseNode node = ParserPoolFactory.parse(IJSConstants.CONTENT_TYPE_JS, value, startingOffset)
+						IParseNode node = parseSubLanguage(IJSConstants.CONTENT_TYPE_JS, value, startingOffset)
 								.getRootNode();
 
 						for (IParseNode child : node)
@@ -0,0 +1,262 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.html.parsing;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.aptana.parsing.ParseResult;
+import com.aptana.parsing.ParseState;
+import com.aptana.parsing.ParserPoolFactory;
+import com.aptana.parsing.ast.IParseRootNode;
+import com.aptana.parsing.ast.ParseNode;
+import com.aptana.parsing.util.ParseUtil;
+
+/**
+ * Keeps the results of parsing the embedded languages of an HTML document (the content of &lt;script&gt; and
+ * &lt;style&gt; blocks, style and event handler attributes), keyed by language and source, so that re-parsing a
+ * document doesn't have to parse again the blocks that didn't change, even if they moved.
+ * <p>
+ * A tree handed to an HTML AST becomes part of it (its nodes get re-parented), so the cached trees are never handed
+ * out: each HTML AST gets a copy, shifted to the offset of its block. Only sources of at least {@link #MIN_LENGTH}
+ * chars are kept, the smaller ones are cheaper to just parse again.
+ * <p>
+ * Sub-parses that miss the cache may be run concurrently on {@link #getExecutor()}.
+ */
+public class HTMLSubParseCache
+{
+
+	private static final int MAX_CHARS = 2 * 1024 * 1024;
+	private static final int MIN_LENGTH = 512;
+
+	private static HTMLSubParseCache INSTANCE;
+	private static ExecutorService EXECUTOR;
+
+	private static class Key
+	{
+		final String language;
+		final String source;
+
+		Key(String language, String source)
+		{
+			this.language = language;
+			this.source = source;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return 31 * language.hashCode() + source.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof Key))
+			{
+				return false;
+			}
+			Key other = (Key) obj;
+			return language.equals(other.language) && source.equals(other.source);
+		}
+	}
+
+	/**
+	 * A cached result, with the offset its tree was parsed at.
+	 */
+	private static class Entry
+	{
+		final ParseResult result;
+		final int offset;
+
+		Entry(ParseResult result, int offset)
+		{
+			this.result = result;
+			this.offset = offset;
+		}
+	}
+
+	private final int maxChars;
+	private final int minLength;
+
+	/**
+	 * The cached results, which are only ever copied (they may also be in the cache of the parsing engine).
+	 */
+	private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+	private int chars;
+
+	/**
+	 * @param maxChars
+	 *            the maximum number of chars of source the cached entries may account for
+	 * @param minLength
+	 *            the minimum length of a source for its result to be cached
+	 */
+	HTMLSubParseCache(int maxChars, int minLength)
+	{
+		this.maxChars = maxChars;
+		this.minLength = minLength;
+	}
+
+	/**
+	 * @return the cache shared by all the {@link HTMLParser}s.
+	 */
+	static synchronized HTMLSubParseCache getInstance()
+	{
+		if (INSTANCE == null)
+		{
+			INSTANCE = new HTMLSubParseCache(MAX_CHARS, MIN_LENGTH);
+		}
+		return INSTANCE;
+	}
+
+	/**
+	 * Replaces the cache shared by all the {@link HTMLParser}s. For testing purposes only.
+	 */
+	static synchronized void setInstance(HTMLSubParseCache cache)
+	{
+		INSTANCE = cache;
+	}
+
+	/**
+	 * @return the executor to run sub-parses that missed the cache concurrently on.
+	 */
+	static synchronized ExecutorService getExecutor()
+	{
+		if (EXECUTOR == null)
+		{
+			int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+			EXECUTOR = Executors.newFixedThreadPool(threads, new ThreadFactory()
+			{
+				private int count;
+
+				public synchronized Thread newThread(Runnable r)
+				{
+					Thread thread = new Thread(r, "HTML sub-parser " + (++count)); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return EXECUTOR;
+	}
+
+	/**
+	 * Drops the shared cache and stops the threads of the shared executor. Called when the plugin stops.
+	 */
+	public static synchronized void dispose()
+	{
+		if (EXECUTOR != null)
+		{
+			EXECUTOR.shutdownNow();
+			EXECUTOR = null;
+		}
+		INSTANCE = null;
+	}
+
+	/**
+	 * Returns the result of parsing the given source of the given language at the given offset, taken from the cache
+	 * when possible. The returned tree belongs to the caller. The errors of the result have the offsets relative to the
+	 * source, as reported by the language's parser.
+	 */
+	public ParseResult parse(String language, String source, int offset) throws Exception
+	{
+		ParseResult result = get(language, source, offset);
+		if (result != null)
+		{
+			return result;
+		}
+		// FIXME We need to propagate options down to sub-languages, i.e. JS's attach/collect comments
+		result = ParserPoolFactory.parse(language, new ParseState(source, offset));
+		if (!isCopyable(result))
+		{
+			return result;
+		}
+		put(language, source, offset, result);
+		// the parsing engine may hand the same tree to others
+		return copy(result, 0);
+	}
+
+	/**
+	 * Returns a copy of the cached result of parsing the given source of the given language, shifted to the given
+	 * offset, or <code>null</code> if it's not in the cache.
+	 */
+	ParseResult get(String language, String source, int offset)
+	{
+		Entry entry;
+		synchronized (this)
+		{
+			entry = entries.get(new Key(language, source));
+		}
+		if (entry == null)
+		{
+			return null;
+		}
+		// the cached tree is never modified, so it's safe to copy it outside of the lock
+		return copy(entry.result, offset - entry.offset);
+	}
+
+	/**
+	 * Caches the result of parsing the given source of the given language at the given offset. The tree of the result
+	 * must not be modified afterwards. Sources shorter than the minimum length are ignored.
+	 */
+	void put(String language, String source, int offset, ParseResult result)
+	{
+		if (source.length() < minLength || !isCopyable(result))
+		{
+			return;
+		}
+		Key key = new Key(language, source);
+		synchronized (this)
+		{
+			if (entries.put(key, new Entry(result, offset)) == null)
+			{
+				chars += source.length();
+				prune();
+			}
+		}
+	}
+
+	public synchronized void clear()
+	{
+		entries.clear();
+		chars = 0;
+	}
+
+	private void prune()
+	{
+		Iterator<Key> i = entries.keySet().iterator();
+		while (chars > maxChars && entries.size() > 1 && i.hasNext())
+		{
+			chars -= i.next().source.length();
+			i.remove();
+		}
+	}
+
+	private static boolean isCopyable(ParseResult result)
+	{
+		return result != null && result.getRootNode() instanceof ParseNode;
+	}
+
+	/**
+	 * @return a copy of the given result, with its tree moved by the given delta.
+	 */
+	private static ParseResult copy(ParseResult result, int delta)
+	{
+		IParseRootNode root = (IParseRootNode) ((ParseNode) result.getRootNode()).copy();
+		if (delta != 0)
+		{
+			// moves the comments too
+			ParseUtil.addOffset(root, delta);
+		}
+		return new ParseResult(root, result.getErrors());
+	}
+}
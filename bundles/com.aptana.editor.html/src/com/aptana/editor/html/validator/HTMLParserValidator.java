@@ -20,6 +20,7 @@ import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
 
 import com.aptana.core.build.AbstractBuildParticipant;
+import com.aptana.core.build.ICacheableBuildParticipant;
 import com.aptana.core.build.IProblem;
 import com.aptana.core.build.Problem;
 import com.aptana.core.util.CollectionsUtil;
@@ -35,7 +36,7 @@ import com.aptana.parsing.ast.IParseError;
  * 
  * @author cwilliams
  */
-public class HTMLParserValidator extends AbstractBuildParticipant
+public class HTMLParserValidator extends AbstractBuildParticipant implements ICacheableBuildParticipant
 {
 	public static final String ID = "com.aptana.editor.html.validator.HTMLParseErrorValidator"; //$NON-NLS-1$
 
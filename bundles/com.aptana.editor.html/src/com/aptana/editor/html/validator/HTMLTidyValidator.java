@@ -32,6 +32,7 @@ import com.aptana.buildpath.core.BuildPathCorePlugin;
 import com.aptana.core.IFilter;
 import com.aptana.core.IMap;
 import com.aptana.core.build.AbstractBuildParticipant;
+import com.aptana.core.build.ICacheableBuildParticipant;
 import com.aptana.core.build.IProblem;
 import com.aptana.core.build.Problem;
 import com.aptana.core.logging.IdeLog;
@@ -69,7 +70,7 @@ import com.aptana.parsing.xpath.ParseNodeXPath;
  * 
  * @author cwilliams
  */
-public class HTMLTidyValidator extends AbstractBuildParticipant
+public class HTMLTidyValidator extends AbstractBuildParticipant implements ICacheableBuildParticipant
 {
 	private static final EnumSet<Type> XHTML_TYPES = EnumSet.of(Type.XHTML_1_0_FRAMESET, Type.XHTML_1_0_STRICT,
 			Type.XHTML_1_0_TRANSITIONAL, Type.XHTML_1_1_STRICT);
@@ -924,6 +925,20 @@ public class HTMLTidyValidator extends AbstractBuildParticipant
 		return problem;
 	}
 
+	/**
+	 * Adds the severity of every type of problem to the filters.
+	 */
+	@Override
+	public String getSettingsKey(BuildContext context)
+	{
+		StringBuilder key = new StringBuilder(super.getSettingsKey(context));
+		for (ProblemType type : ProblemType.values())
+		{
+			key.append(',').append(getSeverity(type).intValue());
+		}
+		return key.toString();
+	}
+
 	private IProblem.Severity getSeverity(ProblemType type)
 	{
 		int num = getPreferenceInt(type.getPrefKey(), IProblem.Severity.WARNING.intValue());
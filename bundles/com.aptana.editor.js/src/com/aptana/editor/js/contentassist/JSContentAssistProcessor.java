@@ -55,6 +55,7 @@ import com.aptana.js.core.JSLanguageConstants;
 import com.aptana.js.core.JSTypeConstants;
 import com.aptana.js.core.index.IJSIndexConstants;
 import com.aptana.js.core.index.JSIndexQueryHelper;
+import com.aptana.js.core.inferencing.JSInferenceContext;
 import com.aptana.js.core.inferencing.JSNodeTypeInferrer;
 import com.aptana.js.core.inferencing.JSPropertyCollection;
 import com.aptana.js.core.inferencing.JSScope;
@@ -84,6 +85,7 @@ import com.aptana.js.core.parsing.ast.JSThisNode;
 import com.aptana.parsing.ParserPoolFactory;
 import com.aptana.parsing.ast.INameNode;
 import com.aptana.parsing.ast.IParseNode;
+import com.aptana.parsing.ast.IParseRootNode;
 import com.aptana.parsing.lexer.IRange;
 import com.aptana.parsing.lexer.Lexeme;
 import com.aptana.parsing.lexer.Range;
@@ -638,6 +640,7 @@ public class JSContentAssistProcessor extends CommonContentAssistProcessor
 							+ IJSIndexConstants.NESTED_TYPE_SEPARATOR + "this"); //$NON-NLS-1$
 
 					// infer each property and add proposal
+					JSInferenceContext inferenceContext = new JSInferenceContext(getQueryHelper());
 					for (JSAssignmentNode assignment : assignments)
 					{
 						IParseNode lhs = assignment.getLeftHandSide();
@@ -645,7 +648,7 @@ public class JSContentAssistProcessor extends CommonContentAssistProcessor
 						String name = lhs.getLastChild().getText();
 
 						JSNodeTypeInferrer nodeInferrer = new JSNodeTypeInferrer(localScope, index, location,
-								getQueryHelper());
+								inferenceContext);
 						((JSNode) rhs).accept(nodeInferrer);
 						List<String> types = nodeInferrer.getTypes();
 
@@ -1024,24 +1027,28 @@ public class JSContentAssistProcessor extends CommonContentAssistProcessor
 
 		try
 		{
-			// grab document
-			IDocument doc = getDocument();
+			IParseNode ast = getEditorAST();
 
-			// grab source which is either the whole document for JS files or a subset for nested JS
-			// @formatter:off
-			String source =
-				(activeRange != null)
-					? doc.get(activeRange.getStartingOffset(), activeRange.getLength())
-					: doc.get();
-			// @formatter:on
-			int startingOffset = (activeRange != null) ? activeRange.getStartingOffset() : 0;
-
-			// create parse state and turn off all processing of comments
-			JSParseState parseState = new JSParseState(source, startingOffset, true, true);
-
-			// parse and grab resulting AST
-			IParseNode ast = ParserPoolFactory.parse(IJSConstants.CONTENT_TYPE_JS, parseState).getRootNode();
-			// TODO Use getAST()?
+			if (ast == null)
+			{
+				// grab document
+				IDocument doc = getDocument();
+
+				// grab source which is either the whole document for JS files or a subset for nested JS
+				// @formatter:off
+				String source =
+					(activeRange != null)
+						? doc.get(activeRange.getStartingOffset(), activeRange.getLength())
+						: doc.get();
+				// @formatter:on
+				int startingOffset = (activeRange != null) ? activeRange.getStartingOffset() : 0;
+
+				// create parse state and turn off all processing of comments
+				JSParseState parseState = new JSParseState(source, startingOffset, true, true);
+
+				// parse and grab resulting AST
+				ast = ParserPoolFactory.parse(IJSConstants.CONTENT_TYPE_JS, parseState).getRootNode();
+			}
 
 			if (ast != null)
 			{
@@ -1070,6 +1077,24 @@ public class JSContentAssistProcessor extends CommonContentAssistProcessor
 		return result;
 	}
 
+	/**
+	 * Returns the editor's AST when it's the AST of the whole JS document, so offset lookups don't parse it again (the
+	 * editor keeps it for as long as the document doesn't change). Nested JS still gets parsed on its own.
+	 * 
+	 * @return
+	 */
+	private IParseNode getEditorAST()
+	{
+		if (editor == null || activeRange != null)
+		{
+			return null;
+		}
+
+		IParseRootNode ast = editor.getAST();
+
+		return (ast != null && IJSConstants.CONTENT_TYPE_JS.equals(ast.getLanguage())) ? ast : null;
+	}
+
 	protected IDocument getDocument()
 	{
 		return textViewer.getDocument();
@@ -12,6 +12,7 @@ import java.util.LinkedList;
 import java.util.Queue;
 import java.util.Set;
 
+import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.rules.IToken;
 import org.eclipse.jface.text.rules.Token;
 
@@ -21,6 +22,7 @@ import com.aptana.core.logging.IdeLog;
 import com.aptana.core.util.CollectionsUtil;
 import com.aptana.editor.common.parsing.AbstractFlexTokenScanner;
 import com.aptana.editor.js.JSPlugin;
+import com.aptana.editor.js.JSSourceConfiguration;
 import com.aptana.js.core.JSLanguageConstants;
 import com.aptana.js.core.parsing.JSFlexScanner;
 import com.aptana.js.core.parsing.Terminals;
@@ -104,6 +106,30 @@ public class JSCodeScanner extends AbstractFlexTokenScanner
 		return UNDEFINED_TOKEN;
 	}
 
+	@Override
+	protected Object getLexerState()
+	{
+		return fCurrentState;
+	}
+
+	@Override
+	protected void setLexerState(Object state)
+	{
+		fCurrentState = (State) state;
+	}
+
+	@Override
+	protected boolean isOwnPartition(String contentType)
+	{
+		return IDocument.DEFAULT_CONTENT_TYPE.equals(contentType) || JSSourceConfiguration.DEFAULT.equals(contentType);
+	}
+
+	@Override
+	protected void resetLexerState(IDocument document, int offset)
+	{
+		fCurrentState = State.DEFAULT;
+	}
+
 	protected IToken mapToken(Symbol token) throws IOException, beaver.Scanner.Exception
 	{
 		switch (token.getId())
@@ -357,6 +383,15 @@ public class JSCodeScanner extends AbstractFlexTokenScanner
 			case Terminals.NUMBER:
 				return NUMBER_TOKEN;
 
+			// Strings and templates have partitions of their own, they're only scanned when the document isn't
+			// partitioned.
+			case Terminals.STRING:
+			case Terminals.NO_SUB_TEMPLATE:
+			case Terminals.TEMPLATE_HEAD:
+			case Terminals.TEMPLATE_MIDDLE:
+			case Terminals.TEMPLATE_TAIL:
+				return UNDEFINED_TOKEN;
+
 			case Terminals.EOF:
 				return Token.EOF;
 			default:
@@ -19,7 +19,6 @@ import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.ITextViewer;
-import org.eclipse.jface.text.ITypedRegion;
 import org.eclipse.jface.text.contentassist.ICompletionProposal;
 import org.eclipse.jface.text.contentassist.IContextInformation;
 import org.eclipse.jface.text.rules.IToken;
@@ -36,7 +35,6 @@ import com.aptana.editor.common.contentassist.CommonCompletionProposal;
 import com.aptana.editor.common.contentassist.ILexemeProvider;
 import com.aptana.editor.xml.TagUtil;
 import com.aptana.editor.xml.XMLPlugin;
-import com.aptana.editor.xml.XMLSourceConfiguration;
 import com.aptana.editor.xml.XMLTagScanner;
 import com.aptana.editor.xml.internal.XMLLexemeProvider;
 import com.aptana.parsing.lexer.IRange;
@@ -920,48 +918,14 @@ public class XMLContentAssistProcessor extends CommonContentAssistProcessor
 	}
 
 	/**
-	 * getUnclosedTagNames
+	 * getUnclosedTagNames. None are collected yet, so all close tags get proposed.
 	 * 
 	 * @param offset
 	 * @return
 	 */
 	protected Set<String> getUnclosedTagNames(int offset)
 	{
-		Set<String> unclosedElements = new HashSet<String>();
-
-		try
-		{
-			ITypedRegion[] partitions = _document.computePartitioning(0, offset);
-
-			for (ITypedRegion partition : partitions)
-			{
-				if (partition.getType().equals(XMLSourceConfiguration.TAG))
-				{
-					String src = _document.get(partition.getOffset(), partition.getLength());
-					int lessThanIndex = src.indexOf('<');
-
-					if (lessThanIndex == -1 || lessThanIndex >= src.length() - 1)
-					{
-						continue;
-					}
-
-					src = src.substring(lessThanIndex + 1).trim();
-
-					String[] parts = src.split("\\W"); //$NON-NLS-1$
-
-					if (parts == null || parts.length == 0)
-					{
-						continue;
-					}
-				}
-			}
-		}
-		catch (BadLocationException e)
-		{
-			// ignore
-		}
-
-		return unclosedElements;
+		return new HashSet<String>();
 	}
 
 	/*
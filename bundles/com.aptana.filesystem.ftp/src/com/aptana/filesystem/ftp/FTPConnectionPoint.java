@@ -18,6 +18,7 @@ import org.eclipse.core.runtime.Platform;
 
 import com.aptana.core.epl.IMemento;
 import com.aptana.core.io.vfs.IConnectionFileManager;
+import com.aptana.core.io.vfs.IConnectionFileManagerFactory;
 import com.aptana.filesystem.ftp.internal.FTPConnectionFileManager;
 import com.aptana.ide.core.io.ConnectionContext;
 import com.aptana.ide.core.io.ConnectionPoint;
@@ -26,7 +27,8 @@ import com.aptana.ide.core.io.CoreIOPlugin;
 /**
  * @author Max Stepanov
  */
-public class FTPConnectionPoint extends ConnectionPoint implements IBaseFTPConnectionPoint
+public class FTPConnectionPoint extends ConnectionPoint implements IBaseFTPConnectionPoint,
+		IConnectionFileManagerFactory
 {
 
 	public static final String TYPE = TYPE_FTP;
@@ -409,26 +411,42 @@ public class FTPConnectionPoint extends ConnectionPoint implements IBaseFTPConne
 	{
 		if (connectionFileManager == null)
 		{
-			// find contributed first
-			connectionFileManager = (IFTPConnectionFileManager) super.getAdapter(IFTPConnectionFileManager.class);
-			if (connectionFileManager == null
-					&& Platform.getAdapterManager().hasAdapter(this, IFTPConnectionFileManager.class.getName()))
-			{
-				connectionFileManager = (IFTPConnectionFileManager) Platform.getAdapterManager().loadAdapter(this,
-						IFTPConnectionFileManager.class.getName());
-			}
-			if (connectionFileManager == null)
-			{
-				connectionFileManager = new FTPConnectionFileManager();
-			}
-			ConnectionContext context = CoreIOPlugin.getConnectionContext(this);
-			if (context != null)
-			{
-				CoreIOPlugin.setConnectionContext(connectionFileManager, context);
-			}
-			connectionFileManager
-					.init(host, port, path, login, password, passiveMode, transferType, encoding, timezone);
+			connectionFileManager = newConnectionFileManager();
 		}
 		return connectionFileManager;
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.core.io.vfs.IConnectionFileManagerFactory#createConnectionFileManager()
+	 */
+	public IConnectionFileManager createConnectionFileManager()
+	{
+		return newConnectionFileManager();
+	}
+
+	private IFTPConnectionFileManager newConnectionFileManager()
+	{
+		// find contributed first
+		IFTPConnectionFileManager fileManager = (IFTPConnectionFileManager) super
+				.getAdapter(IFTPConnectionFileManager.class);
+		if (fileManager == null
+				&& Platform.getAdapterManager().hasAdapter(this, IFTPConnectionFileManager.class.getName()))
+		{
+			fileManager = (IFTPConnectionFileManager) Platform.getAdapterManager().loadAdapter(this,
+					IFTPConnectionFileManager.class.getName());
+		}
+		if (fileManager == null)
+		{
+			fileManager = new FTPConnectionFileManager();
+		}
+		ConnectionContext context = CoreIOPlugin.getConnectionContext(this);
+		if (context != null)
+		{
+			CoreIOPlugin.setConnectionContext(fileManager, context);
+		}
+		fileManager
+				.init(host, port, path, login, password, passiveMode, transferType, encoding, timezone);
+		return fileManager;
+	}
 }
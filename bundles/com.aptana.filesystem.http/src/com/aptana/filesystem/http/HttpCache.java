@@ -0,0 +1,582 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.filesystem.http;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.aptana.core.logging.IdeLog;
+import com.aptana.core.util.IOUtil;
+import com.aptana.core.util.StringUtil;
+
+/**
+ * An on-disk cache of the content of http(s) URIs, kept across sessions and bounded in size (the least recently used
+ * entries being dropped first).
+ * <p>
+ * Each entry is stored as the content and a properties file holding the validators the server sent (ETag and
+ * Last-Modified) and how long the content is fresh for. Fresh content is served without contacting the server, stale
+ * content is revalidated with a conditional request, and stale content is still served when the server can't be
+ * reached.
+ */
+public class HttpCache
+{
+
+	private static final String PROPERTIES_EXTENSION = ".properties"; //$NON-NLS-1$
+	private static final String DOWNLOAD_PREFIX = "download"; //$NON-NLS-1$
+
+	private static final String URI_PROPERTY = "uri"; //$NON-NLS-1$
+	private static final String ETAG_PROPERTY = "etag"; //$NON-NLS-1$
+	private static final String LAST_MODIFIED_PROPERTY = "lastModified"; //$NON-NLS-1$
+	private static final String EXPIRES_PROPERTY = "expires"; //$NON-NLS-1$
+
+	private static final String GET = "GET"; //$NON-NLS-1$
+	private static final String HEAD = "HEAD"; //$NON-NLS-1$
+	private static final String ETAG_HEADER = "ETag"; //$NON-NLS-1$
+	private static final String IF_NONE_MATCH_HEADER = "If-None-Match"; //$NON-NLS-1$
+	private static final String CACHE_CONTROL_HEADER = "Cache-Control"; //$NON-NLS-1$
+	private static final String NO_CACHE = "no-cache"; //$NON-NLS-1$
+	private static final String NO_STORE = "no-store"; //$NON-NLS-1$
+	private static final Pattern MAX_AGE = Pattern.compile("max-age\\s*=\\s*(\\d+)"); //$NON-NLS-1$
+
+	/**
+	 * The longest we consider content fresh for when the server doesn't say, in milliseconds.
+	 */
+	private static final long MAX_HEURISTIC_FRESHNESS = 24 * 60 * 60 * 1000L;
+
+	/**
+	 * The cached content of a URI.
+	 */
+	public static class Entry
+	{
+		private final URI uri;
+		private final File file;
+		private final String etag;
+		private final long lastModified;
+		private final long expires;
+		private long lastUsed;
+
+		Entry(URI uri, File file, String etag, long lastModified, long expires)
+		{
+			this.uri = uri;
+			this.file = file;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.expires = expires;
+			this.lastUsed = System.currentTimeMillis();
+		}
+
+		public URI getURI()
+		{
+			return uri;
+		}
+
+		/**
+		 * Returns the file holding the content.
+		 */
+		public File getFile()
+		{
+			return file;
+		}
+
+		public long getLength()
+		{
+			return file.length();
+		}
+
+		/**
+		 * Returns the last modification time the server sent for the content, or 0 if it didn't send one.
+		 */
+		public long getLastModified()
+		{
+			return lastModified;
+		}
+
+		/**
+		 * Returns whether the content can be used without checking with the server first.
+		 */
+		public boolean isFresh()
+		{
+			return System.currentTimeMillis() < expires;
+		}
+	}
+
+	private final File directory;
+	private final long maxSize;
+
+	/**
+	 * The entries by the name of their file, loaded from disk when first needed.
+	 */
+	private Map<String, Entry> entries;
+
+	/**
+	 * @param directory
+	 *            where to keep the content
+	 * @param maxSize
+	 *            how many bytes of content to keep at most
+	 */
+	public HttpCache(File directory, long maxSize)
+	{
+		this.directory = directory;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Returns the cached content of the given URI (whether or not it's fresh), or null if there is none.
+	 *
+	 * @param uri
+	 * @return
+	 */
+	public synchronized Entry get(URI uri)
+	{
+		String name = getName(uri);
+		Entry entry = getEntries().get(name);
+		if (entry == null || !getKey(entry.uri).equals(getKey(uri)))
+		{
+			// not cached, or the name of another URI whose key has the same hash
+			return null;
+		}
+		if (!entry.file.isFile())
+		{
+			// someone deleted it
+			remove(name);
+			return null;
+		}
+		entry.lastUsed = System.currentTimeMillis();
+		getPropertiesFile(name).setLastModified(entry.lastUsed);
+		return entry;
+	}
+
+	/**
+	 * Returns the content of the given URI, downloading it if it's not cached and revalidating it if it's stale.
+	 *
+	 * @param uri
+	 * @return
+	 * @throws IOException
+	 *             if the content couldn't be retrieved and isn't cached
+	 */
+	public Entry fetch(URI uri) throws IOException
+	{
+		Entry cached = get(uri);
+		if (cached != null && cached.isFresh())
+		{
+			return cached;
+		}
+
+		HttpURLConnection connection = openConnection(uri, GET, cached);
+		try
+		{
+			int code = connection.getResponseCode();
+			if (code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null)
+			{
+				return revalidated(cached, connection);
+			}
+			if (code == HttpURLConnection.HTTP_NOT_FOUND || code == HttpURLConnection.HTTP_GONE)
+			{
+				remove(getName(uri));
+				cached = null;
+				throw new FileNotFoundException(uri.toString());
+			}
+			if (code != HttpURLConnection.HTTP_OK)
+			{
+				throw new IOException(MessageFormat.format("{0} returned {1} {2}", uri, code, //$NON-NLS-1$
+						connection.getResponseMessage()));
+			}
+			return store(uri, connection);
+		}
+		catch (IOException e)
+		{
+			if (cached == null)
+			{
+				throw e;
+			}
+			IdeLog.logWarning(HttpFilesystemPlugin.getDefault(), MessageFormat.format(
+					"Unable to revalidate {0}, using the cached content", uri), e); //$NON-NLS-1$
+			return cached;
+		}
+		finally
+		{
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Checks with the server whether the given stale entry is still valid, without downloading the content again.
+	 *
+	 * @param entry
+	 * @return the entry, fresh again, or null if the content changed
+	 */
+	public Entry revalidate(Entry entry)
+	{
+		HttpURLConnection connection = null;
+		try
+		{
+			connection = openConnection(entry.uri, HEAD, entry);
+			int code = connection.getResponseCode();
+			if (code == HttpURLConnection.HTTP_NOT_MODIFIED)
+			{
+				return revalidated(entry, connection);
+			}
+			if (code == HttpURLConnection.HTTP_OK)
+			{
+				// not all servers handle conditional HEAD requests, so compare the validators ourselves
+				String etag = connection.getHeaderField(ETAG_HEADER);
+				boolean same = (etag != null) ? etag.equals(entry.etag) : entry.lastModified != 0
+						&& connection.getLastModified() == entry.lastModified;
+				if (same)
+				{
+					return revalidated(entry, connection);
+				}
+			}
+			return null;
+		}
+		catch (IOException e)
+		{
+			// the server can't be reached, so what we have is as good as it gets
+			return entry;
+		}
+		finally
+		{
+			if (connection != null)
+			{
+				connection.disconnect();
+			}
+		}
+	}
+
+	/**
+	 * Drops all the cached content.
+	 */
+	public synchronized void clear()
+	{
+		for (String name : new ArrayList<String>(getEntries().keySet()))
+		{
+			remove(name);
+		}
+	}
+
+	private HttpURLConnection openConnection(URI uri, String method, Entry cached) throws IOException
+	{
+		HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+		// we do the caching
+		connection.setUseCaches(false);
+		connection.setAllowUserInteraction(false);
+		connection.setDoOutput(false);
+		connection.setRequestMethod(method);
+		if (cached != null)
+		{
+			if (cached.etag != null)
+			{
+				connection.setRequestProperty(IF_NONE_MATCH_HEADER, cached.etag);
+			}
+			if (cached.lastModified != 0)
+			{
+				connection.setIfModifiedSince(cached.lastModified);
+			}
+		}
+		return connection;
+	}
+
+	/**
+	 * Records that the server confirmed the content of the given entry is still valid.
+	 */
+	private synchronized Entry revalidated(Entry cached, HttpURLConnection connection)
+	{
+		String etag = connection.getHeaderField(ETAG_HEADER);
+		Entry entry = new Entry(cached.uri, cached.file, (etag == null) ? cached.etag : etag, cached.lastModified,
+				getExpiration(connection));
+		String name = cached.file.getName();
+		if (getEntries().containsKey(name))
+		{
+			getEntries().put(name, entry);
+			writeProperties(name, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * Saves the content the given connection returns.
+	 */
+	private Entry store(URI uri, HttpURLConnection connection) throws IOException
+	{
+		if (!directory.isDirectory() && !directory.mkdirs())
+		{
+			throw new IOException(MessageFormat.format(
+					"Unable to create the cache directory {0}", directory)); //$NON-NLS-1$
+		}
+		File download = File.createTempFile(DOWNLOAD_PREFIX, null, directory);
+		try
+		{
+			InputStream in = connection.getInputStream();
+			OutputStream out = new FileOutputStream(download);
+			try
+			{
+				IOUtil.pipe(in, out);
+			}
+			finally
+			{
+				close(in);
+				close(out);
+			}
+
+			String name = getName(uri);
+			Entry entry = new Entry(uri, new File(directory, name), connection.getHeaderField(ETAG_HEADER),
+					connection.getLastModified(), getExpiration(connection));
+			synchronized (this)
+			{
+				remove(name);
+				if (!download.renameTo(entry.file))
+				{
+					throw new IOException(MessageFormat.format(
+							"Unable to move {0} to {1}", download, entry.file)); //$NON-NLS-1$
+				}
+				getEntries().put(name, entry);
+				writeProperties(name, entry);
+				evict(entry);
+			}
+			return entry;
+		}
+		finally
+		{
+			download.delete();
+		}
+	}
+
+	/**
+	 * Drops the least recently used entries (other than the given one) until the content fits in the maximum size.
+	 */
+	private void evict(Entry keep)
+	{
+		long size = 0;
+		for (Entry entry : entries.values())
+		{
+			size += entry.getLength();
+		}
+		if (size <= maxSize)
+		{
+			return;
+		}
+		List<Map.Entry<String, Entry>> byUse = new ArrayList<Map.Entry<String, Entry>>(entries.entrySet());
+		Collections.sort(byUse, new Comparator<Map.Entry<String, Entry>>()
+		{
+			public int compare(Map.Entry<String, Entry> e1, Map.Entry<String, Entry> e2)
+			{
+				long used1 = e1.getValue().lastUsed;
+				long used2 = e2.getValue().lastUsed;
+				return (used1 < used2) ? -1 : ((used1 == used2) ? 0 : 1);
+			}
+		});
+		for (Map.Entry<String, Entry> entry : byUse)
+		{
+			if (size <= maxSize)
+			{
+				break;
+			}
+			if (entry.getValue() != keep)
+			{
+				size -= entry.getValue().getLength();
+				remove(entry.getKey());
+			}
+		}
+	}
+
+	private void remove(String name)
+	{
+		getEntries().remove(name);
+		new File(directory, name).delete();
+		getPropertiesFile(name).delete();
+	}
+
+	private Map<String, Entry> getEntries()
+	{
+		if (entries == null)
+		{
+			entries = load();
+		}
+		return entries;
+	}
+
+	/**
+	 * Reads the entries kept by previous sessions.
+	 */
+	private Map<String, Entry> load()
+	{
+		Map<String, Entry> loaded = new HashMap<String, Entry>();
+		File[] files = directory.listFiles();
+		if (files == null)
+		{
+			return loaded;
+		}
+		for (File file : files)
+		{
+			String fileName = file.getName();
+			if (fileName.startsWith(DOWNLOAD_PREFIX) && fileName.endsWith(".tmp")) //$NON-NLS-1$
+			{
+				// left over by an interrupted download
+				file.delete();
+			}
+			else if (fileName.endsWith(PROPERTIES_EXTENSION))
+			{
+				String name = fileName.substring(0, fileName.length() - PROPERTIES_EXTENSION.length());
+				Entry entry = readProperties(name, file);
+				if (entry == null || !entry.file.isFile())
+				{
+					file.delete();
+				}
+				else
+				{
+					entry.lastUsed = file.lastModified();
+					loaded.put(name, entry);
+				}
+			}
+		}
+		return loaded;
+	}
+
+	private Entry readProperties(String name, File propertiesFile)
+	{
+		InputStream in = null;
+		try
+		{
+			in = new FileInputStream(propertiesFile);
+			Properties properties = new Properties();
+			properties.load(in);
+			long lastModified = Long.parseLong(properties.getProperty(LAST_MODIFIED_PROPERTY, "0")); //$NON-NLS-1$
+			long expires = Long.parseLong(properties.getProperty(EXPIRES_PROPERTY, "0")); //$NON-NLS-1$
+			return new Entry(URI.create(properties.getProperty(URI_PROPERTY)), new File(directory, name),
+					properties.getProperty(ETAG_PROPERTY), lastModified, expires);
+		}
+		catch (Exception e)
+		{
+			IdeLog.logWarning(HttpFilesystemPlugin.getDefault(), e);
+			return null;
+		}
+		finally
+		{
+			close(in);
+		}
+	}
+
+	private void writeProperties(String name, Entry entry)
+	{
+		Properties properties = new Properties();
+		properties.setProperty(URI_PROPERTY, entry.uri.toString());
+		if (entry.etag != null)
+		{
+			properties.setProperty(ETAG_PROPERTY, entry.etag);
+		}
+		properties.setProperty(LAST_MODIFIED_PROPERTY, Long.toString(entry.lastModified));
+		properties.setProperty(EXPIRES_PROPERTY, Long.toString(entry.expires));
+		OutputStream out = null;
+		try
+		{
+			out = new FileOutputStream(getPropertiesFile(name));
+			properties.store(out, null);
+		}
+		catch (IOException e)
+		{
+			IdeLog.logWarning(HttpFilesystemPlugin.getDefault(), e);
+		}
+		finally
+		{
+			close(out);
+		}
+	}
+
+	/**
+	 * Returns the name the content of the given URI is stored under. The file system path of the URI leaves out its
+	 * query, so it's prefixed with the hash of the whole URI to tell apart <code>lib.js?v=1</code> and
+	 * <code>lib.js?v=2</code> (the cached file being handed out as the local file, it keeps its extension).
+	 */
+	private static String getName(URI uri)
+	{
+		return Integer.toHexString(getKey(uri).hashCode()) + '_' + HttpFileStore.getPath(uri);
+	}
+
+	/**
+	 * Returns what identifies the content of the given URI: the whole URI but its fragment, which never reaches the
+	 * server.
+	 */
+	private static String getKey(URI uri)
+	{
+		return uri.getScheme() + ':' + uri.getRawSchemeSpecificPart();
+	}
+
+	private File getPropertiesFile(String name)
+	{
+		return new File(directory, name + PROPERTIES_EXTENSION);
+	}
+
+	/**
+	 * Returns until when the content the given connection returned is fresh: as long as the server said, or a tenth of
+	 * the time since it was last modified (as browsers do) if it didn't say.
+	 */
+	private static long getExpiration(HttpURLConnection connection)
+	{
+		long now = System.currentTimeMillis();
+		String cacheControl = connection.getHeaderField(CACHE_CONTROL_HEADER);
+		if (!StringUtil.isEmpty(cacheControl))
+		{
+			cacheControl = cacheControl.toLowerCase(Locale.ENGLISH);
+			if (cacheControl.contains(NO_CACHE) || cacheControl.contains(NO_STORE))
+			{
+				return now;
+			}
+			Matcher matcher = MAX_AGE.matcher(cacheControl);
+			if (matcher.find())
+			{
+				return now + Long.parseLong(matcher.group(1)) * 1000;
+			}
+		}
+		long expires = connection.getExpiration();
+		if (expires != 0)
+		{
+			long date = connection.getDate();
+			return now + expires - ((date == 0) ? now : date);
+		}
+		long lastModified = connection.getLastModified();
+		if (lastModified != 0 && lastModified < now)
+		{
+			return now + Math.min((now - lastModified) / 10, MAX_HEURISTIC_FRESHNESS);
+		}
+		return now;
+	}
+
+	private static void close(Closeable stream)
+	{
+		if (stream != null)
+		{
+			try
+			{
+				stream.close();
+			}
+			catch (IOException e)
+			{
+				// ignore
+			}
+		}
+	}
+}
@@ -1,6 +1,6 @@
 /**
  * Aptana Studio
- * Copyright (c) 2005-2012 by Appcelerator, Inc. All Rights Reserved.
+ * Copyright (c) 2005-2014 by Appcelerator, Inc. All Rights Reserved.
  * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
  * Please see the license.html included with this distribution for details.
  * Any modifications to this file must keep this entire header intact.
@@ -8,6 +8,8 @@
 package com.aptana.filesystem.http;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
@@ -30,7 +32,6 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 
 import com.aptana.core.logging.IdeLog;
-import com.aptana.core.util.FileUtil;
 
 public class HttpFileStore extends FileStore
 {
@@ -59,6 +60,19 @@ public class HttpFileStore extends FileStore
 	public IFileInfo fetchInfo(int options, IProgressMonitor monitor) throws CoreException
 	{
 		FileInfo result = new FileInfo(getName());
+		HttpCache.Entry entry = getCache().get(uri);
+		if (entry != null && !entry.isFresh())
+		{
+			entry = getCache().revalidate(entry);
+		}
+		if (entry != null)
+		{
+			result.setExists(true);
+			result.setLastModified(entry.getLastModified());
+			result.setLength(entry.getLength());
+			return result;
+		}
+
 		try
 		{
 			HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
@@ -147,50 +161,51 @@ public class HttpFileStore extends FileStore
 		if ((options & EFS.CACHE) == 0)
 			return null;
 
-		SubMonitor sub = SubMonitor.convert(monitor);
-
-		// Try to grab copied cache file based on URL!
-		File tmpDir = FileUtil.getTempDirectory().toFile();
-		File cached = new File(tmpDir, getPath(uri));
-		if (cached.exists())
+		File cached = fetch().getFile();
+		if (IdeLog.isTraceEnabled(HttpFilesystemPlugin.getDefault(), IDebugScopes.FILESYSTEM))
 		{
-			IFileStore localFile = EFS.getLocalFileSystem().fromLocalFile(cached);
-			long lastModified = localFile.fetchInfo(EFS.NONE, sub.newChild(5)).getLastModified();
-			long remoteLastModified = fetchInfo(EFS.NONE, sub.newChild(20)).getLastModified();
+			IdeLog.logTrace(HttpFilesystemPlugin.getDefault(), MessageFormat.format(
+					"Returning locally cached file {0} for remote URI {1}", cached, uri)); //$NON-NLS-1$
+		}
+		return cached;
+	}
 
-			// TODO What if one or both return EFS.NONE?
-			if (lastModified >= remoteLastModified)
-			{
-				if (IdeLog.isTraceEnabled(HttpFilesystemPlugin.getDefault(), IDebugScopes.FILESYSTEM))
-				{
-					IdeLog.logTrace(HttpFilesystemPlugin.getDefault(),
-							MessageFormat.format(
-							"Returning locally cached URI {0} version for remote URI {0}", localFile.toURI(), uri)); //$NON-NLS-1$
-				}
-				return cached;
-			}
+	/**
+	 * Returns the cached content, downloading it or checking it's still valid first if needed.
+	 * 
+	 * @return
+	 * @throws CoreException
+	 */
+	private HttpCache.Entry fetch() throws CoreException
+	{
+		try
+		{
+			return getCache().fetch(uri);
+		}
+		catch (MalformedURLException e)
+		{
+			HttpFilesystemPlugin.log(e);
+			throw new CoreException(new Status(IStatus.ERROR, HttpFilesystemPlugin.PLUGIN_ID, EFS.ERROR_NO_LOCATION, e
+					.getMessage(), e));
 		}
-		sub.worked(25);
-		// make directory structure for our copy
-		if (!cached.getParentFile().exists() && !cached.getParentFile().mkdirs())
+		catch (IllegalArgumentException e)
 		{
-			throw new CoreException(new Status(IStatus.ERROR, HttpFilesystemPlugin.PLUGIN_ID, EFS.ERROR_INTERNAL,
-							MessageFormat
-									.format("Unable to create directory structure {0} for locally cached copy", cached.getParentFile()), null)); //$NON-NLS-1$
+			// not an absolute URI
+			HttpFilesystemPlugin.log(e);
+			throw new CoreException(new Status(IStatus.ERROR, HttpFilesystemPlugin.PLUGIN_ID, EFS.ERROR_NO_LOCATION, e
+					.getMessage(), e));
 		}
-
-		// Download to some filename we can associate and pull back up based on URL! (used above)
-		IFileStore resultStore = EFS.getLocalFileSystem().fromLocalFile(cached);
-		copy(resultStore, EFS.OVERWRITE, sub.newChild(75));
-		cached.deleteOnExit();
-
-		if (IdeLog.isTraceEnabled(HttpFilesystemPlugin.getDefault(), IDebugScopes.FILESYSTEM))
+		catch (IOException e)
 		{
-			IdeLog.logTrace(HttpFilesystemPlugin.getDefault(),
-					MessageFormat.format("Caching remote URI {0} to local URI {1}", uri, resultStore.toURI())); //$NON-NLS-1$
+			HttpFilesystemPlugin.log(e);
+			throw new CoreException(new Status(IStatus.ERROR, HttpFilesystemPlugin.PLUGIN_ID, EFS.ERROR_READ, e
+					.getMessage(), e));
 		}
+	}
 
-		return cached;
+	protected HttpCache getCache()
+	{
+		return HttpFilesystemPlugin.getDefault().getCache();
 	}
 
 	/**
@@ -221,7 +236,7 @@ public class HttpFileStore extends FileStore
 			builder.append(separator);
 		}
 		builder.append(separator);
-		builder.append(builder.hashCode());
+		builder.append(builder.toString().hashCode());
 		builder.append(new Path(uri.getPath().replace('/', separator)).toOSString());
 		return builder.toString();
 	}
@@ -233,16 +248,11 @@ public class HttpFileStore extends FileStore
 		try
 		{
 			monitor.beginTask("", 1); //$NON-NLS-1$
-			return uri.toURL().openStream();
+			return new FileInputStream(fetch().getFile());
 		}
-		catch (MalformedURLException e)
-		{
-			HttpFilesystemPlugin.log(e);
-			throw new CoreException(new Status(IStatus.ERROR, HttpFilesystemPlugin.PLUGIN_ID, EFS.ERROR_NO_LOCATION, e
-					.getMessage(), e));
-		}
-		catch (IOException e)
+		catch (FileNotFoundException e)
 		{
+			// removed from the cache meanwhile
 			HttpFilesystemPlugin.log(e);
 			throw new CoreException(new Status(IStatus.ERROR, HttpFilesystemPlugin.PLUGIN_ID, EFS.ERROR_READ, e
 					.getMessage(), e));
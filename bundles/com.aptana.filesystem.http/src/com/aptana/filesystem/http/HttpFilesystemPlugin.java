@@ -1,6 +1,6 @@
 /**
  * Aptana Studio
- * Copyright (c) 2005-2011 by Appcelerator, Inc. All Rights Reserved.
+ * Copyright (c) 2005-2014 by Appcelerator, Inc. All Rights Reserved.
  * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
  * Please see the license.html included with this distribution for details.
  * Any modifications to this file must keep this entire header intact.
@@ -18,9 +18,18 @@ public class HttpFilesystemPlugin extends Plugin
 	// The plug-in ID
 	public static final String PLUGIN_ID = "com.aptana.filesystem.http"; //$NON-NLS-1$
 
+	/**
+	 * How many bytes of remote content we keep locally.
+	 */
+	private static final long MAX_CACHE_SIZE = 100 * 1024 * 1024;
+
+	private static final String CACHE_DIRECTORY = "cache"; //$NON-NLS-1$
+
 	// The shared instance
 	private static HttpFilesystemPlugin plugin;
 
+	private HttpCache cache;
+
 	/**
 	 * The constructor
 	 */
@@ -44,6 +53,10 @@ public class HttpFilesystemPlugin extends Plugin
 	 */
 	public void stop(BundleContext context) throws Exception
 	{
+		synchronized (this)
+		{
+			cache = null;
+		}
 		plugin = null;
 		super.stop(context);
 	}
@@ -58,6 +71,20 @@ public class HttpFilesystemPlugin extends Plugin
 		return plugin;
 	}
 
+	/**
+	 * Returns the cache of the content of the http file stores, kept in the state location of the plug-in.
+	 * 
+	 * @return
+	 */
+	public synchronized HttpCache getCache()
+	{
+		if (cache == null)
+		{
+			cache = new HttpCache(getStateLocation().append(CACHE_DIRECTORY).toFile(), MAX_CACHE_SIZE);
+		}
+		return cache;
+	}
+
 	public static void log(Exception e)
 	{
 		getDefault().getLog().log(new Status(IStatus.ERROR, HttpFilesystemPlugin.PLUGIN_ID, e.getMessage(), e));
@@ -17,6 +17,7 @@ import org.eclipse.core.runtime.Platform;
 
 import com.aptana.core.epl.IMemento;
 import com.aptana.core.io.vfs.IConnectionFileManager;
+import com.aptana.core.io.vfs.IConnectionFileManagerFactory;
 import com.aptana.core.util.StringUtil;
 import com.aptana.filesystem.secureftp.internal.FTPSConnectionFileManager;
 import com.aptana.ide.core.io.ConnectionContext;
@@ -26,7 +27,8 @@ import com.aptana.ide.core.io.CoreIOPlugin;
 /**
  * @author Max Stepanov
  */
-public class FTPSConnectionPoint extends ConnectionPoint implements IFTPSConnectionPoint
+public class FTPSConnectionPoint extends ConnectionPoint implements IFTPSConnectionPoint,
+		IConnectionFileManagerFactory
 {
 
 	public static final String TYPE = TYPE_FTPS;
@@ -517,26 +519,42 @@ public class FTPSConnectionPoint extends ConnectionPoint implements IFTPSConnect
 	{
 		if (connectionFileManager == null)
 		{
-			// find contributed first
-			connectionFileManager = (IFTPSConnectionFileManager) super.getAdapter(IFTPSConnectionFileManager.class);
-			if (connectionFileManager == null
-					&& Platform.getAdapterManager().hasAdapter(this, IFTPSConnectionFileManager.class.getName()))
-			{
-				connectionFileManager = (IFTPSConnectionFileManager) Platform.getAdapterManager().loadAdapter(this,
-						IFTPSConnectionFileManager.class.getName());
-			}
-			if (connectionFileManager == null)
-			{
-				connectionFileManager = new FTPSConnectionFileManager();
-			}
-			ConnectionContext context = CoreIOPlugin.getConnectionContext(this);
-			if (context != null)
-			{
-				CoreIOPlugin.setConnectionContext(connectionFileManager, context);
-			}
-			connectionFileManager.init(host, port, path, login, password, explicit, passiveMode, transferType,
-					encoding, timezone, validateCertificate, noSSLSessionResumption);
+			connectionFileManager = newConnectionFileManager();
 		}
 		return connectionFileManager;
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.core.io.vfs.IConnectionFileManagerFactory#createConnectionFileManager()
+	 */
+	public IConnectionFileManager createConnectionFileManager()
+	{
+		return newConnectionFileManager();
+	}
+
+	private IFTPSConnectionFileManager newConnectionFileManager()
+	{
+		// find contributed first
+		IFTPSConnectionFileManager fileManager = (IFTPSConnectionFileManager) super
+				.getAdapter(IFTPSConnectionFileManager.class);
+		if (fileManager == null
+				&& Platform.getAdapterManager().hasAdapter(this, IFTPSConnectionFileManager.class.getName()))
+		{
+			fileManager = (IFTPSConnectionFileManager) Platform.getAdapterManager().loadAdapter(this,
+					IFTPSConnectionFileManager.class.getName());
+		}
+		if (fileManager == null)
+		{
+			fileManager = new FTPSConnectionFileManager();
+		}
+		ConnectionContext context = CoreIOPlugin.getConnectionContext(this);
+		if (context != null)
+		{
+			CoreIOPlugin.setConnectionContext(fileManager, context);
+		}
+		fileManager.init(host, port, path, login, password, explicit, passiveMode, transferType,
+				encoding, timezone, validateCertificate, noSSLSessionResumption);
+		return fileManager;
+	}
 }
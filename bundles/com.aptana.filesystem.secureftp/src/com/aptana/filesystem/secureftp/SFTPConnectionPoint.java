@@ -17,6 +17,7 @@ import org.eclipse.core.runtime.Platform;
 
 import com.aptana.core.epl.IMemento;
 import com.aptana.core.io.vfs.IConnectionFileManager;
+import com.aptana.core.io.vfs.IConnectionFileManagerFactory;
 import com.aptana.filesystem.secureftp.internal.SFTPConnectionFileManager;
 import com.aptana.ide.core.io.ConnectionContext;
 import com.aptana.ide.core.io.ConnectionPoint;
@@ -25,7 +26,8 @@ import com.aptana.ide.core.io.CoreIOPlugin;
 /**
  * @author Max Stepanov
  */
-public class SFTPConnectionPoint extends ConnectionPoint implements ISFTPConnectionPoint
+public class SFTPConnectionPoint extends ConnectionPoint implements ISFTPConnectionPoint,
+		IConnectionFileManagerFactory
 {
 
 	public static final String TYPE = TYPE_SFTP;
@@ -416,27 +418,42 @@ public class SFTPConnectionPoint extends ConnectionPoint implements ISFTPConnect
 	{
 		if (connectionFileManager == null)
 		{
-			// find contributed first
-			connectionFileManager = (ISFTPConnectionFileManager) super.getAdapter(ISFTPConnectionFileManager.class);
-			if (connectionFileManager == null
-					&& Platform.getAdapterManager().hasAdapter(this, ISFTPConnectionFileManager.class.getName()))
-			{
-				connectionFileManager = (ISFTPConnectionFileManager) Platform.getAdapterManager().loadAdapter(this,
-						ISFTPConnectionFileManager.class.getName());
-			}
-			if (connectionFileManager == null)
-			{
-				connectionFileManager = new SFTPConnectionFileManager();
-			}
-			ConnectionContext context = CoreIOPlugin.getConnectionContext(this);
-			if (context != null)
-			{
-				CoreIOPlugin.setConnectionContext(connectionFileManager, context);
-			}
-			IPath keyFilePath = (privateKeyFile != null && !privateKeyFile.isEmpty()) ? privateKeyFile : null;
-			connectionFileManager.init(host, port, path, keyFilePath, login, password, transferType, encoding,
-					compression);
+			connectionFileManager = newConnectionFileManager();
 		}
 		return connectionFileManager;
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.core.io.vfs.IConnectionFileManagerFactory#createConnectionFileManager()
+	 */
+	public IConnectionFileManager createConnectionFileManager()
+	{
+		return newConnectionFileManager();
+	}
+
+	private ISFTPConnectionFileManager newConnectionFileManager()
+	{
+		// find contributed first
+		ISFTPConnectionFileManager fileManager = (ISFTPConnectionFileManager) super
+				.getAdapter(ISFTPConnectionFileManager.class);
+		if (fileManager == null
+				&& Platform.getAdapterManager().hasAdapter(this, ISFTPConnectionFileManager.class.getName()))
+		{
+			fileManager = (ISFTPConnectionFileManager) Platform.getAdapterManager().loadAdapter(this,
+					ISFTPConnectionFileManager.class.getName());
+		}
+		if (fileManager == null)
+		{
+			fileManager = new SFTPConnectionFileManager();
+		}
+		ConnectionContext context = CoreIOPlugin.getConnectionContext(this);
+		if (context != null)
+		{
+			CoreIOPlugin.setConnectionContext(fileManager, context);
+		}
+		IPath keyFilePath = (privateKeyFile != null && !privateKeyFile.isEmpty()) ? privateKeyFile : null;
+		fileManager.init(host, port, path, keyFilePath, login, password, transferType, encoding, compression);
+		return fileManager;
+	}
 }
@@ -0,0 +1,198 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.git.core.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * An immutable snapshot of a set of {@link ChangedFile}s, organized as a tree of their path segments (relative to the
+ * working directory). Every directory node holds the aggregated flags of the files underneath it, so asking whether a
+ * folder contains changes (staged, unstaged or conflicting) costs a lookup proportional to the depth of its path rather
+ * than to the number of changed files.
+ */
+/* package */class ChangedFileTree
+{
+
+	private static final int STAGED = 1;
+	private static final int UNSTAGED = 1 << 1;
+	private static final int CONFLICT = 1 << 2;
+
+	private static class Node
+	{
+		Map<String, Node> children;
+		/**
+		 * The changed file at this path, if any (a copy, never handed out).
+		 */
+		ChangedFile file;
+		int flags;
+
+		Node child(String segment)
+		{
+			return (children == null) ? null : children.get(segment);
+		}
+	}
+
+	private final Node root = new Node();
+	private final int size;
+
+	ChangedFileTree(Collection<ChangedFile> files)
+	{
+		int count = 0;
+		for (ChangedFile changedFile : files)
+		{
+			ChangedFile file = changedFile.clone();
+			int flags = flags(file);
+			Node node = root;
+			node.flags |= flags;
+			for (String segment : file.getRelativePath().segments())
+			{
+				if (node.children == null)
+				{
+					node.children = new HashMap<String, Node>(4);
+				}
+				Node child = node.children.get(segment);
+				if (child == null)
+				{
+					child = new Node();
+					node.children.put(segment, child);
+				}
+				node = child;
+				node.flags |= flags;
+			}
+			if (node.file == null)
+			{
+				count++;
+			}
+			node.file = file;
+		}
+		size = count;
+	}
+
+	private static int flags(ChangedFile file)
+	{
+		int flags = 0;
+		if (file.hasStagedChanges())
+		{
+			flags |= STAGED;
+		}
+		if (file.hasUnstagedChanges())
+		{
+			flags |= UNSTAGED;
+			if (file.hasUnmergedChanges())
+			{
+				flags |= CONFLICT;
+			}
+		}
+		return flags;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @param relativePath
+	 *            a path relative to the working directory, the empty path meaning the whole tree
+	 * @return whether there's a changed file at, or underneath, the given path.
+	 */
+	public boolean hasChanges(IPath relativePath)
+	{
+		return find(relativePath) != null;
+	}
+
+	public boolean hasStagedChanges(IPath relativePath)
+	{
+		return hasFlag(relativePath, STAGED);
+	}
+
+	public boolean hasUnstagedChanges(IPath relativePath)
+	{
+		return hasFlag(relativePath, UNSTAGED);
+	}
+
+	/**
+	 * @return whether a file at, or underneath, the given path is unmerged and the resolution isn't staged yet.
+	 */
+	public boolean hasUnresolvedMergeConflicts(IPath relativePath)
+	{
+		return hasFlag(relativePath, CONFLICT);
+	}
+
+	/**
+	 * @return a copy of the changed file at the given path, or <code>null</code> if there's none.
+	 */
+	public ChangedFile getChangedFile(IPath relativePath)
+	{
+		Node node = find(relativePath);
+		return (node == null || node.file == null) ? null : node.file.clone();
+	}
+
+	/**
+	 * @return copies of the changed files at, or underneath, the given path.
+	 */
+	public List<ChangedFile> getChangedFiles(IPath relativePath)
+	{
+		Node node = find(relativePath);
+		if (node == null)
+		{
+			return Collections.emptyList();
+		}
+		List<ChangedFile> files = new ArrayList<ChangedFile>();
+		collect(node, files);
+		return files;
+	}
+
+	private boolean hasFlag(IPath relativePath, int flag)
+	{
+		Node node = find(relativePath);
+		return node != null && (node.flags & flag) != 0;
+	}
+
+	private Node find(IPath relativePath)
+	{
+		if (size == 0)
+		{
+			return null;
+		}
+		Node node = root;
+		int count = relativePath.segmentCount();
+		for (int i = 0; i < count && node != null; i++)
+		{
+			node = node.child(relativePath.segment(i));
+		}
+		return node;
+	}
+
+	private static void collect(Node node, List<ChangedFile> files)
+	{
+		if (node.file != null)
+		{
+			files.add(node.file.clone());
+		}
+		if (node.children != null)
+		{
+			for (Node child : node.children.values())
+			{
+				collect(child, files);
+			}
+		}
+	}
+}
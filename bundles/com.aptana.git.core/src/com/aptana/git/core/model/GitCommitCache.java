@@ -0,0 +1,485 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.git.core.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.aptana.core.logging.IdeLog;
+import com.aptana.core.util.IOUtil;
+import com.aptana.git.core.GitPlugin;
+
+/**
+ * A persistent cache of commit metadata (author, message and time), keyed by SHA. Commits are immutable, so once a
+ * commit has been read it never has to be asked from git again: walking the history only needs the list of SHAs and
+ * parents, and the metadata of the commits that aren't cached yet (typically the ones made since the last walk). The
+ * parents aren't cached, as they depend on the paths a walk is limited to.
+ * <p>
+ * The cache is an append-only file of records; only the offset of every record is kept in memory, the records are read
+ * back on demand. A truncated record at the end of the file (e.g. after a crash) is dropped on load. Once the file
+ * holds more than a maximum number of commits (i.e.: after many rebases), it's rewritten with the commits used since
+ * it was loaded and then the most recently added ones.
+ */
+/* package */class GitCommitCache
+{
+
+	private static final int VERSION = 2;
+
+	/**
+	 * The default maximum number of commits in the file.
+	 */
+	private static final int MAX_COMMITS = 200000;
+
+	private final File file;
+	private final int maxCommits;
+
+	/**
+	 * The offset of the record of every cached commit in {@link #file}.
+	 */
+	private Map<String, Long> offsets;
+
+	/**
+	 * The length of the valid part of the file, where new records get appended.
+	 */
+	private long length;
+
+	/**
+	 * The commits that were added since the last {@link #save()}.
+	 */
+	private final Map<String, GitCommit> added = new LinkedHashMap<String, GitCommit>();
+
+	/**
+	 * The commits read from the file since it was loaded, which are kept when it's compacted.
+	 */
+	private final Set<String> used = new LinkedHashSet<String>();
+
+	private RandomAccessFile reader;
+
+	/**
+	 * @param file
+	 *            the file to persist the cache to, or <code>null</code> to keep it in memory only
+	 */
+	GitCommitCache(File file)
+	{
+		this(file, MAX_COMMITS);
+	}
+
+	/**
+	 * @param file
+	 *            the file to persist the cache to, or <code>null</code> to keep it in memory only
+	 * @param maxCommits
+	 *            the number of commits in the file past which it gets compacted
+	 */
+	GitCommitCache(File file, int maxCommits)
+	{
+		this.file = file;
+		this.maxCommits = maxCommits;
+	}
+
+	/**
+	 * Returns a new commit of the given repository with the cached metadata of the given SHA, or <code>null</code> if
+	 * the commit isn't cached.
+	 */
+	synchronized GitCommit get(GitRepository repository, String sha)
+	{
+		GitCommit commit = added.get(sha);
+		if (commit != null)
+		{
+			return copy(repository, commit);
+		}
+		Long offset = offsets().get(sha);
+		if (offset == null)
+		{
+			return null;
+		}
+		try
+		{
+			if (reader == null)
+			{
+				reader = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+			}
+			// read the whole record at once, rather than field by field from the file
+			reader.seek(offset);
+			byte[] record = new byte[4];
+			reader.readFully(record);
+			record = new byte[toInt(record)];
+			reader.readFully(record);
+			commit = readCommit(repository, new DataInputStream(new ByteArrayInputStream(record)));
+			used.add(sha);
+			return commit;
+		}
+		catch (IOException e)
+		{
+			IdeLog.logWarning(GitPlugin.getDefault(), e);
+			// forget about that one, we'll get it from git again
+			offsets.remove(sha);
+			return null;
+		}
+	}
+
+	synchronized boolean contains(String sha)
+	{
+		return added.containsKey(sha) || offsets().containsKey(sha);
+	}
+
+	synchronized void put(GitCommit commit)
+	{
+		if (!contains(commit.sha()))
+		{
+			added.put(commit.sha(), commit);
+		}
+	}
+
+	synchronized int size()
+	{
+		return offsets().size() + added.size();
+	}
+
+	/**
+	 * Appends the commits added since the last save to the file, and releases the file handle used for reading.
+	 */
+	synchronized void save()
+	{
+		close();
+		if (file == null || added.isEmpty())
+		{
+			return;
+		}
+		File dir = file.getParentFile();
+		if (dir != null && !dir.isDirectory() && !dir.mkdirs())
+		{
+			return;
+		}
+		if (offsets().size() + added.size() > maxCommits)
+		{
+			compact();
+		}
+		RandomAccessFile out = null;
+		try
+		{
+			out = new RandomAccessFile(file, "rw"); //$NON-NLS-1$
+			if (length == 0)
+			{
+				out.setLength(0);
+				out.writeInt(VERSION);
+				length = out.getFilePointer();
+			}
+			else
+			{
+				// drop a record that may have been cut short
+				out.setLength(length);
+			}
+			out.seek(length);
+
+			// write all the records at once
+			Map<String, Long> written = new HashMap<String, Long>();
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream records = new DataOutputStream(bytes);
+			ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+			DataOutputStream record = new DataOutputStream(recordBytes);
+			for (GitCommit commit : added.values())
+			{
+				recordBytes.reset();
+				writeCommit(commit, record);
+				record.flush();
+				written.put(commit.sha(), length + bytes.size());
+				records.writeInt(recordBytes.size());
+				recordBytes.writeTo(records);
+			}
+			records.flush();
+			out.write(bytes.toByteArray());
+			length = out.getFilePointer();
+			offsets().putAll(written);
+			added.clear();
+		}
+		catch (IOException e)
+		{
+			IdeLog.logWarning(GitPlugin.getDefault(), e);
+		}
+		finally
+		{
+			close(out);
+		}
+	}
+
+	/**
+	 * Rewrites the file with the commits used since it was loaded, and then the most recently added ones, leaving room
+	 * for the commits to append so that it doesn't have to be compacted again at the next save. Nothing is done if that
+	 * wouldn't drop at least a quarter of the file (i.e.: when all the commits of a huge repository are in use).
+	 */
+	private void compact()
+	{
+		int limit = Math.max(0, maxCommits * 3 / 4 - added.size());
+		Set<String> kept = new HashSet<String>();
+		for (String sha : used)
+		{
+			if (offsets.containsKey(sha))
+			{
+				kept.add(sha);
+			}
+		}
+		if (kept.size() > offsets.size() * 3 / 4)
+		{
+			return;
+		}
+		if (kept.size() < limit)
+		{
+			List<Map.Entry<String, Long>> newestFirst = new ArrayList<Map.Entry<String, Long>>(offsets.entrySet());
+			Collections.sort(newestFirst, new Comparator<Map.Entry<String, Long>>()
+			{
+				public int compare(Map.Entry<String, Long> e1, Map.Entry<String, Long> e2)
+				{
+					return e2.getValue().compareTo(e1.getValue());
+				}
+			});
+			for (int i = 0; i < newestFirst.size() && kept.size() < limit; i++)
+			{
+				kept.add(newestFirst.get(i).getKey());
+			}
+		}
+
+		File compacted = new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+		Map<String, Long> compactedOffsets = new HashMap<String, Long>();
+		long compactedLength = 0;
+		DataInputStream in = null;
+		DataOutputStream out = null;
+		try
+		{
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compacted)));
+			long position = 4;
+			in.readInt();
+			out.writeInt(VERSION);
+			compactedLength = 4;
+			while (position < length)
+			{
+				byte[] record = new byte[in.readInt()];
+				in.readFully(record);
+				position += 4 + record.length;
+				String sha = readString(new DataInputStream(new ByteArrayInputStream(record)));
+				if (kept.contains(sha))
+				{
+					compactedOffsets.put(sha, compactedLength);
+					out.writeInt(record.length);
+					out.write(record);
+					compactedLength += 4 + record.length;
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			IdeLog.logWarning(GitPlugin.getDefault(), e);
+			compactedLength = 0;
+		}
+		finally
+		{
+			close(in);
+			close(out);
+		}
+		if (compactedLength == 0 || !file.delete())
+		{
+			// keep the file as is
+			compacted.delete();
+			return;
+		}
+		if (!compacted.renameTo(file))
+		{
+			// start over
+			compacted.delete();
+			compactedOffsets.clear();
+			compactedLength = 0;
+		}
+		offsets = compactedOffsets;
+		length = compactedLength;
+	}
+
+	private static void close(Closeable closeable)
+	{
+		if (closeable != null)
+		{
+			try
+			{
+				closeable.close();
+			}
+			catch (IOException e)
+			{
+				// ignore
+			}
+		}
+	}
+
+	private void close()
+	{
+		if (reader != null)
+		{
+			try
+			{
+				reader.close();
+			}
+			catch (IOException e)
+			{
+				// ignore
+			}
+			reader = null;
+		}
+	}
+
+	private Map<String, Long> offsets()
+	{
+		if (offsets == null)
+		{
+			offsets = new HashMap<String, Long>();
+			load();
+		}
+		return offsets;
+	}
+
+	/**
+	 * Reads the offset of every record in the file.
+	 */
+	private void load()
+	{
+		if (file == null || !file.isFile())
+		{
+			return;
+		}
+		DataInputStream in = null;
+		try
+		{
+			long fileLength = file.length();
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if (fileLength < 4 || in.readInt() != VERSION)
+			{
+				// unknown format, start over
+				return;
+			}
+			length = 4;
+			while (length < fileLength)
+			{
+				int recordLength = in.readInt();
+				long next = length + 4 + recordLength;
+				if (recordLength <= 0 || next > fileLength)
+				{
+					break;
+				}
+				// only the SHA at the start of the record is needed
+				int shaLength = in.readInt();
+				byte[] sha = new byte[shaLength];
+				in.readFully(sha);
+				offsets.put(new String(sha, IOUtil.UTF_8), length);
+				for (int skip = recordLength - 4 - shaLength; skip > 0;)
+				{
+					int skipped = in.skipBytes(skip);
+					if (skipped <= 0)
+					{
+						throw new EOFException();
+					}
+					skip -= skipped;
+				}
+				length = next;
+			}
+		}
+		catch (EOFException e)
+		{
+			// a truncated record, keep what was read before
+		}
+		catch (IOException e)
+		{
+			IdeLog.logWarning(GitPlugin.getDefault(), e);
+			offsets.clear();
+			length = 0;
+		}
+		finally
+		{
+			close(in);
+		}
+	}
+
+	private static GitCommit copy(GitRepository repository, GitCommit commit)
+	{
+		GitCommit copy = new GitCommit(repository, commit.sha());
+		copy.setAuthor(commit.getAuthor());
+		copy.setAuthorEmail(commit.getAuthorEmail());
+		copy.setSubject(commit.getSubject());
+		copy.setComment(commit.getComment());
+		copy.setTimestamp(commit.getTimestamp());
+		return copy;
+	}
+
+	private static void writeCommit(GitCommit commit, DataOutputStream out) throws IOException
+	{
+		writeString(commit.sha(), out);
+		writeString(commit.getAuthor(), out);
+		writeString(commit.getAuthorEmail(), out);
+		writeString(commit.getSubject(), out);
+		writeString(commit.getComment(), out);
+		out.writeLong(commit.getTimestamp());
+	}
+
+	private static GitCommit readCommit(GitRepository repository, DataInput in) throws IOException
+	{
+		GitCommit commit = new GitCommit(repository, readString(in));
+		commit.setAuthor(readString(in));
+		commit.setAuthorEmail(readString(in));
+		commit.setSubject(readString(in));
+		commit.setComment(readString(in));
+		commit.setTimestamp(in.readLong());
+		return commit;
+	}
+
+	private static void writeString(String string, DataOutputStream out) throws IOException
+	{
+		if (string == null)
+		{
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = string.getBytes(IOUtil.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static int toInt(byte[] bytes)
+	{
+		return ((bytes[0] & 0xff) << 24) | ((bytes[1] & 0xff) << 16) | ((bytes[2] & 0xff) << 8) | (bytes[3] & 0xff);
+	}
+
+	private static String readString(DataInput in) throws IOException
+	{
+		int length = in.readInt();
+		if (length < 0)
+		{
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, IOUtil.UTF_8);
+	}
+}
@@ -86,6 +86,13 @@ public class GitIndex
 	List<ChangedFile> changedFiles;
 	private Object changedFilesLock = new Object();
 
+	/**
+	 * The changed files as a tree of paths, for lookups by resource. Built lazily from {@link #changedFiles} and thrown
+	 * away whenever that changes; {@link #changedFileTreeSource} is the list it was built from.
+	 */
+	private ChangedFileTree changedFileTree;
+	private List<ChangedFile> changedFileTreeSource;
+
 	private boolean notify;
 
 	/**
@@ -312,6 +319,7 @@ public class GitIndex
 			{
 				this.changedFiles.addAll(newChangedFiles.values());
 			}
+			this.changedFileTree = null;
 		}
 
 		// Don't hold onto temp list in memory!
@@ -346,6 +354,34 @@ public class GitIndex
 	 * @return
 	 */
 	public List<ChangedFile> changedFiles()
+	{
+		if (!loadChangedFiles())
+		{
+			return Collections.emptyList();
+		}
+
+		synchronized (this.changedFilesLock)
+		{
+			if (this.changedFiles == null)
+			{
+				return Collections.emptyList();
+			}
+
+			List<ChangedFile> copy = new ArrayList<ChangedFile>(this.changedFiles.size());
+			for (ChangedFile file : this.changedFiles)
+			{
+				copy.add(file.clone());
+			}
+			return copy;
+		}
+	}
+
+	/**
+	 * Populates the changedFiles collection if it hasn't been yet.
+	 * 
+	 * @return false if that failed.
+	 */
+	private boolean loadChangedFiles()
 	{
 		boolean isNull = false;
 		synchronized (this.changedFilesLock)
@@ -360,26 +396,67 @@ public class GitIndex
 			if (!status.isOK())
 			{
 				IdeLog.logWarning(GitPlugin.getDefault(), status.getMessage());
-				return Collections.emptyList();
+				return false;
 			}
 		}
+		return true;
+	}
+
+	/**
+	 * Returns the changed files as a tree of their paths, populating the changedFiles collection lazily on first
+	 * demand. The tree is a snapshot, so it's safe to query without holding any lock.
+	 * 
+	 * @return the tree, or <code>null</code> if the changed files couldn't be determined.
+	 */
+	private ChangedFileTree changedFileTree()
+	{
+		if (!loadChangedFiles())
+		{
+			return null;
+		}
 
 		synchronized (this.changedFilesLock)
 		{
 			if (this.changedFiles == null)
 			{
-				return Collections.emptyList();
+				return null;
 			}
-
-			List<ChangedFile> copy = new ArrayList<ChangedFile>(this.changedFiles.size());
-			for (ChangedFile file : this.changedFiles)
+			if (this.changedFileTree == null || this.changedFileTreeSource != this.changedFiles)
 			{
-				copy.add(file.clone());
+				this.changedFileTree = new ChangedFileTree(this.changedFiles);
+				this.changedFileTreeSource = this.changedFiles;
 			}
-			return copy;
+			return this.changedFileTree;
 		}
 	}
 
+	/**
+	 * Returns the path of the given resource relative to the working directory, the empty path if the resource contains
+	 * the working directory, or <code>null</code> if it's outside of it.
+	 */
+	private IPath relativePath(IResource resource)
+	{
+		if (resource == null)
+		{
+			return null;
+		}
+		IPath resourcePath = resource.getLocation();
+		if (resourcePath == null)
+		{
+			return null;
+		}
+		IPath workingDirectory = workingDirectory();
+		if (resourcePath.isPrefixOf(workingDirectory))
+		{
+			return Path.EMPTY;
+		}
+		if (!workingDirectory.isPrefixOf(resourcePath))
+		{
+			return null;
+		}
+		return resourcePath.removeFirstSegments(workingDirectory.segmentCount()).setDevice(null).makeRelative();
+	}
+
 	public IStatus stageFiles(Collection<ChangedFile> stageFiles)
 	{
 		if (CollectionsUtil.isEmpty(stageFiles))
@@ -424,6 +501,7 @@ public class GitIndex
 
 						ChangedFile orig = this.changedFiles.get(index);
 						orig.makeStaged();
+						this.changedFileTree = null;
 					}
 				}
 			}
@@ -479,6 +557,7 @@ public class GitIndex
 
 						ChangedFile orig = this.changedFiles.get(index);
 						orig.makeUnstaged();
+						this.changedFileTree = null;
 					}
 				}
 			}
@@ -676,24 +755,13 @@ public class GitIndex
 	 */
 	protected boolean resourceOrChildHasChanges(IResource resource)
 	{
-		List<ChangedFile> changedFiles = changedFiles();
-		if (CollectionsUtil.isEmpty(changedFiles))
+		IPath relativePath = relativePath(resource);
+		if (relativePath == null)
 		{
 			return false;
 		}
-		// FIXME Can we sort the changed files by path or something to help speed up this lookup?
-		IPath workingDirectory = repository.workingDirectory();
-		IPath resourcePath = resource.getLocation();
-		for (ChangedFile changedFile : changedFiles)
-		{
-			IPath fullPath = workingDirectory.append(changedFile.getRelativePath()).makeAbsolute();
-			if (resourcePath.isPrefixOf(fullPath))
-			{
-				return true;
-			}
-		}
-
-		return false;
+		ChangedFileTree tree = changedFileTree();
+		return tree != null && tree.hasChanges(relativePath);
 	}
 
 	public boolean isDirty()
@@ -703,19 +771,8 @@ public class GitIndex
 
 	protected boolean hasUnresolvedMergeConflicts()
 	{
-		List<ChangedFile> changedFiles = changedFiles();
-		if (CollectionsUtil.isEmpty(changedFiles))
-		{
-			return false;
-		}
-		for (ChangedFile changedFile : changedFiles)
-		{
-			if (changedFile.hasUnmergedChanges() && changedFile.hasUnstagedChanges())
-			{
-				return true;
-			}
-		}
-		return false;
+		ChangedFileTree tree = changedFileTree();
+		return tree != null && tree.hasUnresolvedMergeConflicts(Path.EMPTY);
 	}
 
 	public Set<IResource> getChangedResources()
@@ -749,21 +806,13 @@ public class GitIndex
 			return null;
 		}
 
-		IPath resourcePath = resource.getLocation();
-		List<ChangedFile> changedFiles = changedFiles();
-		// FIXME Doing searches like this every time
-		if (!CollectionsUtil.isEmpty(changedFiles))
+		IPath relativePath = relativePath(resource);
+		if (relativePath == null || relativePath.isEmpty())
 		{
-			for (ChangedFile changedFile : changedFiles)
-			{
-				IPath fullPath = workingDirectory().append(changedFile.getRelativePath());
-				if (resourcePath.equals(fullPath))
-				{
-					return changedFile;
-				}
-			}
+			return null;
 		}
-		return null;
+		ChangedFileTree tree = changedFileTree();
+		return (tree == null) ? null : tree.getChangedFile(relativePath);
 	}
 
 	private IPath workingDirectory()
@@ -784,25 +833,17 @@ public class GitIndex
 			return Collections.emptyList();
 		}
 
-		List<ChangedFile> changedFiles = changedFiles();
-		if (CollectionsUtil.isEmpty(changedFiles))
+		IPath relativePath = relativePath(container);
+		if (relativePath == null)
 		{
 			return Collections.emptyList();
 		}
-
-		IPath resourcePath = container.getLocation();
-		List<ChangedFile> filtered = new ArrayList<ChangedFile>();
-		IPath workingDirectory = repository.workingDirectory();
-		for (ChangedFile changedFile : changedFiles)
+		ChangedFileTree tree = changedFileTree();
+		if (tree == null)
 		{
-			IPath fullPath = workingDirectory.append(changedFile.getRelativePath()).makeAbsolute();
-			if (resourcePath.isPrefixOf(fullPath))
-			{
-				filtered.add(changedFile);
-			}
+			return Collections.emptyList();
 		}
-
-		return filtered;
+		return tree.getChangedFiles(relativePath);
 	}
 
 	/**
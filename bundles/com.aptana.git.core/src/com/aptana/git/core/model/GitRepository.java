@@ -191,6 +191,12 @@ public class GitRepository
 	 */
 	private static final String MERGE_HEAD_FILENAME = "MERGE_HEAD"; //$NON-NLS-1$
 
+	/**
+	 * The folder of the plugin's state location holding the commit caches, and the extension of those.
+	 */
+	private static final String COMMITS_DIR = "commits"; //$NON-NLS-1$
+	private static final String COMMITS_EXTENSION = ".cache"; //$NON-NLS-1$
+
 	/**
 	 * The name of HEAD
 	 */
@@ -234,6 +240,7 @@ public class GitRepository
 	private URI fileURL;
 	private GitRevSpecifier _headRef;
 	private GitIndex index;
+	private GitCommitCache commitCache;
 	private boolean hasChanged;
 	private GitRevSpecifier currentBranch;
 	private Set<Integer> fileWatcherIds = new HashSet<Integer>();
@@ -1092,6 +1099,27 @@ public class GitRepository
 		return index;
 	}
 
+	/**
+	 * The persistent cache of the metadata of the commits of this repository.
+	 * 
+	 * @return
+	 */
+	synchronized GitCommitCache commitCache()
+	{
+		if (commitCache == null)
+		{
+			File file = null;
+			GitPlugin plugin = GitPlugin.getDefault();
+			if (plugin != null)
+			{
+				file = plugin.getStateLocation().append(COMMITS_DIR)
+						.append(StringUtil.md5(gitDirPath().toPortableString()) + COMMITS_EXTENSION).toFile();
+			}
+			commitCache = new GitCommitCache(file);
+		}
+		return commitCache;
+	}
+
 	private void fireBranchChangeEvent(String oldBranchName, String newBranchName)
 	{
 		if (CollectionsUtil.isEmpty(listeners))
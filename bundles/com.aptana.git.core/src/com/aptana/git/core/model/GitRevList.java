@@ -7,14 +7,21 @@
  */
 package com.aptana.git.core.model;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -36,6 +43,35 @@ public class GitRevList
 
 	private static final int NO_LIMIT = -1;
 
+	/**
+	 * The first page is kept small, so that something can be shown right away.
+	 */
+	private static final int FIRST_PAGE_SIZE = 100;
+	private static final int PAGE_SIZE = 1000;
+
+	private static final int SHA_LENGTH = 40;
+
+	/**
+	 * Starts the lists of commits printed by git log --early-output, followed by the number of commits and whether the
+	 * list is complete.
+	 */
+	private static final String EARLY_OUTPUT_HEADER = "Final output: "; //$NON-NLS-1$
+	private static final String EARLY_OUTPUT_INCOMPLETE = " incomplete"; //$NON-NLS-1$
+
+	/**
+	 * Told about the commits loaded so far while walking a revision.
+	 */
+	public interface IPageListener
+	{
+		/**
+		 * @param commits
+		 *            an unmodifiable snapshot of the commits loaded so far, in order. The first snapshots may be the
+		 *            most recent commits, ordered from the part of the history walked so far, which the following
+		 *            snapshots replace.
+		 */
+		void pageLoaded(List<GitCommit> commits);
+	}
+
 	public GitRevList(GitRepository repo)
 	{
 		repository = repo;
@@ -60,6 +96,28 @@ public class GitRevList
 	 *            Maximum number of results to return. {@link #NO_LIMIT} represent no limit.
 	 */
 	public IStatus walkRevisionListWithSpecifier(GitRevSpecifier rev, int max, IProgressMonitor monitor)
+	{
+		return walkRevisionListWithSpecifier(rev, max, null, monitor);
+	}
+
+	/**
+	 * Walks a revision to collect commits in reverse chronological order, limited to value of max results, telling the
+	 * given listener about the commits loaded so far after every page.
+	 * <p>
+	 * Only the SHAs and parents of the commits are asked from git while walking (the parents depend on the paths the
+	 * walk is limited to); the rest of their metadata comes from the repository's commit cache, and just the commits
+	 * that aren't cached yet are read (and cached for the next walks). As git has to walk the whole history before
+	 * listing any commit in topological order, the listener is first told about the most recent commits git lists
+	 * early, ordered from the part of the history walked so far.
+	 * 
+	 * @param rev
+	 * @param max
+	 *            Maximum number of results to return. {@link #NO_LIMIT} represent no limit.
+	 * @param listener
+	 *            may be <code>null</code>
+	 */
+	public IStatus walkRevisionListWithSpecifier(GitRevSpecifier rev, int max, IPageListener listener,
+			IProgressMonitor monitor)
 	{
 		int units = max;
 		if (units == -1)
@@ -69,43 +127,21 @@ public class GitRevList
 		}
 		SubMonitor subMonitor = SubMonitor.convert(monitor, units);
 		long start = System.currentTimeMillis();
-		List<GitCommit> revisions = new ArrayList<GitCommit>();
-		GitExecutable gitExe = GitExecutable.instance();
-		Version v = gitExe.version();
-		// Git format doesn't support %B until 1.7.3+
-		boolean useRaw = false;
-		if (v.compareTo(Version.parseVersion("1.7.3")) >= 0) //$NON-NLS-1$
-		{
-			useRaw = true;
-		}
 		// @formatter:off
 		List<String> arguments = CollectionsUtil.newList(
 			"log", //$NON-NLS-1$
-			"-z", //$NON-NLS-1$
-			"--early-output", //$NON-NLS-1$
 			"--topo-order", //$NON-NLS-1$
-			"--children"); //$NON-NLS-1$
+			"--parents", //$NON-NLS-1$
+			"--pretty=format:%m%H %P"); //$NON-NLS-1$
 		// @formatter:on
-		if (max > 0)
+		if (listener != null)
 		{
-			arguments.add("-" + max); // only last N revs //$NON-NLS-1$
+			arguments.add("--early-output=" + FIRST_PAGE_SIZE); //$NON-NLS-1$
 		}
-
-		String formatString;
-		if (useRaw)
-		{
-			formatString = "--pretty=format:%H\01%e\01%an\01%ae\01%B\01%P\01%at"; //$NON-NLS-1$
-		}
-		else
-		{
-			formatString = "--pretty=format:%H\01%e\01%an\01%ae\01%s\01%b\01%P\01%at"; //$NON-NLS-1$
-		}
-		boolean showSign = ((rev == null) ? false : rev.hasLeftRight());
-		if (showSign)
+		if (max > 0)
 		{
-			formatString += "\01%m"; //$NON-NLS-1$
+			arguments.add("-" + max); // only last N revs //$NON-NLS-1$
 		}
-		arguments.add(formatString);
 
 		if (rev == null)
 		{
@@ -130,128 +166,75 @@ public class GitRevList
 					"Failed to acquire read lock on the git repository. A long-running operation that writes to the repo is running (i.e. pull). Please ensure that has finished before trying again."); //$NON-NLS-1$
 		}
 
+		GitCommitCache cache = repository.commitCache();
+		int cached = cache.size();
 		try
 		{
 			// FIXME Move this into GitRepository, so we can set up lock/monitor on it!
-			Process p = gitExe.run(repository.workingDirectory(), arguments.toArray(new String[arguments.size()]));
-			InputStream stream = p.getInputStream();
-
-			int num = 0;
+			Process p = GitExecutable.instance().run(repository.workingDirectory(),
+					arguments.toArray(new String[arguments.size()]));
+			BufferedReader reader = new BufferedReader(new InputStreamReader(p.getInputStream(), IOUtil.UTF_8));
+
+			List<GitCommit> revisions = new ArrayList<GitCommit>();
+			// The SHA of each listed commit followed by its parents
+			List<String[]> page = new ArrayList<String[]>(FIRST_PAGE_SIZE);
+			int pageSize = FIRST_PAGE_SIZE;
+			boolean early = false;
+			String line;
 			while (true)
 			{
 				if (subMonitor.isCanceled())
 				{
+					p.destroy();
 					return Status.CANCEL_STATUS;
 				}
 
-				String sha = getline(stream, '\1');
-				if (sha == null)
-				{
-					break;
-				}
-
-				// We reached the end of some temporary output. Show what we have
-				// until now, and then start again. The sha of the next thing is still
-				// in this buffer. So, we use a substring of current input.
-				if (sha.charAt(1) == 'i') // Matches 'Final output'
-				{
-					num = 0;
-					setCommits(revisions);
-					revisions = new ArrayList<GitCommit>();
-
-					// If the length is < 40, then there are no commits.. quit now
-					if (sha.length() < 40)
-					{
-						break;
-					}
-
-					int startIndex = sha.length() - 40;
-					sha = sha.substring(startIndex, startIndex + 40);
-				}
-
-				String encoding = getline(stream, '\1', IOUtil.UTF_8);
-				GitCommit newCommit = new GitCommit(repository, sha);
-
-				String author = getline(stream, '\1', encoding);
-				String authorEmail = getline(stream, '\1', encoding);
-
-				String subject;
-				String body;
-				if (useRaw)
-				{
-					body = getline(stream, '\1', encoding);
-					subject = StringUtil.LINE_SPLITTER.split(body)[0];
-				}
-				else
-				{
-					subject = getline(stream, '\1', encoding);
-					body = getline(stream, '\1', encoding);
-				}
-
-				String parentString = getline(stream, '\1');
-				if (parentString != null && parentString.length() != 0)
+				line = reader.readLine();
+				if (line != null)
 				{
-					if (((parentString.length() + 1) % 41) != 0)
+					if (line.startsWith(EARLY_OUTPUT_HEADER))
 					{
-						IdeLog.logError(GitPlugin.getDefault(),
-								MessageFormat.format("invalid parents: {0}", parentString.length()), IDebugScopes.DEBUG); //$NON-NLS-1$
+						if (early)
+						{
+							List<GitCommit> earlyPage = new ArrayList<GitCommit>(page.size());
+							loadPage(page, earlyPage, cache);
+							listener.pageLoaded(Collections.unmodifiableList(earlyPage));
+						}
+						// An incomplete list is only the most recent commits, the complete one follows
+						page.clear();
+						early = line.endsWith(EARLY_OUTPUT_INCOMPLETE);
 						continue;
 					}
-					int nParents = (parentString.length() + 1) / 41;
-					List<String> parents = new ArrayList<String>(nParents);
-					for (int parentIndex = 0; parentIndex < nParents; ++parentIndex)
+					String[] commit = parseCommitLine(line);
+					if (commit != null)
 					{
-						int stringIndex = parentIndex * 41;
-						parents.add(parentString.substring(stringIndex, stringIndex + 40));
+						page.add(commit);
 					}
-
-					newCommit.setParents(parents);
-				}
-
-				long time = readLong(stream); // read 10 chars as a string and parse into a long
-
-				newCommit.setSubject(subject);
-				newCommit.setComment(body);
-				newCommit.setAuthor(author);
-				newCommit.setAuthorEmail(authorEmail);
-				newCommit.setTimestamp(time);
-
-				if (showSign)
-				{
-					stream.read(); // Remove separator
-					char c = (char) stream.read();
-					if (c != '>' && c != '<' && c != '^' && c != '-')
+					if (early || page.size() < pageSize)
 					{
-						IdeLog.logError(GitPlugin.getDefault(),
-								"Error loading commits: sign not correct", IDebugScopes.DEBUG); //$NON-NLS-1$
-						// newCommit.setSign(c);
+						continue;
 					}
-
 				}
 
-				int read = stream.read();
-				if (read != 0 && read != -1)
-				{
-					IdeLog.logError(GitPlugin.getDefault(), "Error", IDebugScopes.DEBUG); //$NON-NLS-1$
-				}
-
-				revisions.add(newCommit);
-
-				subMonitor.worked(1);
-
-				if (read == -1)
+				loadPage(page, revisions, cache);
+				subMonitor.worked(page.size());
+				page.clear();
+				pageSize = PAGE_SIZE;
+				if (line == null)
 				{
 					break;
 				}
-
-				if (++num % 1000 == 0)
+				setCommits(revisions);
+				if (listener != null)
 				{
-					setCommits(revisions);
+					listener.pageLoaded(Collections.unmodifiableList(new ArrayList<GitCommit>(revisions)));
 				}
 			}
 
 			long duration = System.currentTimeMillis() - start;
-			logInfo(MessageFormat.format("Loaded {0} commits in {1} ms", num, duration)); //$NON-NLS-1$
+			int read = cache.size() - cached;
+			logInfo(MessageFormat.format("Loaded {0} commits ({1} read from git) in {2} ms", //$NON-NLS-1$
+					revisions.size(), read, duration));
 			// Make sure the commits are stored before exiting.
 			setCommits(revisions, true);
 			p.waitFor();
@@ -262,12 +245,185 @@ public class GitRevList
 		}
 		finally
 		{
+			cache.save();
 			repository.exitRead();
 			subMonitor.done();
 		}
 		return Status.OK_STATUS;
 	}
 
+	/**
+	 * Returns the SHA of the commit on the given line of the walk output (without any left/right mark) followed by its
+	 * parents, or <code>null</code> if there's no commit on the line.
+	 */
+	private static String[] parseCommitLine(String line)
+	{
+		String[] commit = line.trim().split(" "); //$NON-NLS-1$
+		String sha = commit[0];
+		if (sha.length() > SHA_LENGTH)
+		{
+			sha = sha.substring(sha.length() - SHA_LENGTH);
+		}
+		if (sha.length() != SHA_LENGTH)
+		{
+			return null;
+		}
+		commit[0] = sha;
+		return commit;
+	}
+
+	/**
+	 * Adds the given commits of the walk (each one's SHA followed by its parents) to the list, in order, taking them
+	 * from the cache or reading the ones that aren't cached from git. The parents are the ones of the walk, as they
+	 * depend on the paths it's limited to.
+	 */
+	private void loadPage(List<String[]> page, List<GitCommit> revisions, GitCommitCache cache) throws Exception
+	{
+		GitCommit[] commits = new GitCommit[page.size()];
+		List<String> missing = new ArrayList<String>();
+		for (int i = 0; i < commits.length; i++)
+		{
+			commits[i] = cache.get(repository, page.get(i)[0]);
+			if (commits[i] == null)
+			{
+				missing.add(page.get(i)[0]);
+			}
+		}
+
+		if (!missing.isEmpty())
+		{
+			Map<String, GitCommit> read = new HashMap<String, GitCommit>(missing.size());
+			readCommits(missing, read);
+			for (GitCommit commit : read.values())
+			{
+				cache.put(commit);
+			}
+			for (int i = 0; i < commits.length; i++)
+			{
+				if (commits[i] == null)
+				{
+					commits[i] = read.get(page.get(i)[0]);
+					if (commits[i] == null)
+					{
+						IdeLog.logError(GitPlugin.getDefault(),
+								MessageFormat.format("Failed to read commit {0}", page.get(i)[0]), //$NON-NLS-1$
+								IDebugScopes.DEBUG);
+					}
+				}
+			}
+		}
+
+		for (int i = 0; i < commits.length; i++)
+		{
+			if (commits[i] != null)
+			{
+				String[] commit = page.get(i);
+				if (commit.length > 1)
+				{
+					commits[i].setParents(Arrays.asList(commit).subList(1, commit.length));
+				}
+				revisions.add(commits[i]);
+			}
+		}
+	}
+
+	/**
+	 * Reads the metadata of the commits with the given SHAs from git, handing them all to a single process (on its
+	 * standard input, which keeps the command line short). The parents aren't read, they come from the walk.
+	 */
+	private void readCommits(List<String> shas, Map<String, GitCommit> commits) throws Exception
+	{
+		GitExecutable gitExe = GitExecutable.instance();
+		Version v = gitExe.version();
+		// Git format doesn't support %B until 1.7.3+
+		boolean useRaw = false;
+		if (v.compareTo(Version.parseVersion("1.7.3")) >= 0) //$NON-NLS-1$
+		{
+			useRaw = true;
+		}
+		// @formatter:off
+		List<String> arguments = CollectionsUtil.newList(
+			"log", //$NON-NLS-1$
+			"-z", //$NON-NLS-1$
+			"--no-walk", //$NON-NLS-1$
+			"--stdin"); //$NON-NLS-1$
+		// @formatter:on
+		if (useRaw)
+		{
+			arguments.add("--pretty=format:%H\01%e\01%an\01%ae\01%B\01%at"); //$NON-NLS-1$
+		}
+		else
+		{
+			arguments.add("--pretty=format:%H\01%e\01%an\01%ae\01%s\01%b\01%at"); //$NON-NLS-1$
+		}
+
+		Process p = gitExe.run(repository.workingDirectory(), arguments.toArray(new String[arguments.size()]));
+		// git reads all of its input before writing anything, so it's safe to write it all first
+		Writer writer = new OutputStreamWriter(p.getOutputStream(), IOUtil.UTF_8);
+		try
+		{
+			for (String sha : shas)
+			{
+				writer.write(sha);
+				writer.write('\n');
+			}
+		}
+		finally
+		{
+			writer.close();
+		}
+		InputStream stream = p.getInputStream();
+		while (true)
+		{
+			String sha = getline(stream, '\1');
+			if (sha == null)
+			{
+				break;
+			}
+
+			String encoding = getline(stream, '\1', IOUtil.UTF_8);
+			GitCommit newCommit = new GitCommit(repository, sha);
+
+			String author = getline(stream, '\1', encoding);
+			String authorEmail = getline(stream, '\1', encoding);
+
+			String subject;
+			String body;
+			if (useRaw)
+			{
+				body = getline(stream, '\1', encoding);
+				subject = StringUtil.LINE_SPLITTER.split(body)[0];
+			}
+			else
+			{
+				subject = getline(stream, '\1', encoding);
+				body = getline(stream, '\1', encoding);
+			}
+
+			long time = readLong(stream); // read 10 chars as a string and parse into a long
+
+			newCommit.setSubject(subject);
+			newCommit.setComment(body);
+			newCommit.setAuthor(author);
+			newCommit.setAuthorEmail(authorEmail);
+			newCommit.setTimestamp(time);
+
+			int read = stream.read();
+			if (read != 0 && read != -1)
+			{
+				IdeLog.logError(GitPlugin.getDefault(), "Error", IDebugScopes.DEBUG); //$NON-NLS-1$
+			}
+
+			commits.put(sha, newCommit);
+
+			if (read == -1)
+			{
+				break;
+			}
+		}
+		p.waitFor();
+	}
+
 	private void logInfo(String string)
 	{
 		if (GitPlugin.getDefault() != null)
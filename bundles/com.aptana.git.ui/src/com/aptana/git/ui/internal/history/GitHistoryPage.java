@@ -147,7 +147,31 @@ public class GitHistoryPage extends HistoryPage
 				{
 					rev = new GitRevSpecifier(ref, "--", resourcePath.toOSString()); //$NON-NLS-1$
 				}
-				IStatus result = revList.walkRevisionListWithSpecifier(rev, subMonitor.newChild(95));
+				// Show the first page of commits right away, the full list is set once it's all loaded
+				IStatus result = revList.walkRevisionListWithSpecifier(rev, -1, new GitRevList.IPageListener()
+				{
+					private boolean shown;
+
+					public void pageLoaded(final List<GitCommit> commits)
+					{
+						if (shown)
+						{
+							return;
+						}
+						shown = true;
+						Display.getDefault().asyncExec(new Runnable()
+						{
+
+							public void run()
+							{
+								if (getControl() != null && !getControl().isDisposed())
+								{
+									graph.setCommits(commits);
+								}
+							}
+						});
+					}
+				}, subMonitor.newChild(95));
 				if (result != null && result.isOK())
 				{
 					final List<GitCommit> commits = revList.getCommits();
@@ -14,19 +14,28 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExtensionRegistry;
+import org.eclipse.core.runtime.IRegistryChangeEvent;
+import org.eclipse.core.runtime.IRegistryChangeListener;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.content.IContentType;
 import org.eclipse.core.runtime.content.IContentTypeManager;
+import org.eclipse.core.runtime.content.IContentTypeManager.ContentTypeChangeEvent;
+import org.eclipse.core.runtime.content.IContentTypeManager.IContentTypeChangeListener;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
 
 import com.aptana.core.logging.IdeLog;
+import com.aptana.core.util.ArrayUtil;
 import com.aptana.core.util.CollectionsUtil;
 import com.aptana.core.util.EclipseUtil;
 import com.aptana.core.util.IConfigurationElementProcessor;
@@ -53,6 +62,179 @@ public class IndexManager
 	private ArrayList<IIndexFileContributor> fileContributors;
 	private ArrayList<IIndexFilterParticipant> filterParticipants;
 
+	/**
+	 * The file indexing participants, built on first use and dropped when the extension registry or the content type
+	 * associations change.
+	 */
+	private volatile ParticipantRegistry participantRegistry;
+	private final Object participantsLock = new Object();
+	private boolean listening;
+
+	private final IRegistryChangeListener registryListener = new IRegistryChangeListener()
+	{
+		public void registryChanged(IRegistryChangeEvent event)
+		{
+			if (!ArrayUtil.isEmpty(event.getExtensionDeltas(IndexPlugin.PLUGIN_ID, FILE_INDEXING_PARTICIPANTS_ID)))
+			{
+				resetParticipants();
+			}
+		}
+	};
+
+	private final IContentTypeChangeListener contentTypeListener = new IContentTypeChangeListener()
+	{
+		public void contentTypeChanged(ContentTypeChangeEvent event)
+		{
+			// file associations may have changed
+			resetParticipants();
+		}
+	};
+
+	/**
+	 * The participants of a content type, with the (shared) instance doing the work once it's created.
+	 */
+	private static class ParticipantDescriptor
+	{
+		private final IConfigurationElement element;
+		private IFileStoreIndexingParticipant participant;
+		private boolean created;
+
+		ParticipantDescriptor(IConfigurationElement element)
+		{
+			this.element = element;
+		}
+
+		synchronized IFileStoreIndexingParticipant getParticipant()
+		{
+			if (!created)
+			{
+				// only try once, so that a broken contribution doesn't log an error for every file
+				created = true;
+				participant = createParticipant(element);
+			}
+			return participant;
+		}
+	}
+
+	/**
+	 * The participants registered for each content type, and the ordered participants for each file name we've been
+	 * asked about. As content types associate themselves with files by extension unless they name the file, file names
+	 * are looked up by extension (or by name for those named by a content type).
+	 */
+	private static class ParticipantRegistry
+	{
+		private final Map<IContentType, List<ParticipantDescriptor>> participantsByType;
+		private final Set<String> fileNames;
+		private final Map<String, List<IFileStoreIndexingParticipant>> participantsByKey;
+
+		ParticipantRegistry(Map<IConfigurationElement, Set<IContentType>> participants)
+		{
+			participantsByType = new LinkedHashMap<IContentType, List<ParticipantDescriptor>>();
+			fileNames = new HashSet<String>();
+			participantsByKey = new ConcurrentHashMap<String, List<IFileStoreIndexingParticipant>>();
+
+			for (Map.Entry<IConfigurationElement, Set<IContentType>> entry : participants.entrySet())
+			{
+				ParticipantDescriptor descriptor = new ParticipantDescriptor(entry.getKey());
+				for (IContentType type : entry.getValue())
+				{
+					if (type == null)
+					{
+						continue;
+					}
+					List<ParticipantDescriptor> descriptors = participantsByType.get(type);
+					if (descriptors == null)
+					{
+						descriptors = new ArrayList<ParticipantDescriptor>(1);
+						participantsByType.put(type, descriptors);
+						addFileNames(type);
+					}
+					descriptors.add(descriptor);
+				}
+			}
+		}
+
+		/**
+		 * Remembers the file names the type (or, if it has no associations of its own, the type it inherits them from)
+		 * is associated with.
+		 */
+		private void addFileNames(IContentType type)
+		{
+			while (type != null)
+			{
+				String[] names = type.getFileSpecs(IContentType.FILE_NAME_SPEC);
+				if (!ArrayUtil.isEmpty(names))
+				{
+					for (String name : names)
+					{
+						fileNames.add(name.toLowerCase(Locale.ENGLISH));
+					}
+				}
+				type = type.getBaseType();
+			}
+		}
+
+		List<IFileStoreIndexingParticipant> getParticipants(String filename)
+		{
+			String key = getKey(filename);
+			List<IFileStoreIndexingParticipant> result = participantsByKey.get(key);
+			if (result == null)
+			{
+				result = Collections.unmodifiableList(findParticipants(filename));
+				participantsByKey.put(key, result);
+			}
+			return result;
+		}
+
+		private String getKey(String filename)
+		{
+			String name = filename.toLowerCase(Locale.ENGLISH);
+			if (fileNames.contains(name))
+			{
+				return name;
+			}
+			// a file name can't start with "*.", so this doesn't clash with names
+			int index = name.lastIndexOf('.');
+			return (index == -1) ? "*." : "*" + name.substring(index); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		private List<IFileStoreIndexingParticipant> findParticipants(String filename)
+		{
+			Set<ParticipantDescriptor> descriptors = new HashSet<ParticipantDescriptor>();
+			for (Map.Entry<IContentType, List<ParticipantDescriptor>> entry : participantsByType.entrySet())
+			{
+				if (entry.getKey().isAssociatedWith(filename))
+				{
+					descriptors.addAll(entry.getValue());
+				}
+			}
+			if (descriptors.isEmpty())
+			{
+				return Collections.emptyList();
+			}
+
+			List<IFileStoreIndexingParticipant> result = new ArrayList<IFileStoreIndexingParticipant>(
+					descriptors.size());
+			for (ParticipantDescriptor descriptor : descriptors)
+			{
+				IFileStoreIndexingParticipant participant = descriptor.getParticipant();
+				if (participant != null)
+				{
+					result.add(participant);
+				}
+			}
+			Collections.sort(result, new Comparator<IFileStoreIndexingParticipant>()
+			{
+				public int compare(IFileStoreIndexingParticipant arg0, IFileStoreIndexingParticipant arg1)
+				{
+					// sort higher first
+					return arg1.getPriority() - arg0.getPriority();
+				}
+			});
+			return result;
+		}
+	}
+
 	static final ISchedulingRule MUTEX_RULE = new ISchedulingRule()
 	{
 		public boolean contains(ISchedulingRule rule)
@@ -146,7 +328,7 @@ public class IndexManager
 	 * 
 	 * @return
 	 */
-	private Map<IConfigurationElement, Set<IContentType>> getFileIndexingParticipants()
+	Map<IConfigurationElement, Set<IContentType>> getFileIndexingParticipants()
 	{
 		final Map<IConfigurationElement, Set<IContentType>> map = new HashMap<IConfigurationElement, Set<IContentType>>();
 		final IContentTypeManager manager = Platform.getContentTypeManager();
@@ -180,66 +362,89 @@ public class IndexManager
 
 	/**
 	 * Returns an ordered list of the file indexing participants registered for the given filename's associated content
-	 * types.
+	 * types. The participants are shared by all the files they apply to, so the list must not be modified.
 	 * 
 	 * @param filename
 	 * @return
 	 */
 	public List<IFileStoreIndexingParticipant> getIndexParticipants(String filename)
 	{
-		Map<IConfigurationElement, Set<IContentType>> participantstoContentTypes = getFileIndexingParticipants();
-		Set<IFileStoreIndexingParticipant> participants = new HashSet<IFileStoreIndexingParticipant>(
-				participantstoContentTypes.size());
-		for (Map.Entry<IConfigurationElement, Set<IContentType>> entry : participantstoContentTypes.entrySet())
+		return getParticipantRegistry().getParticipants(filename);
+	}
+
+	private ParticipantRegistry getParticipantRegistry()
+	{
+		ParticipantRegistry registry = participantRegistry;
+		if (registry == null)
 		{
-			if (hasType(filename, entry.getValue()))
+			synchronized (participantsLock)
 			{
-				IFileStoreIndexingParticipant participant = createParticipant(entry.getKey());
-				if (participant != null)
+				registry = participantRegistry;
+				if (registry == null)
 				{
-					participants.add(participant);
+					addListeners();
+					registry = new ParticipantRegistry(getFileIndexingParticipants());
+					participantRegistry = registry;
 				}
 			}
 		}
+		return registry;
+	}
 
-		List<IFileStoreIndexingParticipant> result = new ArrayList<IFileStoreIndexingParticipant>(participants);
-		Collections.sort(result, new Comparator<IFileStoreIndexingParticipant>()
+	/**
+	 * Drops the file indexing participants, so that they're read again from the extension registry the next time
+	 * they're needed.
+	 */
+	void resetParticipants()
+	{
+		synchronized (participantsLock)
 		{
-			public int compare(IFileStoreIndexingParticipant arg0, IFileStoreIndexingParticipant arg1)
-			{
-				// sort higher first
-				return arg1.getPriority() - arg0.getPriority();
-			}
-		});
+			participantRegistry = null;
+		}
+	}
 
-		return result;
+	private void addListeners()
+	{
+		if (listening)
+		{
+			return;
+		}
+		listening = true;
+		IExtensionRegistry registry = Platform.getExtensionRegistry();
+		if (registry != null)
+		{
+			registry.addRegistryChangeListener(registryListener, IndexPlugin.PLUGIN_ID);
+		}
+		IContentTypeManager manager = Platform.getContentTypeManager();
+		if (manager != null)
+		{
+			manager.addContentTypeChangeListener(contentTypeListener);
+		}
 	}
 
 	/**
-	 * Determines if a given content type is associated with the filename.
-	 * 
-	 * @param filename
-	 * @param types
-	 * @return
+	 * Stops listening for changes to the file indexing participants and drops them.
 	 */
-	private boolean hasType(String filename, Set<IContentType> types)
+	void dispose()
 	{
-		if (types == null || types.isEmpty())
-		{
-			return false;
-		}
-		for (IContentType type : types)
+		synchronized (participantsLock)
 		{
-			if (type == null)
+			if (listening)
 			{
-				continue;
-			}
-			if (type.isAssociatedWith(filename))
-			{
-				return true;
+				listening = false;
+				IExtensionRegistry registry = Platform.getExtensionRegistry();
+				if (registry != null)
+				{
+					registry.removeRegistryChangeListener(registryListener);
+				}
+				IContentTypeManager manager = Platform.getContentTypeManager();
+				if (manager != null)
+				{
+					manager.removeContentTypeChangeListener(contentTypeListener);
+				}
 			}
+			participantRegistry = null;
 		}
-		return false;
 	}
 
 	/**
@@ -249,7 +454,7 @@ public class IndexManager
 	 * @param key
 	 * @return
 	 */
-	private IFileStoreIndexingParticipant createParticipant(IConfigurationElement key)
+	private static IFileStoreIndexingParticipant createParticipant(IConfigurationElement key)
 	{
 		try
 		{
@@ -71,7 +71,11 @@ public class IndexPlugin extends Plugin
 			}
 		}
 
-		fManager = null;
+		if (fManager != null)
+		{
+			fManager.dispose();
+			fManager = null;
+		}
 		plugin = null;
 		super.stop(context);
 	}
@@ -108,6 +108,11 @@ public class BuildContext
 				// FIXME The parsers need to throw a specific SyntaxException or something for us to differentiate
 				// between those and IO errors!
 				WorkingParseResult working = new WorkingParseResult();
+				if (parseState != null && !isReconcile())
+				{
+					// The contents were read from the file on disk.
+					parseState.setSavedContents(true);
+				}
 				fParseResult = parse(getContentType(), parseState, working);
 			}
 			catch (CoreException e)
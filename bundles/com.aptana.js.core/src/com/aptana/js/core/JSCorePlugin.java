@@ -18,6 +18,7 @@ import com.aptana.js.core.node.INodeJSService;
 import com.aptana.js.core.node.INodePackageManager;
 import com.aptana.js.internal.core.index.JSMetadataLoader;
 import com.aptana.js.internal.core.inferencing.AliasResolverFactory;
+import com.aptana.js.internal.core.inferencing.ModuleResolutionCache;
 import com.aptana.js.internal.core.node.NodeJSService;
 
 /**
@@ -36,6 +37,8 @@ public class JSCorePlugin extends Plugin
 
 	private AliasResolverFactory fAliasResolverFactory;
 
+	private ModuleResolutionCache fModuleResolutionCache;
+
 	/**
 	 * Returns the shared instance
 	 * 
@@ -67,10 +70,18 @@ public class JSCorePlugin extends Plugin
 			{
 				proxyTracker.close();
 			}
+			synchronized (this)
+			{
+				if (fModuleResolutionCache != null)
+				{
+					fModuleResolutionCache.uninstall();
+				}
+			}
 		}
 		finally
 		{
 			proxyTracker = null;
+			fModuleResolutionCache = null;
 			fNodeService = null;
 			fAliasResolverFactory = null;
 			PLUGIN = null;
@@ -96,6 +107,21 @@ public class JSCorePlugin extends Plugin
 		return fAliasResolverFactory;
 	}
 
+	/**
+	 * Returns the cache of the modules that require() calls resolved to.
+	 * 
+	 * @return
+	 */
+	public synchronized ModuleResolutionCache getModuleResolutionCache()
+	{
+		if (fModuleResolutionCache == null)
+		{
+			fModuleResolutionCache = new ModuleResolutionCache();
+			fModuleResolutionCache.install();
+		}
+		return fModuleResolutionCache;
+	}
+
 	/**
 	 * Returns the NPM instance tied to the Node instance user has set up (or we detected if they didn't).
 	 * 
@@ -31,6 +31,7 @@ import com.aptana.index.core.build.BuildContext;
 import com.aptana.js.core.IDebugScopes;
 import com.aptana.js.core.JSCorePlugin;
 import com.aptana.js.core.JSTypeConstants;
+import com.aptana.js.core.inferencing.JSInferenceContext;
 import com.aptana.js.core.inferencing.JSPropertyCollection;
 import com.aptana.js.core.inferencing.JSScope;
 import com.aptana.js.core.inferencing.JSTypeUtil;
@@ -57,8 +58,6 @@ public class JSFileIndexingParticipant extends AbstractFileIndexingParticipant
 
 	private JSIndexWriter indexWriter;
 
-	private JSIndexQueryHelper queryHelper;
-
 	static
 	{
 		try
@@ -121,10 +120,11 @@ public class JSFileIndexingParticipant extends AbstractFileIndexingParticipant
 	 * @param globals
 	 * @param node
 	 * @param location
+	 * @param inferenceContext
 	 */
 	@SuppressWarnings("unchecked")
 	private List<PropertyElement> processLambdas(Index index, JSScope globals, IParseNode node, URI location,
-			IProgressMonitor monitor)
+			JSInferenceContext inferenceContext, IProgressMonitor monitor)
 	{
 		List<PropertyElement> result = Collections.emptyList();
 
@@ -147,12 +147,13 @@ public class JSFileIndexingParticipant extends AbstractFileIndexingParticipant
 						JSScope scope = globals.getScopeAtOffset(function.getBody().getStartingOffset());
 						sub.worked(1);
 
-						JSSymbolTypeInferrer infer = new JSSymbolTypeInferrer(scope, index, location, queryHelper);
+						JSSymbolTypeInferrer infer = new JSSymbolTypeInferrer(scope, index, location, inferenceContext);
 						// add all properties off of "window" to our list
-						result.addAll(processWindowAssignments(scope, infer, sub.newChild(5)));
+						result.addAll(processWindowAssignments(scope, infer, inferenceContext, sub.newChild(5)));
 
 						// handle any nested lambdas in this function
-						result.addAll(processLambdas(index, globals, function, location, sub.newChild(5)));
+						result.addAll(processLambdas(index, globals, function, location, inferenceContext,
+								sub.newChild(5)));
 					}
 				}
 			}
@@ -180,7 +181,9 @@ public class JSFileIndexingParticipant extends AbstractFileIndexingParticipant
 		}
 		SubMonitor sub = SubMonitor.convert(monitor, 100);
 
-		queryHelper = new JSIndexQueryHelper(context.getProject());
+		// per file, so that the same participant can index files of different projects, and so that what we infer
+		// is remembered for the whole file
+		JSInferenceContext inferenceContext = new JSInferenceContext(new JSIndexQueryHelper(context.getProject()));
 		URI location = context.getURI();
 
 		boolean traceEnabled = IdeLog.isTraceEnabled(JSCorePlugin.getDefault(), IDebugScopes.INDEXING_STEPS);
@@ -200,7 +203,8 @@ public class JSFileIndexingParticipant extends AbstractFileIndexingParticipant
 		JSScope globals = getGlobals(ast);
 		try
 		{
-			JSSymbolTypeInferrer symbolInferrer = new JSSymbolTypeInferrer(globals, index, location, queryHelper);
+			JSSymbolTypeInferrer symbolInferrer = new JSSymbolTypeInferrer(globals, index, location,
+					inferenceContext);
 			// process globals
 			if (globals != null)
 			{
@@ -253,7 +257,8 @@ public class JSFileIndexingParticipant extends AbstractFileIndexingParticipant
 					IdeLog.logTrace(JSCorePlugin.getDefault(), message, IDebugScopes.INDEXING_STEPS);
 				}
 
-				for (PropertyElement property : processWindowAssignments(globals, symbolInferrer, sub.newChild(25)))
+				for (PropertyElement property : processWindowAssignments(globals, symbolInferrer, inferenceContext,
+						sub.newChild(25)))
 				{
 					globalType.addProperty(property);
 				}
@@ -276,7 +281,8 @@ public class JSFileIndexingParticipant extends AbstractFileIndexingParticipant
 					IdeLog.logTrace(JSCorePlugin.getDefault(), message, IDebugScopes.INDEXING_STEPS);
 				}
 
-				for (PropertyElement property : processLambdas(index, globals, ast, location, sub.newChild(25)))
+				for (PropertyElement property : processLambdas(index, globals, ast, location, inferenceContext,
+						sub.newChild(25)))
 				{
 					globalType.addProperty(property);
 				}
@@ -314,12 +320,13 @@ public class JSFileIndexingParticipant extends AbstractFileIndexingParticipant
 				}
 
 				indexWriter.writeType(index, globalType, location);
+				inferenceContext.typeWritten(globalType.getName());
 				sub.worked(5);
 			}
 
 			sub.setWorkRemaining(20);
 			// process module API exports
-			processModule(context, index, ast, location, globals, symbolInferrer, sub.newChild(20));
+			processModule(context, index, ast, location, globals, symbolInferrer, inferenceContext, sub.newChild(20));
 		}
 		catch (OperationCanceledException oce)
 		{
@@ -338,10 +345,11 @@ public class JSFileIndexingParticipant extends AbstractFileIndexingParticipant
 	 * @param location
 	 * @param globals
 	 * @param symbolInferrer
+	 * @param inferenceContext
 	 * @param monitor
 	 */
 	protected void processModule(BuildContext context, Index index, IParseNode ast, URI location, JSScope globals,
-			JSSymbolTypeInferrer infer, IProgressMonitor monitor)
+			JSSymbolTypeInferrer infer, JSInferenceContext inferenceContext, IProgressMonitor monitor)
 	{
 		if (globals == null)
 		{
@@ -459,7 +467,9 @@ public class JSFileIndexingParticipant extends AbstractFileIndexingParticipant
 
 		// Now write our hand-generated module type and module instance type.
 		indexWriter.writeType(index, moduleExportsType, location);
+		inferenceContext.typeWritten(moduleExportsType.getName());
 		indexWriter.writeType(index, moduleType, location);
+		inferenceContext.typeWritten(moduleType.getName());
 
 		sub.worked(5);
 
@@ -525,9 +535,10 @@ public class JSFileIndexingParticipant extends AbstractFileIndexingParticipant
 	 * @param index
 	 * @param symbols
 	 * @param location
+	 * @param inferenceContext
 	 */
 	private Collection<PropertyElement> processWindowAssignments(JSScope symbols, JSSymbolTypeInferrer symbolInferrer,
-			IProgressMonitor monitor)
+			JSInferenceContext inferenceContext, IProgressMonitor monitor)
 	{
 		if (symbols == null || !symbols.hasLocalSymbol(JSTypeConstants.WINDOW_PROPERTY))
 		{
@@ -543,7 +554,7 @@ public class JSFileIndexingParticipant extends AbstractFileIndexingParticipant
 		List<String> typeNames = property.getTypeNames();
 		if (!CollectionsUtil.isEmpty(typeNames))
 		{
-			return queryHelper.getTypeMembers(typeNames);
+			return inferenceContext.getQueryHelper().getTypeMembers(typeNames);
 		}
 
 		return Collections.emptyList();
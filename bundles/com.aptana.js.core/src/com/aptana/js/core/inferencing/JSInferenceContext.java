@@ -0,0 +1,186 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.js.core.inferencing;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.aptana.js.core.index.JSIndexQueryHelper;
+import com.aptana.js.core.model.PropertyElement;
+import com.aptana.js.core.parsing.ast.JSNode;
+
+/**
+ * What a single inference pass (indexing a file, computing content assist proposals) has worked out so far: the types
+ * inferred for each node, and the ancestors and members of the types looked up in the index. Chained member
+ * expressions and object literals would otherwise infer the same nodes, and query the same types, over and over.
+ * <p>
+ * Writing a type to the index during the pass must be reported through {@link #typeWritten(String)}, so that what we
+ * know of it is looked up again. A context is meant to be thrown away at the end of its pass, and isn't thread-safe.
+ */
+public class JSInferenceContext
+{
+	private final JSIndexQueryHelper queryHelper;
+
+	/**
+	 * The types inferred for nodes, by the scope they were inferred in.
+	 */
+	private final Map<JSScope, Map<JSNode, List<String>>> nodeTypes;
+	private final Map<String, List<String>> ancestorNames;
+	private final Map<String, Map<String, PropertyElement>> memberMaps;
+	private final Map<String, Map<String, Collection<PropertyElement>>> members;
+	private int queryCount;
+
+	/**
+	 * @param queryHelper
+	 *            the query helper to look up types with.
+	 */
+	public JSInferenceContext(JSIndexQueryHelper queryHelper)
+	{
+		this.queryHelper = queryHelper;
+		this.nodeTypes = new IdentityHashMap<JSScope, Map<JSNode, List<String>>>();
+		this.ancestorNames = new HashMap<String, List<String>>();
+		this.memberMaps = new HashMap<String, Map<String, PropertyElement>>();
+		this.members = new HashMap<String, Map<String, Collection<PropertyElement>>>();
+	}
+
+	public JSIndexQueryHelper getQueryHelper()
+	{
+		return queryHelper;
+	}
+
+	/**
+	 * Returns the types inferred for the given node in the given scope, or null if it hasn't been inferred yet.
+	 *
+	 * @param scope
+	 * @param node
+	 * @return
+	 */
+	public List<String> getNodeTypes(JSScope scope, JSNode node)
+	{
+		Map<JSNode, List<String>> types = nodeTypes.get(scope);
+		return (types == null) ? null : types.get(node);
+	}
+
+	/**
+	 * Remembers the types inferred for the given node in the given scope.
+	 *
+	 * @param scope
+	 * @param node
+	 * @param types
+	 */
+	public void putNodeTypes(JSScope scope, JSNode node, List<String> types)
+	{
+		Map<JSNode, List<String>> scopeTypes = nodeTypes.get(scope);
+		if (scopeTypes == null)
+		{
+			scopeTypes = new IdentityHashMap<JSNode, List<String>>();
+			nodeTypes.put(scope, scopeTypes);
+		}
+		scopeTypes.put(node, types);
+	}
+
+	/**
+	 * Returns the names of the ancestors of the given type.
+	 *
+	 * @param typeName
+	 * @return
+	 */
+	public List<String> getTypeAncestorNames(String typeName)
+	{
+		List<String> result = ancestorNames.get(typeName);
+		if (result == null)
+		{
+			queryCount++;
+			result = Collections.unmodifiableList(queryHelper.getTypeAncestorNames(typeName));
+			ancestorNames.put(typeName, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the members (functions and properties) of the given type by name. Ancestors' members aren't included.
+	 *
+	 * @param typeName
+	 * @return
+	 */
+	public Map<String, PropertyElement> getTypeMemberMap(String typeName)
+	{
+		Map<String, PropertyElement> result = memberMaps.get(typeName);
+		if (result == null)
+		{
+			queryCount++;
+			result = new HashMap<String, PropertyElement>();
+			for (PropertyElement member : queryHelper.getTypeMembers(Collections.singletonList(typeName)))
+			{
+				result.put(member.getName(), member);
+			}
+			memberMaps.put(typeName, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the functions and properties with the given name on the given type.
+	 *
+	 * @param typeName
+	 * @param memberName
+	 * @return
+	 */
+	public Collection<PropertyElement> getTypeMembers(String typeName, String memberName)
+	{
+		Map<String, Collection<PropertyElement>> typeMembers = members.get(typeName);
+		if (typeMembers == null)
+		{
+			typeMembers = new HashMap<String, Collection<PropertyElement>>();
+			members.put(typeName, typeMembers);
+		}
+		Collection<PropertyElement> result = typeMembers.get(memberName);
+		if (result == null)
+		{
+			queryCount++;
+			result = queryHelper.getTypeMembers(typeName, memberName);
+			typeMembers.put(memberName, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Forgets what we looked up of the given type (and of the types having it as an ancestor), as it has just been
+	 * written to the index.
+	 *
+	 * @param typeName
+	 */
+	public void typeWritten(String typeName)
+	{
+		memberMaps.remove(typeName);
+		members.remove(typeName);
+		for (Iterator<Map.Entry<String, List<String>>> i = ancestorNames.entrySet().iterator(); i.hasNext();)
+		{
+			Map.Entry<String, List<String>> entry = i.next();
+			if (entry.getKey().equals(typeName) || entry.getValue().contains(typeName))
+			{
+				i.remove();
+			}
+		}
+	}
+
+	/**
+	 * Returns how many times we had to query the index.
+	 *
+	 * @return
+	 */
+	public int getQueryCount()
+	{
+		return queryCount;
+	}
+}
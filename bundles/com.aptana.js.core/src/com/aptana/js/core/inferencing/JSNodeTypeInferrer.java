@@ -77,6 +77,7 @@ public class JSNodeTypeInferrer extends JSTreeWalker
 	private URI _location;
 	private List<String> _types;
 	private JSIndexQueryHelper _queryHelper;
+	private JSInferenceContext _context;
 	private IAliasResolver _factory;
 	private IPath _projectLocation;
 	/**
@@ -102,11 +103,33 @@ public class JSNodeTypeInferrer extends JSTreeWalker
 
 	public JSNodeTypeInferrer(JSScope scope, Index projectIndex, URI location, JSIndexQueryHelper queryHelper,
 			IProgressMonitor monitor)
+	{
+		this(scope, projectIndex, location, new JSInferenceContext(queryHelper), monitor);
+	}
+
+	/**
+	 * @param scope
+	 * @param projectIndex
+	 *            The current index we're dealing with.
+	 * @param location
+	 *            The current file/location we're dealing with.
+	 * @param context
+	 *            the context of the inference pass, which remembers what's been inferred so far. Its query helper is
+	 *            the one we ask for types/functions/etc.
+	 */
+	public JSNodeTypeInferrer(JSScope scope, Index projectIndex, URI location, JSInferenceContext context)
+	{
+		this(scope, projectIndex, location, context, new NullProgressMonitor());
+	}
+
+	public JSNodeTypeInferrer(JSScope scope, Index projectIndex, URI location, JSInferenceContext context,
+			IProgressMonitor monitor)
 	{
 		this._scope = scope;
 		this._index = projectIndex;
 		this._location = location;
-		this._queryHelper = queryHelper;
+		this._context = context;
+		this._queryHelper = context.getQueryHelper();
 		this._monitor = SubMonitor.convert(monitor, IProgressMonitor.UNKNOWN);
 		this._factory = JSCorePlugin.getDefault().getAliasResolver();
 	}
@@ -272,16 +295,24 @@ public class JSNodeTypeInferrer extends JSTreeWalker
 	{
 		if (node instanceof JSNode)
 		{
+			// chained expressions ask for the types of the same sub-expressions over and over
+			List<String> types = this._context.getNodeTypes(scope, (JSNode) node);
+			if (types != null)
+			{
+				return types;
+			}
+
 			// create new nested walker
-			// FIXME How can we avoid total recursion here? can we re-use ourself somehow?
-			JSNodeTypeInferrer walker = new JSNodeTypeInferrer(scope, this._index, this._location, this._queryHelper,
+			JSNodeTypeInferrer walker = new JSNodeTypeInferrer(scope, this._index, this._location, this._context,
 					_monitor.newChild(1));
 
 			// collect types
 			walker.visit((JSNode) node);
 
 			// return collected types
-			return walker.getTypes();
+			types = walker.getTypes();
+			this._context.putNodeTypes(scope, (JSNode) node, types);
+			return types;
 		}
 
 		return Collections.emptyList();
@@ -599,7 +630,7 @@ public class JSNodeTypeInferrer extends JSTreeWalker
 				}
 
 				// lookup up rhs name in type and add that value's type here
-				Collection<PropertyElement> properties = this._queryHelper.getTypeMembers(typeName, memberName);
+				Collection<PropertyElement> properties = this._context.getTypeMembers(typeName, memberName);
 
 				if (properties != null)
 				{
@@ -673,7 +704,7 @@ public class JSNodeTypeInferrer extends JSTreeWalker
 			{
 				// Check the local scope for type first
 				JSSymbolTypeInferrer symbolInferrer = new JSSymbolTypeInferrer(this._scope, this._index,
-						this._location, this._queryHelper);
+						this._location, this._context);
 				PropertyElement property = symbolInferrer.getSymbolPropertyElement(name, _monitor.newChild(1));
 				if (property != null)
 				{
@@ -870,7 +901,7 @@ public class JSNodeTypeInferrer extends JSTreeWalker
 			symbol.addValue(node);
 
 			JSSymbolTypeInferrer inferrer = new JSSymbolTypeInferrer(this._scope, this._index, this._location,
-					this._queryHelper);
+					this._context);
 			Set<String> types = new LinkedHashSet<String>();
 
 			inferrer.processProperties(symbol, types, _monitor.newChild(1));
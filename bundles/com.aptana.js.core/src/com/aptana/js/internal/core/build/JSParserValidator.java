@@ -21,6 +21,7 @@ import org.eclipse.jface.text.IDocument;
 
 import com.aptana.core.IMap;
 import com.aptana.core.build.AbstractBuildParticipant;
+import com.aptana.core.build.ICacheableBuildParticipant;
 import com.aptana.core.build.IProblem;
 import com.aptana.core.build.Problem;
 import com.aptana.core.logging.IdeLog;
@@ -30,7 +31,7 @@ import com.aptana.js.core.IJSConstants;
 import com.aptana.js.core.JSCorePlugin;
 import com.aptana.parsing.ast.IParseError;
 
-public class JSParserValidator extends AbstractBuildParticipant
+public class JSParserValidator extends AbstractBuildParticipant implements ICacheableBuildParticipant
 {
 
 	public static final String ID = "com.aptana.js.core.JSParserValidator"; //$NON-NLS-1$
@@ -15,10 +15,12 @@ import java.util.Collection;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -31,6 +33,7 @@ import org.eclipse.jface.text.IDocument;
 import com.aptana.core.IFilter;
 import com.aptana.core.IMap;
 import com.aptana.core.build.AbstractBuildParticipant;
+import com.aptana.core.build.ICacheableBuildParticipant;
 import com.aptana.core.build.IProblem;
 import com.aptana.core.build.Problem;
 import com.aptana.core.logging.IdeLog;
@@ -80,7 +83,7 @@ import com.aptana.parsing.util.ParseUtil;
 
 import beaver.Symbol;
 
-public class JSStyleValidator extends AbstractBuildParticipant
+public class JSStyleValidator extends AbstractBuildParticipant implements ICacheableBuildParticipant
 {
 
 	/**
@@ -109,6 +112,17 @@ public class JSStyleValidator extends AbstractBuildParticipant
 	 */
 	public static final String ID = "com.aptana.js.core.JSStyleValidator"; //$NON-NLS-1$
 
+	/**
+	 * The number of files for which the problems found in their top-level functions are kept.
+	 */
+	private static final int MAX_CACHED_FILES = 20;
+
+	/**
+	 * Parameters of the 64-bit FNV-1a hash used to tell whether top-level functions changed.
+	 */
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
 	private static final Pattern QUANTIFIER = Pattern.compile("(?<!\\\\)\\{([^\\}]*)\\}"); //$NON-NLS-1$
 
 	private static final Set<String> NOT_CONSTRUCTOR = CollectionsUtil.newSet(
@@ -218,6 +232,11 @@ public class JSStyleValidator extends AbstractBuildParticipant
 	 */
 	private IDocument doc;
 
+	/**
+	 * The current file's source.
+	 */
+	private String source;
+
 	/**
 	 * The URI of the current file as a String.
 	 */
@@ -247,6 +266,28 @@ public class JSStyleValidator extends AbstractBuildParticipant
 
 	private Collection<IProblem> problems;
 
+	/**
+	 * The problems found in the top-level functions of the files validated last, by file and then by
+	 * {@link #getFunctionKey(JSFunctionNode)}. Functions whose key didn't change since the last run aren't analyzed
+	 * again.
+	 */
+	private final FunctionResultsCache functionResults = new FunctionResultsCache();
+
+	/**
+	 * The problems found in the top-level functions of the current file in the previous run, and in this run.
+	 */
+	private Map<String, FunctionResult> previousFunctionResults;
+	private Map<String, FunctionResult> currentFunctionResults;
+
+	/**
+	 * The top-level function being analyzed, with its key, the number of problems found before it and the changes it
+	 * made to the global function and scope (null when not in a top-level function).
+	 */
+	private JSFunctionNode recordedFunction;
+	private String recordedFunctionKey;
+	private int recordedProblemsStart;
+	private List<GlobalChange> globalChanges;
+
 	/**
 	 * Kind of name/label.
 	 */
@@ -358,6 +399,10 @@ public class JSStyleValidator extends AbstractBuildParticipant
 
 		public void put(String varName, Kind undef)
 		{
+			if (globalChanges != null && this == globalFunct())
+			{
+				globalChanges.add(new GlobalChange(varName, undef));
+			}
 			map.put(varName, undef);
 		}
 
@@ -397,6 +442,78 @@ public class JSStyleValidator extends AbstractBuildParticipant
 		}
 	}
 
+	/**
+	 * A change made to the global function or scope while analyzing a top-level function, which is made again when the
+	 * problems of the function are reused.
+	 */
+	private static class GlobalChange
+	{
+		private final String name;
+		private final Kind kind;
+		private final String scopeString;
+		private final boolean writeable;
+
+		/**
+		 * A change to the global function.
+		 */
+		GlobalChange(String name, Kind kind)
+		{
+			this(name, kind, null, false);
+		}
+
+		/**
+		 * A change to the global scope.
+		 */
+		GlobalChange(String name, String scopeString, boolean writeable)
+		{
+			this(name, null, scopeString, writeable);
+		}
+
+		private GlobalChange(String name, Kind kind, String scopeString, boolean writeable)
+		{
+			this.name = name;
+			this.kind = kind;
+			this.scopeString = scopeString;
+			this.writeable = writeable;
+		}
+	}
+
+	/**
+	 * The problems found in a top-level function and the changes it made to the global function and scope.
+	 */
+	private static class FunctionResult
+	{
+		private final int offset;
+		private final List<IProblem> problems;
+		private final List<GlobalChange> globalChanges;
+
+		FunctionResult(int offset, List<IProblem> problems, List<GlobalChange> globalChanges)
+		{
+			this.offset = offset;
+			this.problems = problems;
+			this.globalChanges = globalChanges;
+		}
+	}
+
+	/**
+	 * The problems found in the top-level functions of the {@value #MAX_CACHED_FILES} files validated last.
+	 */
+	private static class FunctionResultsCache extends LinkedHashMap<String, Map<String, FunctionResult>>
+	{
+		private static final long serialVersionUID = 1L;
+
+		FunctionResultsCache()
+		{
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Map<String, FunctionResult>> eldest)
+		{
+			return size() > MAX_CACHED_FILES;
+		}
+	}
+
 	/**
 	 * a Scope object. Holds a map of names/vars in the scope.
 	 * 
@@ -422,8 +539,13 @@ public class JSStyleValidator extends AbstractBuildParticipant
 			this(null, false, null);
 		}
 
-		public synchronized void put(String name, Scope variable)
+		public void put(String name, Scope variable)
 		{
+			if (globalChanges != null && this == globalScope())
+			{
+				// global variables always belong to the global function
+				globalChanges.add(new GlobalChange(name, variable.string, variable.writeable));
+			}
 			if (this.names == null)
 			{
 				this.names = new HashMap<String, Scope>(2);
@@ -431,7 +553,7 @@ public class JSStyleValidator extends AbstractBuildParticipant
 			this.names.put(name, variable);
 		}
 
-		public synchronized Scope get(String name)
+		public Scope get(String name)
 		{
 			if (this.names == null)
 			{
@@ -479,28 +601,25 @@ public class JSStyleValidator extends AbstractBuildParticipant
 
 		this.sourcePath = context.getURI().toString();
 		this.problems = new ArrayList<IProblem>(10);
+		synchronized (functionResults)
+		{
+			this.previousFunctionResults = functionResults.get(sourcePath);
+		}
+		this.currentFunctionResults = new HashMap<String, FunctionResult>();
 		try
 		{
 			if (ast != null)
 			{
 				// Wrap the source in an IDocument so we can easily look up line numbers/offsets.
-				this.doc = new Document(context.getContents());
+				this.source = context.getContents();
+				this.doc = new Document(source);
 
-				ParseUtil.treeApply(ast, new ParseUtil.IASTVisitor()
-				{
+				walk(ast);
 
-					public boolean exitNode(IParseNode node)
-					{
-						JSStyleValidator.this.exitNode(node);
-						return true;
-					}
-
-					public boolean enterNode(IParseNode node)
-					{
-						JSStyleValidator.this.enterNode(node);
-						return true;
-					}
-				});
+				synchronized (functionResults)
+				{
+					functionResults.put(sourcePath, currentFunctionResults);
+				}
 			}
 		}
 		catch (Exception e)
@@ -538,7 +657,13 @@ public class JSStyleValidator extends AbstractBuildParticipant
 		}
 		
 		// Wipe the intermediate fields
+		this.previousFunctionResults = null;
+		this.currentFunctionResults = null;
+		this.recordedFunction = null;
+		this.recordedFunctionKey = null;
+		this.globalChanges = null;
 		this.doc = null;
+		this.source = null;
 		this.sourcePath = null;
 		this.scopeStack = null;
 		this.functionStack = null;
@@ -560,6 +685,186 @@ public class JSStyleValidator extends AbstractBuildParticipant
 		context.putProblems(IJSConstants.JSSTYLE_PROBLEM_MARKER_TYPE, filtered);
 	}
 
+	/**
+	 * Visits the nodes in the same order as {@link ParseUtil#treeApply(IParseNode, ParseUtil.IASTVisitor)}, except
+	 * that top-level functions whose problems are known from the last run are skipped (see
+	 * {@link #reuseFunctionResult(JSFunctionNode)}).
+	 * 
+	 * @param ast
+	 */
+	private void walk(IParseRootNode ast)
+	{
+		List<IParseNode> nodes = new ArrayList<IParseNode>();
+		List<Boolean> entering = new ArrayList<Boolean>();
+
+		nodes.add(ast);
+		entering.add(Boolean.TRUE);
+
+		while (!nodes.isEmpty())
+		{
+			IParseNode node = nodes.remove(nodes.size() - 1);
+
+			if (!entering.remove(entering.size() - 1))
+			{
+				exitNode(node);
+				if (node == recordedFunction)
+				{
+					recordFunctionResult();
+				}
+				continue;
+			}
+
+			if (node instanceof JSFunctionNode && recordedFunction == null && inGlobalFunct())
+			{
+				if (reuseFunctionResult((JSFunctionNode) node))
+				{
+					continue;
+				}
+				recordedFunction = (JSFunctionNode) node;
+				recordedProblemsStart = problems.size();
+				globalChanges = new ArrayList<GlobalChange>();
+			}
+
+			enterNode(node);
+
+			// pushed backwards, so that comments come first and then the children in order
+			nodes.add(node);
+			entering.add(Boolean.FALSE);
+			IParseNode[] children = node.getChildren();
+			for (int i = children.length - 1; i >= 0; i--)
+			{
+				nodes.add(children[i]);
+				entering.add(Boolean.TRUE);
+			}
+			if (node instanceof IParseRootNode)
+			{
+				IParseNode[] comments = ((IParseRootNode) node).getCommentNodes();
+				for (int i = comments.length - 1; i >= 0; i--)
+				{
+					nodes.add(comments[i]);
+					entering.add(Boolean.TRUE);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns a key for the result of analyzing a top-level function: a hash of its source and of everything it
+	 * depends on outside of it, i.e. the options and what the names it uses stand for in the global scope.
+	 * 
+	 * @param node
+	 * @return
+	 */
+	private String getFunctionKey(JSFunctionNode node)
+	{
+		final Set<String> names = new HashSet<String>();
+		names.add(node.getNameNode().getName());
+		ParseUtil.treeApply(node, new IFilter<IParseNode>()
+		{
+			public boolean include(IParseNode item)
+			{
+				if (item instanceof JSIdentifierNode)
+				{
+					names.add(item.getNameNode().getName());
+				}
+				return true;
+			}
+		});
+
+		long contextHash = hash(FNV_OFFSET_BASIS, options().toString());
+		for (String name : new TreeSet<String>(names))
+		{
+			Scope variable = currentScope().get(name);
+			contextHash = hash(contextHash, name);
+			contextHash = hash(contextHash, (variable == null) ? StringUtil.EMPTY : String.valueOf(variable.writeable));
+			contextHash = hash(contextHash, globalFunct().containsKey(name) ? globalFunct().get(name).name()
+					: StringUtil.EMPTY);
+			contextHash = hash(contextHash, predefineds.contains(name) ? name : StringUtil.EMPTY);
+		}
+
+		long sourceHash = FNV_OFFSET_BASIS;
+		int end = Math.min(node.getEndingOffset() + 1, source.length());
+		for (int i = node.getStartingOffset(); i < end; i++)
+		{
+			sourceHash = (sourceHash ^ source.charAt(i)) * FNV_PRIME;
+		}
+
+		return Long.toHexString(sourceHash) + '/' + node.getLength() + '/' + Long.toHexString(contextHash);
+	}
+
+	private static long hash(long hash, String string)
+	{
+		long result = hash;
+		int length = string.length();
+		for (int i = 0; i < length; i++)
+		{
+			result = (result ^ string.charAt(i)) * FNV_PRIME;
+		}
+		// separates the strings
+		return (result ^ 0xFFFF) * FNV_PRIME;
+	}
+
+	/**
+	 * Reuses the problems found in the given top-level function in the last run if it and what it depends on didn't
+	 * change, making the changes it made to the global function and scope again.
+	 * 
+	 * @param node
+	 * @return whether the problems were reused
+	 */
+	private boolean reuseFunctionResult(JSFunctionNode node)
+	{
+		recordedFunctionKey = getFunctionKey(node);
+		FunctionResult result = (previousFunctionResults == null) ? null : previousFunctionResults
+				.get(recordedFunctionKey);
+		if (result == null)
+		{
+			return false;
+		}
+
+		int delta = node.getStartingOffset() - result.offset;
+		List<IProblem> functionProblems = new ArrayList<IProblem>(result.problems.size());
+		for (IProblem problem : result.problems)
+		{
+			int offset = problem.getOffset() + delta;
+			int line = -1;
+			try
+			{
+				line = doc.getLineOfOffset(offset) + 1;
+			}
+			catch (BadLocationException e)
+			{
+				// ignore
+			}
+			functionProblems.add(new Problem(problem.getSeverity().intValue(), problem.getMessage(), offset, problem
+					.getLength(), line, sourcePath));
+		}
+		problems.addAll(functionProblems);
+		for (GlobalChange change : result.globalChanges)
+		{
+			if (change.kind != null)
+			{
+				globalFunct().put(change.name, change.kind);
+			}
+			else
+			{
+				globalScope().put(change.name, new Scope(change.scopeString, change.writeable, globalFunct()));
+			}
+		}
+		currentFunctionResults.put(recordedFunctionKey, new FunctionResult(node.getStartingOffset(),
+				functionProblems, result.globalChanges));
+		return true;
+	}
+
+	private void recordFunctionResult()
+	{
+		List<IProblem> functionProblems = new ArrayList<IProblem>(((List<IProblem>) problems).subList(
+				recordedProblemsStart, problems.size()));
+		currentFunctionResults.put(recordedFunctionKey, new FunctionResult(recordedFunction.getStartingOffset(),
+				functionProblems, globalChanges));
+		recordedFunction = null;
+		globalChanges = null;
+	}
+
 	public void deleteFile(BuildContext context, IProgressMonitor monitor)
 	{
 		if (context == null)
@@ -14,13 +14,14 @@ import java.util.List;
 import org.eclipse.core.runtime.IProgressMonitor;
 
 import com.aptana.core.build.AbstractBuildParticipant;
+import com.aptana.core.build.ICacheableBuildParticipant;
 import com.aptana.core.build.IProblem;
 import com.aptana.index.core.build.BuildContext;
 import com.aptana.js.core.IJSConstants;
 import com.aptana.js.internal.core.index.JSMetadataReader;
 import com.aptana.sax.IValidatingReaderLogger;
 
-public class SDocMLValidator extends AbstractBuildParticipant
+public class SDocMLValidator extends AbstractBuildParticipant implements ICacheableBuildParticipant
 {
 	
 	public static final String ID = "com.aptana.js.core.SDocMLValidator"; //$NON-NLS-1$
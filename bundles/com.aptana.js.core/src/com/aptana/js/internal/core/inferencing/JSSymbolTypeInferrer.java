@@ -9,7 +9,6 @@ package com.aptana.js.internal.core.inferencing;
 
 import java.net.URI;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -30,6 +29,7 @@ import com.aptana.core.util.StringUtil;
 import com.aptana.index.core.Index;
 import com.aptana.js.core.JSTypeConstants;
 import com.aptana.js.core.index.JSIndexQueryHelper;
+import com.aptana.js.core.inferencing.JSInferenceContext;
 import com.aptana.js.core.inferencing.JSNodeTypeInferrer;
 import com.aptana.js.core.inferencing.JSPropertyCollection;
 import com.aptana.js.core.inferencing.JSScope;
@@ -56,7 +56,7 @@ public class JSSymbolTypeInferrer
 	private final JSScope activeScope;
 	private final URI location;
 	private final JSIndexWriter writer;
-	private final JSIndexQueryHelper queryHelper;
+	private final JSInferenceContext context;
 
 	/**
 	 * generateType
@@ -126,11 +126,24 @@ public class JSSymbolTypeInferrer
 	 *            The query helper that knows the build path order. We can lookup types/etc from it.
 	 */
 	public JSSymbolTypeInferrer(JSScope activeScope, Index index, URI location, JSIndexQueryHelper queryHelper)
+	{
+		this(activeScope, index, location, new JSInferenceContext(queryHelper));
+	}
+
+	/**
+	 * @param activeScope
+	 * @param index
+	 * @param location
+	 *            The current file/location
+	 * @param context
+	 *            The context of the inference pass, remembering the types inferred and looked up so far.
+	 */
+	public JSSymbolTypeInferrer(JSScope activeScope, Index index, URI location, JSInferenceContext context)
 	{
 		this.index = index;
 		this.activeScope = activeScope;
 		this.location = location;
-		this.queryHelper = queryHelper;
+		this.context = context;
 		this.writer = new JSIndexWriter();
 	}
 
@@ -422,33 +435,37 @@ public class JSSymbolTypeInferrer
 
 	/**
 	 * Generate a mapping of property names to their property elements. The properties are a collection generated from
-	 * the specified list of types and of those type's ancestor types
+	 * the specified list of types and of those type's ancestor types. A type's own members win over the members of the
+	 * same name of its ancestors, and nearer ancestors win over more distant ones.
 	 * 
 	 * @param types
 	 *            A set of type names
 	 * @return Returns a map of property name to property element
 	 */
-	private Map<String, PropertyElement> getTypePropertyMap(Set<String> types)
+	Map<String, PropertyElement> getTypePropertyMap(Set<String> types)
 	{
-		// create a unique set of type names and their ancestor types
-		Set<String> ancestors = new HashSet<String>();
+		// create a unique set of type names and their ancestor types, each type coming before its ancestors
+		Set<String> ancestors = new LinkedHashSet<String>();
 
 		for (String type : types)
 		{
 			ancestors.add(type);
-			ancestors.addAll(queryHelper.getTypeAncestorNames(type));
+			ancestors.addAll(context.getTypeAncestorNames(type));
 		}
 
-		// grab property elements for all collected types
-		List<String> typesAndAncestors = new ArrayList<String>(ancestors);
-		Collection<PropertyElement> typeMembers = queryHelper.getTypeMembers(typesAndAncestors);
-
-		// generate map of property name to its property element
+		// generate map of property name to its property element for all collected types
 		Map<String, PropertyElement> propertyMap = new HashMap<String, PropertyElement>();
 
-		for (PropertyElement propertyElement : typeMembers)
+		for (String type : ancestors)
 		{
-			propertyMap.put(propertyElement.getName(), propertyElement);
+			for (Map.Entry<String, PropertyElement> member : context.getTypeMemberMap(type).entrySet())
+			{
+				// don't let an ancestor's member override the one of a type derived from it
+				if (!propertyMap.containsKey(member.getKey()))
+				{
+					propertyMap.put(member.getKey(), member.getValue());
+				}
+			}
 		}
 
 		return propertyMap;
@@ -626,8 +643,7 @@ public class JSSymbolTypeInferrer
 
 	private JSNodeTypeInferrer getNodeInferrer(SubMonitor sub)
 	{
-		// FIXME Keep one around and re-use it? Can we just pass in a new monitor?
-		return new JSNodeTypeInferrer(activeScope, index, location, queryHelper, sub);
+		return new JSNodeTypeInferrer(activeScope, index, location, context, sub);
 	}
 
 	/**
@@ -647,6 +663,7 @@ public class JSSymbolTypeInferrer
 
 			// write the type to the index
 			writer.writeType(index, type, location);
+			context.typeWritten(type.getName());
 		}
 	}
 }
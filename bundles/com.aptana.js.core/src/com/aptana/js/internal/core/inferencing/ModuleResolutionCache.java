@@ -0,0 +1,344 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.js.internal.core.inferencing;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+import com.aptana.core.logging.IdeLog;
+import com.aptana.core.util.StringUtil;
+import com.aptana.js.core.JSCorePlugin;
+
+/**
+ * Caches what module ids resolved to (by project and requiring directory), the main files declared by package.json
+ * manifests and the set of core modules, as type inference resolves the same ids over and over.
+ * <p>
+ * Resolutions within a project are kept until a resource delta of the project could change them: a file being added
+ * or removed, or a package.json being changed. Anything depending on locations we get no deltas for (global folders,
+ * projects outside of the workspace) expires after {@link #UNTRACKED_TTL}.
+ */
+public class ModuleResolutionCache implements IResourceChangeListener
+{
+
+	private static final int MAX_ENTRIES = 5000;
+	private static final long UNTRACKED_TTL = 30000; // 30 seconds
+	private static final String PACKAGE_JSON = "package.json"; //$NON-NLS-1$
+
+	/* package */static class Entry
+	{
+		/**
+		 * What the module resolved to (or the main file a manifest declares), null when it wasn't found.
+		 */
+		final IPath path;
+		final boolean tracked;
+		final long timestamp;
+
+		Entry(IPath path, boolean tracked)
+		{
+			this.path = path;
+			this.tracked = tracked;
+			this.timestamp = System.currentTimeMillis();
+		}
+
+		boolean isExpired()
+		{
+			return !tracked && System.currentTimeMillis() - timestamp > UNTRACKED_TTL;
+		}
+	}
+
+	/**
+	 * The resolutions by project (the null key holding those made outside of a project).
+	 */
+	private final Map<IProject, Map<String, Entry>> resolutions = new HashMap<IProject, Map<String, Entry>>();
+
+	/**
+	 * The main files declared by package.json manifests (an empty string when they don't declare one), by location of
+	 * the package.json file, so that the locations resource deltas report can be compared with them.
+	 */
+	private final Map<IPath, Entry> mainFiles = new LinkedHashMap<IPath, Entry>(16, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<IPath, Entry> eldest)
+		{
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	private IPath coreModulesSource;
+	private Set<String> coreModules;
+
+	/**
+	 * Starts listening for workspace changes.
+	 */
+	public void install()
+	{
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+	}
+
+	/**
+	 * Stops listening for workspace changes and drops all cached entries.
+	 */
+	public void uninstall()
+	{
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+		clear();
+	}
+
+	/**
+	 * Returns the cached resolution of the given module id from the given directory, or <code>null</code>.
+	 */
+	public synchronized Entry get(IProject project, IPath location, String moduleId)
+	{
+		Map<String, Entry> entries = resolutions.get(project);
+		if (entries == null)
+		{
+			return null;
+		}
+		String key = getKey(location, moduleId);
+		Entry entry = entries.get(key);
+		if (entry != null && entry.isExpired())
+		{
+			entries.remove(key);
+			return null;
+		}
+		return entry;
+	}
+
+	/**
+	 * Remembers what the given module id resolved to from the given directory (<code>null</code> when it wasn't found).
+	 */
+	public synchronized Entry put(IProject project, IPath location, String moduleId, IPath path)
+	{
+		Entry entry = new Entry(path, isTracked(project, location, path));
+		Map<String, Entry> entries = resolutions.get(project);
+		if (entries == null)
+		{
+			entries = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+				{
+					return size() > MAX_ENTRIES;
+				}
+			};
+			resolutions.put(project, entries);
+		}
+		entries.put(getKey(location, moduleId), entry);
+		return entry;
+	}
+
+	/**
+	 * Returns the cached main file of the package.json of the given directory, an empty string if it declares none, or
+	 * <code>null</code> if it isn't cached.
+	 */
+	public synchronized String getMainFile(IPath directory)
+	{
+		IPath packageJSON = getManifest(directory);
+		Entry entry = mainFiles.get(packageJSON);
+		if (entry == null)
+		{
+			return null;
+		}
+		if (entry.isExpired())
+		{
+			mainFiles.remove(packageJSON);
+			return null;
+		}
+		return entry.path.toPortableString();
+	}
+
+	/**
+	 * Remembers the main file declared by the package.json of the given directory (<code>null</code> when it declares
+	 * none).
+	 */
+	public void putMainFile(IPath directory, String mainFile)
+	{
+		IPath packageJSON = getManifest(directory);
+		IPath main = Path.fromPortableString((mainFile == null) ? StringUtil.EMPTY : mainFile);
+		Entry entry = new Entry(main, isInWorkspace(packageJSON));
+		synchronized (this)
+		{
+			mainFiles.put(packageJSON, entry);
+		}
+	}
+
+	/**
+	 * Returns the core modules found in the given node source directory, or <code>null</code> if they aren't cached.
+	 */
+	public synchronized Set<String> getCoreModules(IPath nodeSrcPath)
+	{
+		if (coreModules == null || (nodeSrcPath == null ? coreModulesSource != null : !nodeSrcPath
+				.equals(coreModulesSource)))
+		{
+			return null;
+		}
+		return coreModules;
+	}
+
+	public synchronized void putCoreModules(IPath nodeSrcPath, Set<String> modules)
+	{
+		coreModulesSource = nodeSrcPath;
+		coreModules = Collections.unmodifiableSet(modules);
+	}
+
+	public synchronized void clear()
+	{
+		resolutions.clear();
+		mainFiles.clear();
+		coreModules = null;
+		coreModulesSource = null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * org.eclipse.core.resources.IResourceChangeListener#resourceChanged(org.eclipse.core.resources.IResourceChangeEvent
+	 * )
+	 */
+	public void resourceChanged(IResourceChangeEvent event)
+	{
+		IResourceDelta delta = event.getDelta();
+		if (delta == null)
+		{
+			return;
+		}
+		final Set<IProject> changedProjects = new HashSet<IProject>();
+		final Set<IPath> changedManifests = new HashSet<IPath>();
+		try
+		{
+			delta.accept(new IResourceDeltaVisitor()
+			{
+				public boolean visit(IResourceDelta delta) throws CoreException
+				{
+					IResource resource = delta.getResource();
+					switch (delta.getKind())
+					{
+						case IResourceDelta.ADDED:
+						case IResourceDelta.REMOVED:
+							// may change which file or directory a module id resolves to
+							changedProjects.add(resource.getProject());
+							if (resource.getType() != IResource.FILE)
+							{
+								// so may manifests below
+								changedManifests.add(resource.getLocation());
+							}
+							else if (PACKAGE_JSON.equals(resource.getName()))
+							{
+								changedManifests.add(resource.getLocation());
+							}
+							return false;
+
+						case IResourceDelta.CHANGED:
+							if (PACKAGE_JSON.equals(resource.getName())
+									&& (delta.getFlags() & (IResourceDelta.CONTENT | IResourceDelta.REPLACED)) != 0)
+							{
+								changedProjects.add(resource.getProject());
+								changedManifests.add(resource.getLocation());
+							}
+							return true;
+
+						default:
+							return true;
+					}
+				}
+			});
+		}
+		catch (CoreException e)
+		{
+			IdeLog.logWarning(JSCorePlugin.getDefault(), e);
+			clear();
+			return;
+		}
+
+		synchronized (this)
+		{
+			for (IProject project : changedProjects)
+			{
+				if (project == null)
+				{
+					// the workspace root, so anything could have changed
+					resolutions.clear();
+					break;
+				}
+				resolutions.remove(project);
+			}
+			if (changedManifests.isEmpty())
+			{
+				return;
+			}
+			for (Iterator<IPath> i = mainFiles.keySet().iterator(); i.hasNext();)
+			{
+				IPath manifest = i.next();
+				for (IPath changed : changedManifests)
+				{
+					if (changed == null || changed.isPrefixOf(manifest))
+					{
+						i.remove();
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	private static IPath getManifest(IPath directory)
+	{
+		return directory.append(PACKAGE_JSON);
+	}
+
+	private static String getKey(IPath location, String moduleId)
+	{
+		return location.toPortableString() + '\n' + moduleId;
+	}
+
+	/**
+	 * Returns whether resource deltas will tell us when the resolution changes: the module has to be looked up from and
+	 * found within the project.
+	 */
+	private static boolean isTracked(IProject project, IPath location, IPath path)
+	{
+		if (project == null || path == null)
+		{
+			return false;
+		}
+		IPath projectLocation = project.getLocation();
+		return projectLocation != null && projectLocation.isPrefixOf(location) && projectLocation.isPrefixOf(path);
+	}
+
+	private static boolean isInWorkspace(IPath location)
+	{
+		try
+		{
+			return ResourcesPlugin.getWorkspace().getRoot().getFileForLocation(location) != null;
+		}
+		catch (Exception e)
+		{
+			return false;
+		}
+	}
+}
@@ -51,16 +51,28 @@ public class NodeModuleResolver extends AbstractRequireResolver
 			"querystring", "readline", "repl", "stream", "string_decoder", "sys", "timers", "tls", "tty", "url",
 			"util", "vm", "zlib");
 
-	private IPath location;
-
 	public IPath resolve(String moduleId, IProject project, IPath location, IPath indexRoot)
 	{
 		if (!location.toFile().isDirectory())
 		{
 			throw new IllegalArgumentException("location must be a directory"); //$NON-NLS-1$
 		}
-		this.location = location;
 
+		ModuleResolutionCache cache = getCache();
+		if (cache == null)
+		{
+			return doResolve(moduleId, location);
+		}
+		ModuleResolutionCache.Entry entry = cache.get(project, location, moduleId);
+		if (entry == null)
+		{
+			entry = cache.put(project, location, moduleId, doResolve(moduleId, location));
+		}
+		return entry.path;
+	}
+
+	private IPath doResolve(String moduleId, IPath location)
+	{
 		IPath result = null;
 		if (isCore(moduleId))
 		{
@@ -87,6 +99,38 @@ public class NodeModuleResolver extends AbstractRequireResolver
 		return result;
 	}
 
+	/**
+	 * Returns the cache of resolutions, or null when they shouldn't be cached.
+	 * 
+	 * @return
+	 */
+	protected ModuleResolutionCache getCache()
+	{
+		JSCorePlugin plugin = JSCorePlugin.getDefault();
+		return (plugin == null) ? null : plugin.getModuleResolutionCache();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.js.core.inferencing.AbstractRequireResolver#getMainFile(org.eclipse.core.runtime.IPath)
+	 */
+	@Override
+	protected String getMainFile(IPath directory)
+	{
+		ModuleResolutionCache cache = getCache();
+		if (cache == null)
+		{
+			return super.getMainFile(directory);
+		}
+		String mainFile = cache.getMainFile(directory);
+		if (mainFile == null)
+		{
+			mainFile = super.getMainFile(directory);
+			cache.putMainFile(directory, mainFile);
+		}
+		return mainFile;
+	}
+
 	private IPath coreModule(String text)
 	{
 		IPath node = nodeSrcPath();
@@ -110,21 +154,31 @@ public class NodeModuleResolver extends AbstractRequireResolver
 	private boolean isCore(String text)
 	{
 		IPath node = nodeSrcPath();
-		if (node != null)
+		ModuleResolutionCache cache = getCache();
+		Set<String> coreModules = (cache == null) ? null : cache.getCoreModules(node);
+		if (coreModules == null)
 		{
-			String[] files = node.append(LIB).toFile().list();
-			if (!ArrayUtil.isEmpty(files))
+			coreModules = new HashSet<String>(CORE_MODULES);
+			if (node != null)
 			{
-				for (String file : files)
+				String[] files = node.append(LIB).toFile().list();
+				if (!ArrayUtil.isEmpty(files))
 				{
-					if (file.equals(text + ".js")) //$NON-NLS-1$
+					for (String file : files)
 					{
-						return true;
+						if (file.endsWith(".js")) //$NON-NLS-1$
+						{
+							coreModules.add(file.substring(0, file.length() - 3));
+						}
 					}
 				}
 			}
+			if (cache != null)
+			{
+				cache.putCoreModules(node, coreModules);
+			}
 		}
-		return CORE_MODULES.contains(text);
+		return coreModules.contains(text);
 	}
 
 	private IPath loadNodeModules(String x, IPath start)
@@ -172,11 +226,11 @@ public class NodeModuleResolver extends AbstractRequireResolver
 		}
 
 		// Search global folders, see http://nodejs.org/api/modules.html#modules_loading_from_the_global_folders
-		dirs.addAll(globalFolders());
+		dirs.addAll(globalFolders(start));
 		return dirs;
 	}
 
-	private Collection<? extends IPath> globalFolders()
+	private Collection<? extends IPath> globalFolders(IPath location)
 	{
 		List<IPath> dirs = new ArrayList<IPath>();
 		// FIXME Handle properly on Windows...
@@ -0,0 +1,275 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.js.internal.core.node;
+
+import java.io.File;
+import java.io.FileReader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+
+import com.aptana.core.logging.IdeLog;
+import com.aptana.core.util.ArrayUtil;
+import com.aptana.js.core.JSCorePlugin;
+import com.aptana.js.core.node.INodePackageManager;
+
+/**
+ * The packages installed in a node_modules directory (and, recursively, in theirs), read from their package.json
+ * files, so that we don't have to run "npm ls" to tell what is installed.
+ * <p>
+ * The listing of a directory is read again only when its modification time, or that of one of its @scope directories,
+ * changes (which installing, updating or removing a package does), and a package.json only when its own does.
+ */
+public class NodeModulesInventory
+{
+
+	/**
+	 * How close to the last scan (in milliseconds) a directory can have been modified for us to scan it again anyway,
+	 * as file systems may only record modification times by the second.
+	 */
+	private static final long TIMESTAMP_RESOLUTION = 2000;
+
+	private static final String VERSION = "version"; //$NON-NLS-1$
+
+	/**
+	 * An installed package.
+	 */
+	private static class Package
+	{
+		final IPath path;
+		final long lastModified;
+		final String version;
+
+		/**
+		 * The packages installed below this one, if it has a node_modules directory.
+		 */
+		NodeModulesInventory dependencies;
+
+		Package(IPath path, long lastModified, String version)
+		{
+			this.path = path;
+			this.lastModified = lastModified;
+			this.version = version;
+		}
+	}
+
+	private final File fDirectory;
+
+	/**
+	 * The packages by name (including their scope for scoped packages, i.e. "@scope/name").
+	 */
+	private Map<String, Package> fPackages = Collections.emptyMap();
+
+	/**
+	 * The modification time of the scope directories, by name (i.e. "@scope").
+	 */
+	private Map<String, Long> fScopes = Collections.emptyMap();
+
+	private long fLastModified = -1;
+	private long fLastScan;
+
+	public NodeModulesInventory(IPath directory)
+	{
+		fDirectory = directory.toFile();
+	}
+
+	/**
+	 * Returns the version of the given package installed directly in the directory, or null if it's not installed.
+	 *
+	 * @param packageName
+	 * @return
+	 */
+	public synchronized String getVersion(String packageName)
+	{
+		Package pkg = getPackages().get(packageName);
+		return (pkg == null) ? null : pkg.version;
+	}
+
+	/**
+	 * Returns where the given package is installed directly in the directory, or null if it's not installed.
+	 *
+	 * @param packageName
+	 * @return
+	 */
+	public synchronized IPath getPath(String packageName)
+	{
+		Package pkg = getPackages().get(packageName);
+		return (pkg == null) ? null : pkg.path;
+	}
+
+	/**
+	 * Returns the names of all the packages installed in the directory, and in those of the packages themselves.
+	 *
+	 * @return
+	 */
+	public Set<String> getPackageNames()
+	{
+		Set<String> names = new TreeSet<String>();
+		addPackageNames(names);
+		return names;
+	}
+
+	private void addPackageNames(Set<String> names)
+	{
+		Map<String, Package> packages;
+		synchronized (this)
+		{
+			packages = getPackages();
+		}
+		for (Map.Entry<String, Package> entry : packages.entrySet())
+		{
+			names.add(entry.getKey());
+			NodeModulesInventory dependencies = entry.getValue().dependencies;
+			if (dependencies != null)
+			{
+				dependencies.addPackageNames(names);
+			}
+		}
+	}
+
+	/**
+	 * Returns the packages, reading the directory again if it changed.
+	 *
+	 * @return
+	 */
+	private Map<String, Package> getPackages()
+	{
+		long lastModified = fDirectory.lastModified();
+		if (isModified(lastModified, fLastModified) || isScopeModified())
+		{
+			fLastScan = System.currentTimeMillis();
+			fLastModified = lastModified;
+			fPackages = scan();
+		}
+		return fPackages;
+	}
+
+	private boolean isModified(long lastModified, long lastScanned)
+	{
+		return lastModified != lastScanned || fLastScan - lastModified < TIMESTAMP_RESOLUTION;
+	}
+
+	/**
+	 * Returns whether a package was installed into or removed from an existing scope directory, which only changes the
+	 * modification time of the scope directory.
+	 *
+	 * @return
+	 */
+	private boolean isScopeModified()
+	{
+		for (Map.Entry<String, Long> entry : fScopes.entrySet())
+		{
+			if (isModified(new File(fDirectory, entry.getKey()).lastModified(), entry.getValue()))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Map<String, Package> scan()
+	{
+		fScopes = Collections.emptyMap();
+		File[] files = fDirectory.listFiles();
+		if (ArrayUtil.isEmpty(files))
+		{
+			return Collections.emptyMap();
+		}
+		Map<String, Package> packages = new HashMap<String, Package>(files.length);
+		Map<String, Long> scopes = new HashMap<String, Long>();
+		for (File file : files)
+		{
+			String name = file.getName();
+			if (name.startsWith("@")) //$NON-NLS-1$
+			{
+				// scoped packages
+				scopes.put(name, file.lastModified());
+				File[] scoped = file.listFiles();
+				if (scoped != null)
+				{
+					for (File scopedFile : scoped)
+					{
+						addPackage(packages, name + '/' + scopedFile.getName(), scopedFile);
+					}
+				}
+			}
+			else if (!name.startsWith(".")) //$NON-NLS-1$
+			{
+				addPackage(packages, name, file);
+			}
+		}
+		fScopes = scopes;
+		return packages;
+	}
+
+	private void addPackage(Map<String, Package> packages, String name, File directory)
+	{
+		File packageJSON = new File(directory, INodePackageManager.PACKAGE_JSON);
+		long lastModified = packageJSON.lastModified();
+		if (lastModified == 0)
+		{
+			// not a package
+			return;
+		}
+
+		Package pkg = fPackages.get(name);
+		if (pkg == null || pkg.lastModified != lastModified
+				|| fLastScan - lastModified < TIMESTAMP_RESOLUTION)
+		{
+			NodeModulesInventory dependencies = (pkg == null) ? null : pkg.dependencies;
+			pkg = new Package(Path.fromOSString(directory.getAbsolutePath()), lastModified, readVersion(packageJSON));
+			pkg.dependencies = dependencies;
+		}
+		if (pkg.dependencies == null)
+		{
+			File nodeModules = new File(directory, INodePackageManager.NODE_MODULES);
+			if (nodeModules.isDirectory())
+			{
+				pkg.dependencies = new NodeModulesInventory(Path.fromOSString(nodeModules.getAbsolutePath()));
+			}
+		}
+		packages.put(name, pkg);
+	}
+
+	private static String readVersion(File packageJSON)
+	{
+		FileReader reader = null;
+		try
+		{
+			reader = new FileReader(packageJSON);
+			JSONObject json = (JSONObject) new JSONParser().parse(reader);
+			return (String) json.get(VERSION);
+		}
+		catch (Exception e)
+		{
+			IdeLog.logWarning(JSCorePlugin.getDefault(), e);
+			return null;
+		}
+		finally
+		{
+			if (reader != null)
+			{
+				try
+				{
+					reader.close();
+				}
+				catch (Exception e)
+				{
+					// ignore
+				}
+			}
+		}
+	}
+}
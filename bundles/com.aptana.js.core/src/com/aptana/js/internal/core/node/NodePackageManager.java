@@ -42,6 +42,7 @@ import org.osgi.framework.Bundle;
 import com.aptana.core.IMap;
 import com.aptana.core.ShellExecutable;
 import com.aptana.core.logging.IdeLog;
+import com.aptana.core.util.ArrayUtil;
 import com.aptana.core.util.CollectionsUtil;
 import com.aptana.core.util.ExecutableUtil;
 import com.aptana.core.util.IProcessRunner;
@@ -137,6 +138,11 @@ public class NodePackageManager implements INodePackageManager
 	 */
 	private IPath npmPath;
 
+	/**
+	 * The packages installed in the node_modules directories we've been asked about, by directory.
+	 */
+	private final Map<IPath, NodeModulesInventory> inventories = new HashMap<IPath, NodeModulesInventory>();
+
 	public NodePackageManager(INodeJS nodeJS)
 	{
 		this.nodeJS = nodeJS;
@@ -397,6 +403,12 @@ public class NodePackageManager implements INodePackageManager
 
 	public Set<String> list(boolean global) throws CoreException
 	{
+		NodeModulesInventory inventory = getInventory(global, null);
+		if (inventory != null)
+		{
+			return inventory.getPackageNames();
+		}
+
 		IStatus status;
 		if (global)
 		{
@@ -485,6 +497,19 @@ public class NodePackageManager implements INodePackageManager
 	 */
 	public IPath getModulesPath(String packageName, boolean isGlobal, String... args) throws CoreException
 	{
+		// we can't tell what extra arguments would do to the listing, so let npm handle those
+		NodeModulesInventory inventory = ArrayUtil.isEmpty(args) ? getInventory(isGlobal, null) : null;
+		if (inventory != null)
+		{
+			IPath path = inventory.getPath(packageName);
+			if (path == null)
+			{
+				throw new CoreException(new Status(IStatus.ERROR, JSCorePlugin.PLUGIN_ID,
+						MessageFormat.format(Messages.NodePackageManager_FailedListPackageError, packageName)));
+			}
+			return path;
+		}
+
 		List<String> processArgs = CollectionsUtil.newList(PARSEABLE_ARG, LIST, packageName, SILENT_ARG);
 		if (isGlobal)
 		{
@@ -520,6 +545,18 @@ public class NodePackageManager implements INodePackageManager
 
 	public String getInstalledVersion(String packageName, boolean global, IPath workingDir) throws CoreException
 	{
+		NodeModulesInventory inventory = getInventory(global, workingDir);
+		if (inventory != null)
+		{
+			String version = inventory.getVersion(packageName);
+			if (version == null && workingDir != null)
+			{
+				// see readPackageVersion
+				return readPackageVersion(packageName, workingDir);
+			}
+			return version;
+		}
+
 		IPath npmPath = checkedNPMPath();
 		List<String> args = CollectionsUtil.newList(npmPath.toOSString(), "ls", packageName, SILENT, COLOR, FALSE, JSON, //$NON-NLS-1$
 				TRUE);
@@ -541,6 +578,70 @@ public class NodePackageManager implements INodePackageManager
 		return version;
 	}
 
+	/**
+	 * Returns the packages installed globally, or locally for the given directory (the current one if null), or null
+	 * if we can't tell where they would be installed.
+	 *
+	 * @param global
+	 * @param workingDir
+	 * @return
+	 */
+	protected NodeModulesInventory getInventory(boolean global, IPath workingDir)
+	{
+		IPath modulesPath;
+		if (global)
+		{
+			try
+			{
+				modulesPath = getModulesPath();
+			}
+			catch (CoreException e)
+			{
+				IdeLog.logWarning(JSCorePlugin.getDefault(), e);
+				return null;
+			}
+		}
+		else
+		{
+			modulesPath = getLocalModulesPath(workingDir);
+		}
+		if (modulesPath == null || !modulesPath.toFile().isDirectory())
+		{
+			return null;
+		}
+
+		synchronized (inventories)
+		{
+			NodeModulesInventory inventory = inventories.get(modulesPath);
+			if (inventory == null)
+			{
+				inventory = new NodeModulesInventory(modulesPath);
+				inventories.put(modulesPath, inventory);
+			}
+			return inventory;
+		}
+	}
+
+	/**
+	 * Returns where npm installs packages locally when run from the given directory: the node_modules directory of the
+	 * closest directory which is a package or has one.
+	 *
+	 * @param workingDir
+	 * @return
+	 */
+	private IPath getLocalModulesPath(IPath workingDir)
+	{
+		File dir = (workingDir == null) ? new File(StringUtil.EMPTY).getAbsoluteFile() : workingDir.toFile();
+		for (File current = dir; current != null; current = current.getParentFile())
+		{
+			if (new File(current, PACKAGE_JSON).isFile() || new File(current, NODE_MODULES).isDirectory())
+			{
+				return Path.fromOSString(current.getAbsolutePath()).append(NODE_MODULES);
+			}
+		}
+		return Path.fromOSString(dir.getAbsolutePath()).append(NODE_MODULES);
+	}
+
 	/**
 	 * It reads the package.json file for the specified package either in the global node_modules directory, or in the
 	 * specified local directory.
@@ -0,0 +1,117 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.parsing;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * A {@link DataInput} over a byte array. Serializers read the stored trees a byte at a time, which is a lot slower
+ * through a {@link DataInputStream} (whose underlying streams synchronize each read).
+ */
+/* package */class ByteArrayDataInput implements DataInput
+{
+
+	private final byte[] fBytes;
+	private int fPosition;
+
+	ByteArrayDataInput(byte[] bytes)
+	{
+		fBytes = bytes;
+	}
+
+	public void readFully(byte[] b) throws IOException
+	{
+		readFully(b, 0, b.length);
+	}
+
+	public void readFully(byte[] b, int off, int len) throws IOException
+	{
+		ensureAvailable(len);
+		System.arraycopy(fBytes, fPosition, b, off, len);
+		fPosition += len;
+	}
+
+	public int skipBytes(int n)
+	{
+		int skipped = Math.max(0, Math.min(n, fBytes.length - fPosition));
+		fPosition += skipped;
+		return skipped;
+	}
+
+	public boolean readBoolean() throws IOException
+	{
+		return readByte() != 0;
+	}
+
+	public byte readByte() throws IOException
+	{
+		ensureAvailable(1);
+		return fBytes[fPosition++];
+	}
+
+	public int readUnsignedByte() throws IOException
+	{
+		return readByte() & 0xFF;
+	}
+
+	public short readShort() throws IOException
+	{
+		return (short) readUnsignedShort();
+	}
+
+	public int readUnsignedShort() throws IOException
+	{
+		return (readUnsignedByte() << 8) | readUnsignedByte();
+	}
+
+	public char readChar() throws IOException
+	{
+		return (char) readUnsignedShort();
+	}
+
+	public int readInt() throws IOException
+	{
+		return (readUnsignedShort() << 16) | readUnsignedShort();
+	}
+
+	public long readLong() throws IOException
+	{
+		return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+	}
+
+	public float readFloat() throws IOException
+	{
+		return Float.intBitsToFloat(readInt());
+	}
+
+	public double readDouble() throws IOException
+	{
+		return Double.longBitsToDouble(readLong());
+	}
+
+	public String readLine() throws IOException
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	public String readUTF() throws IOException
+	{
+		return DataInputStream.readUTF(this);
+	}
+
+	private void ensureAvailable(int length) throws EOFException
+	{
+		if (length > fBytes.length - fPosition)
+		{
+			throw new EOFException();
+		}
+	}
+}
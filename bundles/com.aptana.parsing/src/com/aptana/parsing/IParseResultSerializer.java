@@ -0,0 +1,50 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.parsing;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import com.aptana.parsing.ast.IParseRootNode;
+
+/**
+ * Encodes the ASTs produced by a parser so that they can be kept in the {@link ParseResultStore} across sessions.
+ * Contributed through the <code>serializer</code> attribute of the <code>com.aptana.parsing.parser</code> extension
+ * point, next to the parser it encodes the results of.
+ */
+public interface IParseResultSerializer
+{
+	/**
+	 * The version of the encoding. It must change whenever the parser or the encoding change in a way that makes a
+	 * previously stored tree differ from what the parser produces now, so that stale trees are not reused (including
+	 * the version of the bundle contributing the parser is usually enough).
+	 *
+	 * @return
+	 */
+	public String getVersion();
+
+	/**
+	 * Writes the given tree.
+	 *
+	 * @param root
+	 * @param output
+	 * @throws IOException
+	 *             if the tree can't be written (i.e.: it contains nodes this serializer doesn't know about).
+	 */
+	public void write(IParseRootNode root, DataOutput output) throws IOException;
+
+	/**
+	 * Reads back a tree written by {@link #write(IParseRootNode, DataOutput)}.
+	 *
+	 * @param input
+	 * @return
+	 * @throws IOException
+	 */
+	public IParseRootNode read(DataInput input) throws IOException;
+}
@@ -63,4 +63,17 @@ public interface IParseState
 
 	public String getFilename();
 
+	/**
+	 * @return whether the source is the saved contents of a file (and not, e.g., the contents of an editor being
+	 *         edited), in which case its parse result is worth keeping across sessions.
+	 */
+	public boolean isSavedContents();
+
+	/**
+	 * Marks the source as the saved contents of a file.
+	 * 
+	 * @param savedContents
+	 */
+	public void setSavedContents(boolean savedContents);
+
 }
@@ -0,0 +1,361 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.parsing;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.aptana.core.build.IProblem.Severity;
+import com.aptana.core.logging.IdeLog;
+import com.aptana.core.util.StringUtil;
+import com.aptana.parsing.ast.IParseError;
+import com.aptana.parsing.ast.IParseRootNode;
+import com.aptana.parsing.ast.ParseError;
+
+/**
+ * An on-disk store of parse results, so that the ASTs of big files don't have to be recomputed in each session. Each
+ * result is kept in its own file, named after the hash of the content type, the serializer (and its version), the parse
+ * state cache key and the source that was parsed. When the files go over the maximum size, the least recently used
+ * ones are removed.
+ */
+public class ParseResultStore
+{
+
+	private static final int VERSION = 1;
+	private static final String EXTENSION = ".ast"; //$NON-NLS-1$
+
+	/**
+	 * When over the maximum size, the store is pruned down to this ratio of it so that it doesn't have to be pruned
+	 * again right on the next put.
+	 */
+	private static final double PRUNED_SIZE_RATIO = 0.75;
+
+	private final File fDirectory;
+	private final long fMaxSize;
+
+	/**
+	 * The size of the files in the store, or -1 if not computed yet. Access should be synchronized with fLock.
+	 */
+	private long fSize = -1;
+	private final Object fLock = new Object();
+
+	/**
+	 * @param directory
+	 *            the directory to keep the results in.
+	 * @param maxSize
+	 *            the maximum size (in bytes) of the files in the store.
+	 */
+	public ParseResultStore(File directory, long maxSize)
+	{
+		fDirectory = directory;
+		fMaxSize = maxSize;
+	}
+
+	/**
+	 * Returns the result stored for the given source, or <code>null</code> if there's none.
+	 *
+	 * @param contentTypeId
+	 * @param cacheKey
+	 *            the cache key of the parse state for the source.
+	 * @param source
+	 * @param serializer
+	 *            the serializer for the parser of the content type.
+	 * @return
+	 */
+	public ParseResult get(String contentTypeId, IParseStateCacheKey cacheKey, String source,
+			IParseResultSerializer serializer)
+	{
+		File file = getFile(contentTypeId, cacheKey, source, serializer);
+		if (!file.isFile())
+		{
+			return null;
+		}
+
+		try
+		{
+			DataInput input = new ByteArrayDataInput(readFile(file));
+			if (input.readInt() != VERSION || input.readInt() != source.length())
+			{
+				return null;
+			}
+			List<IParseError> errors = readErrors(input);
+			IParseRootNode root = serializer.read(input);
+
+			// Keeps it from being pruned.
+			file.setLastModified(System.currentTimeMillis());
+			return new ParseResult(root, errors);
+		}
+		catch (FileNotFoundException e)
+		{
+			// pruned in the meanwhile
+			return null;
+		}
+		catch (Exception e)
+		{
+			IdeLog.logWarning(ParsingPlugin.getDefault(),
+					MessageFormat.format("Unable to read stored parse result {0}, removing it", file), e, //$NON-NLS-1$
+					IDebugScopes.PARSING);
+			file.delete();
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the result of parsing the given source. Results that can't be serialized are ignored.
+	 *
+	 * @param contentTypeId
+	 * @param cacheKey
+	 *            the cache key of the parse state for the source.
+	 * @param source
+	 * @param serializer
+	 *            the serializer for the parser of the content type.
+	 * @param result
+	 */
+	public void put(String contentTypeId, IParseStateCacheKey cacheKey, String source,
+			IParseResultSerializer serializer, ParseResult result)
+	{
+		if (result.getRootNode() == null || !canWrite(result.getErrors()))
+		{
+			return;
+		}
+
+		File file = getFile(contentTypeId, cacheKey, source, serializer);
+		File temp = null;
+		DataOutputStream output = null;
+		try
+		{
+			fDirectory.mkdirs();
+			temp = File.createTempFile("parse", ".tmp", fDirectory); //$NON-NLS-1$ //$NON-NLS-2$
+			output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			output.writeInt(VERSION);
+			output.writeInt(source.length());
+			writeErrors(output, result.getErrors());
+			serializer.write(result.getRootNode(), output);
+			output.close();
+			output = null;
+
+			// Don't replace the file if it was stored in the meanwhile.
+			if (!file.exists() && temp.renameTo(file))
+			{
+				added(file.length());
+			}
+		}
+		catch (IOException e)
+		{
+			// i.e.: the tree has nodes the serializer doesn't know about.
+			IdeLog.logTrace(ParsingPlugin.getDefault(), MessageFormat.format(
+					"Unable to store parse result for content type {0}", contentTypeId), e, IDebugScopes.PARSING); //$NON-NLS-1$
+		}
+		finally
+		{
+			close(output);
+			if (temp != null && temp.exists())
+			{
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * @return the size (in bytes) of the files in the store.
+	 */
+	public long getSize()
+	{
+		synchronized (fLock)
+		{
+			if (fSize < 0)
+			{
+				fSize = computeSize(listFiles());
+			}
+			return fSize;
+		}
+	}
+
+	private File getFile(String contentTypeId, IParseStateCacheKey cacheKey, String source,
+			IParseResultSerializer serializer)
+	{
+		StringBuilder key = new StringBuilder();
+		key.append(VERSION).append('\n');
+		key.append(contentTypeId).append('\n');
+		key.append(serializer.getClass().getName()).append('\n');
+		key.append(serializer.getVersion()).append('\n');
+		key.append(cacheKey).append('\n');
+		key.append(StringUtil.md5(source));
+		return new File(fDirectory, StringUtil.md5(key.toString()) + EXTENSION);
+	}
+
+	private void added(long length)
+	{
+		synchronized (fLock)
+		{
+			if (fSize < 0)
+			{
+				fSize = computeSize(listFiles());
+			}
+			else
+			{
+				fSize += length;
+			}
+			if (fSize > fMaxSize)
+			{
+				prune();
+			}
+		}
+	}
+
+	/**
+	 * Removes the least recently used files until the store is back under its pruned size. Should be called with
+	 * fLock.
+	 */
+	private void prune()
+	{
+		File[] files = listFiles();
+		Arrays.sort(files, new Comparator<File>()
+		{
+			public int compare(File f1, File f2)
+			{
+				long m1 = f1.lastModified();
+				long m2 = f2.lastModified();
+				return (m1 < m2) ? -1 : ((m1 == m2) ? 0 : 1);
+			}
+		});
+
+		long size = computeSize(files);
+		long target = (long) (fMaxSize * PRUNED_SIZE_RATIO);
+		for (int i = 0; i < files.length && size > target; i++)
+		{
+			long length = files[i].length();
+			if (files[i].delete())
+			{
+				size -= length;
+			}
+		}
+		fSize = size;
+	}
+
+	private static byte[] readFile(File file) throws IOException
+	{
+		DataInputStream input = new DataInputStream(new FileInputStream(file));
+		try
+		{
+			byte[] bytes = new byte[(int) file.length()];
+			input.readFully(bytes);
+			return bytes;
+		}
+		finally
+		{
+			close(input);
+		}
+	}
+
+	private File[] listFiles()
+	{
+		File[] files = fDirectory.listFiles();
+		return (files == null) ? new File[0] : files;
+	}
+
+	private static long computeSize(File[] files)
+	{
+		long size = 0;
+		for (File file : files)
+		{
+			size += file.length();
+		}
+		return size;
+	}
+
+	/**
+	 * Only plain parse errors can be read back, so results with other errors are not stored.
+	 */
+	private static boolean canWrite(List<IParseError> errors)
+	{
+		for (IParseError error : errors)
+		{
+			if (error.getClass() != ParseError.class || !error.getAttributes().isEmpty())
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void writeErrors(DataOutput output, List<IParseError> errors) throws IOException
+	{
+		output.writeInt(errors.size());
+		for (IParseError error : errors)
+		{
+			writeString(output, error.getLangauge());
+			writeString(output, error.getMessage());
+			output.writeInt(error.getSeverity().intValue());
+			output.writeInt(error.getOffset());
+			output.writeInt(error.getLength());
+			output.writeInt(error.getLineNumber());
+		}
+	}
+
+	private static List<IParseError> readErrors(DataInput input) throws IOException
+	{
+		int count = input.readInt();
+		List<IParseError> errors = new ArrayList<IParseError>(count);
+		for (int i = 0; i < count; i++)
+		{
+			String language = readString(input);
+			String message = readString(input);
+			Severity severity = Severity.create(input.readInt());
+			int offset = input.readInt();
+			int length = input.readInt();
+			ParseError error = new ParseError(language, offset, length, message, severity);
+			error.setLineNumber(input.readInt());
+			errors.add(error);
+		}
+		return errors;
+	}
+
+	private static void writeString(DataOutput output, String string) throws IOException
+	{
+		output.writeBoolean(string != null);
+		if (string != null)
+		{
+			output.writeUTF(string);
+		}
+	}
+
+	private static String readString(DataInput input) throws IOException
+	{
+		return input.readBoolean() ? input.readUTF() : null;
+	}
+
+	private static void close(Closeable closeable)
+	{
+		if (closeable != null)
+		{
+			try
+			{
+				closeable.close();
+			}
+			catch (IOException e)
+			{
+				// ignore
+			}
+		}
+	}
+}
@@ -33,6 +33,8 @@ public class ParseState implements IParseState
 
 	private String filename;
 
+	private boolean fSavedContents;
+
 	public ParseState(String source)
 	{
 		this(source, 0);
@@ -150,4 +152,22 @@ public class ParseState implements IParseState
 		return this.filename;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.parsing.IParseState#isSavedContents()
+	 */
+	public boolean isSavedContents()
+	{
+		return fSavedContents;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.parsing.IParseState#setSavedContents(boolean)
+	 */
+	public void setSavedContents(boolean savedContents)
+	{
+		fSavedContents = savedContents;
+	}
+
 }
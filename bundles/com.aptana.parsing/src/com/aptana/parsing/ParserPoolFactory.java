@@ -7,31 +7,47 @@
  */
 package com.aptana.parsing;
 
+import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.content.IContentType;
 import org.eclipse.core.runtime.content.IContentTypeManager;
 
+import com.aptana.core.logging.IdeLog;
 import com.aptana.core.util.CollectionsUtil;
 import com.aptana.core.util.EclipseUtil;
 import com.aptana.core.util.IConfigurationElementProcessor;
 import com.aptana.internal.parsing.ParserPool;
 
-public class ParserPoolFactory implements ParsingEngine.IParserPoolProvider
+public class ParserPoolFactory implements ParsingEngine.IParserPoolProvider,
+		ParsingEngine.IParseResultSerializerProvider
 {
 	// extension point constants
 	private static final String PARSER_ID = "parser"; //$NON-NLS-1$
 	private static final String ELEMENT_PARSER = "parser"; //$NON-NLS-1$
 	private static final String ATTR_CONTENT_TYPE = "content-type"; //$NON-NLS-1$
+	private static final String ATTR_SERIALIZER = "serializer"; //$NON-NLS-1$
+
+	/**
+	 * The directory (in the plugin state location) where parse results are stored across sessions.
+	 */
+	private static final String PARSE_RESULTS_DIRECTORY = "parse-results"; //$NON-NLS-1$
+
+	/**
+	 * The maximum size of the stored parse results (64MB).
+	 */
+	private static final long PARSE_RESULTS_MAX_SIZE = 64L * 1024 * 1024;
 
 	private static ParserPoolFactory INSTANCE;
 	private Map<String, IConfigurationElement> parsers;
 	private Map<String, IParserPool> pools;
+	private Map<String, IParseResultSerializer> serializers;
 	private final ParsingEngine fParsingEngine;
 
 	/**
@@ -89,6 +105,13 @@ public class ParserPoolFactory implements ParsingEngine.IParserPoolProvider
 	private ParserPoolFactory()
 	{
 		fParsingEngine = new ParsingEngine(this);
+
+		ParsingPlugin plugin = ParsingPlugin.getDefault();
+		if (plugin != null)
+		{
+			File directory = plugin.getStateLocation().append(PARSE_RESULTS_DIRECTORY).toFile();
+			fParsingEngine.setParseResultStore(new ParseResultStore(directory, PARSE_RESULTS_MAX_SIZE), this);
+		}
 	}
 
 	/**
@@ -110,6 +133,12 @@ public class ParserPoolFactory implements ParsingEngine.IParserPoolProvider
 			pools = null;
 		}
 
+		if (serializers != null)
+		{
+			serializers.clear();
+			serializers = null;
+		}
+
 		if (parsers != null)
 		{
 			parsers.clear();
@@ -173,6 +202,64 @@ public class ParserPoolFactory implements ParsingEngine.IParserPoolProvider
 		return result;
 	}
 
+	/**
+	 * Returns the serializer contributed along with the parser used for the given content type (see
+	 * {@link #getParserPool(String)}), if any.
+	 * 
+	 * @param contentTypeId
+	 * @return
+	 */
+	public synchronized IParseResultSerializer getParseResultSerializer(String contentTypeId)
+	{
+		if (serializers == null)
+		{
+			serializers = new HashMap<String, IParseResultSerializer>();
+		}
+		if (serializers.containsKey(contentTypeId))
+		{
+			return serializers.get(contentTypeId);
+		}
+
+		IParseResultSerializer result = null;
+		IConfigurationElement parserExtension = getParserExtension(contentTypeId);
+		if (parserExtension != null && parserExtension.getAttribute(ATTR_SERIALIZER) != null)
+		{
+			try
+			{
+				result = (IParseResultSerializer) parserExtension.createExecutableExtension(ATTR_SERIALIZER);
+			}
+			catch (CoreException e)
+			{
+				IdeLog.logError(ParsingPlugin.getDefault(), e);
+			}
+		}
+		serializers.put(contentTypeId, result);
+		return result;
+	}
+
+	/**
+	 * Returns the parser extension for the given content type, working our way up the base content types.
+	 */
+	private IConfigurationElement getParserExtension(String contentTypeId)
+	{
+		if (parsers == null)
+		{
+			parsers = getParsers();
+		}
+
+		IConfigurationElement result = parsers.get(contentTypeId);
+		IContentType contentType = Platform.getContentTypeManager().getContentType(contentTypeId);
+		while (result == null && contentType != null)
+		{
+			contentType = contentType.getBaseType();
+			if (contentType != null)
+			{
+				result = parsers.get(contentType.getId());
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * parse
 	 * 
@@ -8,6 +8,10 @@
 package com.aptana.parsing;
 
 import java.text.MessageFormat;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.runtime.Assert;
 
@@ -15,6 +19,7 @@ import com.aptana.core.epl.util.ILRUCacheable;
 import com.aptana.core.epl.util.LRUCacheWithSoftPrunedValues;
 import com.aptana.core.logging.IdeLog;
 import com.aptana.core.util.StringUtil;
+import com.aptana.parsing.lexer.IRange;
 
 /**
  * This class is responsible for actually calling the parsing. It'll use the ParseState#getCacheKey() to know if an
@@ -31,6 +36,15 @@ public class ParsingEngine
 		IParserPool getParserPool(String contentTypeId);
 	}
 
+	public static interface IParseResultSerializerProvider
+	{
+		/**
+		 * @return the serializer for the results of the parser used for the given content type or null if there's none
+		 *         (in which case its results are not stored).
+		 */
+		IParseResultSerializer getParseResultSerializer(String contentTypeId);
+	}
+
 	/**
 	 * Internal class to help in the synchronization of the parsing results.
 	 */
@@ -163,6 +177,30 @@ public class ParsingEngine
 	 */
 	private final int fMinimumNumberOfCharsToEnterCache;
 
+	/**
+	 * Only results for sources with at least this number of chars are kept in the parse result store (smaller sources
+	 * are parsed faster than the result can be read back).
+	 */
+	public static final int MINIMUM_NUMBER_OF_CHARS_TO_STORE = 32 * 1024;
+
+	/**
+	 * Optional store of the parse results across sessions (null if not available).
+	 */
+	private volatile ParseResultStore fParseResultStore;
+
+	private volatile IParseResultSerializerProvider fParseResultSerializerProvider;
+
+	/**
+	 * Writes the results to the store, so that the parsing threads don't wait on serializing them (null if there's no
+	 * store).
+	 */
+	private ExecutorService fParseResultStoreExecutor;
+
+	/**
+	 * How long to wait for the pending writes to the store when disposing.
+	 */
+	private static final long STORE_SHUTDOWN_TIMEOUT = 5000;
+
 	/**
 	 * Create a cache with N 'strong' references but still keep pruned values as soft references. Cache size based on
 	 * the number of chars.
@@ -185,9 +223,82 @@ public class ParsingEngine
 				MINIMUM_NUMBER_OF_CHARS_TO_ENTER_CACHE);
 	}
 
-	public void dispose()
+	/**
+	 * Sets the store used to keep the results of parsing big sources across sessions. Before actually parsing such a
+	 * source, the result is looked up in it.
+	 * 
+	 * @param store
+	 *            the store, or null to stop using one.
+	 * @param serializerProvider
+	 *            provides the serializers for the results of the parsers.
+	 */
+	public synchronized void setParseResultStore(ParseResultStore store,
+			IParseResultSerializerProvider serializerProvider)
+	{
+		shutdownParseResultStoreExecutor();
+		if (store != null)
+		{
+			fParseResultStoreExecutor = Executors.newSingleThreadExecutor(new ThreadFactory()
+			{
+				public Thread newThread(Runnable r)
+				{
+					Thread thread = new Thread(r, "Parse result store"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			});
+		}
+		fParseResultSerializerProvider = serializerProvider;
+		fParseResultStore = store;
+	}
+
+	/**
+	 * Disposes of the engine, waiting for the results still being written to the store.
+	 */
+	public synchronized void dispose()
 	{
 		fParseCache = null;
+		fParseResultStore = null;
+		shutdownParseResultStoreExecutor();
+	}
+
+	private void shutdownParseResultStoreExecutor()
+	{
+		if (fParseResultStoreExecutor == null)
+		{
+			return;
+		}
+		fParseResultStoreExecutor.shutdown();
+		try
+		{
+			fParseResultStoreExecutor.awaitTermination(STORE_SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		fParseResultStoreExecutor = null;
+	}
+
+	/**
+	 * Writes the result to the store in the background.
+	 */
+	private synchronized void storeParseResult(final ParseResultStore store, final String contentTypeId,
+			final IParseStateCacheKey key, final String source, final IParseResultSerializer serializer,
+			final ParseResult result)
+	{
+		if (fParseResultStoreExecutor == null) // already disposed.
+		{
+			return;
+		}
+		fParseResultStoreExecutor.execute(new Runnable()
+		{
+			public void run()
+			{
+				store.put(contentTypeId, key, source, serializer, result);
+			}
+		});
 	}
 
 	/**
@@ -365,8 +476,28 @@ public class ParsingEngine
 									IDebugScopes.PARSING);
 						}
 
-						result = parser.parse(parseState);
-
+						ParseResultStore store = fParseResultStore;
+						IParseResultSerializer serializer = getParseResultSerializer(store, contentTypeId, parseState);
+						ParseResult stored = (serializer == null) ? null : store.get(contentTypeId,
+								newParseStateKey, source, serializer);
+						if (stored != null)
+						{
+							if (traceEnabled)
+							{
+								IdeLog.logTrace(plugin, MessageFormat.format(
+										"Parse result store hit for key {0}", newParseStateKey), IDebugScopes.PARSING); //$NON-NLS-1$
+							}
+							result = stored;
+						}
+						else
+						{
+							result = parser.parse(parseState);
+							// Only the saved contents of files are worth keeping (not each reconcile of an editor).
+							if (serializer != null && parseState.isSavedContents())
+							{
+								storeParseResult(store, contentTypeId, newParseStateKey, source, serializer, result);
+							}
+						}
 					}
 					finally
 					{
@@ -397,6 +528,27 @@ public class ParsingEngine
 
 	}
 
+	/**
+	 * @return the serializer to use to look up and keep the result of the given parse in the store, or null if it
+	 *         shouldn't be stored.
+	 */
+	private IParseResultSerializer getParseResultSerializer(ParseResultStore store, String contentTypeId,
+			IParseState parseState)
+	{
+		IParseResultSerializerProvider provider = fParseResultSerializerProvider;
+		if (store == null || provider == null || parseState.getSource().length() < MINIMUM_NUMBER_OF_CHARS_TO_STORE)
+		{
+			return null;
+		}
+		// Skipped ranges are not part of the cache key.
+		IRange[] skippedRanges = parseState.getSkippedRanges();
+		if (skippedRanges != null && skippedRanges.length > 0)
+		{
+			return null;
+		}
+		return provider.getParseResultSerializer(contentTypeId);
+	}
+
 	private ParseResult noCacheParse(String contentTypeId, IParseState parseState) throws Exception
 	{
 		IParserPool pool = null;
@@ -35,6 +35,11 @@ public class WorkingParseResult
 		fErrors.add(error);
 	}
 
+	public void addError(int index, IParseError error)
+	{
+		fErrors.add(index, error);
+	}
+
 	public void removeError(IParseError error)
 	{
 		fErrors.remove(error);
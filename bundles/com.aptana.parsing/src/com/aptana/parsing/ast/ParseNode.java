@@ -8,7 +8,9 @@
 package com.aptana.parsing.ast;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import com.aptana.core.util.SourcePrinter;
@@ -19,7 +21,7 @@ import com.aptana.parsing.lexer.Range;
 import beaver.spec.ast.Node;
 import beaver.spec.ast.TreeWalker;
 
-public abstract class ParseNode extends Node implements IParseNode
+public abstract class ParseNode extends Node implements IParseNode, Cloneable
 {
 	protected static final class NameNode implements INameNode
 	{
@@ -56,9 +58,19 @@ public abstract class ParseNode extends Node implements IParseNode
 	protected static final IParseNode[] NO_CHILDREN = new IParseNode[0];
 	protected static final IParseNodeAttribute[] NO_ATTRIBUTES = new IParseNodeAttribute[0];
 
+	/**
+	 * The number of children from which offset lookups binary search them instead of checking each of them.
+	 */
+	private static final int MIN_CHILDREN_TO_SEARCH = 8;
+
+	private static final byte CHILDREN_ORDER_UNKNOWN = 0;
+	private static final byte CHILDREN_SORTED = 1;
+	private static final byte CHILDREN_UNSORTED = 2;
+
 	private IParseNode[] fChildren;
 	private IParseNode fParent;
 	private int fChildrenCount;
+	private byte fChildrenOrder;
 
 	/**
 	 * ParseBaseNode
@@ -100,6 +112,7 @@ public abstract class ParseNode extends Node implements IParseNode
 			fChildren = newList;
 		}
 		fChildren[fChildrenCount++] = child;
+		fChildrenOrder = CHILDREN_ORDER_UNKNOWN;
 		if (child instanceof ParseNode)
 		{
 			((ParseNode) child).setParent(this);
@@ -116,6 +129,90 @@ public abstract class ParseNode extends Node implements IParseNode
 		setLocation(getStart() + offset, getEnd() + offset);
 	}
 
+	/**
+	 * Returns a deep copy of this node: its descendants and the other nodes it refers to are copied too, so the copy
+	 * can be attached to another tree or moved without affecting this one. The copy has no parent.
+	 * 
+	 * @return the copy
+	 */
+	public ParseNode copy()
+	{
+		Map<IParseNode, ParseNode> copies = new IdentityHashMap<IParseNode, ParseNode>();
+		ParseNode result = copy(copies);
+		// the parents point to the original nodes until now
+		for (ParseNode copy : copies.values())
+		{
+			copy.fParent = copies.get(copy.fParent);
+		}
+		return result;
+	}
+
+	/**
+	 * Copies this node, unless it was already copied. The parent of the copy is the one of this node.
+	 * 
+	 * @param copies
+	 *            the copies made so far, by original node
+	 */
+	private ParseNode copy(Map<IParseNode, ParseNode> copies)
+	{
+		ParseNode copy = copies.get(this);
+		if (copy != null)
+		{
+			return copy;
+		}
+		try
+		{
+			copy = (ParseNode) clone();
+		}
+		catch (CloneNotSupportedException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		copies.put(this, copy);
+		copy.fChildren = NO_CHILDREN;
+		if (fChildrenCount > 0)
+		{
+			IParseNode[] children = new IParseNode[fChildrenCount];
+			System.arraycopy(fChildren, 0, children, 0, fChildrenCount);
+			copy.fChildren = copyNodes(children, copies);
+		}
+		copy.copyReferences(copies);
+		return copy;
+	}
+
+	/**
+	 * Called on a new copy (see {@link #copy()}) for it to copy the nodes it refers to other than its children, which
+	 * are already copied.
+	 * 
+	 * @param copies
+	 *            the copies made so far, by original node; to be given to {@link #copyNodes(IParseNode[], Map)}
+	 */
+	protected void copyReferences(Map<IParseNode, ParseNode> copies)
+	{
+	}
+
+	/**
+	 * Returns an array with the copies of the given nodes, for {@link #copyReferences(Map)}.
+	 */
+	@SuppressWarnings("unchecked")
+	protected static <T extends IParseNode> T[] copyNodes(T[] nodes, Map<IParseNode, ParseNode> copies)
+	{
+		if (nodes == null)
+		{
+			return null;
+		}
+		T[] result = nodes.clone();
+		for (int i = 0; i < nodes.length; i++)
+		{
+			if (nodes[i] instanceof ParseNode)
+			{
+				// a copy has the class of the original
+				result[i] = (T) ((ParseNode) nodes[i]).copy(copies);
+			}
+		}
+		return result;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see com.aptana.parsing.lexer.IRange#contains(int)
@@ -422,9 +519,19 @@ public abstract class ParseNode extends Node implements IParseNode
 			// default to this node being the match
 			result = this;
 
-			// but check the children in case one of them contains the offset
-			for (IParseNode child : this)
+			// but check the children in case one of them contains the offset. When they're sorted by offset, only the
+			// ones from the first one which doesn't end before the offset up to the last one starting before it can
+			boolean sorted = hasSortedChildren();
+			int i = sorted ? getFirstChildEndingAtOrAfter(offset) : 0;
+
+			for (; i < fChildrenCount; i++)
 			{
+				IParseNode child = fChildren[i];
+
+				if (sorted && child.getStartingOffset() > offset)
+				{
+					break;
+				}
 				if (child.contains(offset))
 				{
 					IParseNode node = child.getNodeAtOffset(offset);
@@ -441,6 +548,70 @@ public abstract class ParseNode extends Node implements IParseNode
 		return result;
 	}
 
+	/**
+	 * Returns whether there are enough children to binary search them and they are sorted by both their starting and
+	 * ending offsets (which isn't the case for all ASTs, e.g. when some nodes have no location).
+	 * 
+	 * @return
+	 */
+	private boolean hasSortedChildren()
+	{
+		if (fChildrenCount < MIN_CHILDREN_TO_SEARCH)
+		{
+			return false;
+		}
+		if (fChildrenOrder == CHILDREN_ORDER_UNKNOWN)
+		{
+			byte order = CHILDREN_SORTED;
+
+			for (int i = 1; i < fChildrenCount; i++)
+			{
+				IParseNode previous = fChildren[i - 1];
+				IParseNode child = fChildren[i];
+
+				if (previous.getStartingOffset() > child.getStartingOffset()
+						|| previous.getEndingOffset() > child.getEndingOffset())
+				{
+					order = CHILDREN_UNSORTED;
+					break;
+				}
+			}
+
+			fChildrenOrder = order;
+		}
+
+		return fChildrenOrder == CHILDREN_SORTED;
+	}
+
+	/**
+	 * Returns the index of the first child which doesn't end before the given offset (or the number of children if
+	 * they all do). Children must be sorted.
+	 * 
+	 * @param offset
+	 * @return
+	 */
+	private int getFirstChildEndingAtOrAfter(int offset)
+	{
+		int low = 0;
+		int high = fChildrenCount;
+
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+
+			if (fChildren[middle].getEndingOffset() < offset)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see com.aptana.parsing.ast.IParseNode#getParent()
@@ -637,6 +808,7 @@ public abstract class ParseNode extends Node implements IParseNode
 			throw new IndexOutOfBoundsException(index + " >= " + fChildrenCount); //$NON-NLS-1$
 		}
 		fChildren[index] = child;
+		fChildrenOrder = CHILDREN_ORDER_UNKNOWN;
 		if (child instanceof ParseNode)
 		{
 			((ParseNode) child).setParent(this);
@@ -652,6 +824,7 @@ public abstract class ParseNode extends Node implements IParseNode
 	{
 		fChildren = children;
 		fChildrenCount = children.length;
+		fChildrenOrder = CHILDREN_ORDER_UNKNOWN;
 		for (IParseNode child : children)
 		{
 			((ParseNode) child).setParent(this);
@@ -9,6 +9,7 @@ package com.aptana.parsing.ast;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import beaver.Symbol;
 
@@ -96,4 +97,26 @@ public abstract class ParseRootNode extends ParseNode implements IParseRootNode
 	{
 		fComments = comments;
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.parsing.ast.ParseNode#copyReferences(java.util.Map)
+	 */
+	@Override
+	protected void copyReferences(Map<IParseNode, ParseNode> copies)
+	{
+		super.copyReferences(copies);
+		fComments = copyNodes(fComments, copies);
+	}
+
+	/**
+	 * The parser sets the node type of the root when it's done with it; this is used to set it on roots not created by
+	 * the parser (i.e.: read back by an {@link com.aptana.parsing.IParseResultSerializer}).
+	 * 
+	 * @param nodeType
+	 */
+	public void setNodeType(short nodeType)
+	{
+		this.id = nodeType;
+	}
 }
@@ -49,6 +49,11 @@ public abstract class InstallerConfigurationProcessor extends AbstractConfigurat
 	protected static final String NAME_ATTRIBUTE = "name"; //$NON-NLS-1$
 	protected static final String INSTALL_DIR_ATTRIBUTE = "install_dir"; //$NON-NLS-1$
 
+	/**
+	 * How many of the installer files are downloaded at a time.
+	 */
+	private static final int MAX_CONCURRENT_DOWNLOADS = 3;
+
 	protected List<IPath> downloadedPaths;
 
 	/*
@@ -88,6 +93,7 @@ public abstract class InstallerConfigurationProcessor extends AbstractConfigurat
 		}
 		downloadedPaths = null;
 		DownloadManager downloadManager = new DownloadManager();
+		downloadManager.setMaxConcurrentDownloads(MAX_CONCURRENT_DOWNLOADS);
 		List<URI> urlsList = new ArrayList<URI>(URLs.length);
 		for (int i = 0; i < URLs.length; i++)
 		{
@@ -60,6 +60,7 @@ public class CommandBlockRunner extends AbstractCommandRunner
 	private IRubyObject _oldWriter;
 	private IRubyObject _oldErrorWriter;
 	private IRubyObject _oldConsole;
+	private IRubyObject _returnObject;
 
 	/**
 	 * ExecuteScriptJob
@@ -243,6 +244,8 @@ public class CommandBlockRunner extends AbstractCommandRunner
 			// process return result, if any
 			if (result != null && result.isNil() == false)
 			{
+				this._returnObject = result;
+
 				// to_s for array and hash doesn't do what we want/many people expect.
 				// Inspect spits out values in a way that can then be eval'd back as ruby code.
 				if ((result instanceof RubyArray) || (result instanceof RubyHash))
@@ -328,6 +331,7 @@ public class CommandBlockRunner extends AbstractCommandRunner
 		CommandResult result = new CommandResult(this.getCommand(), context);
 
 		result.setExecutedSuccessfully(this.getExecutedSuccessfully());
+		result.setReturnObject(this._returnObject);
 
 		if (resultText != null)
 		{
@@ -9,6 +9,8 @@ package com.aptana.scripting.model;
 
 import java.io.OutputStream;
 
+import org.jruby.runtime.builtin.IRubyObject;
+
 public class CommandResult
 {
 	private String _outputString;
@@ -18,6 +20,7 @@ public class CommandResult
 	private InputType _inputType;
 	private OutputType _outputType;
 	private int _returnValue;
+	private IRubyObject _returnObject;
 	private boolean _executedSuccessfully;
 	private CommandContext _context;
 	private CommandElement _command;
@@ -139,6 +142,17 @@ public class CommandResult
 		return this._returnValue;
 	}
 
+	/**
+	 * Returns the object returned by the block of a block command (null for other commands, or if the block returned
+	 * nil), so that callers expecting structured results don't have to evaluate its inspected output string again.
+	 * 
+	 * @return
+	 */
+	public IRubyObject getReturnObject()
+	{
+		return this._returnObject;
+	}
+
 	/**
 	 * setExecutedSuccessfully
 	 * 
@@ -189,6 +203,16 @@ public class CommandResult
 		this._errorString = err;
 	}
 	
+	/**
+	 * setReturnObject
+	 * 
+	 * @param object
+	 */
+	void setReturnObject(IRubyObject object)
+	{
+		this._returnObject = object;
+	}
+
 	/**
 	 * setReturnValue
 	 * 
@@ -0,0 +1,272 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.ide.syncing.core.old;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.core.filesystem.IFileInfo;
+import org.eclipse.core.filesystem.IFileStore;
+
+import com.aptana.core.logging.IdeLog;
+import com.aptana.core.util.IOUtil;
+import com.aptana.core.util.StringUtil;
+import com.aptana.ide.syncing.core.IDebugScopes;
+import com.aptana.ide.syncing.core.SyncingPlugin;
+
+/**
+ * Remembers the state of every file pair the last time both sides were known to be identical: the size and
+ * modification time seen on the client and on the server, and the CRC of the shared content. As long as neither side's
+ * metadata changed since then, the files can be considered to match without reading (i.e. downloading) them again;
+ * when only one side changed, just that side needs to be read and compared against the recorded CRC.
+ * <p>
+ * There is one manifest per client/server root pair, persisted in the plugin's state location.
+ */
+public class SyncManifest
+{
+
+	private static final String MANIFESTS_DIR = "manifests"; //$NON-NLS-1$
+	private static final String EXTENSION = ".manifest"; //$NON-NLS-1$
+	private static final String VERSION = "1"; //$NON-NLS-1$
+	private static final char SEPARATOR = '\t';
+
+	/**
+	 * The recorded state of a single file pair.
+	 */
+	public static class Entry
+	{
+		private final long clientSize;
+		private final long clientModified;
+		private final long serverSize;
+		private final long serverModified;
+		private final long crc;
+
+		Entry(long clientSize, long clientModified, long serverSize, long serverModified, long crc)
+		{
+			this.clientSize = clientSize;
+			this.clientModified = clientModified;
+			this.serverSize = serverSize;
+			this.serverModified = serverModified;
+			this.crc = crc;
+		}
+
+		public boolean matchesClient(IFileInfo info)
+		{
+			return info != null && info.getLength() == clientSize && info.getLastModified() == clientModified;
+		}
+
+		public boolean matchesServer(IFileInfo info)
+		{
+			return info != null && info.getLength() == serverSize && info.getLastModified() == serverModified;
+		}
+
+		public long getCRC()
+		{
+			return crc;
+		}
+	}
+
+	private final File file;
+	private final String key;
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+	private boolean dirty;
+
+	/**
+	 * Creates a manifest for the given key, backed by the given file. A <code>null</code> file keeps the manifest in
+	 * memory only.
+	 */
+	public SyncManifest(File file, String key)
+	{
+		this.file = file;
+		this.key = key;
+		load();
+	}
+
+	/**
+	 * Returns the manifest for syncing the given client root with the given server root.
+	 */
+	public static SyncManifest getManifest(IFileStore clientRoot, IFileStore serverRoot)
+	{
+		String key = clientRoot.toURI().toString() + '|' + serverRoot.toURI().toString();
+		File file = null;
+		SyncingPlugin plugin = SyncingPlugin.getDefault();
+		if (plugin != null)
+		{
+			File dir = plugin.getStateLocation().append(MANIFESTS_DIR).toFile();
+			file = new File(dir, StringUtil.md5(key) + EXTENSION);
+		}
+		return new SyncManifest(file, key);
+	}
+
+	public synchronized Entry get(String relativePath)
+	{
+		return entries.get(relativePath);
+	}
+
+	/**
+	 * Records that the client and server file at the given path are identical, with the given content CRC.
+	 */
+	public synchronized void record(String relativePath, IFileInfo clientInfo, IFileInfo serverInfo, long crc)
+	{
+		entries.put(relativePath, new Entry(clientInfo.getLength(), clientInfo.getLastModified(),
+				serverInfo.getLength(), serverInfo.getLastModified(), crc));
+		dirty = true;
+	}
+
+	public synchronized void remove(String relativePath)
+	{
+		if (entries.remove(relativePath) != null)
+		{
+			dirty = true;
+		}
+	}
+
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Writes the manifest back to disk if anything changed since it was loaded or last saved.
+	 */
+	public synchronized void save()
+	{
+		if (!dirty || file == null)
+		{
+			return;
+		}
+		File dir = file.getParentFile();
+		if (!dir.isDirectory() && !dir.mkdirs())
+		{
+			return;
+		}
+		File temp = new File(dir, file.getName() + ".tmp"); //$NON-NLS-1$
+		Writer writer = null;
+		try
+		{
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), IOUtil.UTF_8));
+			writer.write(VERSION);
+			writer.write(SEPARATOR);
+			writer.write(key);
+			writer.write('\n');
+			for (Map.Entry<String, Entry> mapEntry : entries.entrySet())
+			{
+				Entry entry = mapEntry.getValue();
+				writer.write(Long.toString(entry.clientSize));
+				writer.write(SEPARATOR);
+				writer.write(Long.toString(entry.clientModified));
+				writer.write(SEPARATOR);
+				writer.write(Long.toString(entry.serverSize));
+				writer.write(SEPARATOR);
+				writer.write(Long.toString(entry.serverModified));
+				writer.write(SEPARATOR);
+				writer.write(Long.toString(entry.crc));
+				writer.write(SEPARATOR);
+				writer.write(mapEntry.getKey());
+				writer.write('\n');
+			}
+			writer.close();
+			writer = null;
+			if (file.exists() && !file.delete() || !temp.renameTo(file))
+			{
+				IdeLog.logWarning(SyncingPlugin.getDefault(),
+						MessageFormat.format("Unable to write sync manifest {0}", file)); //$NON-NLS-1$
+				return;
+			}
+			dirty = false;
+		}
+		catch (IOException e)
+		{
+			IdeLog.logWarning(SyncingPlugin.getDefault(), e);
+		}
+		finally
+		{
+			if (writer != null)
+			{
+				try
+				{
+					writer.close();
+				}
+				catch (IOException e)
+				{
+					// ignore
+				}
+				temp.delete();
+			}
+		}
+	}
+
+	private void load()
+	{
+		if (file == null || !file.isFile())
+		{
+			return;
+		}
+		BufferedReader reader = null;
+		try
+		{
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), IOUtil.UTF_8));
+			String header = reader.readLine();
+			if (header == null || !header.equals(VERSION + SEPARATOR + key))
+			{
+				// a different format or (unlikely) a hash collision; start over
+				return;
+			}
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				String[] parts = line.split(String.valueOf(SEPARATOR), 6);
+				if (parts.length != 6)
+				{
+					continue;
+				}
+				entries.put(parts[5], new Entry(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long
+						.parseLong(parts[2]), Long.parseLong(parts[3]), Long.parseLong(parts[4])));
+			}
+		}
+		catch (NumberFormatException e)
+		{
+			// corrupt, ignore what's left
+			IdeLog.logWarning(SyncingPlugin.getDefault(), e);
+		}
+		catch (IOException e)
+		{
+			IdeLog.logWarning(SyncingPlugin.getDefault(), e);
+		}
+		finally
+		{
+			if (reader != null)
+			{
+				try
+				{
+					reader.close();
+				}
+				catch (IOException e)
+				{
+					// ignore
+				}
+			}
+		}
+		if (IdeLog.isTraceEnabled(SyncingPlugin.getDefault(), IDebugScopes.DEBUG))
+		{
+			IdeLog.logTrace(SyncingPlugin.getDefault(),
+					MessageFormat.format("Loaded {0} entries from sync manifest {1}", entries.size(), file), //$NON-NLS-1$
+					IDebugScopes.DEBUG);
+		}
+	}
+}
@@ -13,11 +13,18 @@ import java.text.DateFormat;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.CRC32;
 
 import org.eclipse.core.filesystem.EFS;
@@ -26,12 +33,16 @@ import org.eclipse.core.filesystem.IFileStore;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.QualifiedName;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 
 import com.aptana.core.io.efs.EFSUtils;
 import com.aptana.core.io.efs.SyncUtils;
+import com.aptana.core.io.vfs.ConnectionFileManagerPool;
+import com.aptana.core.io.vfs.IConnectionFileManager;
 import com.aptana.core.io.vfs.IExtendedFileInfo;
 import com.aptana.core.io.vfs.IExtendedFileStore;
 import com.aptana.core.io.vfs.Policy;
@@ -55,6 +66,16 @@ public class Synchronizer implements ILoggable
 
 	private static final int DEFAULT_TIME_TOLERANCE = 1000;
 
+	/**
+	 * The number of files transferred at a time by default.
+	 */
+	public static final int DEFAULT_CONCURRENT_TRANSFERS = 4;
+
+	/**
+	 * How often the progress of concurrent transfers is reported, in milliseconds.
+	 */
+	private static final long PROGRESS_INTERVAL = 200;
+
 	private boolean _useCRC;
 	private boolean _includeCloakedFiles = false;
 	private long _timeTolerance;
@@ -74,6 +95,10 @@ public class Synchronizer implements ILoggable
 	private IFileStore _serverFileRoot;
 	private ISyncEventHandler _eventHandler;
 	private ILogger logger;
+	private SyncManifest _manifest;
+	private int _maxConcurrentTransfers = DEFAULT_CONCURRENT_TRANSFERS;
+	private final Object _transferLock = new Object();
+	private final Object _eventLock = new Object();
 
 	private List<IFileStore> _newFilesDownloaded;
 	private List<IFileStore> _newFilesUploaded;
@@ -329,6 +354,7 @@ public class Synchronizer implements ILoggable
 		setServerFileManager(serverPoint);
 		setClientFileRoot(client);
 		setServerFileRoot(server);
+		setManifest(SyncManifest.getManifest(client, server));
 
 		IFileStore[] clientFiles = new IFileStore[0];
 		IFileStore[] serverFiles = new IFileStore[0];
@@ -511,7 +537,7 @@ public class Synchronizer implements ILoggable
 			{
 				if (this._useCRC && !serverFileInfo.isDirectory())
 				{
-					item.setSyncState(this.compareCRC(item));
+					item.setSyncState(this.compareCRC(item, clientFileInfo, serverFileInfo));
 				}
 				else
 				{
@@ -549,6 +575,7 @@ public class Synchronizer implements ILoggable
 		}
 		// long end = System.currentTimeMillis();
 		// System.out.println(end - start);
+		saveManifest();
 
 		// return results
 		return syncItems;
@@ -616,15 +643,94 @@ public class Synchronizer implements ILoggable
 		return this._useCRC;
 	}
 
+	/**
+	 * Returns the maximum number of files transferred at a time.
+	 * 
+	 * @return the maximum number of concurrent transfers
+	 */
+	public int getMaxConcurrentTransfers()
+	{
+		return this._maxConcurrentTransfers;
+	}
+
+	/**
+	 * Sets the maximum number of files transferred at a time. Transfers only run concurrently when each side is either
+	 * local or able to open additional connections; otherwise they run one after the other.
+	 * 
+	 * @param maxConcurrentTransfers
+	 *            the maximum number of concurrent transfers; 1 to transfer one file at a time
+	 */
+	public void setMaxConcurrentTransfers(int maxConcurrentTransfers)
+	{
+		this._maxConcurrentTransfers = Math.max(1, maxConcurrentTransfers);
+	}
+
+	/**
+	 * Returns the manifest recording the state of the last sync, or <code>null</code> if none is used.
+	 * 
+	 * @return the sync manifest
+	 */
+	public SyncManifest getManifest()
+	{
+		return this._manifest;
+	}
+
+	/**
+	 * Sets the manifest used to skip comparing the contents of files that haven't changed since the last sync.
+	 * {@link #getSyncItems(IConnectionPoint, IConnectionPoint, IFileStore, IFileStore, IProgressMonitor)} picks the
+	 * manifest for the given roots automatically.
+	 * 
+	 * @param manifest
+	 *            the manifest to use, or <code>null</code> to always compare contents
+	 */
+	public void setManifest(SyncManifest manifest)
+	{
+		this._manifest = manifest;
+	}
+
 	/**
 	 * compareCRC
 	 * 
 	 * @param item
+	 * @param clientFileInfo
+	 * @param serverFileInfo
 	 * @return SyncState
 	 * @throws CoreException
 	 */
-	private int compareCRC(VirtualFileSyncPair item) throws CoreException
+	private int compareCRC(VirtualFileSyncPair item, IFileInfo clientFileInfo, IFileInfo serverFileInfo)
+			throws CoreException
 	{
+		String relativePath = item.getRelativePath();
+		SyncManifest.Entry entry = (this._manifest == null) ? null : this._manifest.get(relativePath);
+		if (entry != null)
+		{
+			boolean clientUnchanged = entry.matchesClient(clientFileInfo);
+			boolean serverUnchanged = entry.matchesServer(serverFileInfo);
+			if (clientUnchanged && serverUnchanged)
+			{
+				// neither side changed since they were last known to be identical
+				logDebug(Messages.Synchronizer_Items_Identical);
+				return SyncState.ItemsMatch;
+			}
+			if (clientUnchanged || serverUnchanged)
+			{
+				// only need to read the side that changed
+				InputStream stream = serverUnchanged ? item.getSourceInputStream() : item
+						.getDestinationInputStream();
+				if (stream != null)
+				{
+					long crc = getCRC(stream);
+					closeStream(item, stream);
+					if (crc != entry.getCRC())
+					{
+						return SyncState.CRCMismatch;
+					}
+					this._manifest.record(relativePath, clientFileInfo, serverFileInfo, crc);
+					return SyncState.ItemsMatch;
+				}
+			}
+		}
+
 		InputStream clientStream = item.getSourceInputStream();
 		InputStream serverStream = item.getDestinationInputStream();
 		int result;
@@ -636,18 +742,14 @@ public class Synchronizer implements ILoggable
 			long serverCRC = getCRC(serverStream);
 
 			// close streams
-			try
-			{
-				clientStream.close();
-				serverStream.close();
-			}
-			catch (IOException e)
-			{
-				IdeLog.logError(SyncingPlugin.getDefault(),
-						MessageFormat.format(Messages.Synchronizer_ErrorClosingStreams, item.getRelativePath()), e);
-			}
+			closeStream(item, clientStream);
+			closeStream(item, serverStream);
 
 			result = (clientCRC == serverCRC) ? SyncState.ItemsMatch : SyncState.CRCMismatch;
+			if (result == SyncState.ItemsMatch && this._manifest != null)
+			{
+				this._manifest.record(relativePath, clientFileInfo, serverFileInfo, clientCRC);
+			}
 		}
 		else
 		{
@@ -659,6 +761,19 @@ public class Synchronizer implements ILoggable
 		return result;
 	}
 
+	private void closeStream(VirtualFileSyncPair item, InputStream stream)
+	{
+		try
+		{
+			stream.close();
+		}
+		catch (IOException e)
+		{
+			IdeLog.logError(SyncingPlugin.getDefault(),
+					MessageFormat.format(Messages.Synchronizer_ErrorClosingStreams, item.getRelativePath()), e);
+		}
+	}
+
 	/**
 	 * getCRC
 	 * 
@@ -688,6 +803,58 @@ public class Synchronizer implements ILoggable
 		return crc.getValue();
 	}
 
+	/**
+	 * Records in the manifest that the given client and server file are now identical, after one has been copied over
+	 * the other. The CRC is taken from the client side, which is the cheaper one to read.
+	 * 
+	 * @param item
+	 * @param clientFile
+	 * @param serverFile
+	 */
+	private void updateManifest(VirtualFileSyncPair item, IFileStore clientFile, IFileStore serverFile)
+	{
+		if (this._manifest == null)
+		{
+			return;
+		}
+		String relativePath = item.getRelativePath();
+		try
+		{
+			IFileInfo clientFileInfo = clientFile.fetchInfo(IExtendedFileStore.DETAILED, null);
+			IFileInfo serverFileInfo = serverFile.fetchInfo(IExtendedFileStore.DETAILED, null);
+			if (!clientFileInfo.exists() || !serverFileInfo.exists())
+			{
+				this._manifest.remove(relativePath);
+				return;
+			}
+			InputStream stream = clientFile.openInputStream(EFS.NONE, null);
+			long crc = getCRC(stream);
+			closeStream(item, stream);
+			this._manifest.record(relativePath, clientFileInfo, serverFileInfo, crc);
+		}
+		catch (CoreException e)
+		{
+			this._manifest.remove(relativePath);
+			IdeLog.logWarning(SyncingPlugin.getDefault(), e);
+		}
+	}
+
+	private void removeFromManifest(VirtualFileSyncPair item)
+	{
+		if (this._manifest != null)
+		{
+			this._manifest.remove(item.getRelativePath());
+		}
+	}
+
+	private void saveManifest()
+	{
+		if (this._manifest != null)
+		{
+			this._manifest.save();
+		}
+	}
+
 	// public void cancelAllOperations()
 	// {
 	// if (this._clientFileManager != null)
@@ -756,6 +923,8 @@ public class Synchronizer implements ILoggable
 					fileList.length);
 			Policy.checkCanceled(subMonitor);
 
+			List<Transfer> transfers = new ArrayList<Transfer>();
+
 			FILE_LOOP: for (int i = 0; i < fileList.length; i++)
 			{
 				final VirtualFileSyncPair item = fileList[i];
@@ -790,6 +959,7 @@ public class Synchronizer implements ILoggable
 								// Need to query first because deletion makes isDirectory always return false
 								boolean wasDirectory = clientFileInfo.isDirectory();
 								clientFile.delete(EFS.NONE, null);
+								removeFromManifest(item);
 								if (wasDirectory)
 								{
 									this._clientDirectoryDeletedCount++;
@@ -825,40 +995,17 @@ public class Synchronizer implements ILoggable
 							}
 							else
 							{
-								logDownloading(serverFile);
-								try
-								{
-									SyncUtils
-											.copy(serverFile, serverFileInfo, targetClientFile, EFS.NONE, childMonitor);
-									Synchronizer.this._serverFileTransferedCount++;
-									_newFilesDownloaded.add(targetClientFile);
-									// update permissions for the newly created file
-									if (!exists)
-									{
-										updatePermissions(serverFile, targetClientFile, true,
-												PermissionDirection.DOWNLOAD, childMonitor);
-									}
-									logSuccess();
-									syncDone(item, childMonitor);
-								}
-								catch (CoreException e)
-								{
-									logError(e);
-									if (!syncError(item, e, childMonitor))
-									{
-										result = false;
-										break FILE_LOOP;
-									}
-								}
+								transfers.add(new Transfer(item, serverFile, serverFileInfo, targetClientFile,
+										false, true, !exists));
 							}
 							break;
 
 						case SyncState.ServerItemIsNewer:
 						case SyncState.CRCMismatch:
 							// exists on both sides, but the server item is newer
-							logDownloading(serverFile);
 							if (serverFileInfo.isDirectory())
 							{
+								logDownloading(serverFile);
 								try
 								{
 									EFSUtils.setModificationTime(serverFileInfo.getLastModified(), clientFile);
@@ -873,22 +1020,8 @@ public class Synchronizer implements ILoggable
 							}
 							else
 							{
-								try
-								{
-									SyncUtils.copy(serverFile, serverFileInfo, clientFile, EFS.NONE, childMonitor);
-									Synchronizer.this._serverFileTransferedCount++;
-									logSuccess();
-									syncDone(item, childMonitor);
-								}
-								catch (CoreException e)
-								{
-									logError(e);
-									if (!syncError(item, e, childMonitor))
-									{
-										result = false;
-										break FILE_LOOP;
-									}
-								}
+								transfers.add(new Transfer(item, serverFile, serverFileInfo, clientFile,
+										false, false, false));
 							}
 							break;
 
@@ -909,10 +1042,14 @@ public class Synchronizer implements ILoggable
 				}
 			}
 
+			// copy the files last, once all directories exist
+			result = runTransfers(transfers, subMonitor) && result;
+
 			return result;
 		}
 		finally
 		{
+			saveManifest();
 			FileWatcher.resumeNotify();
 		}
 	}
@@ -983,6 +1120,8 @@ public class Synchronizer implements ILoggable
 			SubMonitor subMonitor = SubMonitor.convert(monitor, Messages.Synchronizer_Synchronizing, fileList.length);
 			Policy.checkCanceled(subMonitor);
 
+			List<Transfer> transfers = new ArrayList<Transfer>();
+
 			// process all items in our list
 			FILE_LOOP: for (int i = 0; i < fileList.length; i++)
 			{
@@ -1013,33 +1152,17 @@ public class Synchronizer implements ILoggable
 					{
 						case SyncState.ClientItemIsNewer:
 							// item exists on both ends, but the client one is newer
-							logUploading(serverFile);
 							if (clientFileInfo.isDirectory())
 							{
+								logUploading(serverFile);
 								EFSUtils.setModificationTime(clientFileInfo.getLastModified(), serverFile);
 								logSuccess();
 								syncDone(item, childMonitor);
 							}
 							else
 							{
-								try
-								{
-									SyncUtils.copy(clientFile, clientFileInfo, serverFile, EFS.NONE, childMonitor);
-									Synchronizer.this._clientFileTransferedCount++;
-									logSuccess();
-									syncDone(item, childMonitor);
-								}
-								catch (CoreException e)
-								{
-									logError(e);
-
-									if (!syncError(item, e, childMonitor))
-									{
-										result = false;
-										break FILE_LOOP;
-									}
-								}
-
+								transfers.add(new Transfer(item, clientFile, clientFileInfo, serverFile,
+										true, false, false));
 							}
 							break;
 
@@ -1051,6 +1174,7 @@ public class Synchronizer implements ILoggable
 								boolean wasDirectory = clientFileInfo.isDirectory();
 								// deletes the item
 								clientFile.delete(EFS.NONE, null);
+								removeFromManifest(item);
 								if (wasDirectory)
 								{
 									this._clientDirectoryDeletedCount++;
@@ -1087,41 +1211,17 @@ public class Synchronizer implements ILoggable
 								}
 								else
 								{
-									logUploading(clientFile);
-									try
-									{
-										SyncUtils.copy(clientFile, clientFileInfo, targetServerFile, EFS.NONE,
-												childMonitor);
-										Synchronizer.this._clientFileTransferedCount++;
-										_newFilesUploaded.add(targetServerFile);
-										// update permissions for the newly created file
-										if (!exists)
-										{
-											updatePermissions(clientFile, targetServerFile, true,
-													PermissionDirection.UPLOAD, childMonitor);
-										}
-										logSuccess();
-										syncDone(item, childMonitor);
-									}
-									catch (CoreException e)
-									{
-										logError(e);
-
-										if (!syncError(item, e, childMonitor))
-										{
-											result = false;
-											break FILE_LOOP;
-										}
-									}
+									transfers.add(new Transfer(item, clientFile, clientFileInfo, targetServerFile,
+											true, true, !exists));
 								}
 							}
 							break;
 
 						case SyncState.ServerItemIsNewer:
 							// item exists on both ends, but the server one is newer
-							logDownloading(clientFile);
 							if (serverFileInfo.isDirectory())
 							{
+								logDownloading(clientFile);
 								// just needs to set the modification time for directory
 								EFSUtils.setModificationTime(serverFileInfo.getLastModified(), clientFile);
 
@@ -1130,24 +1230,8 @@ public class Synchronizer implements ILoggable
 							}
 							else
 							{
-								try
-								{
-									SyncUtils.copy(serverFile, serverFileInfo, clientFile, EFS.NONE, childMonitor);
-									Synchronizer.this._serverFileTransferedCount++;
-									logSuccess();
-									syncDone(item, childMonitor);
-								}
-								catch (CoreException e)
-								{
-									logError(e);
-
-									if (!syncError(item, e, childMonitor))
-									{
-										result = false;
-										break FILE_LOOP;
-									}
-								}
-
+								transfers.add(new Transfer(item, serverFile, serverFileInfo, clientFile,
+										false, false, false));
 							}
 							break;
 
@@ -1159,6 +1243,7 @@ public class Synchronizer implements ILoggable
 								boolean wasDirectory = serverFileInfo.isDirectory();
 								// deletes the item
 								serverFile.delete(EFS.NONE, null); // server.deleteFile(serverFile);
+								removeFromManifest(item);
 								if (wasDirectory)
 								{
 									this._serverDirectoryDeletedCount++;
@@ -1195,33 +1280,8 @@ public class Synchronizer implements ILoggable
 								}
 								else
 								{
-									logDownloading(targetClientFile);
-
-									try
-									{
-										SyncUtils.copy(serverFile, serverFileInfo, targetClientFile, EFS.NONE,
-												childMonitor);
-										Synchronizer.this._serverFileTransferedCount++;
-										_newFilesDownloaded.add(targetClientFile);
-										// update permissions for the newly created file
-										if (!exists)
-										{
-											updatePermissions(serverFile, targetClientFile, true,
-													PermissionDirection.DOWNLOAD, childMonitor);
-										}
-										logSuccess();
-										syncDone(item, childMonitor);
-									}
-									catch (CoreException e)
-									{
-										logError(e);
-
-										if (!syncError(item, e, childMonitor))
-										{
-											result = false;
-											break FILE_LOOP;
-										}
-									}
+									transfers.add(new Transfer(item, serverFile, serverFileInfo, targetClientFile,
+											false, true, !exists));
 								}
 							}
 							break;
@@ -1258,10 +1318,14 @@ public class Synchronizer implements ILoggable
 				}
 			}
 
+			// copy the files last, once all directories exist
+			result = runTransfers(transfers, subMonitor) && result;
+
 			return result;
 		}
 		finally
 		{
+			saveManifest();
 			FileWatcher.resumeNotify();
 		}
 	}
@@ -1285,6 +1349,382 @@ public class Synchronizer implements ILoggable
 		this._newFilesUploaded.clear();
 	}
 
+	/**
+	 * Copies the given files, largest first. When both sides are either local or can open extra connections (see
+	 * {@link ConnectionFileManagerPool}), up to {@link #getMaxConcurrentTransfers()} files are copied at a time;
+	 * otherwise they're copied one after the other over the existing connections.
+	 * 
+	 * @param transfers
+	 * @param monitor
+	 * @return success
+	 */
+	private boolean runTransfers(List<Transfer> transfers, SubMonitor monitor)
+	{
+		if (transfers.isEmpty())
+		{
+			return true;
+		}
+		// start with the large files so that they don't end up running on their own at the end
+		Collections.sort(transfers, new Comparator<Transfer>()
+		{
+			public int compare(Transfer t1, Transfer t2)
+			{
+				long l1 = t1.getLength();
+				long l2 = t2.getLength();
+				return (l1 > l2) ? -1 : ((l1 == l2) ? 0 : 1);
+			}
+		});
+		monitor.setWorkRemaining(transfers.size());
+		TransferQueue queue = new TransferQueue(transfers, monitor);
+
+		int threads = Math.min(_maxConcurrentTransfers, transfers.size());
+		if (threads > 1 && canTransferConcurrently(_clientFileManager, _clientFileRoot)
+				&& canTransferConcurrently(_serverFileManager, _serverFileRoot))
+		{
+			queue.runConcurrently(threads);
+		}
+		// whatever is left (or everything, if we can't run concurrently) goes over the existing connections
+		queue.run();
+		return queue.isSuccessful();
+	}
+
+	private static boolean canTransferConcurrently(IConnectionPoint connectionPoint, IFileStore root)
+	{
+		if (root == null)
+		{
+			return false;
+		}
+		// local files need no connection; remote ones need a connection per transfer
+		return EFS.SCHEME_FILE.equals(root.toURI().getScheme())
+				|| ConnectionFileManagerPool.isSupported(connectionPoint);
+	}
+
+	private static ConnectionFileManagerPool createPool(IConnectionPoint connectionPoint, IFileStore root, int size)
+	{
+		if (EFS.SCHEME_FILE.equals(root.toURI().getScheme()))
+		{
+			return null;
+		}
+		return new ConnectionFileManagerPool(connectionPoint, size);
+	}
+
+	/**
+	 * Copies a single file, updating the statistics, manifest and log and notifying the event handler.
+	 * 
+	 * @param transfer
+	 * @param source
+	 *            the source file, possibly backed by a pooled connection
+	 * @param target
+	 *            the target file, possibly backed by a pooled connection
+	 * @param monitor
+	 * @return whether to continue with the remaining transfers
+	 */
+	private boolean transfer(Transfer transfer, IFileStore source, IFileStore target, IProgressMonitor monitor)
+	{
+		VirtualFileSyncPair item = transfer.item;
+		try
+		{
+			SyncUtils.copy(source, transfer.sourceInfo, target, EFS.NONE, monitor);
+			synchronized (_transferLock)
+			{
+				if (transfer.upload)
+				{
+					this._clientFileTransferedCount++;
+					if (transfer.newFile)
+					{
+						_newFilesUploaded.add(transfer.target);
+					}
+				}
+				else
+				{
+					this._serverFileTransferedCount++;
+					if (transfer.newFile)
+					{
+						_newFilesDownloaded.add(transfer.target);
+					}
+				}
+			}
+			if (transfer.setPermissions)
+			{
+				// update permissions for the newly created file
+				updatePermissions(source, target, true, transfer.upload ? PermissionDirection.UPLOAD
+						: PermissionDirection.DOWNLOAD, monitor);
+			}
+			if (!this._useCRC)
+			{
+				// the manifest only saves computing CRCs, don't read the file again to record one
+				removeFromManifest(item);
+			}
+			else if (transfer.upload)
+			{
+				updateManifest(item, source, target);
+			}
+			else
+			{
+				updateManifest(item, target, source);
+			}
+			synchronized (_transferLock)
+			{
+				logTransfer(transfer);
+				logSuccess();
+			}
+			syncDone(item, monitor);
+			return true;
+		}
+		catch (CoreException e)
+		{
+			synchronized (_transferLock)
+			{
+				logTransfer(transfer);
+				logError(e);
+			}
+			return syncError(item, e, monitor);
+		}
+		catch (OperationCanceledException e)
+		{
+			throw e;
+		}
+		catch (RuntimeException e)
+		{
+			IdeLog.logError(SyncingPlugin.getDefault(), Messages.Synchronizer_ErrorDuringSync, e);
+			return syncError(item, e, monitor);
+		}
+	}
+
+	private void logTransfer(Transfer transfer)
+	{
+		if (transfer.upload)
+		{
+			logUploading(transfer.source);
+		}
+		else
+		{
+			logDownloading(transfer.source);
+		}
+	}
+
+	/**
+	 * A file copy, deferred until all the directories of a sync run have been taken care of.
+	 */
+	private static class Transfer
+	{
+		final VirtualFileSyncPair item;
+		final IFileStore source;
+		final IFileInfo sourceInfo;
+		final IFileStore target;
+		final boolean upload;
+		final boolean newFile;
+		final boolean setPermissions;
+
+		Transfer(VirtualFileSyncPair item, IFileStore source, IFileInfo sourceInfo, IFileStore target,
+				boolean upload, boolean newFile, boolean setPermissions)
+		{
+			this.item = item;
+			this.source = source;
+			this.sourceInfo = sourceInfo;
+			this.target = target;
+			this.upload = upload;
+			this.newFile = newFile;
+			this.setPermissions = setPermissions;
+		}
+
+		long getLength()
+		{
+			return (sourceInfo == null) ? 0 : sourceInfo.getLength();
+		}
+	}
+
+	/**
+	 * Hands out the pending transfers to the threads running them. Only the thread running the queue uses its monitor:
+	 * it reports the transfers the workers count, and passes cancellation on to them.
+	 */
+	private class TransferQueue
+	{
+		private final LinkedList<Transfer> pending;
+		private final SubMonitor monitor;
+		private final IProgressMonitor workersMonitor = new NullProgressMonitor();
+		private final AtomicInteger transferred = new AtomicInteger();
+		private int reported;
+		private volatile boolean stopped;
+		private volatile boolean successful = true;
+
+		TransferQueue(List<Transfer> transfers, SubMonitor monitor)
+		{
+			this.pending = new LinkedList<Transfer>(transfers);
+			this.monitor = monitor;
+		}
+
+		boolean isSuccessful()
+		{
+			return successful;
+		}
+
+		private synchronized Transfer next(IProgressMonitor cancelMonitor)
+		{
+			if (stopped || cancelMonitor.isCanceled() || pending.isEmpty())
+			{
+				return null;
+			}
+			return pending.removeFirst();
+		}
+
+		/**
+		 * Runs the transfers left over the existing connections, on the thread running the queue.
+		 */
+		void run()
+		{
+			run(null, null, monitor);
+		}
+
+		/**
+		 * Runs transfers until there are none left, mapping the remote side to the given pools' connections.
+		 * 
+		 * @param cancelMonitor
+		 *            the monitor of the queue on the thread running it, the workers' monitor otherwise
+		 */
+		private void run(ConnectionFileManagerPool clientPool, ConnectionFileManagerPool serverPool,
+				IProgressMonitor cancelMonitor)
+		{
+			IConnectionFileManager clientFileManager = null;
+			IConnectionFileManager serverFileManager = null;
+			IProgressMonitor transferMonitor = new TransferProgressMonitor(cancelMonitor);
+			try
+			{
+				if (clientPool != null)
+				{
+					clientFileManager = clientPool.acquire(transferMonitor);
+				}
+				if (serverPool != null)
+				{
+					serverFileManager = serverPool.acquire(transferMonitor);
+				}
+				Transfer transfer;
+				while ((transfer = next(cancelMonitor)) != null)
+				{
+					IFileStore clientFile = transfer.upload ? transfer.source : transfer.target;
+					IFileStore serverFile = transfer.upload ? transfer.target : transfer.source;
+					if (clientFileManager != null)
+					{
+						clientFile = ConnectionFileManagerPool.getFileStore(clientFileManager, clientFile);
+					}
+					if (serverFileManager != null)
+					{
+						serverFile = ConnectionFileManagerPool.getFileStore(serverFileManager, serverFile);
+					}
+					boolean proceed = transfer.upload ? transfer(transfer, clientFile, serverFile, transferMonitor)
+							: transfer(transfer, serverFile, clientFile, transferMonitor);
+					transferred.incrementAndGet();
+					if (cancelMonitor == monitor)
+					{
+						reportProgress();
+					}
+					if (!proceed)
+					{
+						successful = false;
+						stopped = true;
+					}
+				}
+			}
+			catch (CoreException e)
+			{
+				// couldn't open another connection; the transfers left over are run over the existing ones
+				IdeLog.logWarning(SyncingPlugin.getDefault(), e);
+			}
+			catch (OperationCanceledException e)
+			{
+				stopped = true;
+			}
+			finally
+			{
+				if (clientFileManager != null)
+				{
+					clientPool.release(clientFileManager);
+				}
+				if (serverFileManager != null)
+				{
+					serverPool.release(serverFileManager);
+				}
+			}
+		}
+
+		void runConcurrently(int threads)
+		{
+			final ConnectionFileManagerPool clientPool = createPool(_clientFileManager, _clientFileRoot, threads);
+			final ConnectionFileManagerPool serverPool = createPool(_serverFileManager, _serverFileRoot, threads);
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try
+			{
+				for (int i = 0; i < threads; i++)
+				{
+					executor.execute(new Runnable()
+					{
+						public void run()
+						{
+							TransferQueue.this.run(clientPool, serverPool, workersMonitor);
+						}
+					});
+				}
+				executor.shutdown();
+				while (!executor.awaitTermination(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS))
+				{
+					if (monitor.isCanceled())
+					{
+						workersMonitor.setCanceled(true);
+					}
+					reportProgress();
+				}
+			}
+			catch (InterruptedException e)
+			{
+				stopped = true;
+				workersMonitor.setCanceled(true);
+				executor.shutdownNow();
+			}
+			finally
+			{
+				reportProgress();
+				if (clientPool != null)
+				{
+					clientPool.dispose(null);
+				}
+				if (serverPool != null)
+				{
+					serverPool.dispose(null);
+				}
+			}
+		}
+
+		/**
+		 * Reports the transfers done since the last call. Only called from the thread running the queue.
+		 */
+		private void reportProgress()
+		{
+			int done = transferred.get();
+			monitor.worked(done - reported);
+			reported = done;
+		}
+	}
+
+	/**
+	 * Passes on cancellation of the sync to a transfer, but keeps its progress to itself since several of them may be
+	 * running at a time.
+	 */
+	private static class TransferProgressMonitor extends NullProgressMonitor
+	{
+		private final IProgressMonitor parent;
+
+		TransferProgressMonitor(IProgressMonitor parent)
+		{
+			this.parent = parent;
+		}
+
+		@Override
+		public boolean isCanceled()
+		{
+			return super.isCanceled() || parent.isCanceled();
+		}
+	}
+
 	/**
 	 * Upload to the server all files on the client that are newer or that only exist on the client
 	 * 
@@ -1338,6 +1778,8 @@ public class Synchronizer implements ILoggable
 			SubMonitor subMonitor = SubMonitor.convert(monitor, Messages.Synchronizer_Uploading_Files, fileList.length);
 			Policy.checkCanceled(subMonitor);
 
+			List<Transfer> transfers = new ArrayList<Transfer>();
+
 			FILE_LOOP: for (int i = 0; i < fileList.length; i++)
 			{
 				final VirtualFileSyncPair item = fileList[i];
@@ -1386,34 +1828,8 @@ public class Synchronizer implements ILoggable
 							}
 							else
 							{
-								logUploading(clientFile);
-
-								try
-								{
-									SyncUtils
-											.copy(clientFile, clientFileInfo, targetServerFile, EFS.NONE, childMonitor);
-									Synchronizer.this._clientFileTransferedCount++;
-									_newFilesUploaded.add(targetServerFile);
-									// update permissions for the newly created file
-									if (!exists)
-									{
-										updatePermissions(clientFile, targetServerFile, true,
-												PermissionDirection.UPLOAD, childMonitor);
-									}
-									logSuccess();
-									syncDone(item, childMonitor);
-								}
-								catch (CoreException e)
-								{
-									logError(e);
-
-									if (!syncError(item, e, childMonitor))
-									{
-										result = false;
-										break FILE_LOOP;
-									}
-								}
-
+								transfers.add(new Transfer(item, clientFile, clientFileInfo, targetServerFile,
+										true, true, !exists));
 							}
 							break;
 
@@ -1425,6 +1841,7 @@ public class Synchronizer implements ILoggable
 								// false.
 								boolean wasDirectory = serverFileInfo.isDirectory();
 								serverFile.delete(EFS.NONE, childMonitor);
+								removeFromManifest(item);
 								if (wasDirectory)
 								{
 									this._serverDirectoryDeletedCount++;
@@ -1440,9 +1857,9 @@ public class Synchronizer implements ILoggable
 						case SyncState.ClientItemIsNewer:
 						case SyncState.CRCMismatch:
 							// exists on both sides, but the client item is newer
-							logUploading(clientFile);
 							if (clientFileInfo.isDirectory())
 							{
+								logUploading(clientFile);
 								// just needs to set the modification time for directory
 								try
 								{
@@ -1464,24 +1881,8 @@ public class Synchronizer implements ILoggable
 							}
 							else
 							{
-								try
-								{
-									SyncUtils.copy(clientFile, clientFileInfo, serverFile, EFS.NONE, childMonitor);
-									Synchronizer.this._clientFileTransferedCount++;
-									logSuccess();
-									syncDone(item, childMonitor);
-								}
-								catch (CoreException e)
-								{
-									logError(e);
-
-									if (!syncError(item, e, childMonitor))
-									{
-										result = false;
-										break FILE_LOOP;
-									}
-								}
-
+								transfers.add(new Transfer(item, clientFile, clientFileInfo, serverFile,
+										true, false, false));
 							}
 							break;
 
@@ -1502,10 +1903,14 @@ public class Synchronizer implements ILoggable
 				}
 			}
 
+			// copy the files last, once all directories exist
+			result = runTransfers(transfers, subMonitor) && result;
+
 			return result;
 		}
 		finally
 		{
+			saveManifest();
 			FileWatcher.resumeNotify();
 		}
 	}
@@ -1789,20 +2194,27 @@ public class Synchronizer implements ILoggable
 
 	private void syncDone(VirtualFileSyncPair item, IProgressMonitor monitor)
 	{
-		if (this._eventHandler != null)
+		// transfers may finish on several threads at a time; event handlers aren't expected to cope with that
+		synchronized (_eventLock)
 		{
-			this._eventHandler.syncDone(item, monitor);
-		}
+			if (this._eventHandler != null)
+			{
+				this._eventHandler.syncDone(item, monitor);
+			}
 
-		if (monitor != null)
-		{
-			monitor.worked(1);
+			if (monitor != null)
+			{
+				monitor.worked(1);
+			}
 		}
 	}
 
 	private boolean syncError(VirtualFileSyncPair item, Exception e, IProgressMonitor monitor)
 	{
-		return this._eventHandler == null || this._eventHandler.syncErrorEvent(item, e, monitor);
+		synchronized (_eventLock)
+		{
+			return this._eventHandler == null || this._eventHandler.syncErrorEvent(item, e, monitor);
+		}
 	}
 
 	private boolean syncEvent(VirtualFileSyncPair item, int index, int totalItems, IProgressMonitor monitor)
@@ -0,0 +1,136 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license-epl.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.common.contentassist;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.eclipse.jface.text.contentassist.ICompletionProposalExtension;
+import org.eclipse.jface.text.contentassist.ICompletionProposalExtension2;
+
+import com.aptana.core.util.StringUtil;
+
+/**
+ * Narrows down the proposals shown by the content assist popup as the user types, and merges in the proposals which
+ * were computed after the popup was shown.
+ */
+public class CompletionProposalFilter
+{
+	/**
+	 * The proposals valid where content assist was invoked, and the subset of them valid where the caret is now.
+	 */
+	public static class Merge
+	{
+		public final ICompletionProposal[] computed;
+		public final ICompletionProposal[] filtered;
+
+		Merge(List<ICompletionProposal> computed, List<ICompletionProposal> filtered)
+		{
+			this.computed = computed.toArray(new ICompletionProposal[computed.size()]);
+			this.filtered = filtered.toArray(new ICompletionProposal[filtered.size()]);
+		}
+	}
+
+	private CompletionProposalFilter()
+	{
+	}
+
+	/**
+	 * Returns whether a proposal is still valid in the current context of the document event
+	 *
+	 * @param proposal
+	 * @param document
+	 * @param offset
+	 * @param event
+	 * @return
+	 */
+	public static boolean isValid(ICompletionProposal proposal, IDocument document, int offset, DocumentEvent event)
+	{
+		if (proposal instanceof ICompletionProposalExtension2)
+		{
+			return ((ICompletionProposalExtension2) proposal).validate(document, offset, event);
+		}
+		if (proposal instanceof ICompletionProposalExtension)
+		{
+			return ((ICompletionProposalExtension) proposal).isValidFor(document, offset);
+		}
+		return false;
+	}
+
+	/**
+	 * Merges all the proposals computed for an invocation of content assist with the ones it already showed. The
+	 * proposals already shown have been filtered as the user typed, the others are filtered as if they had been there
+	 * from the start.
+	 *
+	 * @param computed
+	 *            the proposals valid at the invocation offset so far
+	 * @param filtered
+	 *            the proposals valid at the caret offset so far, may be <code>null</code> when nothing was shown yet
+	 * @param proposals
+	 *            all the proposals computed for the invocation, sorted; the ones in <code>computed</code> are the same
+	 *            instances
+	 * @param document
+	 * @param invocationOffset
+	 * @param caretOffset
+	 *            the offset of the caret, at or after the invocation offset
+	 * @return the merged proposals, in the order of <code>proposals</code>
+	 * @throws BadLocationException
+	 */
+	public static Merge merge(ICompletionProposal[] computed, ICompletionProposal[] filtered,
+			ICompletionProposal[] proposals, IDocument document, int invocationOffset, int caretOffset)
+			throws BadLocationException
+	{
+		DocumentEvent initial = new DocumentEvent(document, invocationOffset, 0, StringUtil.EMPTY);
+		DocumentEvent typed = new DocumentEvent(document, invocationOffset, 0, document.get(invocationOffset,
+				caretOffset - invocationOffset));
+
+		Map<ICompletionProposal, Boolean> computedSet = newIdentityMap(computed);
+		Map<ICompletionProposal, Boolean> filteredSet = (filtered == null) ? computedSet : newIdentityMap(filtered);
+		List<ICompletionProposal> newComputed = new ArrayList<ICompletionProposal>(proposals.length);
+		List<ICompletionProposal> newFiltered = new ArrayList<ICompletionProposal>(proposals.length);
+		for (ICompletionProposal proposal : proposals)
+		{
+			if (computedSet.containsKey(proposal))
+			{
+				newComputed.add(proposal);
+				if (filteredSet.containsKey(proposal))
+				{
+					newFiltered.add(proposal);
+				}
+			}
+			else if (isValid(proposal, document, invocationOffset, initial))
+			{
+				newComputed.add(proposal);
+				if (caretOffset == invocationOffset || isValid(proposal, document, caretOffset, typed))
+				{
+					newFiltered.add(proposal);
+				}
+			}
+		}
+		return new Merge(newComputed, newFiltered);
+	}
+
+	private static Map<ICompletionProposal, Boolean> newIdentityMap(ICompletionProposal[] proposals)
+	{
+		Map<ICompletionProposal, Boolean> map = new IdentityHashMap<ICompletionProposal, Boolean>();
+		if (proposals != null)
+		{
+			for (ICompletionProposal proposal : proposals)
+			{
+				map.put(proposal, Boolean.TRUE);
+			}
+		}
+		return map;
+	}
+}
@@ -251,6 +251,59 @@ public class CompletionProposalPopup implements IContentAssistListener
 	 * @since 3.1
 	 */
 	private boolean fIsFilteredSubset;
+	/**
+	 * Gets the proposals of the sources which missed the latency budget of the current invocation of content assist,
+	 * <code>null</code> if there's none.
+	 */
+	private LateProposalsListener fLateProposalsListener;
+	/**
+	 * Whether the popup was auto activated, for when showing the proposals waits for the late ones.
+	 */
+	private boolean fAutoActivated;
+
+	/**
+	 * Shows the proposals of the sources which missed the latency budget of content assist once they complete.
+	 */
+	private class LateProposalsListener implements ILateProposalsListener
+	{
+		/**
+		 * Whether some sources missed the budget and didn't complete yet.
+		 */
+		boolean pending;
+
+		/*
+		 * (non-Javadoc)
+		 * @see com.aptana.editor.common.contentassist.ILateProposalsListener#proposalsPending(int)
+		 */
+		public void proposalsPending(int offset)
+		{
+			pending = true;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see com.aptana.editor.common.contentassist.ILateProposalsListener#proposalsComputed(int,
+		 * org.eclipse.jface.text.contentassist.ICompletionProposal[])
+		 */
+		public void proposalsComputed(final int offset, final ICompletionProposal[] proposals)
+		{
+			final Control control = fContentAssistSubjectControlAdapter.getControl();
+			if (control == null || control.isDisposed())
+			{
+				return;
+			}
+			control.getDisplay().asyncExec(new Runnable()
+			{
+				public void run()
+				{
+					if (!control.isDisposed())
+					{
+						addLateProposals(LateProposalsListener.this, offset, proposals);
+					}
+				}
+			});
+		}
+	}
 
 	private IEclipsePreferences projectScopeNode;
 
@@ -332,29 +385,7 @@ public class CompletionProposalPopup implements IContentAssistListener
 					IDocument doc = fContentAssistSubjectControlAdapter.getDocument();
 					DocumentEvent initial = new DocumentEvent(doc, fInvocationOffset, 0, StringUtil.EMPTY);
 					fComputedProposals = filterProposals(fComputedProposals, doc, fInvocationOffset, initial);
-
-					int count = (fComputedProposals == null ? 0 : fComputedProposals.length);
-
-					// If we don't have any proposals, and we've manually asked for proposals, show "no proposals"
-					if (!autoActivated && count == 0)
-					{
-						fComputedProposals = createNoProposal();
-						count = fComputedProposals.length;
-					}
-
-					if (count == 0)
-					{
-						hide();
-					}
-					else if (count == 1 && !autoActivated && canAutoInsert(fComputedProposals[0]))
-					{
-						insertProposal(fComputedProposals[0], (char) 0, 0, fInvocationOffset);
-						hide();
-					}
-					else
-					{
-						createPopup();
-					}
+					showComputedProposals(autoActivated);
 				}
 			});
 		}
@@ -362,6 +393,50 @@ public class CompletionProposalPopup implements IContentAssistListener
 		return getErrorMessage();
 	}
 
+	/**
+	 * Shows the computed proposals, inserts the only one or hides the popup. While some sources are still computing
+	 * their proposals, nothing is done if there are none or only one, as the late ones may change that.
+	 * 
+	 * @param autoActivated
+	 */
+	private void showComputedProposals(boolean autoActivated)
+	{
+		int count = (fComputedProposals == null ? 0 : fComputedProposals.length);
+
+		if (fLateProposalsListener != null && fLateProposalsListener.pending
+				&& (count == 0 || (count == 1 && !autoActivated && canAutoInsert(fComputedProposals[0]))))
+		{
+			// wait for them, see addLateProposals()
+			fAutoActivated = autoActivated;
+			if (fComputedProposals == null)
+			{
+				fComputedProposals = new ICompletionProposal[0];
+			}
+			return;
+		}
+
+		// If we don't have any proposals, and we've manually asked for proposals, show "no proposals"
+		if (!autoActivated && count == 0)
+		{
+			fComputedProposals = createNoProposal();
+			count = fComputedProposals.length;
+		}
+
+		if (count == 0)
+		{
+			hide();
+		}
+		else if (count == 1 && !autoActivated && canAutoInsert(fComputedProposals[0]))
+		{
+			insertProposal(fComputedProposals[0], (char) 0, 0, fInvocationOffset);
+			hide();
+		}
+		else
+		{
+			createPopup();
+		}
+	}
+
 	/**
 	 * Create the "no proposals" proposal
 	 * 
@@ -387,11 +462,107 @@ public class CompletionProposalPopup implements IContentAssistListener
 	 */
 	private ICompletionProposal[] computeProposals(int offset, boolean autoActivated)
 	{
+		return computeProposals(offset, autoActivated, true);
+	}
+
+	/**
+	 * Same as {@link #computeProposals(int, boolean)}, optionally waiting for the proposals of all the sources.
+	 * 
+	 * @param offset
+	 *            the offset
+	 * @param autoActivated
+	 * @param allowLate
+	 *            whether the proposals of the slow sources may be added once the popup is shown
+	 * @return the completion proposals available at this offset
+	 */
+	private ICompletionProposal[] computeProposals(int offset, boolean autoActivated, boolean allowLate)
+	{
+		fLateProposalsListener = null;
 		if (fContentAssistSubjectControl != null)
 		{
 			return fContentAssistant.computeCompletionProposals(fContentAssistSubjectControl, offset, fActivationKey);
 		}
-		return fContentAssistant.computeCompletionProposals(fViewer, offset, fActivationKey, autoActivated);
+		if (allowLate)
+		{
+			fLateProposalsListener = new LateProposalsListener();
+		}
+		return fContentAssistant.computeCompletionProposals(fViewer, offset, fActivationKey, autoActivated,
+				fLateProposalsListener);
+	}
+
+	/**
+	 * Adds the proposals of the sources which completed after the proposals were computed, if the popup still is for
+	 * the same invocation. When showing the proposals was waiting for them, it's done now.
+	 * 
+	 * @param listener
+	 *            the listener of the invocation the proposals were computed for
+	 * @param offset
+	 *            the offset the proposals were computed for
+	 * @param proposals
+	 *            all the proposals computed for the offset, sorted
+	 */
+	private void addLateProposals(LateProposalsListener listener, int offset, ICompletionProposal[] proposals)
+	{
+		if (listener != fLateProposalsListener || offset != fInvocationOffset || fComputedProposals == null)
+		{
+			return;
+		}
+		listener.pending = false;
+
+		boolean showing = Helper.okToUse(fProposalShell);
+		int caretOffset = fContentAssistSubjectControlAdapter.getSelectedRange().x;
+		if (caretOffset < fInvocationOffset)
+		{
+			if (!showing)
+			{
+				hide();
+			}
+			return;
+		}
+
+		IDocument document = fContentAssistSubjectControlAdapter.getDocument();
+		CompletionProposalFilter.Merge merge;
+		try
+		{
+			merge = CompletionProposalFilter.merge(fComputedProposals, showing ? fFilteredProposals : null,
+					proposals, document, fInvocationOffset, caretOffset);
+		}
+		catch (BadLocationException e)
+		{
+			if (!showing)
+			{
+				hide();
+			}
+			return;
+		}
+
+		if (showing)
+		{
+			if (merge.filtered.length > 0)
+			{
+				fComputedProposals = merge.computed;
+				fFilterOffset = caretOffset;
+				setProposals(merge.filtered, false);
+			}
+		}
+		else if (caretOffset == fInvocationOffset)
+		{
+			fComputedProposals = merge.computed;
+			showComputedProposals(fAutoActivated);
+		}
+		else if (merge.filtered.length == 0)
+		{
+			// the user typed past all of them while waiting
+			hide();
+		}
+		else
+		{
+			// the user typed while waiting, so don't insert anything on their behalf
+			fComputedProposals = merge.computed;
+			createPopup();
+			fFilterOffset = caretOffset;
+			setProposals(merge.filtered, false);
+		}
 	}
 
 	/**
@@ -1147,6 +1318,7 @@ public class CompletionProposalPopup implements IContentAssistListener
 
 		fFilteredProposals = null;
 		fComputedProposals = null;
+		fLateProposalsListener = null;
 
 		fContentAssistant.possibleCompletionsClosed();
 	}
@@ -1822,8 +1994,7 @@ public class CompletionProposalPopup implements IContentAssistListener
 			}
 		}
 
-		ICompletionProposal[] filtered = filterProposals(proposals, document, offset, event);
-		return filtered;
+		return filterProposals(proposals, document, offset, event);
 	}
 
 	/**
@@ -1844,24 +2015,9 @@ public class CompletionProposalPopup implements IContentAssistListener
 		{
 			ICompletionProposal proposal = proposals[i];
 
-			if (proposal instanceof ICompletionProposalExtension2)
+			if (CompletionProposalFilter.isValid(proposal, document, offset, event))
 			{
-				ICompletionProposalExtension2 p = (ICompletionProposalExtension2) proposal;
-
-				if (p.validate(document, offset, event))
-				{
-					filtered.add(proposal);
-				}
-
-			}
-			else if (proposal instanceof ICompletionProposalExtension)
-			{
-				ICompletionProposalExtension p = (ICompletionProposalExtension) proposal;
-
-				if (p.isValidFor(document, offset))
-				{
-					filtered.add(proposal);
-				}
+				filtered.add(proposal);
 			}
 		}
 
@@ -1940,7 +2096,8 @@ public class CompletionProposalPopup implements IContentAssistListener
 
 					fInvocationOffset = fContentAssistSubjectControlAdapter.getSelectedRange().x;
 					fFilterOffset = fInvocationOffset;
-					fFilteredProposals = computeProposals(fInvocationOffset, false);
+					// completing the common prefix needs all the proposals
+					fFilteredProposals = computeProposals(fInvocationOffset, false, false);
 
 					int count = (fFilteredProposals == null ? 0 : fFilteredProposals.length);
 					if (count == 0)
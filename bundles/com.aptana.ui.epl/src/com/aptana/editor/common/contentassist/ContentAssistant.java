@@ -2200,11 +2200,14 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 	 *            a document offset
 	 * @param autoActivated
 	 *            determines whether we were autoActivated or not
+	 * @param listener
+	 *            the listener to give the proposals of the sources that missed the latency budget to, or null to
+	 *            wait for all of them
 	 * @return an array of completion proposals
 	 * @see IContentAssistProcessor#computeCompletionProposals(ITextViewer, int)
 	 */
 	ICompletionProposal[] computeCompletionProposals(ITextViewer viewer, int offset, char activationChar,
-			boolean autoActivated)
+			boolean autoActivated, ILateProposalsListener listener)
 	{
 		fLastErrorMessage = null;
 		fUserAgentColumnCount = 0;
@@ -2218,7 +2221,8 @@ public class ContentAssistant implements IContentAssistant, IContentAssistantExt
 			{
 				ICommonContentAssistProcessor commonProcessor = (ICommonContentAssistProcessor) processor;
 
-				result = commonProcessor.computeCompletionProposals(viewer, offset, activationChar, autoActivated);
+				result = commonProcessor.computeCompletionProposals(viewer, offset, activationChar, autoActivated,
+						listener);
 
 				String[] ids = ((ICommonContentAssistProcessor) processor).getActiveUserAgentIds();
 
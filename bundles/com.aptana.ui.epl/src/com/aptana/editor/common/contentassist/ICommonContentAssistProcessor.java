@@ -25,6 +25,21 @@ public interface ICommonContentAssistProcessor
 	ICompletionProposal[] computeCompletionProposals(ITextViewer viewer, int offset, char activationChar,
 			boolean autoActivated);
 
+	/**
+	 * Computes the proposals without waiting longer than a latency budget for the sources which can run in the
+	 * background. The proposals of those that miss it are given to the listener once they complete.
+	 * 
+	 * @param viewer
+	 * @param offset
+	 * @param activationChar
+	 * @param autoActivated
+	 * @param listener
+	 *            the listener to give late proposals to, or null to wait for all the sources
+	 * @return the proposals of the sources which completed within the budget
+	 */
+	ICompletionProposal[] computeCompletionProposals(ITextViewer viewer, int offset, char activationChar,
+			boolean autoActivated, ILateProposalsListener listener);
+
 	/**
 	 * Is the current position a valid place to show content assist?
 	 * 
@@ -0,0 +1,38 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license-epl.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.common.contentassist;
+
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+
+/**
+ * Gets the proposals of the sources which didn't complete within the latency budget of content assist, once they do.
+ * 
+ * @see ICommonContentAssistProcessor#computeCompletionProposals(org.eclipse.jface.text.ITextViewer, int, char,
+ *      boolean, ILateProposalsListener)
+ */
+public interface ILateProposalsListener
+{
+	/**
+	 * Called on the thread computing the proposals, before they're returned, when some sources didn't complete within
+	 * the budget. {@link #proposalsComputed(int, ICompletionProposal[])} follows once they have.
+	 * 
+	 * @param offset
+	 *            the offset the proposals are computed for
+	 */
+	void proposalsPending(int offset);
+
+	/**
+	 * Called (from any thread) when all the sources that missed the budget completed, even if they had nothing to add.
+	 * 
+	 * @param offset
+	 *            the offset the proposals were computed for
+	 * @param proposals
+	 *            all the proposals computed for the offset, sorted
+	 */
+	void proposalsComputed(int offset, ICompletionProposal[] proposals);
+}
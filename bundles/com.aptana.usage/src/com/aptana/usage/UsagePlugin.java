@@ -76,6 +76,10 @@ public class UsagePlugin extends Plugin
 		}
 		finally
 		{
+			if (fAnalyticsLogger != null)
+			{
+				fAnalyticsLogger.close();
+			}
 			fStudioAnalytics = null;
 			fAnalyticsLogger = null;
 			fAnalyticsInfoManager = null;
@@ -0,0 +1,171 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.usage.internal;
+
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import com.aptana.core.logging.IdeLog;
+import com.aptana.usage.AnalyticsEvent;
+import com.aptana.usage.IAnalyticsEventHandler;
+import com.aptana.usage.IAnalyticsLogger;
+import com.aptana.usage.IAnalyticsUser;
+import com.aptana.usage.IAnalyticsUserManager;
+import com.aptana.usage.IDebugScopes;
+import com.aptana.usage.UsagePlugin;
+
+/**
+ * A background job that drains the events queued up in the {@link IAnalyticsLogger} journal and sends them in batches.
+ * Requests for a flush are coalesced: events arriving while the job is already waiting to run simply get picked up by
+ * that run. When the server can't be reached, the job backs off exponentially before trying again.
+ */
+class AnalyticsEventFlusher extends Job
+{
+
+	static final int DEFAULT_BATCH_SIZE = 50;
+	static final long DEFAULT_FLUSH_DELAY = 2 * 1000; // 2 seconds
+	static final long INITIAL_BACKOFF = 30 * 1000; // 30 seconds
+	static final long MAX_BACKOFF = 30 * 60 * 1000; // 30 minutes
+
+	private final DefaultAnalyticsEventHandler handler;
+	private final int batchSize;
+	private final long flushDelay;
+	private final long initialBackoff;
+
+	private int failures;
+	private long nextAttempt;
+
+	AnalyticsEventFlusher(DefaultAnalyticsEventHandler handler)
+	{
+		this(handler, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_DELAY, INITIAL_BACKOFF);
+	}
+
+	AnalyticsEventFlusher(DefaultAnalyticsEventHandler handler, int batchSize, long flushDelay, long initialBackoff)
+	{
+		super("Sending Analytics Events ..."); //$NON-NLS-1$
+		this.handler = handler;
+		this.batchSize = batchSize;
+		this.flushDelay = flushDelay;
+		this.initialBackoff = initialBackoff;
+		setSystem(true);
+		setPriority(Job.BUILD);
+	}
+
+	/**
+	 * Asks for the queued events to be sent. If a flush is already pending this is a no-op; if we're currently backing
+	 * off after a failure the flush won't happen before the backoff period ends.
+	 */
+	synchronized void requestFlush()
+	{
+		int state = getState();
+		if (state == Job.WAITING || state == Job.SLEEPING)
+		{
+			return;
+		}
+		long delay = Math.max(flushDelay, nextAttempt - System.currentTimeMillis());
+		schedule(delay);
+	}
+
+	/**
+	 * Returns the number of consecutive failed attempts to reach the server.
+	 */
+	synchronized int getFailureCount()
+	{
+		return failures;
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor)
+	{
+		IAnalyticsLogger logger = handler.getAnalyticsLogger();
+		if (logger == null)
+		{
+			return Status.OK_STATUS;
+		}
+		List<AnalyticsEvent> events = logger.getEvents();
+		if (events.isEmpty())
+		{
+			return Status.OK_STATUS;
+		}
+
+		IAnalyticsUser user = null;
+		IAnalyticsUserManager userManager = handler.getUserManager();
+		if (userManager != null)
+		{
+			user = userManager.getUser();
+			// Only send if the user is logged in. Events stay queued until the next flush request.
+			if (user == null || !user.isOnline())
+			{
+				return Status.OK_STATUS;
+			}
+		}
+
+		// We want all project.create events to be first, and all project.delete events to be last
+		Collections.sort(events, new DefaultAnalyticsEventHandler.AnalyticsEventComparator());
+		int sent = 0;
+		for (AnalyticsEvent event : events)
+		{
+			if (sent >= batchSize || monitor.isCanceled())
+			{
+				break;
+			}
+			int code = handler.sendPing(event, user);
+			handler.responseCode = code;
+			if (!DefaultAnalyticsEventHandler.isValidResponse(code))
+			{
+				backOff();
+				return Status.OK_STATUS;
+			}
+			// Remove the event after it has been sent
+			logger.clearEvent(event);
+			sent++;
+		}
+
+		synchronized (this)
+		{
+			failures = 0;
+			nextAttempt = 0;
+		}
+		if (sent < events.size() && !monitor.isCanceled())
+		{
+			// more to go, send the next batch right away
+			schedule();
+		}
+		return Status.OK_STATUS;
+	}
+
+	private synchronized void backOff()
+	{
+		failures++;
+		long backoff = initialBackoff;
+		for (int i = 1; i < failures && backoff < MAX_BACKOFF; i++)
+		{
+			backoff *= 2;
+		}
+		backoff = Math.min(backoff, MAX_BACKOFF);
+		nextAttempt = System.currentTimeMillis() + backoff;
+		if (IdeLog.isTraceEnabled(UsagePlugin.getDefault(), IDebugScopes.USAGE))
+		{
+			IdeLog.logTrace(UsagePlugin.getDefault(), MessageFormat.format(
+					"Unable to send analytics events, retrying in {0}ms", backoff)); //$NON-NLS-1$
+		}
+		schedule(backoff);
+	}
+
+	@Override
+	public boolean belongsTo(Object family)
+	{
+		return family.equals(IAnalyticsEventHandler.class);
+	}
+}
@@ -7,15 +7,23 @@
  */
 package com.aptana.usage.internal;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
 import java.util.List;
 
 import org.eclipse.core.runtime.IPath;
@@ -27,17 +35,49 @@ import com.aptana.usage.AnalyticsEvent;
 import com.aptana.usage.IAnalyticsLogger;
 import com.aptana.usage.UsagePlugin;
 
+/**
+ * Persists {@link AnalyticsEvent}s in a segmented, append-only journal. Each logged event is appended as a single line
+ * to the active segment file, and clearing an event appends a matching removal record. Segments are rolled over once
+ * they reach {@link #DEFAULT_SEGMENT_SIZE} and the oldest segments are deleted once none of their events are pending
+ * anymore. When the pending events take up more than the backlog limit, the oldest segments (and their pending events)
+ * are dropped.
+ */
 public class AnalyticsLogger implements IAnalyticsLogger
 {
 
+	static final long DEFAULT_SEGMENT_SIZE = 64 * 1024; // 64KB
+	static final long DEFAULT_MAX_BACKLOG_SIZE = 1024 * 1024; // 1MB
+
+	static final String SEGMENT_PREFIX = "journal-"; //$NON-NLS-1$
+	static final String SEGMENT_EXTENSION = ".log"; //$NON-NLS-1$
+	private static final String LEGACY_EXTENSION = ".json"; //$NON-NLS-1$
+
+	private static final char ADDED = '+';
+	private static final char CLEARED = '-';
+
 	/**
 	 * The path on disk where events should be persisted.
 	 */
 	private final IPath directory;
+	private final long segmentSize;
+	private final long maxBacklogSize;
+
+	/**
+	 * The journal segments, oldest first. The last one is the active segment we append to. Lazily loaded.
+	 */
+	private List<Segment> segments;
+	private Writer writer;
 
 	public AnalyticsLogger(IPath directory)
+	{
+		this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_BACKLOG_SIZE);
+	}
+
+	AnalyticsLogger(IPath directory, long segmentSize, long maxBacklogSize)
 	{
 		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.maxBacklogSize = Math.max(segmentSize, maxBacklogSize);
 		if (!this.directory.toFile().isDirectory())
 		{
 			this.directory.toFile().mkdirs();
@@ -50,31 +90,17 @@ public class AnalyticsLogger implements IAnalyticsLogger
 	 */
 	public synchronized void logEvent(AnalyticsEvent event)
 	{
-		// persist the event to disk
-		FileWriter writer = null;
-		try
+		load();
+		String json = event.toJSON();
+		if (append(ADDED, json))
 		{
-			writer = new FileWriter(getFile(event));
-			writer.write(event.toJSON());
+			getActiveSegment().add(event);
+			rollOver();
 		}
-		catch (IOException e)
+		else
 		{
 			IdeLog.logError(UsagePlugin.getDefault(),
-					MessageFormat.format("Unable to persist analytics event to disk! Event: {0}", event.toJSON()));
-		}
-		finally
-		{
-			if (writer != null)
-			{
-				try
-				{
-					writer.close();
-				}
-				catch (IOException e)
-				{
-					// ignore
-				}
-			}
+					MessageFormat.format("Unable to persist analytics event to disk! Event: {0}", json)); //$NON-NLS-1$
 		}
 	}
 
@@ -84,35 +110,37 @@ public class AnalyticsLogger implements IAnalyticsLogger
 	 */
 	public synchronized void clearEvents()
 	{
+		closeWriter();
+		segments = null;
+
 		// Erase all events from disk
 		File[] files = this.directory.toFile().listFiles();
-		for (File file : files)
+		if (files != null)
 		{
-			if (!file.delete())
+			for (File file : files)
 			{
-				file.deleteOnExit();
+				if (!file.delete())
+				{
+					file.deleteOnExit();
+				}
 			}
 		}
 	}
 
-	private File getFile(AnalyticsEvent event)
-	{
-		return this.directory.append(event.hashCode() + ".json").toFile();
-	}
-
 	/*
 	 * (non-Javadoc)
 	 * @see com.aptana.usage.IAnalyticsLogger#clearEvent(com.aptana.usage.AnalyticsEvent)
 	 */
 	public synchronized void clearEvent(AnalyticsEvent event)
 	{
-		// erase specific event from disk
-		File file = getFile(event);
-		if (file.isFile())
+		load();
+		for (Segment segment : segments)
 		{
-			if (!file.delete())
+			if (segment.remove(event))
 			{
-				file.deleteOnExit();
+				append(CLEARED, event.toJSON());
+				rollOver();
+				return;
 			}
 		}
 	}
@@ -123,13 +151,201 @@ public class AnalyticsLogger implements IAnalyticsLogger
 	 */
 	public synchronized List<AnalyticsEvent> getEvents()
 	{
-		// Load all persisted events from disk
-		File[] files = this.directory.toFile().listFiles();
-		if (files == null || files.length == 0)
+		load();
+		int count = 0;
+		for (Segment segment : segments)
+		{
+			count += segment.events.size();
+		}
+		if (count == 0)
 		{
 			return Collections.emptyList();
 		}
-		ArrayList<AnalyticsEvent> events = new ArrayList<AnalyticsEvent>(files.length);
+		List<AnalyticsEvent> events = new ArrayList<AnalyticsEvent>(count);
+		for (Segment segment : segments)
+		{
+			events.addAll(segment.events);
+		}
+		return events;
+	}
+
+	/**
+	 * Closes the active journal segment. The logger may still be used afterwards, in which case the segment is
+	 * re-opened on demand.
+	 */
+	public synchronized void close()
+	{
+		closeWriter();
+	}
+
+	/**
+	 * Returns the journal segment files currently on disk, oldest first.
+	 */
+	synchronized List<File> getSegmentFiles()
+	{
+		load();
+		List<File> files = new ArrayList<File>(segments.size());
+		for (Segment segment : segments)
+		{
+			if (segment.file.isFile())
+			{
+				files.add(segment.file);
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Loads the journal from disk the first time it's accessed, replaying all segments in order. Events persisted by
+	 * the older one-file-per-event format are migrated into the journal.
+	 */
+	private void load()
+	{
+		if (segments != null)
+		{
+			return;
+		}
+		segments = new ArrayList<Segment>();
+
+		File dir = directory.toFile();
+		if (!dir.isDirectory())
+		{
+			dir.mkdirs();
+		}
+		File[] files = dir.listFiles(new FilenameFilter()
+		{
+			public boolean accept(File parent, String name)
+			{
+				return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_EXTENSION);
+			}
+		});
+		if (files != null)
+		{
+			List<Segment> existing = new ArrayList<Segment>(files.length);
+			for (File file : files)
+			{
+				long sequence = parseSequence(file.getName());
+				if (sequence >= 0)
+				{
+					existing.add(new Segment(file, sequence));
+				}
+			}
+			Collections.sort(existing, new Comparator<Segment>()
+			{
+				public int compare(Segment s1, Segment s2)
+				{
+					return (s1.sequence < s2.sequence) ? -1 : ((s1.sequence == s2.sequence) ? 0 : 1);
+				}
+			});
+			for (Segment segment : existing)
+			{
+				replay(segment);
+				segments.add(segment);
+			}
+		}
+		if (segments.isEmpty())
+		{
+			segments.add(new Segment(getSegmentFile(0), 0));
+		}
+		else if (getActiveSegment().size > 0)
+		{
+			// Never append to a segment from a previous session, its last record may be incomplete
+			long sequence = getActiveSegment().sequence + 1;
+			segments.add(new Segment(getSegmentFile(sequence), sequence));
+		}
+
+		migrateLegacyEvents();
+		compact();
+	}
+
+	private void replay(Segment segment)
+	{
+		segment.size = segment.file.length();
+		BufferedReader reader = null;
+		try
+		{
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(segment.file), IOUtil.UTF_8));
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				if (line.length() < 2)
+				{
+					continue;
+				}
+				AnalyticsEvent event;
+				try
+				{
+					event = AnalyticsEvent.fromJSON(line.substring(1));
+				}
+				catch (Exception e)
+				{
+					// A partially written record (i.e. we crashed in the middle of an append). Skip it.
+					IdeLog.logWarning(UsagePlugin.getDefault(),
+							MessageFormat.format("Skipping corrupt analytics journal record in {0}", segment.file)); //$NON-NLS-1$
+					continue;
+				}
+				switch (line.charAt(0))
+				{
+					case ADDED:
+						segment.add(event);
+						break;
+
+					case CLEARED:
+						// Removal records may refer to events in any older segment or this one
+						boolean removed = false;
+						for (Segment s : segments)
+						{
+							if (s.remove(event))
+							{
+								removed = true;
+								break;
+							}
+						}
+						if (!removed)
+						{
+							segment.remove(event);
+						}
+						break;
+
+					default:
+						break;
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			IdeLog.logWarning(UsagePlugin.getDefault(), e);
+		}
+		finally
+		{
+			if (reader != null)
+			{
+				try
+				{
+					reader.close();
+				}
+				catch (IOException e)
+				{
+					// ignore
+				}
+			}
+		}
+	}
+
+	private void migrateLegacyEvents()
+	{
+		File[] files = directory.toFile().listFiles(new FilenameFilter()
+		{
+			public boolean accept(File parent, String name)
+			{
+				return name.endsWith(LEGACY_EXTENSION);
+			}
+		});
+		if (files == null || files.length == 0)
+		{
+			return;
+		}
+		Arrays.sort(files);
 		for (File file : files)
 		{
 			InputStream stream = null;
@@ -139,12 +355,16 @@ public class AnalyticsLogger implements IAnalyticsLogger
 				String json = IOUtil.read(stream);
 				if (!StringUtil.isEmpty(json))
 				{
-					events.add(AnalyticsEvent.fromJSON(json));
+					AnalyticsEvent event = AnalyticsEvent.fromJSON(json);
+					if (append(ADDED, event.toJSON()))
+					{
+						getActiveSegment().add(event);
+						rollOver();
+					}
 				}
 			}
-			catch (FileNotFoundException e)
+			catch (Exception e)
 			{
-				// Should never happen...
 				IdeLog.logWarning(UsagePlugin.getDefault(), e);
 			}
 			finally
@@ -161,8 +381,182 @@ public class AnalyticsLogger implements IAnalyticsLogger
 					}
 				}
 			}
+			if (!file.delete())
+			{
+				file.deleteOnExit();
+			}
+		}
+	}
+
+	/**
+	 * Appends a single record to the active segment.
+	 *
+	 * @return <code>true</code> if the record was written and flushed to disk
+	 */
+	private boolean append(char type, String json)
+	{
+		Segment active = getActiveSegment();
+		try
+		{
+			if (writer == null)
+			{
+				writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(active.file, true), IOUtil.UTF_8));
+			}
+			String record = type + json + '\n';
+			writer.write(record);
+			writer.flush();
+			active.size += record.getBytes(IOUtil.UTF_8).length;
+			return true;
+		}
+		catch (IOException e)
+		{
+			IdeLog.logWarning(UsagePlugin.getDefault(), e);
+			closeWriter();
+			return false;
+		}
+	}
+
+	/**
+	 * Starts a new active segment once the current one is full, then compacts the journal.
+	 */
+	private void rollOver()
+	{
+		Segment active = getActiveSegment();
+		if (active.size >= segmentSize)
+		{
+			closeWriter();
+			long sequence = active.sequence + 1;
+			segments.add(new Segment(getSegmentFile(sequence), sequence));
+		}
+		compact();
+	}
+
+	/**
+	 * Deletes the leading segments with no pending events, then drops the oldest segments while the pending events are
+	 * over the backlog limit. Only leading segments are ever removed, so removal records stay in front of any events
+	 * they refer to.
+	 */
+	private void compact()
+	{
+		while (segments.size() > 1 && segments.get(0).events.isEmpty())
+		{
+			delete(segments.remove(0));
+		}
+
+		long total = 0;
+		for (Segment segment : segments)
+		{
+			total += segment.pendingSize;
+		}
+		int dropped = 0;
+		while (total > maxBacklogSize && segments.size() > 1)
+		{
+			Segment oldest = segments.remove(0);
+			total -= oldest.pendingSize;
+			dropped += oldest.events.size();
+			delete(oldest);
+		}
+		if (dropped > 0)
+		{
+			IdeLog.logWarning(UsagePlugin.getDefault(), MessageFormat.format(
+					"Analytics backlog exceeded {0} bytes, dropped {1} unsent events", maxBacklogSize, dropped)); //$NON-NLS-1$
+		}
+	}
+
+	private void delete(Segment segment)
+	{
+		segment.events.clear();
+		segment.pendingSize = 0;
+		if (segment.file.exists() && !segment.file.delete())
+		{
+			segment.file.deleteOnExit();
+		}
+	}
+
+	private Segment getActiveSegment()
+	{
+		return segments.get(segments.size() - 1);
+	}
+
+	private File getSegmentFile(long sequence)
+	{
+		// zero-pad so segments sort naturally by name as well
+		return directory.append(MessageFormat.format("{0}{1,number,0000000000}{2}", SEGMENT_PREFIX, sequence, //$NON-NLS-1$
+				SEGMENT_EXTENSION)).toFile();
+	}
+
+	private static long parseSequence(String fileName)
+	{
+		try
+		{
+			return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(),
+					fileName.length() - SEGMENT_EXTENSION.length()));
+		}
+		catch (NumberFormatException e)
+		{
+			return -1;
+		}
+	}
+
+	private void closeWriter()
+	{
+		if (writer != null)
+		{
+			try
+			{
+				writer.close();
+			}
+			catch (IOException e)
+			{
+				// ignore
+			}
+			writer = null;
+		}
+	}
+
+	/**
+	 * A single journal file along with the events recorded in it that haven't been cleared yet.
+	 */
+	private static class Segment
+	{
+		final File file;
+		final long sequence;
+		final List<AnalyticsEvent> events = new LinkedList<AnalyticsEvent>();
+		/**
+		 * The size of the segment file.
+		 */
+		long size;
+		/**
+		 * The (approximate) size of the records of the pending events.
+		 */
+		long pendingSize;
+
+		Segment(File file, long sequence)
+		{
+			this.file = file;
+			this.sequence = sequence;
+		}
+
+		void add(AnalyticsEvent event)
+		{
+			events.add(event);
+			pendingSize += recordSize(event);
+		}
+
+		boolean remove(AnalyticsEvent event)
+		{
+			if (!events.remove(event))
+			{
+				return false;
+			}
+			pendingSize = events.isEmpty() ? 0 : Math.max(0, pendingSize - recordSize(event));
+			return true;
+		}
+
+		private static long recordSize(AnalyticsEvent event)
+		{
+			// type marker + JSON + new line
+			return event.toJSON().length() + 2;
 		}
-		events.trimToSize();
-		return events;
 	}
 }
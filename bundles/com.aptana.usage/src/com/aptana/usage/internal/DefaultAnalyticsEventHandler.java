@@ -49,6 +49,7 @@ public class DefaultAnalyticsEventHandler implements IAnalyticsEventHandler
 	private final int timeout;
 	protected int responseCode = 0;
 	protected Object lock = new Object();
+	private AnalyticsEventFlusher flusher;
 
 	public DefaultAnalyticsEventHandler()
 	{
@@ -67,6 +68,15 @@ public class DefaultAnalyticsEventHandler implements IAnalyticsEventHandler
 	 */
 	public void sendEvent(final AnalyticsEvent event)
 	{
+		IAnalyticsLogger logger = getAnalyticsLogger();
+		if (logger != null)
+		{
+			// Queue the event in the journal and let the flusher send it along with any other pending events
+			logger.logEvent(event);
+			getFlusher().requestFlush();
+			return;
+		}
+
 		Job job = new Job("Sending Analytics Ping ...") //$NON-NLS-1$
 		{
 
@@ -87,6 +97,18 @@ public class DefaultAnalyticsEventHandler implements IAnalyticsEventHandler
 		job.schedule();
 	}
 
+	/**
+	 * Returns the job that sends the events queued in the {@link IAnalyticsLogger} in batches.
+	 */
+	synchronized AnalyticsEventFlusher getFlusher()
+	{
+		if (flusher == null)
+		{
+			flusher = new AnalyticsEventFlusher(this);
+		}
+		return flusher;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see com.aptana.usage.IAnalyticsEventHandler#getAnalyticsURL()
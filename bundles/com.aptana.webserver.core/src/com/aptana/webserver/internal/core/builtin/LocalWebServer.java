@@ -73,6 +73,7 @@ public class LocalWebServer extends SimpleWebServer
 
 	private Thread thread;
 	private ListeningIOReactor reactor;
+	private LocalWebServerHttpRequestHandler requestHandler;
 
 	protected int port;
 	private String hostName;
@@ -141,13 +142,13 @@ public class LocalWebServer extends SimpleWebServer
 	private void startServer(final InetAddress host, final int port)
 	{
 		updateState(State.STARTING);
+		requestHandler = new LocalWebServerHttpRequestHandler(this);
 		thread = new Thread()
 		{
 			@Override
 			public void run()
 			{
-				runServer(new InetSocketAddress(host, port), new BasicAsyncRequestHandler(
-						new LocalWebServerHttpRequestHandler(LocalWebServer.this)));
+				runServer(new InetSocketAddress(host, port), new BasicAsyncRequestHandler(requestHandler));
 			}
 		};
 		thread.setDaemon(true);
@@ -249,6 +250,11 @@ public class LocalWebServer extends SimpleWebServer
 				// ignore
 			}
 		}
+		if (requestHandler != null)
+		{
+			requestHandler.dispose();
+			requestHandler = null;
+		}
 		return Status.OK_STATUS;
 	}
 
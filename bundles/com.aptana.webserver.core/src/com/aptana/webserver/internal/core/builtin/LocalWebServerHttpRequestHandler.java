@@ -9,23 +9,38 @@
 
 package com.aptana.webserver.internal.core.builtin;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLDecoder;
 import java.text.MessageFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpException;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.MethodNotSupportedException;
+import org.apache.http.entity.AbstractHttpEntity;
 import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NByteArrayEntity;
 import org.apache.http.nio.entity.NFileEntity;
 import org.apache.http.nio.entity.NStringEntity;
 import org.apache.http.protocol.HTTP;
@@ -58,7 +73,29 @@ import com.aptana.webserver.core.WebServerCorePlugin;
 
 	private final static Pattern PATTERN_INDEX = Pattern.compile("(index|default)\\.x?html?"); //$NON-NLS-1$
 
+	private static final String GZIP = "gzip"; //$NON-NLS-1$
+	private static final String GZIP_EXTENSION = ".gz"; //$NON-NLS-1$
+	private static final String BYTES_UNIT = "bytes"; //$NON-NLS-1$
+	private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz"; //$NON-NLS-1$
+
+	/**
+	 * Files bigger than this are never compressed on the fly.
+	 */
+	private static final long MAX_COMPRESSED_FILE_SIZE = 2 * 1024 * 1024; // 2MB
+	/**
+	 * Upper limit for the total size of the compressed responses we hold on to.
+	 */
+	private static final long MAX_COMPRESSED_CACHE_SIZE = 16 * 1024 * 1024; // 16MB
+
+	/**
+	 * Marks a <code>Range</code> request that can't be satisfied for the file.
+	 */
+	private static final long[] UNSATISFIABLE_RANGE = new long[0];
+
 	private IURIMapper uriMapper;
+	private final ResolvedResourceCache resolvedCache = new ResolvedResourceCache();
+	private final Map<String, byte[]> compressedCache = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+	private long compressedCacheSize;
 
 	/**
 	 * @param documentRoot
@@ -66,6 +103,35 @@ import com.aptana.webserver.core.WebServerCorePlugin;
 	protected LocalWebServerHttpRequestHandler(IURIMapper uriMapper)
 	{
 		this.uriMapper = uriMapper;
+		try
+		{
+			resolvedCache.install();
+		}
+		catch (IllegalStateException e)
+		{
+			// workspace is closed, we'll simply never get any deltas
+			IdeLog.logWarning(WebServerCorePlugin.getDefault(), e);
+		}
+	}
+
+	/**
+	 * Releases the cached resource metadata and content.
+	 */
+	public void dispose()
+	{
+		try
+		{
+			resolvedCache.uninstall();
+		}
+		catch (IllegalStateException e)
+		{
+			// workspace is closed already
+		}
+		synchronized (compressedCache)
+		{
+			compressedCache.clear();
+			compressedCacheSize = 0;
+		}
 	}
 
 	private void handleRequest(HttpRequest request, HttpResponse response, boolean head) throws HttpException,
@@ -73,16 +139,9 @@ import com.aptana.webserver.core.WebServerCorePlugin;
 	{
 		String target = URLDecoder.decode(request.getRequestLine().getUri(), IOUtil.UTF_8);
 		URI uri = URIUtil.fromString(target);
-		IFileStore fileStore = uriMapper.resolve(uri);
-		IFileInfo fileInfo = fileStore.fetchInfo();
-		if (fileInfo.isDirectory())
-		{
-			fileInfo = getIndex(fileStore);
-			if (fileInfo.exists())
-			{
-				fileStore = fileStore.getChild(fileInfo.getName());
-			}
-		}
+		ResolvedResourceCache.Entry resolved = resolve(uri);
+		IFileStore fileStore = resolved.fileStore;
+		IFileInfo fileInfo = resolved.fileInfo;
 		if (!fileInfo.exists())
 		{
 			response.setStatusCode(HttpStatus.SC_NOT_FOUND);
@@ -96,18 +155,71 @@ import com.aptana.webserver.core.WebServerCorePlugin;
 		}
 		else
 		{
-			response.setStatusCode(HttpStatus.SC_OK);
-			if (head)
+			String etag = getETag(fileInfo);
+			long lastModified = fileInfo.getLastModified();
+			response.setHeader(HttpHeaders.ETAG, etag);
+			if (lastModified > 0)
 			{
+				response.setHeader(HttpHeaders.LAST_MODIFIED, formatDate(lastModified));
+			}
+			response.setHeader(HttpHeaders.ACCEPT_RANGES, BYTES_UNIT);
+
+			if (isNotModified(request, etag, lastModified))
+			{
+				response.setStatusCode(HttpStatus.SC_NOT_MODIFIED);
 				response.setEntity(null);
+				return;
+			}
+
+			ContentType contentType = getMimeType(fileStore.getName());
+			boolean compressible = isCompressible(contentType);
+			if (compressible)
+			{
+				response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+			}
+			long length = fileInfo.getLength();
+			long[] range = getRange(request, etag, lastModified, length);
+			if (range == UNSATISFIABLE_RANGE)
+			{
+				response.setStatusCode(HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				response.setHeader(HttpHeaders.CONTENT_RANGE, MessageFormat.format("{0} */{1}", BYTES_UNIT, //$NON-NLS-1$
+						Long.toString(length)));
+				response.setEntity(createTextEntity(Messages.LocalWebServerHttpRequestHandler_RANGE_NOT_SATISFIABLE));
+				return;
+			}
+			if (range != null)
+			{
+				response.setStatusCode(HttpStatus.SC_PARTIAL_CONTENT);
+				response.setHeader(HttpHeaders.CONTENT_RANGE, MessageFormat.format("{0} {1}-{2}/{3}", BYTES_UNIT, //$NON-NLS-1$
+						Long.toString(range[0]), Long.toString(range[1]), Long.toString(length)));
 			}
 			else
 			{
-				File file = fileStore.toLocalFile(EFS.NONE, new NullProgressMonitor());
-				final File temporaryFile = (file == null) ? fileStore.toLocalFile(EFS.CACHE, new NullProgressMonitor())
-						: null;
-				response.setEntity(new NFileEntity((file != null) ? file : temporaryFile, getMimeType(fileStore
-						.getName()))
+				response.setStatusCode(HttpStatus.SC_OK);
+			}
+			if (head)
+			{
+				response.setEntity(null);
+				return;
+			}
+
+			if (range == null && compressible && acceptsGzip(request))
+			{
+				HttpEntity entity = createCompressedEntity(fileStore, fileInfo, etag, contentType);
+				if (entity != null)
+				{
+					response.setEntity(entity);
+					return;
+				}
+			}
+
+			File file = fileStore.toLocalFile(EFS.NONE, new NullProgressMonitor());
+			final File temporaryFile = (file == null) ? fileStore.toLocalFile(EFS.CACHE, new NullProgressMonitor())
+					: null;
+			if (range != null)
+			{
+				response.setEntity(new NFileRangeEntity((file != null) ? file : temporaryFile, range[0], range[1]
+						- range[0] + 1, contentType)
 				{
 					@Override
 					public void close() throws IOException
@@ -118,15 +230,330 @@ import com.aptana.webserver.core.WebServerCorePlugin;
 						}
 						finally
 						{
-							if (temporaryFile != null && !temporaryFile.delete())
-							{
-								temporaryFile.deleteOnExit();
-							}
+							deleteTemporaryFile(temporaryFile);
 						}
 					}
 				});
+				return;
+			}
+			response.setEntity(new NFileEntity((file != null) ? file : temporaryFile, contentType)
+			{
+				@Override
+				public void close() throws IOException
+				{
+					try
+					{
+						super.close();
+					}
+					finally
+					{
+						deleteTemporaryFile(temporaryFile);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Resolves the request URI to the file to serve, looking up the index file for directories. The resolution is
+	 * cached; for local files we still re-read the file info since that's cheap and keeps us correct for changes made
+	 * outside of the workspace.
+	 */
+	private ResolvedResourceCache.Entry resolve(URI uri) throws CoreException
+	{
+		ResolvedResourceCache.Entry entry = resolvedCache.get(uri);
+		if (entry != null)
+		{
+			if (entry.fileStore.getFileSystem() != EFS.getLocalFileSystem()) // $codepro.audit.disable useEquals
+			{
+				return entry;
+			}
+			IFileInfo fileInfo = entry.fileStore.fetchInfo();
+			if (fileInfo.exists() && fileInfo.isDirectory() == entry.fileInfo.isDirectory())
+			{
+				return new ResolvedResourceCache.Entry(entry.fileStore, fileInfo, entry.tracked);
 			}
 		}
+
+		IFileStore fileStore = uriMapper.resolve(uri);
+		IFileInfo fileInfo = fileStore.fetchInfo();
+		if (fileInfo.isDirectory())
+		{
+			fileInfo = getIndex(fileStore);
+			if (fileInfo.exists())
+			{
+				fileStore = fileStore.getChild(fileInfo.getName());
+			}
+		}
+		return resolvedCache.put(uri, fileStore, fileInfo);
+	}
+
+	/**
+	 * Returns a gzip encoded entity for the file: a precompressed <code>.gz</code> sibling when there's an up to date
+	 * one, otherwise the file compressed on the fly (and cached). Returns <code>null</code> if the file is too big to
+	 * compress in memory.
+	 */
+	private HttpEntity createCompressedEntity(IFileStore fileStore, IFileInfo fileInfo, String etag,
+			ContentType contentType) throws CoreException, IOException
+	{
+		IFileStore precompressed = fileStore.getParent().getChild(fileStore.getName() + GZIP_EXTENSION);
+		IFileInfo precompressedInfo = precompressed.fetchInfo();
+		if (precompressedInfo.exists() && !precompressedInfo.isDirectory()
+				&& precompressedInfo.getLastModified() >= fileInfo.getLastModified())
+		{
+			File file = precompressed.toLocalFile(EFS.NONE, new NullProgressMonitor());
+			if (file != null)
+			{
+				NFileEntity entity = new NFileEntity(file, contentType);
+				entity.setContentEncoding(GZIP);
+				return entity;
+			}
+		}
+
+		if (fileInfo.getLength() > MAX_COMPRESSED_FILE_SIZE)
+		{
+			return null;
+		}
+		String key = fileStore.toURI() + etag;
+		byte[] compressed;
+		synchronized (compressedCache)
+		{
+			compressed = compressedCache.get(key);
+		}
+		if (compressed == null)
+		{
+			compressed = compress(fileStore);
+			synchronized (compressedCache)
+			{
+				if (compressedCache.put(key, compressed) == null)
+				{
+					compressedCacheSize += compressed.length;
+				}
+				for (Iterator<byte[]> i = compressedCache.values().iterator(); i.hasNext()
+						&& compressedCacheSize > MAX_COMPRESSED_CACHE_SIZE;)
+				{
+					compressedCacheSize -= i.next().length;
+					i.remove();
+				}
+			}
+		}
+		AbstractHttpEntity entity = new NByteArrayEntity(compressed, contentType);
+		entity.setContentEncoding(GZIP);
+		return entity;
+	}
+
+	private static byte[] compress(IFileStore fileStore) throws CoreException, IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GZIPOutputStream out = new GZIPOutputStream(bytes);
+		InputStream in = null;
+		try
+		{
+			File file = fileStore.toLocalFile(EFS.NONE, new NullProgressMonitor());
+			in = (file != null) ? new FileInputStream(file) : fileStore.openInputStream(EFS.NONE,
+					new NullProgressMonitor());
+			IOUtil.pipe(in, out);
+		}
+		finally
+		{
+			if (in != null)
+			{
+				try
+				{
+					in.close();
+				}
+				catch (IOException e)
+				{
+					// ignore
+				}
+			}
+			out.close();
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void deleteTemporaryFile(File temporaryFile)
+	{
+		if (temporaryFile != null && !temporaryFile.delete())
+		{
+			temporaryFile.deleteOnExit();
+		}
+	}
+
+	private static String getETag(IFileInfo fileInfo)
+	{
+		return MessageFormat.format("\"{0}-{1}\"", Long.toHexString(fileInfo.getLastModified()), //$NON-NLS-1$
+				Long.toHexString(fileInfo.getLength()));
+	}
+
+	/**
+	 * Checks the <code>If-None-Match</code> and <code>If-Modified-Since</code> request headers.
+	 */
+	private static boolean isNotModified(HttpRequest request, String etag, long lastModified)
+	{
+		Header ifNoneMatch = request.getFirstHeader(HttpHeaders.IF_NONE_MATCH);
+		if (ifNoneMatch != null)
+		{
+			// If-None-Match takes precedence over If-Modified-Since
+			for (String tag : ifNoneMatch.getValue().split(",")) //$NON-NLS-1$
+			{
+				tag = tag.trim();
+				if (tag.startsWith("W/")) //$NON-NLS-1$
+				{
+					tag = tag.substring(2);
+				}
+				if ("*".equals(tag) || etag.equals(tag)) //$NON-NLS-1$
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+		Header ifModifiedSince = request.getFirstHeader(HttpHeaders.IF_MODIFIED_SINCE);
+		if (ifModifiedSince != null && lastModified > 0)
+		{
+			long since = parseDate(ifModifiedSince.getValue());
+			// HTTP dates have a resolution of seconds
+			return since >= 0 && lastModified / 1000 <= since / 1000;
+		}
+		return false;
+	}
+
+	/**
+	 * Parses a single <code>Range</code> request header.
+	 *
+	 * @return the first and last byte offset to send, <code>null</code> to send the whole file, or
+	 *         {@link #UNSATISFIABLE_RANGE}
+	 */
+	private static long[] getRange(HttpRequest request, String etag, long lastModified, long length)
+	{
+		Header rangeHeader = request.getFirstHeader(HttpHeaders.RANGE);
+		if (rangeHeader == null)
+		{
+			return null;
+		}
+		Header ifRange = request.getFirstHeader(HttpHeaders.IF_RANGE);
+		if (ifRange != null)
+		{
+			String value = ifRange.getValue().trim();
+			boolean matches = value.startsWith("\"") ? etag.equals(value) //$NON-NLS-1$
+					: (lastModified > 0 && parseDate(value) / 1000 == lastModified / 1000);
+			if (!matches)
+			{
+				// the representation changed, send all of it
+				return null;
+			}
+		}
+		String value = rangeHeader.getValue().trim();
+		if (!value.startsWith(BYTES_UNIT + '=') || value.indexOf(',') != -1)
+		{
+			// unknown unit or multiple ranges, we only support a single byte range
+			return null;
+		}
+		String spec = value.substring(BYTES_UNIT.length() + 1).trim();
+		int dash = spec.indexOf('-');
+		if (dash == -1)
+		{
+			return null;
+		}
+		try
+		{
+			String first = spec.substring(0, dash).trim();
+			String last = spec.substring(dash + 1).trim();
+			long start;
+			long end;
+			if (first.length() == 0)
+			{
+				// suffix range: the last N bytes
+				long suffix = Long.parseLong(last);
+				if (suffix <= 0 || length == 0)
+				{
+					return UNSATISFIABLE_RANGE;
+				}
+				start = Math.max(0, length - suffix);
+				end = length - 1;
+			}
+			else
+			{
+				start = Long.parseLong(first);
+				end = (last.length() == 0) ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+				if (last.length() > 0 && Long.parseLong(last) < start)
+				{
+					// syntactically invalid, ignore it
+					return null;
+				}
+				if (start >= length)
+				{
+					return UNSATISFIABLE_RANGE;
+				}
+			}
+			return new long[] { start, end };
+		}
+		catch (NumberFormatException e)
+		{
+			return null;
+		}
+	}
+
+	private static boolean acceptsGzip(HttpRequest request)
+	{
+		Header acceptEncoding = request.getFirstHeader(HttpHeaders.ACCEPT_ENCODING);
+		if (acceptEncoding == null)
+		{
+			return false;
+		}
+		for (String coding : acceptEncoding.getValue().split(",")) //$NON-NLS-1$
+		{
+			String[] parts = coding.split(";"); //$NON-NLS-1$
+			if (GZIP.equalsIgnoreCase(parts[0].trim()))
+			{
+				for (int i = 1; i < parts.length; i++)
+				{
+					String param = parts[i].trim();
+					if (param.startsWith("q=")) //$NON-NLS-1$
+					{
+						try
+						{
+							return Float.parseFloat(param.substring(2)) > 0;
+						}
+						catch (NumberFormatException e)
+						{
+							return false;
+						}
+					}
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isCompressible(ContentType contentType)
+	{
+		String mimeType = contentType.getMimeType();
+		return mimeType.startsWith("text/") || mimeType.endsWith("javascript") || mimeType.endsWith("json") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				|| mimeType.endsWith("xml"); //$NON-NLS-1$
+	}
+
+	private static String formatDate(long time)
+	{
+		SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT")); //$NON-NLS-1$
+		return format.format(new Date(time));
+	}
+
+	private static long parseDate(String value)
+	{
+		SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT")); //$NON-NLS-1$
+		try
+		{
+			return format.parse(value.trim()).getTime();
+		}
+		catch (ParseException e)
+		{
+			return -1;
+		}
 	}
 
 	/*
@@ -18,6 +18,7 @@ public class Messages extends NLS
 	public static String LocalWebServerHttpRequestHandler_FILE_NOT_FOUND;
 	public static String LocalWebServerHttpRequestHandler_FORBIDDEN;
 	public static String LocalWebServerHttpRequestHandler_INTERNAL_SERVER_ERROR;
+	public static String LocalWebServerHttpRequestHandler_RANGE_NOT_SATISFIABLE;
 	public static String LocalWebServerHttpRequestHandler_UNSUPPORTED_METHOD;
 
 	static
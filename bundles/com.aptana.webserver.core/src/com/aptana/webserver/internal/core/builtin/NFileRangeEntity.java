@@ -0,0 +1,213 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.webserver.internal.core.builtin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.FileContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+/**
+ * A non-blocking entity that produces a byte range of a file. Used to answer <code>Range</code> requests without
+ * reading the rest of the file.
+ */
+/* package */class NFileRangeEntity extends AbstractHttpEntity implements HttpAsyncContentProducer
+{
+
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	private final File file;
+	private final long start;
+	private final long length;
+
+	private RandomAccessFile accessFile;
+	private FileChannel channel;
+	private ByteBuffer buffer;
+	private long position;
+
+	/**
+	 * @param file
+	 *            the file to read from
+	 * @param start
+	 *            offset of the first byte to send
+	 * @param length
+	 *            number of bytes to send
+	 * @param contentType
+	 */
+	public NFileRangeEntity(File file, long start, long length, ContentType contentType)
+	{
+		this.file = file;
+		this.start = start;
+		this.length = length;
+		if (contentType != null)
+		{
+			setContentType(contentType.toString());
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.http.nio.entity.HttpAsyncContentProducer#produceContent(org.apache.http.nio.ContentEncoder,
+	 * org.apache.http.nio.IOControl)
+	 */
+	public void produceContent(ContentEncoder encoder, IOControl ioctrl) throws IOException
+	{
+		if (channel == null)
+		{
+			accessFile = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+			channel = accessFile.getChannel();
+			position = start;
+		}
+		long end = start + length;
+		long remaining = end - position;
+		if (remaining > 0)
+		{
+			long transferred;
+			if (encoder instanceof FileContentEncoder)
+			{
+				transferred = ((FileContentEncoder) encoder).transfer(channel, position, remaining);
+			}
+			else
+			{
+				if (buffer == null)
+				{
+					buffer = ByteBuffer.allocate(BUFFER_SIZE);
+				}
+				buffer.clear();
+				if (remaining < buffer.capacity())
+				{
+					buffer.limit((int) remaining);
+				}
+				int read = channel.read(buffer, position);
+				if (read < 0)
+				{
+					throw new IOException("Unexpected end of file " + file); //$NON-NLS-1$
+				}
+				buffer.flip();
+				// whatever the encoder didn't take gets read again next time
+				transferred = encoder.write(buffer);
+			}
+			if (transferred > 0)
+			{
+				position += transferred;
+			}
+		}
+		if (position >= end)
+		{
+			encoder.complete();
+			close();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	public void close() throws IOException
+	{
+		if (accessFile != null)
+		{
+			try
+			{
+				accessFile.close();
+			}
+			finally
+			{
+				accessFile = null;
+				channel = null;
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.http.HttpEntity#getContentLength()
+	 */
+	public long getContentLength()
+	{
+		return length;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.http.HttpEntity#isRepeatable()
+	 */
+	public boolean isRepeatable()
+	{
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.http.HttpEntity#isStreaming()
+	 */
+	public boolean isStreaming()
+	{
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.http.HttpEntity#getContent()
+	 */
+	public InputStream getContent() throws IOException
+	{
+		InputStream in = new FileInputStream(file);
+		long skipped = 0;
+		while (skipped < start)
+		{
+			long n = in.skip(start - skipped);
+			if (n <= 0)
+			{
+				break;
+			}
+			skipped += n;
+		}
+		return in;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.apache.http.HttpEntity#writeTo(java.io.OutputStream)
+	 */
+	public void writeTo(OutputStream out) throws IOException
+	{
+		InputStream in = getContent();
+		try
+		{
+			byte[] bytes = new byte[BUFFER_SIZE];
+			long remaining = length;
+			while (remaining > 0)
+			{
+				int read = in.read(bytes, 0, (int) Math.min(bytes.length, remaining));
+				if (read < 0)
+				{
+					break;
+				}
+				out.write(bytes, 0, read);
+				remaining -= read;
+			}
+			out.flush();
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,206 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.webserver.internal.core.builtin;
+
+import java.net.URI;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.filesystem.IFileInfo;
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+
+import com.aptana.core.logging.IdeLog;
+import com.aptana.webserver.core.WebServerCorePlugin;
+
+/**
+ * Caches the {@link IFileStore} (and its {@link IFileInfo}) a request URI resolved to, including the index file lookup
+ * for directories. Entries for stores backed by workspace resources are kept until a resource delta touches them;
+ * anything else (stores outside of the workspace we get no deltas for) expires after {@link #UNTRACKED_TTL}.
+ */
+/* package */class ResolvedResourceCache implements IResourceChangeListener
+{
+
+	private static final int MAX_ENTRIES = 1000;
+	private static final long UNTRACKED_TTL = 2000; // 2 seconds
+
+	/* package */static class Entry
+	{
+		final IFileStore fileStore;
+		final IFileInfo fileInfo;
+		final boolean tracked;
+		final long timestamp;
+
+		Entry(IFileStore fileStore, IFileInfo fileInfo, boolean tracked)
+		{
+			this.fileStore = fileStore;
+			this.fileInfo = fileInfo;
+			this.tracked = tracked;
+			this.timestamp = System.currentTimeMillis();
+		}
+	}
+
+	private final Map<URI, Entry> entries = new LinkedHashMap<URI, Entry>(16, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<URI, Entry> eldest)
+		{
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	/**
+	 * Starts listening for workspace changes.
+	 */
+	public void install()
+	{
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+	}
+
+	/**
+	 * Stops listening for workspace changes and drops all cached entries.
+	 */
+	public void uninstall()
+	{
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+		clear();
+	}
+
+	/**
+	 * Returns the cached resolution for the given request URI, or <code>null</code>.
+	 */
+	public synchronized Entry get(URI uri)
+	{
+		Entry entry = entries.get(uri);
+		if (entry != null && !entry.tracked && System.currentTimeMillis() - entry.timestamp > UNTRACKED_TTL)
+		{
+			entries.remove(uri);
+			return null;
+		}
+		return entry;
+	}
+
+	/**
+	 * Remembers what the given request URI resolved to. Only existing stores are cached.
+	 */
+	public Entry put(URI uri, IFileStore fileStore, IFileInfo fileInfo)
+	{
+		Entry entry = new Entry(fileStore, fileInfo, isTracked(fileStore));
+		if (fileInfo.exists())
+		{
+			synchronized (this)
+			{
+				entries.put(uri, entry);
+			}
+		}
+		return entry;
+	}
+
+	public synchronized void clear()
+	{
+		entries.clear();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * org.eclipse.core.resources.IResourceChangeListener#resourceChanged(org.eclipse.core.resources.IResourceChangeEvent
+	 * )
+	 */
+	public void resourceChanged(IResourceChangeEvent event)
+	{
+		IResourceDelta delta = event.getDelta();
+		if (delta == null)
+		{
+			return;
+		}
+		final boolean[] structural = new boolean[1];
+		final Set<URI> changed = new HashSet<URI>();
+		try
+		{
+			delta.accept(new IResourceDeltaVisitor()
+			{
+				public boolean visit(IResourceDelta delta) throws CoreException
+				{
+					switch (delta.getKind())
+					{
+						case IResourceDelta.ADDED:
+						case IResourceDelta.REMOVED:
+							// may change what a URI (or a directory's index) resolves to
+							structural[0] = true;
+							return false;
+
+						case IResourceDelta.CHANGED:
+							if ((delta.getFlags() & (IResourceDelta.CONTENT | IResourceDelta.REPLACED)) != 0)
+							{
+								URI location = delta.getResource().getLocationURI();
+								if (location != null)
+								{
+									changed.add(location);
+								}
+							}
+							return true;
+
+						default:
+							return true;
+					}
+				}
+			});
+		}
+		catch (CoreException e)
+		{
+			IdeLog.logWarning(WebServerCorePlugin.getDefault(), e);
+			structural[0] = true;
+		}
+
+		synchronized (this)
+		{
+			if (structural[0])
+			{
+				entries.clear();
+				return;
+			}
+			if (changed.isEmpty())
+			{
+				return;
+			}
+			for (Iterator<Entry> i = entries.values().iterator(); i.hasNext();)
+			{
+				if (changed.contains(i.next().fileStore.toURI()))
+				{
+					i.remove();
+				}
+			}
+		}
+	}
+
+	private static boolean isTracked(IFileStore fileStore)
+	{
+		try
+		{
+			URI location = fileStore.toURI();
+			return location != null
+					&& ResourcesPlugin.getWorkspace().getRoot().findFilesForLocationURI(location, IResource.NONE).length > 0;
+		}
+		catch (Exception e)
+		{
+			return false;
+		}
+	}
+}
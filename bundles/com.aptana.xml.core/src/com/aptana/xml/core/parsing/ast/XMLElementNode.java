@@ -75,6 +75,28 @@ public class XMLElementNode extends XMLNode
 		super.addOffset(offset);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.parsing.ast.ParseNode#copyReferences(java.util.Map)
+	 */
+	@Override
+	protected void copyReferences(Map<IParseNode, ParseNode> copies)
+	{
+		super.copyReferences(copies);
+		if (fAttributes != null)
+		{
+			Map<String, IParseNodeAttribute> attributes = new LinkedHashMap<String, IParseNodeAttribute>(
+					fAttributes.size());
+			for (Map.Entry<String, IParseNodeAttribute> entry : fAttributes.entrySet())
+			{
+				IParseNodeAttribute attr = entry.getValue();
+				attributes.put(entry.getKey(), new ParseNodeAttribute(this, attr.getName(), attr.getValue(),
+						attr.getNameRange(), attr.getValueRange()));
+			}
+			fAttributes = attributes;
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see com.aptana.parsing.ast.ParseNode#equals(java.lang.Object)
@@ -34,6 +34,7 @@ import org.junit.Test;
 
 import com.aptana.core.build.IBuildParticipant.BuildType;
 import com.aptana.core.internal.build.BuildParticipantManager;
+import com.aptana.core.internal.build.ValidationResultCache;
 import com.aptana.core.resources.IMarkerConstants;
 import com.aptana.core.util.CollectionsUtil;
 import com.aptana.index.core.build.BuildContext;
@@ -137,6 +138,7 @@ public class UnifiedBuilderTest
 	private IBuildParticipant participant;
 	private IProject project;
 	private IResourceDelta delta;
+	private ValidationResultCache cache;
 
 	private Mockery context = new Mockery()
 	{
@@ -150,6 +152,7 @@ public class UnifiedBuilderTest
 	{
 //		super.setUp();
 		project = ProjectCreator.createAndOpen("project_to_build");
+		cache = new ValidationResultCache(null);
 		participant = context.mock(IBuildParticipant.class);
 		manager = new BuildParticipantManager()
 		{
@@ -183,6 +186,12 @@ public class UnifiedBuilderTest
 				return manager;
 			}
 
+			@Override
+			protected ValidationResultCache getValidationResultCache()
+			{
+				return cache;
+			}
+
 			@Override
 			protected boolean traceLoggingEnabled()
 			{
@@ -200,6 +209,7 @@ public class UnifiedBuilderTest
 			project = null;
 		}
 		participant = null;
+		cache = null;
 		builder = null;
 		manager = null;
 //		super.tearDown();
@@ -293,6 +303,54 @@ public class UnifiedBuilderTest
 		// PROBLEM/TASK types?
 	}
 
+	private static class CountingValidator extends RequiredBuildParticipant implements ICacheableBuildParticipant
+	{
+		private int builds;
+
+		@Override
+		public String getId()
+		{
+			return "com.aptana.test.validator";
+		}
+
+		public void deleteFile(BuildContext context, IProgressMonitor monitor)
+		{
+			context.removeProblems(IMarkerConstants.PROBLEM_MARKER);
+		}
+
+		public void buildFile(BuildContext context, IProgressMonitor monitor)
+		{
+			builds++;
+			Collection<IProblem> problems = new ArrayList<IProblem>();
+			problems.add(createWarning("Fake warning", 1, 0, 5, context.getURI().toString()));
+			context.putProblems(IMarkerConstants.PROBLEM_MARKER, problems);
+		}
+	}
+
+	@Test
+	public void testCleanBuildReusesValidationResults() throws Exception
+	{
+		CountingValidator validator = new CountingValidator();
+		participant = validator;
+		builder.build(IncrementalProjectBuilder.FULL_BUILD, null, new NullProgressMonitor());
+		assertEquals(1, validator.builds);
+		assertEquals(1, cache.size());
+
+		builder.clean(new NullProgressMonitor());
+		builder.build(IncrementalProjectBuilder.FULL_BUILD, null, new NullProgressMonitor());
+		// nothing changed, the problems come from the cache
+		assertEquals(1, validator.builds);
+		IFile file = project.getFile(IProjectDescription.DESCRIPTION_FILE_NAME);
+		IMarker[] markers = file.findMarkers(IMarkerConstants.PROBLEM_MARKER, false, IResource.DEPTH_ZERO);
+		assertEquals(1, markers.length);
+		assertEquals("Fake warning", markers[0].getAttribute(IMarker.MESSAGE));
+
+		// a change in the contents runs the validator again
+		file.appendContents(new ByteArrayInputStream("<!-- -->".getBytes()), true, false, null);
+		builder.build(IncrementalProjectBuilder.FULL_BUILD, null, new NullProgressMonitor());
+		assertEquals(2, validator.builds);
+	}
+
 	@Test
 	public void testIncrementalBuildWithNoDeltaDoesFullBuild() throws Exception
 	{
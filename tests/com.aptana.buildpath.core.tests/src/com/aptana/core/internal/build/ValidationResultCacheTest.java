@@ -0,0 +1,194 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.core.internal.build;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IMarker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aptana.core.build.IProblem;
+import com.aptana.core.build.Problem;
+import com.aptana.core.util.StringUtil;
+
+public class ValidationResultCacheTest
+{
+
+	private static final String PARTICIPANT = "com.aptana.test.validator";
+	private static final String MARKER_TYPE = "com.aptana.test.problem";
+	private static final URI FILE = URI.create("file:/tmp/project/file.js");
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		file = File.createTempFile("validation", ".cache");
+		file.delete();
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		file.delete();
+		file = null;
+	}
+
+	@Test
+	public void testHitsOnlyForSameContentsAndSettings() throws Exception
+	{
+		ValidationResultCache cache = new ValidationResultCache(null);
+		String hash = StringUtil.md5("var a = 1");
+		cache.put(PARTICIPANT, FILE, "filters", hash, problems(error("Missing semicolon", 9)));
+
+		assertProblem(cache.get(PARTICIPANT, FILE, "filters", hash), "Missing semicolon", 9);
+		assertNull(cache.get(PARTICIPANT, FILE, "filters", StringUtil.md5("var a = 1;")));
+		assertNull(cache.get(PARTICIPANT, FILE, "other filters", hash));
+		assertNull(cache.get("com.aptana.test.other", FILE, "filters", hash));
+		assertNull(cache.get(PARTICIPANT, URI.create("file:/tmp/project/other.js"), "filters", hash));
+	}
+
+	@Test
+	public void testReturnsCopies() throws Exception
+	{
+		ValidationResultCache cache = new ValidationResultCache(null);
+		String hash = StringUtil.md5("var a = 1");
+		cache.put(PARTICIPANT, FILE, "", hash, problems(error("Missing semicolon", 9)));
+
+		Map<String, Collection<IProblem>> problems = cache.get(PARTICIPANT, FILE, "", hash);
+		((Problem) problems.get(MARKER_TYPE).iterator().next()).setOffset(0);
+		assertProblem(cache.get(PARTICIPANT, FILE, "", hash), "Missing semicolon", 9);
+	}
+
+	@Test
+	public void testPersistsAcrossSessions() throws Exception
+	{
+		ValidationResultCache cache = new ValidationResultCache(file);
+		String hash = StringUtil.md5("var a = 1");
+		Problem problem = error("Unexpected é", 4);
+		problem.setAttribute("id", 261);
+		problem.setAttribute("fixable", Boolean.TRUE);
+		problem.setAttribute("hint", "quote it");
+		cache.put(PARTICIPANT, FILE, "filters", hash, problems(problem));
+		Map<String, Collection<IProblem>> empty = new HashMap<String, Collection<IProblem>>();
+		empty.put(MARKER_TYPE, Collections.<IProblem> emptyList());
+		cache.put("com.aptana.test.other", FILE, "", hash, empty);
+		cache.save();
+		assertTrue(file.isFile());
+
+		cache = new ValidationResultCache(file);
+		assertEquals(2, cache.size());
+		Map<String, Collection<IProblem>> problems = cache.get(PARTICIPANT, FILE, "filters", hash);
+		assertProblem(problems, "Unexpected é", 4);
+		Map<String, Object> attributes = problems.get(MARKER_TYPE).iterator().next().getAttributes();
+		assertEquals(261, attributes.get("id"));
+		assertEquals(Boolean.TRUE, attributes.get("fixable"));
+		assertEquals("quote it", attributes.get("hint"));
+		assertTrue(cache.get("com.aptana.test.other", FILE, "", hash).get(MARKER_TYPE).isEmpty());
+	}
+
+	@Test
+	public void testRemove() throws Exception
+	{
+		ValidationResultCache cache = new ValidationResultCache(file);
+		String hash = StringUtil.md5("var a = 1");
+		cache.put(PARTICIPANT, FILE, "", hash, problems(error("Missing semicolon", 9)));
+		cache.save();
+
+		cache.remove(PARTICIPANT, FILE);
+		assertNull(cache.get(PARTICIPANT, FILE, "", hash));
+		cache.save();
+		assertEquals(0, new ValidationResultCache(file).size());
+	}
+
+	@Test
+	public void testUnpersistableAttributesAreNotCached() throws Exception
+	{
+		ValidationResultCache cache = new ValidationResultCache(null);
+		String hash = StringUtil.md5("var a = 1");
+		Problem problem = error("Missing semicolon", 9);
+		problem.setAttribute("node", new Object());
+		cache.put(PARTICIPANT, FILE, "", hash, problems(problem));
+		assertNull(cache.get(PARTICIPANT, FILE, "", hash));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testCorruptedFileIsDropped() throws Exception
+	{
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(new byte[] { 0, 0, 0, 1, 0, 0, 0, 5, 1 });
+		out.close();
+
+		ValidationResultCache cache = new ValidationResultCache(file);
+		assertEquals(0, cache.size());
+		cache.save();
+		assertEquals(0, new ValidationResultCache(file).size());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEntriesAreDropped() throws Exception
+	{
+		ValidationResultCache cache = new ValidationResultCache(null);
+		String hash = StringUtil.md5("");
+		Map<String, Collection<IProblem>> none = new HashMap<String, Collection<IProblem>>();
+		for (int i = 0; i < ValidationResultCache.MAX_ENTRIES; i++)
+		{
+			cache.put(PARTICIPANT, URI.create("file:/tmp/project/" + i + ".js"), "", hash, none);
+		}
+		// touch the first one
+		assertNotNull(cache.get(PARTICIPANT, URI.create("file:/tmp/project/0.js"), "", hash));
+		cache.put(PARTICIPANT, FILE, "", hash, none);
+
+		assertEquals(ValidationResultCache.MAX_ENTRIES, cache.size());
+		assertNotNull(cache.get(PARTICIPANT, URI.create("file:/tmp/project/0.js"), "", hash));
+		assertNull(cache.get(PARTICIPANT, URI.create("file:/tmp/project/1.js"), "", hash));
+	}
+
+	private Problem error(String message, int offset)
+	{
+		return new Problem(IMarker.SEVERITY_ERROR, message, offset, 1, 1, FILE.toString());
+	}
+
+	private Map<String, Collection<IProblem>> problems(IProblem problem)
+	{
+		List<IProblem> problems = new ArrayList<IProblem>();
+		problems.add(problem);
+		Map<String, Collection<IProblem>> result = new HashMap<String, Collection<IProblem>>();
+		result.put(MARKER_TYPE, problems);
+		return result;
+	}
+
+	private void assertProblem(Map<String, Collection<IProblem>> problems, String message, int offset)
+	{
+		assertNotNull(problems);
+		assertEquals(1, problems.size());
+		Collection<IProblem> typeProblems = problems.get(MARKER_TYPE);
+		assertEquals(1, typeProblems.size());
+		IProblem problem = typeProblems.iterator().next();
+		assertEquals(message, problem.getMessage());
+		assertEquals(offset, problem.getOffset());
+		assertEquals(IProblem.Severity.ERROR, problem.getSeverity());
+		assertEquals(FILE.toString(), problem.getSourcePath());
+	}
+}
@@ -4,6 +4,7 @@ import java.io.FileNotFoundException;
 import java.io.OutputStream;
 import java.net.ProtocolException;
 import java.net.URI;
+import java.util.Collections;
 import java.util.Map;
 
 import org.eclipse.core.runtime.CoreException;
@@ -13,6 +14,7 @@ import org.eclipse.ecf.core.identity.Namespace;
 import org.eclipse.ecf.core.security.IConnectContext;
 import org.eclipse.ecf.core.util.Proxy;
 import org.eclipse.ecf.filetransfer.IFileRangeSpecification;
+import org.eclipse.ecf.filetransfer.IRetrieveFileTransferOptions;
 import org.eclipse.ecf.filetransfer.identity.FileIDFactory;
 import org.eclipse.ecf.filetransfer.identity.IFileID;
 import org.eclipse.ecf.filetransfer.service.IRetrieveFileTransfer;
@@ -128,4 +130,41 @@ public class FileReaderTest
 		reader.readInto(uri, out, 0, null);
 		context.assertIsSatisfied();
 	}
+
+	@Test
+	public void testResumeOnlyIfUnmodified() throws Exception
+	{
+		final IRetrieveFileTransfer adapter = context.mock(IRetrieveFileTransfer.class);
+		final IFileID fileID = context.mock(IFileID.class);
+		final Namespace ns = context.mock(Namespace.class);
+		final Map<String, Object> options = Collections.<String, Object> singletonMap(
+				IRetrieveFileTransferOptions.REQUEST_HEADERS,
+				Collections.singletonMap("If-Range", "Tue, 13 May 2014 16:53:20 GMT"));
+
+		context.checking(new Expectations()
+		{
+			{
+				oneOf(fileTransferFactory).newInstance();
+				will(returnValue(adapter));
+
+				oneOf(adapter).setConnectContextForAuthentication(cc);
+
+				oneOf(adapter).setProxy(proxy);
+
+				oneOf(adapter).getRetrieveNamespace();
+				will(returnValue(ns));
+
+				oneOf(fileIDFactory).createFileID(ns, uri.toString());
+				will(returnValue(fileID));
+
+				oneOf(adapter).sendRetrieveRequest(with(fileID), with(any(IFileRangeSpecification.class)),
+						with(reader), with(equal(options)));
+
+				oneOf(jobManager).join(with(reader), with(any(IProgressMonitor.class)));
+			}
+		});
+
+		reader.readInto(uri, out, 100, 1400000000000L, null);
+		context.assertIsSatisfied();
+	}
 }
@@ -1,33 +1,49 @@
 package com.aptana.ide.core.io.downloader;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.OutputStream;
 import java.net.ProtocolException;
 import java.net.URI;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.ecf.core.security.IConnectContext;
+import org.hamcrest.Description;
 import org.jmock.Expectations;
 import org.jmock.Mockery;
+import org.jmock.api.Action;
+import org.jmock.api.Invocation;
 import org.jmock.lib.legacy.ClassImposteriser;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import com.aptana.core.epl.downloader.ConnectionData;
+import com.aptana.core.epl.downloader.FileInfo;
 import com.aptana.core.epl.downloader.FileReader;
+import com.aptana.core.util.FileUtil;
+import com.aptana.core.util.IOUtil;
 
 public class ContentDownloadRequestTest
 {
 
+	private static final long LAST_MODIFIED = 1400000000000L;
+
 	private ContentDownloadRequest cdr;
 	private Mockery context;
 	private IConnectContext cc;
 	private File saveTo;
 	private FileReader reader;
+	/**
+	 * What the reader reports of the response it got.
+	 */
+	private FileInfo info;
 	private OutputStream out;
 	private URI uri;
 
@@ -43,6 +59,14 @@ public class ContentDownloadRequestTest
 		cc = context.mock(IConnectContext.class);
 		saveTo = context.mock(File.class);
 		reader = context.mock(FileReader.class);
+		info = new FileInfo();
+		context.checking(new Expectations()
+		{
+			{
+				allowing(reader).getLastFileInfo();
+				will(returnValue(info));
+			}
+		});
 		out = context.mock(OutputStream.class);
 		uri = URI.create("http://example.com/index.html");
 		cdr = new ContentDownloadRequest(uri, saveTo, cc)
@@ -53,6 +77,12 @@ public class ContentDownloadRequestTest
 				return out;
 			}
 
+			@Override
+			protected OutputStream createOutputStream(File dest, boolean append) throws FileNotFoundException
+			{
+				return out;
+			}
+
 			@Override
 			protected FileReader createReader(ConnectionData data)
 			{
@@ -69,6 +99,7 @@ public class ContentDownloadRequestTest
 		saveTo = null;
 		context = null;
 		reader = null;
+		info = null;
 		out = null;
 		uri = null;
 	}
@@ -92,4 +123,276 @@ public class ContentDownloadRequestTest
 		context.assertIsSatisfied();
 	}
 
+	@Test
+	public void testResumesBrokenTransfer() throws Exception
+	{
+		info.setSize(200);
+		info.setLastModified(LAST_MODIFIED);
+		context.checking(new Expectations()
+		{
+			{
+				oneOf(reader).readInto(uri, out, 0, null);
+				will(throwException(new ProtocolException("Premature end of content")));
+
+				oneOf(saveTo).length();
+				will(returnValue(100L));
+
+				// picks up where it stopped, if the content didn't change
+				oneOf(reader).readInto(with(uri), with(any(OutputStream.class)), with(100L), with(LAST_MODIFIED),
+						with(aNull(IProgressMonitor.class)));
+			}
+		});
+
+		cdr.execute(null);
+		assertTrue(cdr.getResult().isOK());
+		context.assertIsSatisfied();
+	}
+
+	@Test
+	public void testStartsOverWhenResumingFails() throws Exception
+	{
+		info.setSize(200);
+		info.setLastModified(LAST_MODIFIED);
+		context.checking(new Expectations()
+		{
+			{
+				oneOf(reader).readInto(uri, out, 0, null);
+				will(throwException(new ProtocolException("Premature end of content")));
+
+				exactly(2).of(saveTo).length();
+				will(returnValue(100L));
+
+				oneOf(reader).readInto(with(uri), with(any(OutputStream.class)), with(100L), with(LAST_MODIFIED),
+						with(aNull(IProgressMonitor.class)));
+				will(throwException(new ProtocolException("Range not satisfiable")));
+
+				oneOf(reader).readInto(uri, out, 0, null);
+			}
+		});
+
+		cdr.execute(null);
+		assertTrue(cdr.getResult().isOK());
+		context.assertIsSatisfied();
+	}
+
+	@Test
+	public void testStartsOverWhenContentLengthIsUnknown() throws Exception
+	{
+		context.checking(new Expectations()
+		{
+			{
+				oneOf(reader).readInto(uri, out, 0, null);
+				will(throwException(new ProtocolException("Premature end of content")));
+
+				oneOf(saveTo).length();
+				will(returnValue(100L));
+
+				// a partial response couldn't be told apart from the whole content
+				oneOf(reader).readInto(uri, out, 0, null);
+			}
+		});
+
+		cdr.execute(null);
+		assertTrue(cdr.getResult().isOK());
+		context.assertIsSatisfied();
+	}
+
+	@Test
+	public void testStartsOverWhenLastModifiedIsUnknown() throws Exception
+	{
+		info.setSize(200);
+		context.checking(new Expectations()
+		{
+			{
+				oneOf(reader).readInto(uri, out, 0, null);
+				will(throwException(new ProtocolException("Premature end of content")));
+
+				oneOf(saveTo).length();
+				will(returnValue(100L));
+
+				// we couldn't tell whether the content changed in the meantime
+				oneOf(reader).readInto(uri, out, 0, null);
+			}
+		});
+
+		cdr.execute(null);
+		assertTrue(cdr.getResult().isOK());
+		context.assertIsSatisfied();
+	}
+
+	@Test
+	public void testAppendsPartialContent() throws Exception
+	{
+		File file = FileUtil.getTempDirectory().append("partial_" + System.currentTimeMillis()).toFile();
+		ContentDownloadRequest request = createResumingRequest(file, "56789");
+		request.execute(null);
+
+		assertTrue(request.getResult().isOK());
+		assertEquals("0123456789", IOUtil.read(new FileInputStream(file)));
+		file.delete();
+	}
+
+	@Test
+	public void testReplacesContentWhenRangeIsIgnored() throws Exception
+	{
+		File file = FileUtil.getTempDirectory().append("ignored_range_" + System.currentTimeMillis()).toFile();
+		ContentDownloadRequest request = createResumingRequest(file, "0123456789");
+		request.execute(null);
+
+		assertTrue(request.getResult().isOK());
+		assertEquals("0123456789", IOUtil.read(new FileInputStream(file)));
+		file.delete();
+	}
+
+	@Test
+	public void testReplacesContentWhenChanged() throws Exception
+	{
+		File file = FileUtil.getTempDirectory().append("changed_" + System.currentTimeMillis()).toFile();
+		ContentDownloadRequest request = createResumingRequest(file, "0123456789abcdef");
+		request.execute(null);
+
+		assertTrue(request.getResult().isOK());
+		assertEquals("0123456789abcdef", IOUtil.read(new FileInputStream(file)));
+		file.delete();
+	}
+
+	@Test
+	public void testFailsWhenNothingWasDownloaded() throws Exception
+	{
+		context.checking(new Expectations()
+		{
+			{
+				oneOf(reader).readInto(uri, out, 0, null);
+				will(throwException(new ProtocolException("Connection refused")));
+
+				oneOf(saveTo).length();
+				will(returnValue(0L));
+			}
+		});
+
+		cdr.execute(null);
+		assertFalse(cdr.getResult().isOK());
+		context.assertIsSatisfied();
+	}
+
+	@Test
+	public void testVerifiesChecksum() throws Exception
+	{
+		File file = FileUtil.getTempDirectory().append("checksum_" + System.currentTimeMillis()).toFile();
+		ContentDownloadRequest request = createWritingRequest(file, "hello");
+		request.setChecksum("SHA-1", "AAF4C61DDCC5E8A2DABEDE0F3B482CD9AEA9434D");
+		request.execute(null);
+
+		assertTrue(request.getResult().isOK());
+		assertEquals("hello", IOUtil.read(new FileInputStream(file)));
+		file.delete();
+	}
+
+	@Test
+	public void testChecksumMismatchFailsDownload() throws Exception
+	{
+		File file = FileUtil.getTempDirectory().append("checksum_" + System.currentTimeMillis()).toFile();
+		ContentDownloadRequest request = createWritingRequest(file, "tampered");
+		request.setChecksum("SHA-1", "aaf4c61ddcc5e8a2dabede0f3b482cd9aea9434d");
+		request.execute(null);
+
+		assertFalse(request.getResult().isOK());
+		assertFalse(file.exists());
+	}
+
+	/**
+	 * Returns a request for the given file whose transfer of "0123456789" breaks off after 5 bytes, the server then
+	 * answering the range request (made if the content is unchanged) with the given content.
+	 */
+	private ContentDownloadRequest createResumingRequest(File file, final String resumed) throws Exception
+	{
+		context.checking(new Expectations()
+		{
+			{
+				oneOf(reader).readInto(with(uri), with(any(OutputStream.class)), with(0L),
+						with(aNull(IProgressMonitor.class)));
+				will(new Action()
+				{
+					public void describeTo(Description description)
+					{
+						description.appendText("writes the first half of the content");
+					}
+
+					public Object invoke(Invocation invocation) throws Throwable
+					{
+						info.setSize(10);
+						info.setLastModified(LAST_MODIFIED);
+						OutputStream stream = (OutputStream) invocation.getParameter(1);
+						stream.write("01234".getBytes());
+						stream.close();
+						throw new ProtocolException("Premature end of content");
+					}
+				});
+
+				oneOf(reader).readInto(with(uri), with(any(OutputStream.class)), with(5L), with(LAST_MODIFIED),
+						with(aNull(IProgressMonitor.class)));
+				will(new Action()
+				{
+					public void describeTo(Description description)
+					{
+						description.appendText("writes the response to the range request");
+					}
+
+					public Object invoke(Invocation invocation) throws Throwable
+					{
+						info.setSize(resumed.length());
+						OutputStream stream = (OutputStream) invocation.getParameter(1);
+						stream.write(resumed.getBytes());
+						stream.close();
+						return null;
+					}
+				});
+			}
+		});
+		return new ContentDownloadRequest(uri, file, cc)
+		{
+			@Override
+			protected FileReader createReader(ConnectionData data)
+			{
+				return reader;
+			}
+		};
+	}
+
+	/**
+	 * Returns a request for the given file which "downloads" the given content.
+	 */
+	private ContentDownloadRequest createWritingRequest(File file, final String content) throws Exception
+	{
+		context.checking(new Expectations()
+		{
+			{
+				oneOf(reader).readInto(with(uri), with(any(OutputStream.class)), with(0L),
+						with(aNull(IProgressMonitor.class)));
+				will(new Action()
+				{
+					public void describeTo(Description description)
+					{
+						description.appendText("writes the content");
+					}
+
+					public Object invoke(Invocation invocation) throws Throwable
+					{
+						OutputStream stream = (OutputStream) invocation.getParameter(1);
+						stream.write(content.getBytes());
+						stream.close();
+						return null;
+					}
+				});
+			}
+		});
+		return new ContentDownloadRequest(uri, file, cc)
+		{
+			@Override
+			protected FileReader createReader(ConnectionData data)
+			{
+				return reader;
+			}
+		};
+	}
 }
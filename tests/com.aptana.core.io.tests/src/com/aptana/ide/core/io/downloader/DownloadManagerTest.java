@@ -11,6 +11,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
@@ -34,7 +37,11 @@ import org.junit.Test;
 import com.aptana.core.epl.downloader.ConnectionData;
 import com.aptana.core.util.CollectionsUtil;
 import com.aptana.core.util.FileUtil;
+import com.aptana.core.util.IOUtil;
 import com.aptana.ide.core.io.CoreIOPlugin;
+import com.aptana.testing.utils.LocalHttpServer;
+import com.aptana.testing.utils.LocalHttpServer.Request;
+import com.aptana.testing.utils.LocalHttpServer.Response;
 
 /**
  * @author Chris Williams <cwilliams@appcelerator.com>
@@ -45,6 +52,7 @@ public class DownloadManagerTest
 	private DownloadManager dm;
 	private List<ContentDownloadRequest> requests;
 	private ContentDownloadRequest cdr;
+	private LocalHttpServer server;
 
 	@Before
 	public void setUp() throws Exception
@@ -71,6 +79,11 @@ public class DownloadManagerTest
 	@After
 	public void tearDown() throws Exception
 	{
+		if (server != null)
+		{
+			server.stop();
+			server = null;
+		}
 		cdr = null;
 		dm = null;
 		context = null;
@@ -204,4 +217,150 @@ public class DownloadManagerTest
 		assertEquals(downloadPath1, paths.get(0));
 		context.assertIsSatisfied();
 	}
+
+	@Test
+	public void testDownloadsConcurrentlyFromServer() throws Exception
+	{
+		final int[] active = new int[1];
+		final int[] maxActive = new int[1];
+		server = new LocalHttpServer(new LocalHttpServer.Handler()
+		{
+			public Response handle(Request request) throws IOException
+			{
+				synchronized (active)
+				{
+					maxActive[0] = Math.max(maxActive[0], ++active[0]);
+				}
+				try
+				{
+					// long enough for the other downloads to start
+					Thread.sleep(500);
+				}
+				catch (InterruptedException e)
+				{
+					// ignore
+				}
+				synchronized (active)
+				{
+					active[0]--;
+				}
+				return new Response(200, request.path.getBytes());
+			}
+		});
+		server.start();
+
+		DownloadManager manager = new DownloadManager();
+		manager.setMaxConcurrentDownloads(3);
+		List<File> files = new ArrayList<File>();
+		for (int i = 0; i < 3; i++)
+		{
+			File file = tempFile("concurrent" + i);
+			files.add(file);
+			manager.addURI(new URI(server.getURL("/file" + i)), file);
+		}
+		final int[] worked = new int[1];
+		IStatus result = manager.start(new NullProgressMonitor()
+		{
+			@Override
+			public void worked(int work)
+			{
+				worked[0] += work;
+			}
+
+			@Override
+			public void internalWorked(double work)
+			{
+				worked[0] += work;
+			}
+		});
+
+		assertTrue(result.toString(), result.isOK());
+		assertTrue("downloads weren't run at the same time", maxActive[0] > 1);
+		assertTrue("no progress was reported", worked[0] > 0);
+		List<IPath> paths = manager.getContentsLocations();
+		assertEquals(3, paths.size());
+		for (int i = 0; i < 3; i++)
+		{
+			assertEquals(Path.fromOSString(files.get(i).getAbsolutePath()), paths.get(i));
+			assertEquals("/file" + i, IOUtil.read(new FileInputStream(files.get(i))));
+			files.get(i).delete();
+		}
+	}
+
+	@Test
+	public void testResumesInterruptedDownloadWithRangeRequest() throws Exception
+	{
+		final byte[] content = "0123456789".getBytes();
+		server = new LocalHttpServer(new LocalHttpServer.Handler()
+		{
+			public Response handle(Request request) throws IOException
+			{
+				String range = request.getHeader("Range");
+				if (range == null || "bytes=0-".equals(range))
+				{
+					// the connection drops half way through
+					byte[] half = new byte[content.length / 2];
+					System.arraycopy(content, 0, half, 0, half.length);
+					return new Response(200, half).header("Content-Length", String.valueOf(content.length));
+				}
+				int start = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+				byte[] rest = new byte[content.length - start];
+				System.arraycopy(content, start, rest, 0, rest.length);
+				return new Response(206, rest).header("Content-Range",
+						"bytes " + start + '-' + (content.length - 1) + '/' + content.length);
+			}
+		});
+		server.start();
+
+		File file = tempFile("resumed");
+		DownloadManager manager = new DownloadManager();
+		manager.addURI(new URI(server.getURL("/resumed.txt")), file);
+		IStatus result = manager.start(new NullProgressMonitor());
+
+		assertTrue(result.toString(), result.isOK());
+		assertEquals("0123456789", IOUtil.read(new FileInputStream(file)));
+		List<Request> requests = server.getRequests();
+		assertEquals("bytes=5-", requests.get(requests.size() - 1).getHeader("Range"));
+		file.delete();
+	}
+
+	@Test
+	public void testStartsOverWhenServerIgnoresRangeRequest() throws Exception
+	{
+		final byte[] content = "0123456789".getBytes();
+		server = new LocalHttpServer(new LocalHttpServer.Handler()
+		{
+			private int count;
+
+			public Response handle(Request request) throws IOException
+			{
+				if (count++ == 0)
+				{
+					// the connection drops half way through
+					byte[] half = new byte[content.length / 2];
+					System.arraycopy(content, 0, half, 0, half.length);
+					return new Response(200, half).header("Content-Length", String.valueOf(content.length));
+				}
+				// whatever the range, the whole content
+				return new Response(200, content);
+			}
+		});
+		server.start();
+
+		File file = tempFile("range_ignored");
+		DownloadManager manager = new DownloadManager();
+		manager.addURI(new URI(server.getURL("/range_ignored.txt")), file);
+		IStatus result = manager.start(new NullProgressMonitor());
+
+		assertTrue(result.toString(), result.isOK());
+		assertEquals("0123456789", IOUtil.read(new FileInputStream(file)));
+		List<Request> requests = server.getRequests();
+		assertEquals("bytes=5-", requests.get(requests.size() - 1).getHeader("Range"));
+		file.delete();
+	}
+
+	private File tempFile(String name)
+	{
+		return FileUtil.getTempDirectory().append(name + System.currentTimeMillis()).toFile();
+	}
 }
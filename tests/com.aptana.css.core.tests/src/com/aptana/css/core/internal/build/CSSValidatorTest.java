@@ -8,6 +8,7 @@
 package com.aptana.css.core.internal.build;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.List;
 
@@ -255,4 +256,51 @@ public class CSSValidatorTest extends AbstractValidatorTestCase
 		List<IProblem> items = getParseErrors(text);
 		assertEquals(0, items.size());
 	}
+
+	@Test
+	public void testCSS3Values() throws CoreException
+	{
+		String text = "div {\ndisplay: flex;\nwidth: calc(100% - 2px);\nmargin: 0 1.5vw !important;\n}";
+
+		List<IProblem> items = getParseErrors(text);
+		assertEquals(0, items.size());
+	}
+
+	@Test
+	public void testUnknownProperty() throws CoreException
+	{
+		String text = "div {\nfnord: 1px;\n}";
+
+		List<IProblem> items = getParseErrors(text);
+		assertEquals(1, items.size());
+
+		IProblem item = items.get(0);
+		assertEquals(IMarker.SEVERITY_ERROR, item.getSeverity().intValue());
+		assertEquals(2, item.getLineNumber());
+		assertTrue(item.getMessage(), item.getMessage().contains("fnord"));
+	}
+
+	@Test
+	public void testInvalidValue() throws CoreException
+	{
+		String text = "div {\ncolor: red;\ndisplay: blocky;\n}";
+
+		List<IProblem> items = getParseErrors(text);
+		assertEquals(1, items.size());
+
+		IProblem item = items.get(0);
+		assertEquals(IMarker.SEVERITY_ERROR, item.getSeverity().intValue());
+		assertEquals(3, item.getLineNumber());
+		assertEquals(text.indexOf("blocky"), item.getOffset());
+		assertEquals("blocky".length(), item.getLength());
+	}
+
+	@Test
+	public void testGlobalKeywordsAndVendorValues() throws CoreException
+	{
+		String text = "div {\ndisplay: inherit;\ndisplay: -webkit-box;\nwidth: -moz-available;\n}";
+
+		List<IProblem> items = getParseErrors(text);
+		assertEquals(0, items.size());
+	}
 }
@@ -0,0 +1,187 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.css.core.internal.build;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aptana.css.core.parsing.CSSParser;
+import com.aptana.css.core.parsing.ast.CSSParseRootNode;
+import com.aptana.css.core.parsing.ast.CSSRuleNode;
+import com.aptana.parsing.ParseState;
+
+public class CSSValueGrammarTest
+{
+
+	private CSSValueGrammars fGrammars;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		Map<String, List<String>> metadata = new HashMap<String, List<String>>();
+		metadata.put("caption-side", Arrays.asList("inherit", "top", "bottom"));
+		metadata.put("azimuth", Arrays.asList("*"));
+		fGrammars = new CSSValueGrammars(CSSValueGrammars.loadDefinitions(), metadata);
+	}
+
+	@Test
+	public void testKeywords() throws Exception
+	{
+		assertMatches("a | b | c", "b");
+		assertMatches("a | b | c", "B");
+		assertNoMatch("a | b | c", "d");
+		assertNoMatch("a | b | c", "a b");
+	}
+
+	@Test
+	public void testJuxtapositionAndMultipliers() throws Exception
+	{
+		assertMatches("a b? c", "a c");
+		assertMatches("a b? c", "a b c");
+		assertNoMatch("a b? c", "a b b c");
+		assertMatches("<length>{1,4}", "1px 2px 3px 4px");
+		assertNoMatch("<length>{1,4}", "1px 2px 3px 4px 5px");
+		assertMatches("a [ , a ]*", "a, a, a");
+		assertMatches("a#", "a, a, a");
+		assertNoMatch("a#", "a a");
+	}
+
+	@Test
+	public void testAnyOrder() throws Exception
+	{
+		assertMatches("a || b || c", "c a");
+		assertNoMatch("a || b || c", "c a c");
+		assertMatches("a && b && c?", "b a");
+		assertNoMatch("a && b && c?", "c b");
+	}
+
+	@Test
+	public void testNumericTypes() throws Exception
+	{
+		assertMatches("<length>", "0");
+		assertMatches("<length>", "-1.5vw");
+		assertMatches("<length>", "2REM");
+		assertNoMatch("<length>", "10");
+		assertNoMatch("<length>", "10deg");
+		assertMatches("<length>", "calc(100% - 2px)");
+		assertMatches("<integer>", "3");
+		assertNoMatch("<integer>", "3.5");
+		assertMatches("<time>", "200ms");
+		assertMatches("<percentage>", "50%");
+	}
+
+	@Test
+	public void testPropertyGrammars() throws Exception
+	{
+		assertProperty("margin", "0 auto");
+		assertProperty("font", "italic bold 12px/1.5 \"Helvetica Neue\", Arial, sans-serif");
+		assertProperty("background", "url(a.png) no-repeat 0 0, #fff");
+		assertProperty("border", "1px solid rgba(0, 0, 0, 0.5)");
+		assertProperty("transition", "opacity 0.3s ease-in-out, transform 1s");
+		assertProperty("box-shadow", "inset 0 1px 2px #000, 0 0 0 red");
+		assertProperty("display", "flex");
+		assertProperty("flex", "1 1 0%");
+		assertProperty("color", "currentColor");
+
+		assertNotProperty("display", "blocky");
+		assertNotProperty("color", "#12");
+		assertNotProperty("margin", "1px 2px 3px 4px 5px");
+		assertNotProperty("width", "10");
+	}
+
+	@Test
+	public void testMetadataKeywords() throws Exception
+	{
+		assertTrue(fGrammars.isProperty("caption-side"));
+		assertProperty("caption-side", "top");
+		assertNotProperty("caption-side", "middle");
+		// nothing to check against
+		assertTrue(fGrammars.isProperty("azimuth"));
+		assertNull(fGrammars.getPropertyGrammar("azimuth"));
+		assertFalse(fGrammars.isProperty("fnord"));
+	}
+
+	@Test
+	public void testMatchLength() throws Exception
+	{
+		CSSValueGrammar grammar = fGrammars.getPropertyGrammar("overflow");
+		assertEquals(1, grammar.matchLength(tokenize("hidden nope")));
+		assertEquals(-1, grammar.matchLength(tokenize("nope")));
+	}
+
+	@Test
+	public void testDefinitionsResolve() throws Exception
+	{
+		Pattern reference = Pattern.compile("<'?([\\w-]+)'?>");
+		Map<String, String> definitions = CSSValueGrammars.loadDefinitions();
+		for (Map.Entry<String, String> entry : definitions.entrySet())
+		{
+			if (entry.getValue().length() == 0)
+			{
+				continue;
+			}
+			// throws on syntax errors
+			assertNotNull(entry.getKey(), CSSValueGrammar.compile(entry.getValue(), fGrammars));
+
+			Matcher matcher = reference.matcher(entry.getValue());
+			while (matcher.find())
+			{
+				String name = matcher.group(1);
+				boolean property = matcher.group().charAt(1) == '\'';
+				assertTrue(entry.getKey() + " refers to " + matcher.group(), property ? definitions.containsKey(name)
+						: CSSValueGrammar.isBasicType(name) || definitions.containsKey('<' + name + '>'));
+			}
+		}
+	}
+
+	private void assertMatches(String definition, String value) throws Exception
+	{
+		assertTrue(value, CSSValueGrammar.compile(definition, fGrammars).matches(tokenize(value)));
+	}
+
+	private void assertNoMatch(String definition, String value) throws Exception
+	{
+		assertFalse(value, CSSValueGrammar.compile(definition, fGrammars).matches(tokenize(value)));
+	}
+
+	private void assertProperty(String property, String value) throws Exception
+	{
+		assertTrue(property + ": " + value, fGrammars.getPropertyGrammar(property).matches(tokenize(value)));
+	}
+
+	private void assertNotProperty(String property, String value) throws Exception
+	{
+		assertFalse(property + ": " + value, fGrammars.getPropertyGrammar(property).matches(tokenize(value)));
+	}
+
+	private List<CSSValueToken> tokenize(String value) throws Exception
+	{
+		CSSParseRootNode root = (CSSParseRootNode) new CSSParser().parse(new ParseState("a { b: " + value + " }"))
+				.getRootNode();
+		if (root.getChildCount() == 0)
+		{
+			return Collections.emptyList();
+		}
+		CSSRuleNode rule = (CSSRuleNode) root.getFirstChild();
+		return CSSValueToken.tokenize(rule.getDeclarations()[0].getAssignedValue());
+	}
+}
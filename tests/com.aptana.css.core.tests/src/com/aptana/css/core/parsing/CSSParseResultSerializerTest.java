@@ -0,0 +1,191 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.css.core.parsing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.InputStream;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Platform;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aptana.core.util.IOUtil;
+import com.aptana.css.core.parsing.ast.CSSDeclarationNode;
+import com.aptana.css.core.parsing.ast.CSSImportNode;
+import com.aptana.css.core.parsing.ast.CSSMediaNode;
+import com.aptana.css.core.parsing.ast.CSSMsViewPort;
+import com.aptana.css.core.parsing.ast.CSSPageNode;
+import com.aptana.css.core.parsing.ast.CSSRuleNode;
+import com.aptana.css.core.parsing.ast.CSSSelectorNode;
+import com.aptana.parsing.ParseState;
+import com.aptana.parsing.ast.IParseNode;
+import com.aptana.parsing.ast.IParseRootNode;
+import com.aptana.parsing.ast.ParseNode;
+
+public class CSSParseResultSerializerTest
+{
+
+	private CSSParser fParser;
+	private CSSParseResultSerializer fSerializer;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		fParser = new CSSParser();
+		fSerializer = new CSSParseResultSerializer();
+	}
+
+	@Test
+	public void testStatements() throws Exception
+	{
+		// @formatter:off
+		assertRoundTrip(
+			"@charset \"UTF-8\";\n" +
+			"@import url(\"print.css\") print, screen;\n" +
+			"@namespace svg url(http://www.w3.org/2000/svg);\n" +
+			"/* a comment */\n" +
+			"@media screen and (max-width: 100px) { a { color: red } p { margin: 0 } }\n" +
+			"@page :first { margin: 1in; }\n" +
+			"@font-face { font-family: Foo; src: url(foo.woff) format(\"woff\"); }\n" +
+			"@-moz-document url-prefix(\"http://www.w3.org/Style/\") { h1 { color: green } }\n" +
+			"@-ms-viewport { width: device-width; }\n" +
+			"@keyframes fade;\n");
+		// @formatter:on
+	}
+
+	@Test
+	public void testRules() throws Exception
+	{
+		// @formatter:off
+		assertRoundTrip(
+			"a, b > c + d ~ e f { color: #fff !important; font: 12px/1.5 \"Helvetica\", Arial; }\n" +
+			"input[type=\"text\"]:hover::before, .cls#id:not(.other) { background: url(a.png) no-repeat 0 0 }\n" +
+			"li:nth-child(2n+1) { width: calc(100% - 2px); margin: -1px auto }\n" +
+			"/* trailing comment */");
+		// @formatter:on
+	}
+
+	@Test
+	public void testErrors() throws Exception
+	{
+		assertRoundTrip("a { color: ; } b { width: 10px; ; }");
+	}
+
+	@Test
+	public void testPerformanceFiles() throws Exception
+	{
+		String[] files = { "wp-admin.css", "wp-admin.dev.css", "from-metadata.css", "github-formatted.css",
+				"github-minimized.css", "yui.css" };
+		for (String file : files)
+		{
+			InputStream stream = FileLocator.openStream(Platform.getBundle("com.aptana.css.core.tests"),
+					Path.fromPortableString("performance/" + file), false);
+			assertRoundTrip(IOUtil.read(stream));
+		}
+	}
+
+	private void assertRoundTrip(String source) throws Exception
+	{
+		IParseRootNode root = fParser.parse(new ParseState(source, 10)).getRootNode();
+		assertNotNull(root);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(bytes);
+		fSerializer.write(root, output);
+		output.close();
+		IParseRootNode read = fSerializer.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		assertEquals(((ParseNode) root).toXML(), ((ParseNode) read).toXML());
+		Map<IParseNode, IParseNode> nodes = new IdentityHashMap<IParseNode, IParseNode>();
+		assertSameNode(root, read, nodes);
+		assertSameNodes(root.getCommentNodes(), read.getCommentNodes(), nodes);
+		for (Map.Entry<IParseNode, IParseNode> entry : nodes.entrySet())
+		{
+			IParseNode parent = entry.getKey().getParent();
+			assertSame(entry.getKey().toString(), (parent == null) ? null : nodes.get(parent), entry.getValue()
+					.getParent());
+		}
+	}
+
+	private void assertSameNodes(IParseNode[] expected, IParseNode[] actual, Map<IParseNode, IParseNode> nodes)
+	{
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++)
+		{
+			assertSameNode(expected[i], actual[i], nodes);
+		}
+	}
+
+	private void assertSameNode(IParseNode expected, IParseNode actual, Map<IParseNode, IParseNode> nodes)
+	{
+		if (expected == null)
+		{
+			assertSame(null, actual);
+			return;
+		}
+		if (nodes.containsKey(expected))
+		{
+			assertSame(nodes.get(expected), actual);
+			return;
+		}
+		nodes.put(expected, actual);
+
+		assertEquals(expected.getClass(), actual.getClass());
+		assertEquals(expected.getStartingOffset(), actual.getStartingOffset());
+		assertEquals(expected.getEndingOffset(), actual.getEndingOffset());
+		assertEquals(expected.toString(), actual.toString());
+		assertEquals(expected.getText(), actual.getText());
+		assertEquals(expected, actual);
+
+		if (expected instanceof CSSRuleNode)
+		{
+			assertSameNodes(((CSSRuleNode) expected).getSelectors(), ((CSSRuleNode) actual).getSelectors(), nodes);
+			assertSameNodes(((CSSRuleNode) expected).getDeclarations(), ((CSSRuleNode) actual).getDeclarations(),
+					nodes);
+		}
+		else if (expected instanceof CSSDeclarationNode)
+		{
+			CSSDeclarationNode declaration = (CSSDeclarationNode) expected;
+			assertEquals(declaration.getStatusRange(), ((CSSDeclarationNode) actual).getStatusRange());
+			assertEquals(declaration.hasSemicolon(), ((CSSDeclarationNode) actual).hasSemicolon());
+		}
+		else if (expected instanceof CSSSelectorNode)
+		{
+			assertEquals(((CSSSelectorNode) expected).getCombinator(), ((CSSSelectorNode) actual).getCombinator());
+		}
+		else if (expected instanceof CSSMediaNode)
+		{
+			assertSameNodes(((CSSMediaNode) expected).getMedias(), ((CSSMediaNode) actual).getMedias(), nodes);
+		}
+		else if (expected instanceof CSSImportNode)
+		{
+			assertSameNodes(((CSSImportNode) expected).getMedias(), ((CSSImportNode) actual).getMedias(), nodes);
+		}
+		else if (expected instanceof CSSMsViewPort)
+		{
+			assertSameNodes(((CSSMsViewPort) expected).getDeclarations(), ((CSSMsViewPort) actual).getDeclarations(),
+					nodes);
+		}
+		else if (expected instanceof CSSPageNode)
+		{
+			assertSameNode(((CSSPageNode) expected).getSelector(), ((CSSPageNode) actual).getSelector(), nodes);
+		}
+		assertSameNodes(expected.getChildren(), actual.getChildren(), nodes);
+	}
+}
@@ -13,7 +13,7 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
 @SuiteClasses({ CSSIdentifierTest.class, CSSKeywordTest.class, CSSLiteralTest.class, CSSNotTest.class,
-		CSSParserTest.class, CSSPunctuatorTest.class, CSSSpecialTokenHandlingTest.class, })
+		CSSParserTest.class, CSSParseResultSerializerTest.class, CSSPunctuatorTest.class, CSSSpecialTokenHandlingTest.class, })
 public class CSSParsingTests
 {
 }
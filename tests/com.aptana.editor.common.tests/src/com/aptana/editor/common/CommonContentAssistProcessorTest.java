@@ -0,0 +1,347 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.ISynchronizable;
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.contentassist.CompletionProposal;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.hamcrest.Description;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.api.Action;
+import org.jmock.api.Invocation;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aptana.core.util.CollectionsUtil;
+import com.aptana.core.util.IOUtil;
+import com.aptana.editor.common.contentassist.ILateProposalsListener;
+import com.aptana.editor.common.scripting.IDocumentScopeManager;
+import com.aptana.editor.epl.tests.DisplayHelper;
+import com.aptana.scripting.model.BundleManager;
+import com.aptana.scripting.model.CommandContext;
+import com.aptana.scripting.model.ContentAssistElement;
+import com.aptana.scripting.model.RunType;
+import com.aptana.scripting.model.filters.IModelFilter;
+import com.aptana.ui.util.UIUtils;
+
+/**
+ * Runs content assist with a ruble and language proposals which may not complete within the latency budget.
+ */
+@SuppressWarnings("nls")
+public class CommonContentAssistProcessorTest
+{
+	private static final String SOURCE = "var a = b";
+
+	private Mockery context;
+	private LockedDocument document;
+	private ITextViewer viewer;
+	private CountDownLatch rubleRelease;
+	private CountDownLatch languageRelease;
+	private volatile RunType rubleRunType;
+	private volatile InputStream rubleInput;
+	private volatile Thread rubleThread;
+	private ICompletionProposal languageProposal;
+	private CommonContentAssistProcessor processor;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		context = new Mockery()
+		{
+			{
+				setImposteriser(ClassImposteriser.INSTANCE);
+			}
+		};
+		document = new LockedDocument(SOURCE);
+		viewer = context.mock(ITextViewer.class);
+		rubleRelease = new CountDownLatch(1);
+		languageRelease = new CountDownLatch(0);
+		rubleRunType = RunType.JOB;
+		languageProposal = new CompletionProposal("b", SOURCE.length() - 1, 1, 1);
+
+		final IDocumentScopeManager scopeManager = context.mock(IDocumentScopeManager.class);
+		final BundleManager bundleManager = context.mock(BundleManager.class);
+		final ContentAssistElement ruble = context.mock(ContentAssistElement.class);
+		final CommandContext rubleContext = context.mock(CommandContext.class);
+		context.checking(new Expectations()
+		{
+			{
+				allowing(viewer).getDocument();
+				will(returnValue(document));
+				allowing(scopeManager).getScopeAtOffset(viewer, SOURCE.length());
+				will(returnValue("source.js"));
+				allowing(bundleManager).getContentAssists(with(any(IModelFilter.class)));
+				will(returnValue(CollectionsUtil.newList(ruble)));
+				allowing(ruble).getDisplayName();
+				will(returnValue("slow"));
+				allowing(ruble).getRunType();
+				will(new Action()
+				{
+					public Object invoke(Invocation invocation) throws Throwable
+					{
+						return rubleRunType.getName();
+					}
+
+					public void describeTo(Description description)
+					{
+						description.appendText("returns the run type");
+					}
+				});
+				allowing(ruble).createCommandContext();
+				will(returnValue(rubleContext));
+				allowing(rubleContext).put(with(any(String.class)), with(any(Object.class)));
+				allowing(rubleContext).setInputStream(with(any(InputStream.class)));
+				will(new Action()
+				{
+					public Object invoke(Invocation invocation) throws Throwable
+					{
+						rubleInput = (InputStream) invocation.getParameter(0);
+						return null;
+					}
+
+					public void describeTo(Description description)
+					{
+						description.appendText("keeps the input stream");
+					}
+				});
+				allowing(ruble).execute(rubleContext);
+				will(new Action()
+				{
+					public Object invoke(Invocation invocation) throws Throwable
+					{
+						rubleThread = Thread.currentThread();
+						rubleRelease.await(10, TimeUnit.SECONDS);
+						return null;
+					}
+
+					public void describeTo(Description description)
+					{
+						description.appendText("waits to be released");
+					}
+				});
+			}
+		});
+
+		processor = new CommonContentAssistProcessor(null)
+		{
+			@Override
+			protected IDocumentScopeManager getDocumentScopeManager()
+			{
+				return scopeManager;
+			}
+
+			@Override
+			protected BundleManager getBundleManager()
+			{
+				return bundleManager;
+			}
+
+			@Override
+			protected Collection<ICompletionProposal> addSnippetProposals(ITextViewer viewer, int offset)
+			{
+				return Collections.emptyList();
+			}
+
+			@Override
+			protected ICompletionProposal[] doComputeCompletionProposals(ITextViewer viewer, int offset,
+					char activationChar, boolean autoActivated)
+			{
+				try
+				{
+					languageRelease.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e)
+				{
+					// return them then
+				}
+				return new ICompletionProposal[] { languageProposal };
+			}
+		};
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		rubleRelease.countDown();
+		languageRelease.countDown();
+		processor.dispose();
+		processor = null;
+		context = null;
+	}
+
+	@Test
+	public void testLateRubleIsPendingThenComputed() throws Exception
+	{
+		final RecordingListener listener = new RecordingListener();
+		ICompletionProposal[] proposals = processor.computeCompletionProposals(viewer, SOURCE.length(), '\0', false,
+				listener);
+
+		// the language proposals are returned without waiting for the ruble
+		assertEquals(1, proposals.length);
+		assertSame(languageProposal, proposals[0]);
+		assertEquals(SOURCE.length(), listener.pendingOffset);
+		assertNull(listener.computed);
+
+		rubleRelease.countDown();
+		assertTrue(new DisplayHelper()
+		{
+			@Override
+			protected boolean condition()
+			{
+				return listener.computed != null;
+			}
+		}.waitForCondition(UIUtils.getDisplay(), 5000));
+
+		// the ruble had no proposals, the listener still hears about it
+		assertEquals(SOURCE.length(), listener.computedOffset);
+		assertEquals(1, listener.computed.length);
+		assertSame(languageProposal, listener.computed[0]);
+	}
+
+	@Test
+	public void testLateRubleReadsTheDocumentAsItWasInvoked() throws Exception
+	{
+		processor.computeCompletionProposals(viewer, SOURCE.length(), '\0', false, new RecordingListener());
+
+		// the user keeps typing while the ruble runs
+		document.replace(SOURCE.length(), 0, "ar");
+		assertEquals(SOURCE, IOUtil.read(rubleInput));
+	}
+
+	@Test
+	public void testLateRubleOnlyCopiesTheDocumentWhenItChanges() throws Exception
+	{
+		processor.computeCompletionProposals(viewer, SOURCE.length(), '\0', false, new RecordingListener());
+		assertEquals(0, document.copies);
+
+		document.replace(SOURCE.length(), 0, "ar");
+		assertEquals(1, document.copies);
+		assertEquals(SOURCE, IOUtil.read(rubleInput));
+		assertEquals(1, document.copies);
+	}
+
+	@Test
+	public void testRubleRunningOnTheCurrentThreadRunsOnTheUIThread() throws Exception
+	{
+		rubleRunType = RunType.CURRENT_THREAD;
+		rubleRelease.countDown();
+		processor.computeCompletionProposals(viewer, SOURCE.length(), '\0', false, new RecordingListener());
+
+		assertTrue(new DisplayHelper()
+		{
+			@Override
+			protected boolean condition()
+			{
+				return rubleThread != null;
+			}
+		}.waitForCondition(UIUtils.getDisplay(), 5000));
+		assertSame(UIUtils.getDisplay().getThread(), rubleThread);
+	}
+
+	@Test
+	public void testLateLanguageProposalsArePendingThenComputed() throws Exception
+	{
+		rubleRelease.countDown();
+		languageRelease = new CountDownLatch(1);
+		final RecordingListener listener = new RecordingListener();
+		ICompletionProposal[] proposals = processor.computeCompletionProposals(viewer, SOURCE.length(), '\0', false,
+				listener);
+
+		assertEquals(0, proposals.length);
+		assertEquals(SOURCE.length(), listener.pendingOffset);
+		assertNull(listener.computed);
+
+		languageRelease.countDown();
+		assertTrue(new DisplayHelper()
+		{
+			@Override
+			protected boolean condition()
+			{
+				return listener.computed != null;
+			}
+		}.waitForCondition(UIUtils.getDisplay(), 5000));
+
+		assertEquals(SOURCE.length(), listener.computedOffset);
+		assertEquals(1, listener.computed.length);
+		assertSame(languageProposal, listener.computed[0]);
+	}
+
+	/**
+	 * A document with a lock object, as the ones of the editors, which counts how many times it's copied.
+	 */
+	private static class LockedDocument extends Document implements ISynchronizable
+	{
+		private final Object lock = new Object();
+		volatile int copies;
+
+		LockedDocument(String contents)
+		{
+			super(contents);
+		}
+
+		public void setLockObject(Object lockObject)
+		{
+		}
+
+		public Object getLockObject()
+		{
+			return lock;
+		}
+
+		@Override
+		public String get()
+		{
+			copies++;
+			return super.get();
+		}
+
+		@Override
+		public void replace(int offset, int length, String text) throws BadLocationException
+		{
+			synchronized (lock)
+			{
+				super.replace(offset, length, text);
+			}
+		}
+	}
+
+	private static class RecordingListener implements ILateProposalsListener
+	{
+		volatile int pendingOffset = -1;
+		volatile int computedOffset = -1;
+		volatile ICompletionProposal[] computed;
+
+		public void proposalsPending(int offset)
+		{
+			pendingOffset = offset;
+		}
+
+		public void proposalsComputed(int offset, ICompletionProposal[] proposals)
+		{
+			computedOffset = offset;
+			computed = proposals;
+		}
+	}
+}
@@ -12,7 +12,8 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ RegionsTest.class, SequenceCharacterScannerTest.class, TextUtilsTest.class, })
+@SuiteClasses({ CommonContentAssistProcessorTest.class, RegionsTest.class, SequenceCharacterScannerTest.class,
+		TextUtilsTest.class, })
 public class EditorCommonTests
 {
 }
@@ -0,0 +1,68 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.common.contentassist;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("nls")
+public class CompletionProposalFilterTest
+{
+	/**
+	 * Content assist is invoked after "x.", the user then typed "ab".
+	 */
+	private static final int INVOCATION_OFFSET = 2;
+	private static final int CARET_OFFSET = 4;
+
+	private IDocument document;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		document = new Document("x.ab");
+	}
+
+	@Test
+	public void testMergeFiltersLateProposalsByTypedText() throws Exception
+	{
+		ICompletionProposal abc = proposal("abc");
+		ICompletionProposal xyz = proposal("xyz");
+		ICompletionProposal ab = proposal("ab");
+		ICompletionProposal abd = proposal("abd");
+		ICompletionProposal zz = proposal("zz");
+
+		// "xyz" was filtered out while typing "ab", the late proposals come along with the ones already computed
+		CompletionProposalFilter.Merge merge = CompletionProposalFilter.merge(new ICompletionProposal[] { abc, xyz },
+				new ICompletionProposal[] { abc }, new ICompletionProposal[] { ab, abc, abd, xyz, zz }, document,
+				INVOCATION_OFFSET, CARET_OFFSET);
+		assertArrayEquals(new ICompletionProposal[] { ab, abc, abd, xyz, zz }, merge.computed);
+		assertArrayEquals(new ICompletionProposal[] { ab, abc, abd }, merge.filtered);
+	}
+
+	@Test
+	public void testMergeWhenNothingWasShown() throws Exception
+	{
+		ICompletionProposal ab = proposal("ab");
+		ICompletionProposal xyz = proposal("xyz");
+
+		CompletionProposalFilter.Merge merge = CompletionProposalFilter.merge(new ICompletionProposal[0], null,
+				new ICompletionProposal[] { ab, xyz }, document, INVOCATION_OFFSET, INVOCATION_OFFSET);
+		assertArrayEquals(new ICompletionProposal[] { ab, xyz }, merge.computed);
+		assertArrayEquals(merge.computed, merge.filtered);
+	}
+
+	private ICompletionProposal proposal(String name)
+	{
+		return new CommonCompletionProposal(name, INVOCATION_OFFSET, 0, name.length(), null, name, null, null);
+	}
+}
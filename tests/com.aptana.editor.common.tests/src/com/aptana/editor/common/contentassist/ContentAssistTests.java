@@ -12,7 +12,8 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ CompletionProposalTest.class, UserAgentManagerTest.class, })
+@SuiteClasses({ CompletionProposalFilterTest.class, CompletionProposalTest.class, DocumentTokenStoreTest.class,
+		UserAgentManagerTest.class, })
 public class ContentAssistTests
 {
 }
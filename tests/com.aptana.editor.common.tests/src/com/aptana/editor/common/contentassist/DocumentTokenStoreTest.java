@@ -0,0 +1,141 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.common.contentassist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.rules.FastPartitioner;
+import org.eclipse.jface.text.rules.IPredicateRule;
+import org.eclipse.jface.text.rules.MultiLineRule;
+import org.eclipse.jface.text.rules.RuleBasedPartitionScanner;
+import org.eclipse.jface.text.rules.Token;
+import org.junit.Test;
+
+import com.aptana.parsing.lexer.Lexeme;
+
+@SuppressWarnings("nls")
+public class DocumentTokenStoreTest
+{
+	private static final String KEY = "key";
+	private static final String COMMENT = "comment";
+
+	@Test
+	public void testRangeBeforeChangeIsKept() throws Exception
+	{
+		IDocument document = createPartitionedDocument("a {}\nb {}");
+		DocumentTokenStore store = DocumentTokenStore.getInstance(document);
+		store.put(document, KEY, 0, 4, lexemes(document, 0, 4));
+
+		document.replace(6, 0, "x");
+		assertLexemes(store.get(document, KEY, 0, 4), 0, "a {}");
+	}
+
+	@Test
+	public void testRangeContainingChangeIsDropped() throws Exception
+	{
+		IDocument document = createPartitionedDocument("a {}\nb {}");
+		DocumentTokenStore store = DocumentTokenStore.getInstance(document);
+		store.put(document, KEY, 5, 9, lexemes(document, 5, 9));
+
+		document.replace(6, 0, "x");
+		assertNull(store.get(document, KEY, 5, 9));
+		assertNull(store.get(document, KEY, 5, 10));
+	}
+
+	@Test
+	public void testRangeAfterChangeIsMoved() throws Exception
+	{
+		IDocument document = createPartitionedDocument("a {}\nb {}");
+		DocumentTokenStore store = DocumentTokenStore.getInstance(document);
+		store.put(document, KEY, 5, 9, lexemes(document, 5, 9));
+
+		// the partitioning doesn't change
+		document.replace(1, 0, "aa");
+		assertNull(store.get(document, KEY, 5, 9));
+		assertLexemes(store.get(document, KEY, 7, 11), 7, "b {}");
+	}
+
+	@Test
+	public void testRangeWherePartitioningChangedIsDropped() throws Exception
+	{
+		IDocument document = createPartitionedDocument("a {}\nb {} */\nc {}");
+		DocumentTokenStore store = DocumentTokenStore.getInstance(document);
+		store.put(document, KEY, 5, 9, lexemes(document, 5, 9));
+		store.put(document, KEY, 13, 17, lexemes(document, 13, 17));
+
+		// "b {}" is now in a comment, "c {}" is still past it
+		document.replace(0, 0, "/*");
+		assertNull(store.get(document, KEY, 7, 11));
+		assertLexemes(store.get(document, KEY, 15, 19), 15, "c {}");
+	}
+
+	@Test
+	public void testRangeAfterChangeIsDroppedWithoutPartitioner() throws Exception
+	{
+		IDocument document = new Document("a {}\nb {}");
+		DocumentTokenStore store = DocumentTokenStore.getInstance(document);
+		store.put(document, KEY, 0, 4, lexemes(document, 0, 4));
+		store.put(document, KEY, 5, 9, lexemes(document, 5, 9));
+
+		document.replace(4, 0, "\n");
+		assertNotNull(store.get(document, KEY, 0, 4));
+		assertNull(store.get(document, KEY, 6, 10));
+	}
+
+	@Test
+	public void testNewPartitionerDropsRanges() throws Exception
+	{
+		IDocument document = new Document("a {}\nb {}");
+		DocumentTokenStore store = DocumentTokenStore.getInstance(document);
+		store.put(document, KEY, 0, 4, lexemes(document, 0, 4));
+
+		connectPartitioner(document);
+		assertNull(store.get(document, KEY, 0, 4));
+	}
+
+	private IDocument createPartitionedDocument(String source)
+	{
+		IDocument document = new Document(source);
+		connectPartitioner(document);
+		return document;
+	}
+
+	private void connectPartitioner(IDocument document)
+	{
+		RuleBasedPartitionScanner scanner = new RuleBasedPartitionScanner();
+		scanner.setPredicateRules(new IPredicateRule[] { new MultiLineRule("/*", "*/", new Token(COMMENT)) });
+		FastPartitioner partitioner = new FastPartitioner(scanner, new String[] { COMMENT });
+		partitioner.connect(document);
+		document.setDocumentPartitioner(partitioner);
+	}
+
+	/**
+	 * One lexeme for the whole range, which is enough to check where the store moves it.
+	 */
+	private List<Lexeme<String>> lexemes(IDocument document, int start, int end) throws Exception
+	{
+		List<Lexeme<String>> lexemes = new ArrayList<Lexeme<String>>();
+		lexemes.add(new Lexeme<String>("range", start, end - 1, document.get(start, end - start)));
+		return lexemes;
+	}
+
+	private void assertLexemes(List<? extends Lexeme<?>> lexemes, int start, String text)
+	{
+		assertNotNull(lexemes);
+		assertEquals(1, lexemes.size());
+		assertEquals(start, lexemes.get(0).getStartingOffset());
+		assertEquals(text, lexemes.get(0).getText());
+	}
+}
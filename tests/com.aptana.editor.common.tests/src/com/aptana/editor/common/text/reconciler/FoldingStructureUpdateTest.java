@@ -0,0 +1,188 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.common.text.reconciler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.source.Annotation;
+import org.eclipse.jface.text.source.projection.ProjectionAnnotation;
+import org.eclipse.jface.text.source.projection.ProjectionAnnotationModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FoldingStructureUpdateTest
+{
+	private Document document;
+	private ProjectionAnnotationModel model;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 100; i++)
+		{
+			text.append("line ").append(i).append('\n');
+		}
+		document = new Document(text.toString());
+		model = new ProjectionAnnotationModel();
+		model.connect(document);
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		model.disconnect(document);
+		model = null;
+		document = null;
+	}
+
+	@Test
+	public void testAddToEmptyModel() throws Exception
+	{
+		Map<ProjectionAnnotation, Position> annotations = annotations(new Position(0, 20), new Position(40, 10));
+
+		FoldingStructureUpdate update = FoldingStructureUpdate.apply(model, annotations);
+		assertEquals(2, update.getAddedCount());
+		assertEquals(0, update.getDeletedCount());
+		assertEquals(0, update.getKeptCount());
+		assertEquals(annotations, getModelAnnotations());
+	}
+
+	@Test
+	public void testUnchangedPositionsKeepTheirAnnotation() throws Exception
+	{
+		ProjectionAnnotation first = new ProjectionAnnotation();
+		ProjectionAnnotation second = new ProjectionAnnotation();
+		Map<ProjectionAnnotation, Position> annotations = new HashMap<ProjectionAnnotation, Position>();
+		annotations.put(first, new Position(0, 20));
+		annotations.put(second, new Position(40, 10));
+		FoldingStructureUpdate.apply(model, annotations);
+		model.collapse(second);
+
+		FoldingStructureUpdate update = FoldingStructureUpdate.apply(model,
+				annotations(new Position(40, 10), new Position(0, 20)));
+		assertFalse(update.hasChanges());
+		assertEquals(2, update.getKeptCount());
+
+		Map<Annotation, Position> current = getModelAnnotations();
+		assertEquals(2, current.size());
+		assertEquals(new Position(0, 20), current.get(first));
+		assertTrue(second.isCollapsed());
+	}
+
+	@Test
+	public void testChangedPositionsAreReplaced() throws Exception
+	{
+		ProjectionAnnotation kept = new ProjectionAnnotation();
+		ProjectionAnnotation removed = new ProjectionAnnotation();
+		Map<ProjectionAnnotation, Position> annotations = new HashMap<ProjectionAnnotation, Position>();
+		annotations.put(removed, new Position(0, 20));
+		annotations.put(kept, new Position(40, 10));
+		FoldingStructureUpdate.apply(model, annotations);
+
+		ProjectionAnnotation before = new ProjectionAnnotation();
+		ProjectionAnnotation longer = new ProjectionAnnotation();
+		ProjectionAnnotation after = new ProjectionAnnotation();
+		annotations = new HashMap<ProjectionAnnotation, Position>();
+		annotations.put(after, new Position(60, 10));
+		annotations.put(before, new Position(10, 5));
+		annotations.put(new ProjectionAnnotation(), new Position(40, 10));
+		annotations.put(longer, new Position(40, 30));
+
+		FoldingStructureUpdate update = FoldingStructureUpdate.apply(model, annotations);
+		assertEquals(3, update.getAddedCount());
+		assertEquals(1, update.getDeletedCount());
+		assertEquals(1, update.getKeptCount());
+
+		Map<Annotation, Position> current = getModelAnnotations();
+		assertEquals(4, current.size());
+		assertNull(current.get(removed));
+		assertEquals(new Position(40, 10), current.get(kept));
+		assertEquals(new Position(10, 5), current.get(before));
+		assertEquals(new Position(40, 30), current.get(longer));
+		assertEquals(new Position(60, 10), current.get(after));
+	}
+
+	@Test
+	public void testRemoveAll() throws Exception
+	{
+		FoldingStructureUpdate.apply(model, annotations(new Position(0, 20), new Position(40, 10)));
+
+		FoldingStructureUpdate update = FoldingStructureUpdate.apply(model,
+				new HashMap<ProjectionAnnotation, Position>());
+		assertEquals(2, update.getDeletedCount());
+		assertTrue(getModelAnnotations().isEmpty());
+	}
+
+	@Test
+	public void testSort() throws Exception
+	{
+		Map<ProjectionAnnotation, Position> annotations = annotations(new Position(50, 5), new Position(10, 30),
+				new Position(10, 5), new Position(0, 100));
+
+		List<Map.Entry<ProjectionAnnotation, Position>> sorted = FoldingStructureUpdate.sort(annotations);
+		assertEquals(new Position(0, 100), sorted.get(0).getValue());
+		assertEquals(new Position(10, 5), sorted.get(1).getValue());
+		assertEquals(new Position(10, 30), sorted.get(2).getValue());
+		assertEquals(new Position(50, 5), sorted.get(3).getValue());
+		assertSame(annotations.get(sorted.get(3).getKey()), sorted.get(3).getValue());
+	}
+
+	@Test
+	public void testOrderedAnnotationsKeepTheirOrder() throws Exception
+	{
+		// already ordered, including two equal positions
+		ProjectionAnnotation first = new ProjectionAnnotation();
+		ProjectionAnnotation second = new ProjectionAnnotation();
+		ProjectionAnnotation third = new ProjectionAnnotation();
+		Map<ProjectionAnnotation, Position> annotations = new LinkedHashMap<ProjectionAnnotation, Position>();
+		annotations.put(first, new Position(0, 10));
+		annotations.put(second, new Position(20, 5));
+		annotations.put(third, new Position(20, 5));
+
+		List<Map.Entry<ProjectionAnnotation, Position>> sorted = FoldingStructureUpdate.sort(annotations);
+		assertSame(first, sorted.get(0).getKey());
+		assertSame(second, sorted.get(1).getKey());
+		assertSame(third, sorted.get(2).getKey());
+	}
+
+	private Map<ProjectionAnnotation, Position> annotations(Position... positions)
+	{
+		Map<ProjectionAnnotation, Position> annotations = new HashMap<ProjectionAnnotation, Position>();
+		for (Position position : positions)
+		{
+			annotations.put(new ProjectionAnnotation(), position);
+		}
+		return annotations;
+	}
+
+	private Map<Annotation, Position> getModelAnnotations()
+	{
+		Map<Annotation, Position> annotations = new HashMap<Annotation, Position>();
+		for (@SuppressWarnings("rawtypes")
+		Iterator iter = model.getAnnotationIterator(); iter.hasNext();)
+		{
+			Annotation annotation = (Annotation) iter.next();
+			annotations.put(annotation, model.getPosition(annotation));
+		}
+		return annotations;
+	}
+}
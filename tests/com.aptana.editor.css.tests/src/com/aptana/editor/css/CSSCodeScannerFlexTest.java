@@ -7,9 +7,24 @@
  */
 package com.aptana.editor.css;
 
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.IDocumentPartitioner;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Region;
+import org.eclipse.jface.text.rules.FastPartitioner;
+import org.eclipse.jface.text.rules.IPredicateRule;
+import org.eclipse.jface.text.rules.IToken;
 import org.eclipse.jface.text.rules.ITokenScanner;
+import org.eclipse.jface.text.rules.MultiLineRule;
+import org.eclipse.jface.text.rules.RuleBasedPartitionScanner;
+import org.eclipse.jface.text.rules.Token;
 import org.junit.Test;
 
 /**
@@ -55,4 +70,140 @@ public class CSSCodeScannerFlexTest extends CSSCodeScannerTest
 				"meta.property-list.css meta.property-value.css punctuation.terminator.rule.css",
 				"meta.property-list.css punctuation.section.property-list.css", "null");
 	}
+
+	@Test
+	public void testResumesFromCheckpoint() throws Exception
+	{
+		String src = "@media print {\na {\ncolor: #fff;\n}\n}\nb { }";
+		IDocument document = new Document(src);
+		List<String> tokens = getTokens(document, 0);
+
+		// the rest of the tokens from "color", then from " #fff"
+		List<String> resumed = getTokens(document, document.getLineOffset(2));
+		assertEquals(
+				"meta.at-rule.media.css meta.property-list.css meta.property-name.css support.type.property-name.css",
+				resumed.get(0));
+		assertEquals(tokens.subList(10, tokens.size()), resumed);
+		assertEquals(tokens.subList(12, tokens.size()), getTokens(document, document.getLineOffset(2) + 6));
+	}
+
+	@Test
+	public void testDamageEndsWhereStateConverges() throws Exception
+	{
+		String src = "a {\ncolor: red;\n}\nb {\n}\n";
+		IDocument document = new Document(src);
+		getTokens(document, 0);
+
+		// a property value left open changes the next line only
+		document.replace(3, 0, " b: c");
+		IRegion line = document.getLineInformation(0);
+		assertEquals(new Region(0, document.getLineOffset(2)),
+				((CSSCodeScannerFlex) scanner).getDamageRegion(document, line));
+		List<String> tokens = getTokens(document, document.getLineOffset(1));
+		assertEquals(
+				"meta.property-list.css meta.property-value.css meta.property-name.css support.type.property-name.css",
+				tokens.get(0));
+
+		// no change to the state
+		document.replace(document.getLineOffset(3), 0, "c ");
+		line = document.getLineInformation(3);
+		assertEquals(line, ((CSSCodeScannerFlex) scanner).getDamageRegion(document, line));
+	}
+
+	@Test
+	public void testResumingSkipsOtherPartitions() throws Exception
+	{
+		// the curly in the HTML doesn't open a block
+		String src = "a {\n<p>{</p>\ncolor: red;\n}\nb {\n}\n";
+		IDocument document = createHTMLDocument(src);
+		int htmlStart = src.indexOf("<p>");
+		int htmlEnd = src.indexOf("</p>") + 4;
+		IDocument withoutHTML = new Document(src.replace("<p>{</p>", "        "));
+		List<String> expected = getTokens(new CSSCodeScannerFlex(), withoutHTML, htmlEnd,
+				src.length() - htmlEnd);
+
+		getTokens(scanner, document, 0, htmlStart);
+		assertEquals(expected, getTokens(document, htmlEnd));
+
+		// without any checkpoint
+		assertEquals(expected, getTokens(new CSSCodeScannerFlex(), document, htmlEnd, src.length() - htmlEnd));
+	}
+
+	@Test
+	public void testDamageSkipsOtherPartitions() throws Exception
+	{
+		String src = "a {\ncolor: red;\n}\n<p>}</p>\nb {\n}\n";
+		IDocument document = createHTMLDocument(src);
+		getTokens(scanner, document, 0, src.indexOf("<p>"));
+		getTokens(document, src.indexOf("</p>") + 4);
+
+		// opening a block damages the rest of the CSS, the curly in the HTML doesn't close it
+		document.replace(0, 0, "x {\n");
+		IRegion line = document.getLineInformation(0);
+		assertEquals(new Region(0, document.getLength()),
+				((CSSCodeScannerFlex) scanner).getDamageRegion(document, line));
+	}
+
+	@Test
+	public void testReleasesCheckpointsOfPreviousDocument() throws Exception
+	{
+		final List<IDocumentListener> listeners = new ArrayList<IDocumentListener>();
+		IDocument document = new Document("a {\ncolor: red;\n}")
+		{
+			@Override
+			public void addDocumentListener(IDocumentListener listener)
+			{
+				listeners.add(listener);
+				super.addDocumentListener(listener);
+			}
+
+			@Override
+			public void removeDocumentListener(IDocumentListener listener)
+			{
+				listeners.remove(listener);
+				super.removeDocumentListener(listener);
+			}
+		};
+		getTokens(document, 0);
+		assertEquals(1, listeners.size());
+
+		getTokens(new Document("b { }"), 0);
+		assertEquals(0, listeners.size());
+
+		getTokens(document, 0);
+		assertEquals(1, listeners.size());
+		((CSSCodeScannerFlex) scanner).dispose();
+		assertEquals(0, listeners.size());
+	}
+
+	/**
+	 * Returns a document where the text between &lt;p&gt; and &lt;/p&gt; is in partitions of another language.
+	 */
+	private IDocument createHTMLDocument(String src)
+	{
+		IDocument document = new Document(src);
+		RuleBasedPartitionScanner partitionScanner = new RuleBasedPartitionScanner();
+		partitionScanner.setPredicateRules(new IPredicateRule[] { new MultiLineRule("<p>", "</p>", new Token(
+				"__html")) });
+		IDocumentPartitioner partitioner = new FastPartitioner(partitionScanner, new String[] { "__html" });
+		partitioner.connect(document);
+		document.setDocumentPartitioner(partitioner);
+		return document;
+	}
+
+	private List<String> getTokens(IDocument document, int offset)
+	{
+		return getTokens(scanner, document, offset, document.getLength() - offset);
+	}
+
+	private List<String> getTokens(ITokenScanner scanner, IDocument document, int offset, int length)
+	{
+		scanner.setRange(document, offset, length);
+		List<String> tokens = new ArrayList<String>();
+		for (IToken token = scanner.nextToken(); !token.isEOF(); token = scanner.nextToken())
+		{
+			tokens.add(String.valueOf(token.getData()));
+		}
+		return tokens;
+	}
 }
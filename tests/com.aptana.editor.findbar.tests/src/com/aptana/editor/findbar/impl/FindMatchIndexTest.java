@@ -0,0 +1,163 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.findbar.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Pattern;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.Region;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("nls")
+public class FindMatchIndexTest
+{
+	private static final long SCAN_TIMEOUT = 5000;
+
+	private Document document;
+	private FindMatchIndex index;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		document = new Document("foo bar foo\nfoo\nbar");
+		index = new FindMatchIndex(document, 100, new Runnable()
+		{
+			public void run()
+			{
+				// the counts are checked directly
+			}
+		});
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		index.dispose();
+		index = null;
+		document = null;
+	}
+
+	@Test
+	public void testFullScan() throws Exception
+	{
+		index.setPattern(Pattern.compile("foo"));
+		waitForScan();
+
+		assertEquals(3, index.getCount(null));
+		assertEquals(2, index.getCount(new Region(0, 11)));
+		assertEquals(1, index.getCount(new Region(1, 13)));
+		assertEquals(1, index.getCountBefore(null, 8, false));
+		assertEquals(2, index.getCountBefore(null, 8, true));
+		assertEquals(1, index.getCountBefore(new Region(4, 11), 10, true));
+		assertFalse(index.isOverflow());
+	}
+
+	@Test
+	public void testSamePatternKeepsIndex() throws Exception
+	{
+		index.setPattern(Pattern.compile("foo"));
+		waitForScan();
+
+		index.setPattern(Pattern.compile("foo"));
+		assertTrue(index.isUpToDate());
+		index.setPattern(Pattern.compile("foo", Pattern.CASE_INSENSITIVE));
+		assertFalse(index.isUpToDate());
+		waitForScan();
+		assertEquals(3, index.getCount(null));
+	}
+
+	@Test
+	public void testLineBoundPatternIsUpdatedInPlace() throws Exception
+	{
+		index.setPattern(Pattern.compile("foo"));
+		waitForScan();
+
+		// a match is added to the first line, the ones after it are shifted
+		document.replace(0, 0, "foo ");
+		assertTrue(index.isUpToDate());
+		assertEquals(4, index.getCount(null));
+		assertEquals(1, index.getCountBefore(null, 4, false));
+		assertEquals(2, index.getCountBefore(null, 4, true));
+		assertEquals(4, index.getCountBefore(null, 16, true));
+
+		// and the ones of a deleted line go away
+		document.replace(16, 4, "");
+		assertTrue(index.isUpToDate());
+		assertEquals(3, index.getCount(null));
+	}
+
+	@Test
+	public void testMultilinePatternIsScannedAgain() throws Exception
+	{
+		index.setPattern(Pattern.compile("foo\\sbar"));
+		waitForScan();
+		assertEquals(2, index.getCount(null));
+
+		document.replace(0, 4, "");
+		assertFalse(index.isUpToDate());
+		waitForScan();
+		assertEquals(1, index.getCount(null));
+	}
+
+	@Test
+	public void testChangeDuringScanIsScannedAgain() throws Exception
+	{
+		index.setPattern(Pattern.compile("foo\\sbar"));
+		// whether or not the first scan ran already, its result must not be kept
+		document.replace(document.getLength(), 0, " foo\nbar");
+		waitForScan();
+		assertEquals(3, index.getCount(null));
+	}
+
+	@Test
+	public void testOverflow() throws Exception
+	{
+		index.dispose();
+		index = new FindMatchIndex(document, 2, new Runnable()
+		{
+			public void run()
+			{
+				// the counts are checked directly
+			}
+		});
+		index.setPattern(Pattern.compile("foo"));
+		waitForScan();
+
+		assertTrue(index.isOverflow());
+		assertEquals(2, index.getCount(null));
+	}
+
+	@Test
+	public void testIsLineBound() throws Exception
+	{
+		assertTrue(FindMatchIndex.isLineBound(Pattern.compile("foo")));
+		assertTrue(FindMatchIndex.isLineBound(Pattern.compile("\\bfoo\\d+", Pattern.CASE_INSENSITIVE)));
+		assertTrue(FindMatchIndex.isLineBound(Pattern.compile("\\Qa.b\\E")));
+		assertFalse(FindMatchIndex.isLineBound(Pattern.compile("foo\\sbar")));
+		assertFalse(FindMatchIndex.isLineBound(Pattern.compile("[^a]")));
+		assertFalse(FindMatchIndex.isLineBound(Pattern.compile("^foo")));
+		assertFalse(FindMatchIndex.isLineBound(Pattern.compile("(?s)a.b")));
+		assertFalse(FindMatchIndex.isLineBound(Pattern.compile("foo", Pattern.MULTILINE)));
+	}
+
+	private void waitForScan() throws InterruptedException
+	{
+		long end = System.currentTimeMillis() + SCAN_TIMEOUT;
+		while (!index.isUpToDate())
+		{
+			assertTrue("Timed out waiting for the scan", System.currentTimeMillis() < end);
+			Thread.sleep(10);
+		}
+	}
+}
@@ -9,14 +9,19 @@ package com.aptana.editor.html.parsing;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.aptana.core.IFilter;
 import com.aptana.core.build.IProblem;
 import com.aptana.core.util.FileUtil;
 import com.aptana.core.util.StringUtil;
@@ -27,6 +32,7 @@ import com.aptana.editor.html.parsing.ast.HTMLElementNode;
 import com.aptana.js.core.IJSConstants;
 import com.aptana.js.core.parsing.ast.JSParseRootNode;
 import com.aptana.parsing.ParseResult;
+import com.aptana.parsing.ParserPoolFactory;
 import com.aptana.parsing.ast.INameNode;
 import com.aptana.parsing.ast.IParseError;
 import com.aptana.parsing.ast.IParseNode;
@@ -34,6 +40,7 @@ import com.aptana.parsing.ast.IParseNodeAttribute;
 import com.aptana.parsing.ast.IParseRootNode;
 import com.aptana.parsing.ast.ParseNode;
 import com.aptana.parsing.lexer.Range;
+import com.aptana.parsing.util.ParseUtil;
 
 public class HTMLParserTest
 {
@@ -50,11 +57,14 @@ public class HTMLParserTest
 	public void setUp() throws Exception
 	{
 		fParser = new HTMLParser();
+		// cache all the sub-parses, however small
+		HTMLSubParseCache.setInstance(new HTMLSubParseCache(1024 * 1024, 0));
 	}
 
 	@After
 	public void tearDown() throws Exception
 	{
+		HTMLSubParseCache.setInstance(null);
 		fParser = null;
 	}
 
@@ -107,6 +117,31 @@ public class HTMLParserTest
 		assertEquals("html#aptana.cool", children[0].getText());
 	}
 
+	private IParseNode getRoot(IParseNode node)
+	{
+		IParseNode root = node;
+		while (root.getParent() != null)
+		{
+			root = root.getParent();
+		}
+		return root;
+	}
+
+	private List<Integer> getOffsets(IParseNode node)
+	{
+		final List<Integer> offsets = new ArrayList<Integer>();
+		ParseUtil.treeApply(node, new IFilter<IParseNode>()
+		{
+			public boolean include(IParseNode item)
+			{
+				offsets.add(item.getStartingOffset());
+				offsets.add(item.getEndingOffset());
+				return true;
+			}
+		});
+		return offsets;
+	}
+
 	private IParseRootNode parse() throws Exception
 	{
 		return fParser.parse(fParseState).getRootNode();
@@ -378,6 +413,72 @@ public class HTMLParserTest
 		assertEquals(new Range(19, 19), endTag.getNameRange());
 	}
 
+	@Test
+	public void testReparseAfterEditBeforeScript() throws Exception
+	{
+		String script = "var foo = function() {\n  return 1;\n};\nfoo();";
+		String source = "<html><head><title>a</title><script>" + script
+				+ "</script></head><p onclick=\"foo();\">a</p></html>";
+		String edited = "<html><head><title>abc</title><script>" + script
+				+ "</script></head><p onclick=\"foo();\">a</p></html>";
+
+		fParseState = new HTMLParseState(source);
+		parse();
+		fParseState = new HTMLParseState(edited);
+		IParseNode result = parse();
+
+		HTMLElementNode head = (HTMLElementNode) result.getChild(0).getChild(0);
+		IParseNode jsRootNode = head.getChild(1).getChild(0);
+		IParseNode expected = ParserPoolFactory.parse(IJSConstants.CONTENT_TYPE_JS, script, edited.indexOf(script))
+				.getRootNode();
+		assertEquals(getOffsets(expected), getOffsets(jsRootNode));
+
+		HTMLElementNode p = (HTMLElementNode) result.getChild(0).getChild(1);
+		IParseNode[] jsAttributeNodes = p.getJSAttributeNodes();
+		assertEquals(1, jsAttributeNodes.length);
+		assertEquals(edited.indexOf("foo();\""), jsAttributeNodes[0].getStartingOffset());
+	}
+
+	@Test
+	public void testReparseKeepsPreviousAST() throws Exception
+	{
+		String source = "<html><head><script>var foo = 1;</script></head>"
+				+ "<p style=\"color: red;\" onclick=\"foo();\">a</p></html>";
+
+		fParseState = new HTMLParseState(source);
+		IParseNode first = parse();
+		fParseState = new HTMLParseState(source);
+		IParseNode second = parse();
+
+		// the first AST still owns its sub-language nodes
+		IParseNode jsRootNode = first.getChild(0).getChild(0).getChild(0).getChild(0);
+		assertNotSame(jsRootNode, second.getChild(0).getChild(0).getChild(0).getChild(0));
+		assertSame(first, getRoot(jsRootNode));
+
+		HTMLElementNode p = (HTMLElementNode) first.getChild(0).getChild(1);
+		HTMLElementNode secondP = (HTMLElementNode) second.getChild(0).getChild(1);
+		assertNotSame(p.getJSAttributeNodes()[0], secondP.getJSAttributeNodes()[0]);
+		assertNotSame(p.getCSSStyleNodes()[0], secondP.getCSSStyleNodes()[0]);
+	}
+
+	@Test
+	public void testSubParseErrorsAreInDocumentOrder() throws Exception
+	{
+		String source = "<div/><script>var = ;</script><p/>";
+		fParseState = new HTMLParseState(source);
+		List<IParseError> errors = fParser.parse(fParseState).getErrors();
+
+		assertTrue(errors.size() >= 3);
+		assertEquals(0, errors.get(0).getOffset());
+		assertEquals(IHTMLConstants.CONTENT_TYPE_HTML, errors.get(0).getLangauge());
+		for (int i = 1; i < errors.size() - 1; i++)
+		{
+			assertEquals(IJSConstants.CONTENT_TYPE_JS, errors.get(i).getLangauge());
+		}
+		assertEquals(source.indexOf("<p/>"), errors.get(errors.size() - 1).getOffset());
+		assertEquals(IHTMLConstants.CONTENT_TYPE_HTML, errors.get(errors.size() - 1).getLangauge());
+	}
+
 	@Test
 	public void testInvalidSyntax() throws Exception
 	{
@@ -12,7 +12,8 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ HTMLParserTest.class, HTMLParserTypeAttributeTest.class, HTMLUtilsTest.class, })
+@SuiteClasses({ HTMLParserTest.class, HTMLParserTypeAttributeTest.class, HTMLSubParseCacheTest.class,
+		HTMLUtilsTest.class, })
 public class HTMLParsingTests
 {
 }
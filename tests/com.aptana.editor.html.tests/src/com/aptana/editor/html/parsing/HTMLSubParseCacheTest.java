@@ -0,0 +1,165 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.html.parsing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aptana.core.IFilter;
+import com.aptana.css.core.ICSSConstants;
+import com.aptana.css.core.parsing.ast.CSSRuleNode;
+import com.aptana.js.core.IJSConstants;
+import com.aptana.parsing.ParseResult;
+import com.aptana.parsing.ParseState;
+import com.aptana.parsing.ParserPoolFactory;
+import com.aptana.parsing.ast.IParseNode;
+import com.aptana.parsing.util.ParseUtil;
+
+public class HTMLSubParseCacheTest
+{
+
+	private static final String SOURCE = "function foo(a) {\n  // add one\n  return a + 1;\n}\nvar bar = foo(1);";
+
+	private HTMLSubParseCache fCache;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		fCache = new HTMLSubParseCache(1024 * 1024, 0);
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		fCache = null;
+	}
+
+	@Test
+	public void testMissWhenNotCached() throws Exception
+	{
+		assertNull(fCache.get(IJSConstants.CONTENT_TYPE_JS, SOURCE, 10));
+	}
+
+	@Test
+	public void testCachedSourceIsHitAtAnotherOffset() throws Exception
+	{
+		fCache.put(IJSConstants.CONTENT_TYPE_JS, SOURCE, 0, parse(SOURCE, 0));
+
+		ParseResult result = fCache.get(IJSConstants.CONTENT_TYPE_JS, SOURCE, 10);
+		assertNotNull(result);
+		assertEquals(getOffsets(parse(SOURCE, 10).getRootNode()), getOffsets(result.getRootNode()));
+	}
+
+	@Test
+	public void testLanguageIsPartOfTheKey() throws Exception
+	{
+		fCache.put(IJSConstants.CONTENT_TYPE_JS, SOURCE, 0, parse(SOURCE, 0));
+
+		assertNull(fCache.get(ICSSConstants.CONTENT_TYPE_CSS, SOURCE, 10));
+	}
+
+	@Test
+	public void testEachHitIsACopy() throws Exception
+	{
+		ParseResult cached = parse(SOURCE, 10);
+		List<Integer> offsets = getOffsets(cached.getRootNode());
+		fCache.put(IJSConstants.CONTENT_TYPE_JS, SOURCE, 10, cached);
+
+		ParseResult first = fCache.get(IJSConstants.CONTENT_TYPE_JS, SOURCE, 10);
+		// same offset, still another tree
+		ParseResult second = fCache.get(IJSConstants.CONTENT_TYPE_JS, SOURCE, 10);
+		assertNotSame(cached.getRootNode(), first.getRootNode());
+		assertNotSame(first.getRootNode(), second.getRootNode());
+		assertNotSame(first.getRootNode().getChild(0), second.getRootNode().getChild(0));
+		ParseResult third = fCache.get(IJSConstants.CONTENT_TYPE_JS, SOURCE, 40);
+		assertEquals(offsets, getOffsets(first.getRootNode()));
+		assertEquals(offsets, getOffsets(second.getRootNode()));
+		assertEquals(40, third.getRootNode().getStartingOffset());
+		// the cached tree didn't move
+		assertEquals(offsets, getOffsets(cached.getRootNode()));
+	}
+
+	@Test
+	public void testParseCachesACopy() throws Exception
+	{
+		ParseResult first = fCache.parse(IJSConstants.CONTENT_TYPE_JS, SOURCE, 10);
+		ParseResult second = fCache.parse(IJSConstants.CONTENT_TYPE_JS, SOURCE, 20);
+		assertNotSame(first.getRootNode(), second.getRootNode());
+		assertEquals(getOffsets(parse(SOURCE, 20).getRootNode()), getOffsets(second.getRootNode()));
+		// the parsing engine's tree is not handed out either
+		assertNotSame(parse(SOURCE, 10).getRootNode(), first.getRootNode());
+	}
+
+	@Test
+	public void testCSSReferencedNodesAreCopied() throws Exception
+	{
+		String source = "p { color: red; }";
+		ParseResult cached = ParserPoolFactory.parse(ICSSConstants.CONTENT_TYPE_CSS, new ParseState(source, 0));
+		fCache.put(ICSSConstants.CONTENT_TYPE_CSS, source, 0, cached);
+
+		CSSRuleNode rule = (CSSRuleNode) fCache.get(ICSSConstants.CONTENT_TYPE_CSS, source, 5).getRootNode()
+				.getChild(0);
+		CSSRuleNode cachedRule = (CSSRuleNode) cached.getRootNode().getChild(0);
+		assertNotSame(cachedRule.getDeclarations()[0], rule.getDeclarations()[0]);
+		assertEquals(cachedRule.getDeclarations()[0].getStartingOffset() + 5, rule.getDeclarations()[0]
+				.getStartingOffset());
+		assertNotSame(cachedRule.getSelectors()[0], rule.getSelectors()[0]);
+		assertSame(rule, rule.getSelectors()[0].getParent());
+	}
+
+	@Test
+	public void testSmallSourcesAreNotCached() throws Exception
+	{
+		fCache = new HTMLSubParseCache(1024 * 1024, SOURCE.length() + 1);
+		fCache.put(IJSConstants.CONTENT_TYPE_JS, SOURCE, 0, parse(SOURCE, 0));
+
+		assertNull(fCache.get(IJSConstants.CONTENT_TYPE_JS, SOURCE, 10));
+	}
+
+	@Test
+	public void testEldestEntriesArePruned() throws Exception
+	{
+		fCache = new HTMLSubParseCache(SOURCE.length() * 2, 0);
+		String other = SOURCE + "\nbar++;";
+		fCache.put(IJSConstants.CONTENT_TYPE_JS, SOURCE, 0, parse(SOURCE, 0));
+		fCache.put(IJSConstants.CONTENT_TYPE_JS, other, 0, parse(other, 0));
+
+		assertNull(fCache.get(IJSConstants.CONTENT_TYPE_JS, SOURCE, 0));
+		assertNotNull(fCache.get(IJSConstants.CONTENT_TYPE_JS, other, 0));
+	}
+
+	private ParseResult parse(String source, int offset) throws Exception
+	{
+		return ParserPoolFactory.parse(IJSConstants.CONTENT_TYPE_JS, new ParseState(source, offset));
+	}
+
+	private List<Integer> getOffsets(IParseNode root)
+	{
+		final List<Integer> offsets = new ArrayList<Integer>();
+		ParseUtil.treeApply(root, new IFilter<IParseNode>()
+		{
+			public boolean include(IParseNode item)
+			{
+				offsets.add(item.getStartingOffset());
+				offsets.add(item.getEndingOffset());
+				return true;
+			}
+		});
+		return offsets;
+	}
+}
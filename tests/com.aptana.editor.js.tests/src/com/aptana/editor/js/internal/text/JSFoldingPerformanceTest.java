@@ -0,0 +1,115 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.js.internal.text;
+
+import java.util.Map;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.source.projection.ProjectionAnnotation;
+import org.eclipse.jface.text.source.projection.ProjectionAnnotationModel;
+import org.junit.experimental.categories.Category;
+
+import com.aptana.core.tests.GlobalTimePerformanceTestCase;
+import com.aptana.editor.common.text.reconciler.FoldingStructureUpdate;
+import com.aptana.js.core.parsing.GraalJSParser;
+import com.aptana.parsing.ParseState;
+import com.aptana.parsing.ast.IParseRootNode;
+import com.aptana.testing.categories.PerformanceTests;
+
+/**
+ * Computes the folding positions of a 20,000 lines file, and applies them to a projection annotation model the way the
+ * editor does after each reconcile.
+ */
+@Category({ PerformanceTests.class })
+@SuppressWarnings("nls")
+public class JSFoldingPerformanceTest extends GlobalTimePerformanceTestCase
+{
+	private static final int FUNCTIONS = 2000;
+	private static final int RUNS = 10;
+
+	private IDocument document;
+	private IParseRootNode ast;
+	private ProjectionAnnotationModel model;
+
+	@Override
+	public void setUp() throws Exception
+	{
+		super.setUp();
+
+		// 10 lines per function, each with a doc comment and a nested function
+		StringBuilder source = new StringBuilder();
+		for (int i = 0; i < FUNCTIONS; i++)
+		{
+			source.append("/**\n");
+			source.append(" * Function ").append(i).append('\n');
+			source.append(" */\n");
+			source.append("function f").append(i).append("(a)\n");
+			source.append("{\n");
+			source.append("\tvar inner = function(b) {\n");
+			source.append("\t\treturn a + b;\n");
+			source.append("\t};\n");
+			source.append("\treturn inner(").append(i).append(");\n");
+			source.append("}\n");
+		}
+		document = new Document(source.toString());
+		ast = new GraalJSParser().parse(new ParseState(document.get())).getRootNode();
+		model = new ProjectionAnnotationModel();
+		model.connect(document);
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		model.disconnect(document);
+		model = null;
+		ast = null;
+		document = null;
+
+		super.tearDown();
+	}
+
+	public void testComputeFoldingRegions() throws Exception
+	{
+		for (int i = 0; i < RUNS; i++)
+		{
+			startMeasuring();
+			Map<ProjectionAnnotation, Position> positions = emitFoldingRegions();
+			stopMeasuring();
+			// at least the doc comment and the function
+			assertTrue(positions.size() >= 2 * FUNCTIONS);
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	public void testUpdateFoldingStructure() throws Exception
+	{
+		FoldingStructureUpdate.apply(model, emitFoldingRegions());
+		for (int i = 0; i < RUNS; i++)
+		{
+			// What each reconcile does when nothing changed: all the annotations get computed anew, and are all kept
+			Map<ProjectionAnnotation, Position> positions = emitFoldingRegions();
+
+			startMeasuring();
+			FoldingStructureUpdate update = FoldingStructureUpdate.apply(model, positions);
+			stopMeasuring();
+			assertFalse(update.hasChanges());
+			assertEquals(positions.size(), update.getKeptCount());
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	private Map<ProjectionAnnotation, Position> emitFoldingRegions() throws Exception
+	{
+		return new JSFoldingComputer(null, document).emitFoldingRegions(false, new NullProgressMonitor(), ast);
+	}
+}
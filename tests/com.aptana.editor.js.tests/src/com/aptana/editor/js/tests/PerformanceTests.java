@@ -14,6 +14,7 @@ import org.junit.runners.Suite.SuiteClasses;
 import com.aptana.editor.js.contentassist.JSBuildPerformanceTest;
 import com.aptana.editor.js.contentassist.JSContentAssistProcessorPerformanceTest;
 import com.aptana.editor.js.contentassist.JSIndexingPerformanceTest;
+import com.aptana.editor.js.internal.text.JSFoldingPerformanceTest;
 import com.aptana.editor.js.tests.performance.JSParserValidatorPerformanceTest;
 import com.aptana.editor.js.tests.performance.OpenJSEditorTest;
 import com.aptana.editor.js.text.JSCodeScannerPerformanceTest;
@@ -21,7 +22,7 @@ import com.aptana.editor.js.text.JSSourcePartitionScannerPerformanceTest;
 
 @RunWith(Suite.class)
 @SuiteClasses({ JSBuildPerformanceTest.class, JSContentAssistProcessorPerformanceTest.class,
-		JSIndexingPerformanceTest.class, JSCodeScannerPerformanceTest.class,
+		JSIndexingPerformanceTest.class, JSFoldingPerformanceTest.class, JSCodeScannerPerformanceTest.class,
 		JSSourcePartitionScannerPerformanceTest.class,
 		JSParserValidatorPerformanceTest.class, OpenJSEditorTest.class, })
 public class PerformanceTests
@@ -11,7 +11,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
-@Suite.SuiteClasses({ HttpFileSystemTest.class, HttpFileStoreTest.class })
+@Suite.SuiteClasses({ HttpCacheTest.class, HttpFileSystemTest.class, HttpFileStoreTest.class })
 public class AllTests
 {
 }
@@ -0,0 +1,233 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.filesystem.http.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aptana.core.util.FileUtil;
+import com.aptana.core.util.IOUtil;
+import com.aptana.filesystem.http.HttpCache;
+import com.aptana.testing.utils.LocalHttpServer;
+import com.aptana.testing.utils.LocalHttpServer.Request;
+import com.aptana.testing.utils.LocalHttpServer.Response;
+
+@SuppressWarnings("nls")
+public class HttpCacheTest
+{
+	private LocalHttpServer server;
+	private File directory;
+	private HttpCache cache;
+
+	/**
+	 * What the server currently serves.
+	 */
+	private volatile String content;
+	private volatile String etag;
+	private volatile String cacheControl;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		content = "first";
+		etag = "\"v1\"";
+		cacheControl = "no-cache";
+		server = new LocalHttpServer(new LocalHttpServer.Handler()
+		{
+			public Response handle(Request request) throws IOException
+			{
+				if (etag.equals(request.getHeader("If-None-Match")))
+				{
+					return new Response(304).header("ETag", etag).header("Cache-Control", cacheControl);
+				}
+				return new Response(200, content.getBytes()).header("ETag", etag).header("Cache-Control",
+						cacheControl);
+			}
+		});
+		server.start();
+
+		directory = FileUtil.getTempDirectory().append("http_cache" + System.currentTimeMillis()).toFile();
+		cache = new HttpCache(directory, 1024);
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		server.stop();
+		server = null;
+		FileUtil.deleteRecursively(directory);
+		directory = null;
+		cache = null;
+	}
+
+	@Test
+	public void testFreshContentIsServedWithoutRequest() throws Exception
+	{
+		cacheControl = "max-age=3600";
+		URI uri = uri("/fresh.js");
+		assertEquals("first", read(cache.fetch(uri)));
+
+		content = "second";
+		HttpCache.Entry entry = cache.fetch(uri);
+		assertTrue(entry.isFresh());
+		assertEquals("first", read(entry));
+		assertEquals(1, server.getRequests().size());
+	}
+
+	@Test
+	public void testStaleContentIsRevalidated() throws Exception
+	{
+		URI uri = uri("/stale.js");
+		HttpCache.Entry first = cache.fetch(uri);
+		assertFalse(first.isFresh());
+
+		HttpCache.Entry second = cache.fetch(uri);
+		assertEquals("first", read(second));
+		assertEquals(first.getFile(), second.getFile());
+
+		List<Request> requests = server.getRequests();
+		assertEquals(2, requests.size());
+		assertNull(requests.get(0).getHeader("If-None-Match"));
+		assertEquals("\"v1\"", requests.get(1).getHeader("If-None-Match"));
+	}
+
+	@Test
+	public void testChangedContentIsDownloadedAgain() throws Exception
+	{
+		URI uri = uri("/changed.js");
+		assertEquals("first", read(cache.fetch(uri)));
+
+		content = "second";
+		etag = "\"v2\"";
+		assertEquals("second", read(cache.fetch(uri)));
+	}
+
+	@Test
+	public void testRevalidateWithoutDownloading() throws Exception
+	{
+		URI uri = uri("/head.js");
+		HttpCache.Entry entry = cache.fetch(uri);
+
+		assertNotNull(cache.revalidate(entry));
+		assertEquals("HEAD", server.getRequests().get(1).method);
+
+		etag = "\"v2\"";
+		assertNull(cache.revalidate(entry));
+	}
+
+	@Test
+	public void testCacheIsKeptAcrossSessions() throws Exception
+	{
+		cacheControl = "max-age=3600";
+		URI uri = uri("/persistent.js");
+		cache.fetch(uri);
+
+		HttpCache newSession = new HttpCache(directory, 1024);
+		HttpCache.Entry entry = newSession.get(uri);
+		assertNotNull(entry);
+		assertTrue(entry.isFresh());
+		assertEquals("first", read(newSession.fetch(uri)));
+		assertEquals(1, server.getRequests().size());
+	}
+
+	@Test
+	public void testStaleContentIsServedWhenServerIsDown() throws Exception
+	{
+		URI uri = uri("/offline.js");
+		HttpCache.Entry entry = cache.fetch(uri);
+		server.stop();
+
+		assertSame(entry, cache.fetch(uri));
+		assertSame(entry, cache.revalidate(entry));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedContentIsEvicted() throws Exception
+	{
+		content = new String(new char[400]).replace('\0', 'x');
+		URI first = uri("/first.js");
+		URI second = uri("/second.js");
+		URI third = uri("/third.js");
+		cache.fetch(first);
+		Thread.sleep(10);
+		cache.fetch(second);
+		Thread.sleep(10);
+		// use the first one again, so that the second one is the least recently used
+		cache.get(first);
+		Thread.sleep(10);
+		cache.fetch(third);
+
+		assertNotNull(cache.get(first));
+		assertNull(cache.get(second));
+		assertNotNull(cache.get(third));
+	}
+
+	@Test
+	public void testDeletedContentIsDownloadedAgain() throws Exception
+	{
+		URI uri = uri("/deleted.js");
+		cache.fetch(uri).getFile().delete();
+
+		assertNull(cache.get(uri));
+		assertEquals("first", read(cache.fetch(uri)));
+		assertNull(server.getRequests().get(1).getHeader("If-None-Match"));
+	}
+
+	@Test
+	public void testQueriesAreCachedApart() throws Exception
+	{
+		cacheControl = "max-age=3600";
+		URI first = uri("/lib.js?v=1");
+		assertEquals("first", read(cache.fetch(first)));
+
+		content = "second";
+		etag = "\"v2\"";
+		URI second = uri("/lib.js?v=2");
+		assertNull(cache.get(second));
+		HttpCache.Entry entry = cache.fetch(second);
+		assertEquals("second", read(entry));
+		assertEquals(second, entry.getURI());
+		assertTrue(entry.getFile().getName().endsWith(".js"));
+		assertEquals("first", read(cache.fetch(first)));
+		assertEquals(2, server.getRequests().size());
+	}
+
+	@Test
+	public void testFragmentsShareTheContent() throws Exception
+	{
+		cacheControl = "max-age=3600";
+		cache.fetch(uri("/page.html#top"));
+
+		assertNotNull(cache.get(uri("/page.html#bottom")));
+		assertEquals(1, server.getRequests().size());
+	}
+
+	private URI uri(String path)
+	{
+		return URI.create(server.getURL(path));
+	}
+
+	private String read(HttpCache.Entry entry) throws IOException
+	{
+		return IOUtil.read(new FileInputStream(entry.getFile()));
+	}
+}
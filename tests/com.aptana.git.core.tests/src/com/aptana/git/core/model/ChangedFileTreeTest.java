@@ -0,0 +1,134 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.git.core.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.runtime.Path;
+import org.junit.Test;
+
+import com.aptana.git.core.model.ChangedFile.Status;
+
+public class ChangedFileTreeTest
+{
+
+	@Test
+	public void testEmpty() throws Exception
+	{
+		ChangedFileTree tree = new ChangedFileTree(Collections.<ChangedFile> emptyList());
+
+		assertTrue(tree.isEmpty());
+		assertFalse(tree.hasChanges(Path.EMPTY));
+		assertTrue(tree.getChangedFiles(Path.EMPTY).isEmpty());
+	}
+
+	@Test
+	public void testFolderHasChanges() throws Exception
+	{
+		ChangedFileTree tree = new ChangedFileTree(files(file("src/a/one.js", Status.MODIFIED, false, true),
+				file("README", Status.NEW, true, false)));
+
+		assertEquals(2, tree.size());
+		assertTrue(tree.hasChanges(Path.EMPTY));
+		assertTrue(tree.hasChanges(Path.fromPortableString("src")));
+		assertTrue(tree.hasChanges(Path.fromPortableString("src/a")));
+		assertTrue(tree.hasChanges(Path.fromPortableString("src/a/one.js")));
+		assertFalse(tree.hasChanges(Path.fromPortableString("src/b")));
+		assertFalse(tree.hasChanges(Path.fromPortableString("src/a/one.js/nope")));
+		// segments, not string prefixes
+		assertFalse(tree.hasChanges(Path.fromPortableString("sr")));
+	}
+
+	@Test
+	public void testFlagsAreAggregated() throws Exception
+	{
+		ChangedFileTree tree = new ChangedFileTree(files(file("src/a/one.js", Status.MODIFIED, false, true),
+				file("src/b/two.js", Status.NEW, true, false), file("lib/three.js", Status.UNMERGED, false, true)));
+
+		assertTrue(tree.hasStagedChanges(Path.fromPortableString("src")));
+		assertTrue(tree.hasUnstagedChanges(Path.fromPortableString("src")));
+		assertFalse(tree.hasStagedChanges(Path.fromPortableString("src/a")));
+		assertFalse(tree.hasUnstagedChanges(Path.fromPortableString("src/b")));
+		assertFalse(tree.hasUnresolvedMergeConflicts(Path.fromPortableString("src")));
+		assertTrue(tree.hasUnresolvedMergeConflicts(Path.fromPortableString("lib")));
+		assertTrue(tree.hasUnresolvedMergeConflicts(Path.EMPTY));
+	}
+
+	@Test
+	public void testStagedMergeIsNotAConflict() throws Exception
+	{
+		ChangedFileTree tree = new ChangedFileTree(files(file("lib/three.js", Status.UNMERGED, true, false)));
+
+		assertFalse(tree.hasUnresolvedMergeConflicts(Path.EMPTY));
+	}
+
+	@Test
+	public void testGetChangedFile() throws Exception
+	{
+		ChangedFile file = file("src/a/one.js", Status.MODIFIED, false, true);
+		ChangedFileTree tree = new ChangedFileTree(files(file));
+
+		ChangedFile found = tree.getChangedFile(Path.fromPortableString("src/a/one.js"));
+		assertNotNull(found);
+		assertNotSame(file, found);
+		assertEquals(file, found);
+		assertNull(tree.getChangedFile(Path.fromPortableString("src/a")));
+	}
+
+	@Test
+	public void testGetChangedFilesUnderFolder() throws Exception
+	{
+		ChangedFileTree tree = new ChangedFileTree(files(file("src/a/one.js", Status.MODIFIED, false, true),
+				file("src/b/two.js", Status.NEW, true, false), file("lib/three.js", Status.DELETED, true, false)));
+
+		Set<String> paths = new HashSet<String>();
+		for (ChangedFile file : tree.getChangedFiles(Path.fromPortableString("src")))
+		{
+			paths.add(file.getRelativePath().toPortableString());
+		}
+		assertEquals(new HashSet<String>(Arrays.asList("src/a/one.js", "src/b/two.js")), paths);
+		assertEquals(3, tree.getChangedFiles(Path.EMPTY).size());
+		assertTrue(tree.getChangedFiles(Path.fromPortableString("test")).isEmpty());
+	}
+
+	@Test
+	public void testTreeIsASnapshot() throws Exception
+	{
+		ChangedFile file = file("src/one.js", Status.MODIFIED, false, true);
+		ChangedFileTree tree = new ChangedFileTree(files(file));
+
+		file.makeStaged();
+		assertFalse(tree.hasStagedChanges(Path.EMPTY));
+		tree.getChangedFile(Path.fromPortableString("src/one.js")).makeStaged();
+		assertFalse(tree.getChangedFile(Path.fromPortableString("src/one.js")).hasStagedChanges());
+	}
+
+	private static ChangedFile file(String path, Status status, boolean staged, boolean unstaged)
+	{
+		return new ChangedFile(null, Path.fromPortableString(path), status, null, null, staged, unstaged);
+	}
+
+	private static List<ChangedFile> files(ChangedFile... files)
+	{
+		List<ChangedFile> list = new ArrayList<ChangedFile>();
+		Collections.addAll(list, files);
+		return list;
+	}
+}
@@ -12,8 +12,9 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ GitExecutableTest.class, GitIndexRefreshJobTest.class, GitIndexTest.class, GitRefTest.class,
-		GitRevSpecifierTest.class, GitRepositoryTest.class })
+@SuiteClasses({ ChangedFileTreeTest.class, GitCommitCacheTest.class, GitExecutableTest.class,
+		GitIndexRefreshJobTest.class, GitIndexTest.class, GitRefTest.class, GitRevSpecifierTest.class,
+		GitRepositoryTest.class })
 public class CoreModelTests
 {
 }
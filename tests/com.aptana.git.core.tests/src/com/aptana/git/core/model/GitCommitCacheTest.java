@@ -0,0 +1,177 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.git.core.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GitCommitCacheTest
+{
+
+	private static final String SHA1 = "0123456789012345678901234567890123456789";
+	private static final String SHA2 = "abcdefabcdefabcdefabcdefabcdefabcdefabcd";
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		file = File.createTempFile("commits", ".cache");
+		file.delete();
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		file.delete();
+		file = null;
+	}
+
+	@Test
+	public void testInMemory() throws Exception
+	{
+		GitCommitCache cache = new GitCommitCache(null);
+		assertNull(cache.get(null, SHA1));
+
+		cache.put(commit(SHA1, "First commit", SHA2));
+		cache.save();
+
+		assertTrue(cache.contains(SHA1));
+		assertFalse(cache.contains(SHA2));
+		assertCommit(cache.get(null, SHA1), SHA1, "First commit");
+	}
+
+	@Test
+	public void testPersistsAcrossSessions() throws Exception
+	{
+		GitCommitCache cache = new GitCommitCache(file);
+		cache.put(commit(SHA1, "First commit\n\nWith a body é", SHA2));
+		cache.put(commit(SHA2, "Root commit"));
+		cache.save();
+
+		cache = new GitCommitCache(file);
+		assertEquals(2, cache.size());
+		assertCommit(cache.get(null, SHA1), SHA1, "First commit\n\nWith a body é");
+		assertCommit(cache.get(null, SHA2), SHA2, "Root commit");
+	}
+
+	@Test
+	public void testAppendsToExistingFile() throws Exception
+	{
+		GitCommitCache cache = new GitCommitCache(file);
+		cache.put(commit(SHA2, "Root commit"));
+		cache.save();
+
+		cache = new GitCommitCache(file);
+		cache.put(commit(SHA1, "First commit", SHA2));
+		cache.save();
+
+		cache = new GitCommitCache(file);
+		assertEquals(2, cache.size());
+		assertCommit(cache.get(null, SHA1), SHA1, "First commit");
+		assertCommit(cache.get(null, SHA2), SHA2, "Root commit");
+	}
+
+	@Test
+	public void testTruncatedRecordIsDropped() throws Exception
+	{
+		GitCommitCache cache = new GitCommitCache(file);
+		cache.put(commit(SHA2, "Root commit"));
+		cache.put(commit(SHA1, "First commit", SHA2));
+		cache.save();
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(raf.length() - 10);
+		raf.close();
+
+		cache = new GitCommitCache(file);
+		assertEquals(1, cache.size());
+		assertCommit(cache.get(null, SHA2), SHA2, "Root commit");
+		assertNull(cache.get(null, SHA1));
+
+		// and it can be added back
+		cache.put(commit(SHA1, "First commit", SHA2));
+		cache.save();
+		cache = new GitCommitCache(file);
+		assertEquals(2, cache.size());
+		assertCommit(cache.get(null, SHA1), SHA1, "First commit");
+	}
+
+	@Test
+	public void testCompactsPastMaxCommits() throws Exception
+	{
+		GitCommitCache cache = new GitCommitCache(file, 4);
+		for (int i = 0; i < 4; i++)
+		{
+			cache.put(commit(sha(i), "Commit " + i));
+		}
+		cache.save();
+
+		// commit 0 is used, the others are only in the file
+		cache = new GitCommitCache(file, 4);
+		assertCommit(cache.get(null, sha(0)), sha(0), "Commit 0");
+		cache.put(commit(sha(4), "Commit 4"));
+		cache.save();
+
+		// the used commit and the one just added are kept, along with the most recently added one
+		cache = new GitCommitCache(file, 4);
+		assertEquals(3, cache.size());
+		assertCommit(cache.get(null, sha(0)), sha(0), "Commit 0");
+		assertCommit(cache.get(null, sha(3)), sha(3), "Commit 3");
+		assertCommit(cache.get(null, sha(4)), sha(4), "Commit 4");
+		assertFalse(cache.contains(sha(1)));
+		assertFalse(cache.contains(sha(2)));
+
+		// all in use, nothing to drop
+		cache.put(commit(sha(5), "Commit 5"));
+		cache.put(commit(sha(6), "Commit 6"));
+		cache.save();
+		assertEquals(5, new GitCommitCache(file, 4).size());
+	}
+
+	private String sha(int i)
+	{
+		return String.format("%040d", i);
+	}
+
+	private GitCommit commit(String sha, String comment, String... parents)
+	{
+		GitCommit commit = new GitCommit(null, sha);
+		commit.setAuthor("Author");
+		commit.setAuthorEmail("author@example.com");
+		commit.setSubject(comment.split("\n")[0]);
+		commit.setComment(comment);
+		commit.setParents(Arrays.asList(parents));
+		commit.setTimestamp(1234567890000L);
+		return commit;
+	}
+
+	private void assertCommit(GitCommit commit, String sha, String comment)
+	{
+		assertNotNull(commit);
+		assertEquals(sha, commit.sha());
+		assertEquals("Author", commit.getAuthor());
+		assertEquals("author@example.com", commit.getAuthorEmail());
+		assertEquals(comment.split("\n")[0], commit.getSubject());
+		assertEquals(comment, commit.getComment());
+		// the parents come from the walk
+		assertNull(commit.parents());
+		assertEquals(1234567890000L, commit.getTimestamp());
+	}
+}
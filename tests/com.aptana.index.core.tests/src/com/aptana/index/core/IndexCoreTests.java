@@ -5,7 +5,8 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ FileStoreBuildContextTest.class, IndexContainerJobTest.class, IndexTest.class, })
+@SuiteClasses({ FileStoreBuildContextTest.class, IndexContainerJobTest.class, IndexManagerTest.class,
+		IndexTest.class, })
 public class IndexCoreTests
 {
 
@@ -0,0 +1,199 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license-epl.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.index.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.content.IContentType;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.api.Action;
+import org.jmock.api.Invocation;
+import org.jmock.lib.action.CustomAction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aptana.core.util.CollectionsUtil;
+
+@SuppressWarnings("nls")
+public class IndexManagerTest
+{
+
+	private Mockery context;
+	private IContentType jsType;
+	private IContentType jsonType;
+	private IFileStoreIndexingParticipant jsParticipant;
+	private IFileStoreIndexingParticipant docsParticipant;
+	private IFileStoreIndexingParticipant jsonParticipant;
+	private Map<IConfigurationElement, Set<IContentType>> participants;
+	private Map<IContentType, Set<String>> associations;
+	private int reads;
+	private IndexManager manager;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		context = new Mockery();
+		associations = new HashMap<IContentType, Set<String>>();
+		jsType = context.mock(IContentType.class, "jsType");
+		jsonType = context.mock(IContentType.class, "jsonType");
+		jsParticipant = context.mock(IFileStoreIndexingParticipant.class, "jsParticipant");
+		docsParticipant = context.mock(IFileStoreIndexingParticipant.class, "docsParticipant");
+		jsonParticipant = context.mock(IFileStoreIndexingParticipant.class, "jsonParticipant");
+
+		participants = new HashMap<IConfigurationElement, Set<IContentType>>();
+		participants.put(createElement("js", jsParticipant), CollectionsUtil.newSet(jsType));
+		participants.put(createElement("docs", docsParticipant), CollectionsUtil.newSet(jsType, jsonType));
+		participants.put(createElement("json", jsonParticipant), CollectionsUtil.newSet(jsonType));
+
+		context.checking(new Expectations()
+		{
+			{
+				allowing(jsParticipant).getPriority();
+				will(returnValue(50));
+				allowing(docsParticipant).getPriority();
+				will(returnValue(10));
+				allowing(jsonParticipant).getPriority();
+				will(returnValue(50));
+
+				allowing(jsType).getFileSpecs(IContentType.FILE_NAME_SPEC);
+				will(returnValue(new String[0]));
+				allowing(jsType).getBaseType();
+				will(returnValue(null));
+				allowing(jsType).isAssociatedWith(with(any(String.class)));
+				will(isAssociated(jsType));
+
+				allowing(jsonType).getFileSpecs(IContentType.FILE_NAME_SPEC);
+				will(returnValue(new String[] { "package.json" }));
+				allowing(jsonType).getBaseType();
+				will(returnValue(null));
+				allowing(jsonType).isAssociatedWith(with(any(String.class)));
+				will(isAssociated(jsonType));
+			}
+		});
+
+		manager = new IndexManager()
+		{
+			@Override
+			Map<IConfigurationElement, Set<IContentType>> getFileIndexingParticipants()
+			{
+				reads++;
+				return participants;
+			}
+		};
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		manager.dispose();
+		manager = null;
+		context = null;
+	}
+
+	@Test
+	public void testParticipantsAreOrderedByPriority() throws Exception
+	{
+		associate(jsType, "file.js");
+
+		List<IFileStoreIndexingParticipant> result = manager.getIndexParticipants("file.js");
+		assertEquals(CollectionsUtil.newList(jsParticipant, docsParticipant), result);
+		context.assertIsSatisfied();
+	}
+
+	@Test
+	public void testParticipantsAreSharedByFilesOfSameExtension() throws Exception
+	{
+		associate(jsType, "file.js");
+
+		List<IFileStoreIndexingParticipant> result = manager.getIndexParticipants("file.js");
+		assertSame(result, manager.getIndexParticipants("other.js"));
+		assertSame(result, manager.getIndexParticipants("UPPER.JS"));
+		assertEquals(1, reads);
+		// each participant has been created only once (see createElement)
+		context.assertIsSatisfied();
+	}
+
+	@Test
+	public void testFilesNamedByContentTypeAreLookedUpByName() throws Exception
+	{
+		associate(jsonType, "package.json");
+
+		assertEquals(CollectionsUtil.newList(jsonParticipant, docsParticipant),
+				manager.getIndexParticipants("package.json"));
+		assertTrue(manager.getIndexParticipants("other.json").isEmpty());
+		context.assertIsSatisfied();
+	}
+
+	@Test
+	public void testUnassociatedFileHasNoParticipants() throws Exception
+	{
+		assertTrue(manager.getIndexParticipants("file.txt").isEmpty());
+		assertTrue(manager.getIndexParticipants("Makefile").isEmpty());
+		context.assertIsSatisfied();
+	}
+
+	@Test
+	public void testResetReadsRegistryAgain() throws Exception
+	{
+		manager.getIndexParticipants("file.txt");
+		manager.getIndexParticipants("file.txt");
+		assertEquals(1, reads);
+
+		manager.resetParticipants();
+		manager.getIndexParticipants("file.txt");
+		assertEquals(2, reads);
+	}
+
+	private IConfigurationElement createElement(String name, final IFileStoreIndexingParticipant participant)
+			throws Exception
+	{
+		final IConfigurationElement element = context.mock(IConfigurationElement.class, name);
+		context.checking(new Expectations()
+		{
+			{
+				atMost(1).of(element).createExecutableExtension("class");
+				will(returnValue(participant));
+			}
+		});
+		return element;
+	}
+
+	private void associate(IContentType type, String filename)
+	{
+		Set<String> filenames = associations.get(type);
+		if (filenames == null)
+		{
+			filenames = new HashSet<String>();
+			associations.put(type, filenames);
+		}
+		filenames.add(filename);
+	}
+
+	private Action isAssociated(final IContentType type)
+	{
+		return new CustomAction("isAssociatedWith")
+		{
+			public Object invoke(Invocation invocation) throws Throwable
+			{
+				Set<String> filenames = associations.get(type);
+				return filenames != null && filenames.contains(invocation.getParameter(0));
+			}
+		};
+	}
+}
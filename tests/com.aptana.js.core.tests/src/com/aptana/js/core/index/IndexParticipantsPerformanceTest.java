@@ -0,0 +1,72 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.js.core.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.experimental.categories.Category;
+
+import com.aptana.core.tests.GlobalTimePerformanceTestCase;
+import com.aptana.index.core.IndexManager;
+import com.aptana.index.core.IndexPlugin;
+import com.aptana.testing.categories.PerformanceTests;
+
+/**
+ * Looks up the indexing participants of every file of a large project, as indexing it does before handing each file
+ * to its participants.
+ */
+@Category({ PerformanceTests.class })
+@SuppressWarnings("nls")
+public class IndexParticipantsPerformanceTest extends GlobalTimePerformanceTestCase
+{
+	private static final int FILES = 30000;
+	private static final String[] EXTENSIONS = { ".js", ".js", ".js", ".json", ".sdocml", ".jsca", ".html", ".css",
+			".png", ".txt", "" };
+
+	private List<String> filenames;
+	private IndexManager indexManager;
+
+	@Override
+	public void setUp() throws Exception
+	{
+		super.setUp();
+
+		filenames = new ArrayList<String>(FILES);
+		for (int i = 0; i < FILES; i++)
+		{
+			filenames.add("file" + i + EXTENSIONS[i % EXTENSIONS.length]);
+		}
+		filenames.add("package.json");
+		indexManager = IndexPlugin.getDefault().getIndexManager();
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		filenames = null;
+		indexManager = null;
+
+		super.tearDown();
+	}
+
+	public void testGetIndexParticipants() throws Exception
+	{
+		for (int i = 0; i < 10; i++)
+		{
+			startMeasuring();
+			for (String filename : filenames)
+			{
+				indexManager.getIndexParticipants(filename);
+			}
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+}
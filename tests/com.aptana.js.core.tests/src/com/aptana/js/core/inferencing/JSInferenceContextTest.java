@@ -0,0 +1,135 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.js.core.inferencing;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aptana.core.util.CollectionsUtil;
+import com.aptana.index.core.Index;
+import com.aptana.js.core.index.JSIndexQueryHelper;
+import com.aptana.js.core.model.PropertyElement;
+import com.aptana.js.core.parsing.ast.JSNode;
+import com.aptana.js.core.parsing.ast.JSParseRootNode;
+import com.aptana.parsing.ast.IParseNode;
+
+@SuppressWarnings("nls")
+public class JSInferenceContextTest extends InferencingTestsBase
+{
+	/**
+	 * A query helper counting the queries that reach it.
+	 */
+	private class CountingQueryHelper extends JSIndexQueryHelper
+	{
+		int queries;
+
+		CountingQueryHelper(Index index)
+		{
+			super(index);
+		}
+
+		@Override
+		public List<String> getTypeAncestorNames(String typeName)
+		{
+			queries++;
+			if ("Child".equals(typeName))
+			{
+				return CollectionsUtil.newList("Parent");
+			}
+			return super.getTypeAncestorNames(typeName);
+		}
+
+		@Override
+		public Collection<PropertyElement> getTypeMembers(String typeName, String memberName)
+		{
+			queries++;
+			return super.getTypeMembers(typeName, memberName);
+		}
+
+		@Override
+		public Collection<PropertyElement> getTypeMembers(List<String> typeNames)
+		{
+			queries++;
+			return super.getTypeMembers(typeNames);
+		}
+	}
+
+	private CountingQueryHelper queryHelper;
+	private JSInferenceContext context;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		queryHelper = new CountingQueryHelper(getIndex());
+		context = new JSInferenceContext(queryHelper);
+	}
+
+	@Test
+	public void testTypesAreQueriedOnce() throws Exception
+	{
+		context.getTypeAncestorNames("Child");
+		context.getTypeAncestorNames("Child");
+		context.getTypeMemberMap("Child");
+		context.getTypeMemberMap("Child");
+		context.getTypeMembers("Child", "name");
+		context.getTypeMembers("Child", "name");
+
+		assertEquals(3, queryHelper.queries);
+		assertEquals(3, context.getQueryCount());
+	}
+
+	@Test
+	public void testWrittenTypeIsQueriedAgain() throws Exception
+	{
+		context.getTypeAncestorNames("Child");
+		context.getTypeMemberMap("Child");
+		context.getTypeMemberMap("Other");
+
+		// drops the types having it as an ancestor too
+		context.typeWritten("Parent");
+		context.getTypeAncestorNames("Child");
+		context.getTypeMemberMap("Child");
+		context.getTypeMemberMap("Other");
+		assertEquals(4, queryHelper.queries);
+
+		context.typeWritten("Child");
+		context.getTypeAncestorNames("Child");
+		context.getTypeMemberMap("Child");
+		assertEquals(6, queryHelper.queries);
+	}
+
+	@Test
+	public void testChainedExpressionIsInferredOnce() throws Exception
+	{
+		IParseNode root = getParseRootNode("var a = 'abc'; a.length.toFixed; a.length.toFixed(2);");
+		JSScope globals = getGlobals((JSParseRootNode) root);
+		List<String> types = new ArrayList<String>();
+
+		JSNodeTypeInferrer walker = new JSNodeTypeInferrer(globals, getIndex(), getLocation(), context);
+		((JSNode) root.getChild(1)).accept(walker);
+		types.addAll(walker.getTypes());
+		int queries = queryHelper.queries;
+
+		// the same statement, again
+		walker = new JSNodeTypeInferrer(globals, getIndex(), getLocation(), context);
+		((JSNode) root.getChild(1)).accept(walker);
+		assertEquals(types, walker.getTypes());
+		assertEquals(queries, queryHelper.queries);
+
+		// other nodes, but the same members of the same types
+		walker = new JSNodeTypeInferrer(globals, getIndex(), getLocation(), context);
+		((JSNode) root.getChild(2)).accept(walker);
+		assertEquals(queries, queryHelper.queries);
+	}
+}
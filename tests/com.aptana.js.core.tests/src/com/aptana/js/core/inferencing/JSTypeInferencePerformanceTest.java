@@ -0,0 +1,151 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.js.core.inferencing;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Platform;
+import org.junit.experimental.categories.Category;
+
+import com.aptana.core.tests.GlobalTimePerformanceTestCase;
+import com.aptana.core.util.FileUtil;
+import com.aptana.core.util.IOUtil;
+import com.aptana.index.core.Index;
+import com.aptana.index.core.IndexPlugin;
+import com.aptana.js.core.JSCorePlugin;
+import com.aptana.js.core.index.JSIndexQueryHelper;
+import com.aptana.js.core.parsing.GraalJSParser;
+import com.aptana.js.core.parsing.ast.JSParseRootNode;
+import com.aptana.js.internal.core.inferencing.JSSymbolTypeInferrer;
+import com.aptana.parsing.ParseState;
+import com.aptana.testing.categories.PerformanceTests;
+
+/**
+ * Infers the types of all the symbols of jQuery-sized files, sharing what has been inferred across the whole file (as
+ * indexing does) or only within each symbol, and compares how often the index gets queried.
+ */
+@Category({ PerformanceTests.class })
+@SuppressWarnings("nls")
+public class JSTypeInferencePerformanceTest extends GlobalTimePerformanceTestCase
+{
+	private static final String[] JQUERY_FILES = { "performance/jaxer/jquery-1.2.1.js",
+			"performance/jaxer/jquery-stable.js", "performance/jaxer/jquery.js" };
+	private static final int RUNS = 5;
+
+	private URI indexURI;
+	private Index index;
+	private String[] sources;
+
+	@Override
+	public void setUp() throws Exception
+	{
+		super.setUp();
+
+		indexURI = FileUtil.getTempDirectory().append("inference" + System.currentTimeMillis()).toFile().toURI();
+		index = IndexPlugin.getDefault().getIndexManager().getIndex(indexURI);
+		sources = new String[JQUERY_FILES.length];
+		for (int i = 0; i < JQUERY_FILES.length; i++)
+		{
+			InputStream stream = FileLocator.openStream(Platform.getBundle(JSCorePlugin.PLUGIN_ID), new Path(
+					JQUERY_FILES[i]), false);
+			sources[i] = IOUtil.read(stream);
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		IndexPlugin.getDefault().getIndexManager().removeIndex(indexURI);
+		index = null;
+		sources = null;
+
+		super.tearDown();
+	}
+
+	public void testInferWithContextPerFile() throws Exception
+	{
+		time(false);
+	}
+
+	public void testInferWithContextPerSymbol() throws Exception
+	{
+		time(true);
+	}
+
+	public void testContextPerFileQueriesLess() throws Exception
+	{
+		for (String source : sources)
+		{
+			int perFile = infer(parse(source), false);
+			int perSymbol = infer(parse(source), true);
+			assertTrue(perFile + " queries sharing the context vs " + perSymbol + " not sharing it",
+					perFile < perSymbol);
+		}
+	}
+
+	private void time(boolean contextPerSymbol) throws Exception
+	{
+		for (int i = 0; i < RUNS; i++)
+		{
+			for (String source : sources)
+			{
+				// parse a new tree each time, as inferred elements are cached in it
+				JSScope globals = parse(source);
+
+				startMeasuring();
+				infer(globals, contextPerSymbol);
+				stopMeasuring();
+			}
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	private JSScope parse(String source) throws Exception
+	{
+		return ((JSParseRootNode) new GraalJSParser().parse(new ParseState(source)).getRootNode()).getGlobals();
+	}
+
+	/**
+	 * Infers the types of the symbols of the given scope and of the scopes within it, returning how many times the
+	 * index was queried.
+	 */
+	private int infer(JSScope globals, boolean contextPerSymbol)
+	{
+		JSIndexQueryHelper queryHelper = new JSIndexQueryHelper(index);
+		JSInferenceContext context = new JSInferenceContext(queryHelper);
+		int queries = 0;
+
+		List<JSScope> scopes = new ArrayList<JSScope>();
+		scopes.add(globals);
+		for (int i = 0; i < scopes.size(); i++)
+		{
+			JSScope scope = scopes.get(i);
+			scopes.addAll(scope.getChildren());
+
+			for (String symbol : scope.getLocalSymbolNames())
+			{
+				if (contextPerSymbol)
+				{
+					queries += context.getQueryCount();
+					context = new JSInferenceContext(queryHelper);
+				}
+				new JSSymbolTypeInferrer(scope, index, indexURI, context).getSymbolPropertyElement(symbol,
+						new NullProgressMonitor());
+			}
+		}
+
+		return queries + context.getQueryCount();
+	}
+}
@@ -4,12 +4,17 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
+import com.aptana.js.core.index.IndexParticipantsPerformanceTest;
+import com.aptana.js.core.inferencing.JSTypeInferencePerformanceTest;
 import com.aptana.js.core.parsing.JSFlexScannerPerformanceTest;
 import com.aptana.js.core.parsing.JSParserPerformanceTest;
+import com.aptana.js.internal.core.inferencing.NodeModuleResolverPerformanceTest;
 import com.aptana.js.internal.core.parsing.sdoc.SDocParserPerformanceTest;
 
 @RunWith(Suite.class)
-@SuiteClasses({ JSFlexScannerPerformanceTest.class, JSParserPerformanceTest.class, SDocParserPerformanceTest.class, })
+@SuiteClasses({ JSFlexScannerPerformanceTest.class, JSParserPerformanceTest.class, SDocParserPerformanceTest.class,
+		NodeModuleResolverPerformanceTest.class, IndexParticipantsPerformanceTest.class,
+		JSTypeInferencePerformanceTest.class, })
 public class PerformanceTests
 {
 }
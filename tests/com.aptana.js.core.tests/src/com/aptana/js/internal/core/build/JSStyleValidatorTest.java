@@ -7,6 +7,8 @@
  */
 package com.aptana.js.internal.core.build;
 
+import static org.junit.Assert.assertEquals;
+
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -89,7 +91,24 @@ public class JSStyleValidatorTest extends AbstractValidatorTestCase
 		List<IProblem> items = getParseErrors(text);
 		assertProblemExists(items, "'foo' is already defined.", 3, IMarker.SEVERITY_WARNING, 42);
 	}
-	
+
+	@Test
+	public void testAlreadyDefinedAfterEditBeforeFunction() throws CoreException
+	{
+		// @formatter:off
+		String text = "function bar() {\n" +
+				"    var foo = 1;\n" +
+				"    var foo = 2;\n" +
+				"}";
+		// @formatter:on
+
+		getParseErrors(text);
+		// the problems of the unchanged function are reused, so they have to be moved
+		List<IProblem> items = getParseErrors("\n" + text);
+		assertProblemExists(items, "'foo' is already defined.", 4, IMarker.SEVERITY_WARNING, 43);
+		assertEquals(2, items.size());
+	}
+
 	
 
 	@Test
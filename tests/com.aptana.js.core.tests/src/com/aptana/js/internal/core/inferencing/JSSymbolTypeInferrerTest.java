@@ -0,0 +1,96 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.js.internal.core.inferencing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aptana.core.util.CollectionsUtil;
+import com.aptana.js.core.inferencing.JSInferenceContext;
+import com.aptana.js.core.model.FunctionElement;
+import com.aptana.js.core.model.PropertyElement;
+
+@SuppressWarnings("nls")
+public class JSSymbolTypeInferrerTest
+{
+	/**
+	 * The members of Child, Parent and Object, Child deriving from Parent.
+	 */
+	private Map<String, Map<String, PropertyElement>> members;
+	private JSSymbolTypeInferrer inferrer;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		members = new HashMap<String, Map<String, PropertyElement>>();
+		JSInferenceContext context = new JSInferenceContext(null)
+		{
+			@Override
+			public List<String> getTypeAncestorNames(String typeName)
+			{
+				if ("Child".equals(typeName))
+				{
+					return CollectionsUtil.newList("Parent", "Object");
+				}
+				if ("Parent".equals(typeName))
+				{
+					return CollectionsUtil.newList("Object");
+				}
+				return Collections.emptyList();
+			}
+
+			@Override
+			public Map<String, PropertyElement> getTypeMemberMap(String typeName)
+			{
+				Map<String, PropertyElement> result = members.get(typeName);
+				return (result == null) ? Collections.<String, PropertyElement> emptyMap() : result;
+			}
+		};
+		inferrer = new JSSymbolTypeInferrer(null, null, null, context);
+	}
+
+	@Test
+	public void testOverriddenMemberWinsOverAncestors() throws Exception
+	{
+		FunctionElement childToString = addMember("Child", "toString");
+		addMember("Parent", "toString");
+		FunctionElement parentValueOf = addMember("Parent", "valueOf");
+		addMember("Object", "toString");
+		addMember("Object", "valueOf");
+		FunctionElement hasOwnProperty = addMember("Object", "hasOwnProperty");
+
+		Map<String, PropertyElement> map = inferrer.getTypePropertyMap(CollectionsUtil.newSet("Child"));
+		assertEquals(3, map.size());
+		assertSame(childToString, map.get("toString"));
+		assertSame(parentValueOf, map.get("valueOf"));
+		assertSame(hasOwnProperty, map.get("hasOwnProperty"));
+	}
+
+	private FunctionElement addMember(String typeName, String memberName)
+	{
+		Map<String, PropertyElement> typeMembers = members.get(typeName);
+		if (typeMembers == null)
+		{
+			typeMembers = new HashMap<String, PropertyElement>();
+			members.put(typeName, typeMembers);
+		}
+		FunctionElement member = new FunctionElement();
+		member.setName(memberName);
+		member.setOwningType(typeName);
+		typeMembers.put(memberName, member);
+		return member;
+	}
+}
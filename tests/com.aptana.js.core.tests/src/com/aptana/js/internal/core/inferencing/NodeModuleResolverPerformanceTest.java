@@ -0,0 +1,104 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.js.internal.core.inferencing;
+
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.IPath;
+import org.junit.experimental.categories.Category;
+
+import com.aptana.core.tests.GlobalTimePerformanceTestCase;
+import com.aptana.core.util.FileUtil;
+import com.aptana.core.util.IOUtil;
+import com.aptana.js.core.JSCorePlugin;
+import com.aptana.testing.categories.PerformanceTests;
+
+/**
+ * Resolves the modules required from the bottom of a deep tree of node_modules directories, as type inference does
+ * for each require() call of the files there.
+ */
+@Category({ PerformanceTests.class })
+@SuppressWarnings("nls")
+public class NodeModuleResolverPerformanceTest extends GlobalTimePerformanceTestCase
+{
+	private static final int DEPTH = 8;
+	private static final int PACKAGES_PER_LEVEL = 10;
+
+	private IPath baseDir;
+	private IPath deepestDir;
+	private List<String> moduleIds;
+	private NodeModuleResolver resolver;
+
+	@Override
+	public void setUp() throws Exception
+	{
+		super.setUp();
+
+		baseDir = FileUtil.getTempDirectory().append("node_tree" + System.currentTimeMillis());
+		moduleIds = new ArrayList<String>();
+
+		// app/node_modules/pkg0_0/node_modules/pkg1_0/... with siblings at each level
+		IPath dir = baseDir.append("app");
+		for (int level = 0; level < DEPTH; level++)
+		{
+			IPath nodeModules = dir.append("node_modules");
+			for (int i = 0; i < PACKAGES_PER_LEVEL; i++)
+			{
+				String name = "pkg" + level + '_' + i;
+				IPath pkg = nodeModules.append(name);
+				pkg.append("lib").toFile().mkdirs();
+				pkg.append("lib").append("main.js").toFile().createNewFile();
+				IOUtil.write(new FileOutputStream(pkg.append("package.json").toFile()), "{\"main\": \"lib/main.js\"}");
+				moduleIds.add(name);
+			}
+			dir = nodeModules.append("pkg" + level + "_0");
+		}
+		deepestDir = dir.append("lib");
+
+		// some which aren't there and some relative ones
+		moduleIds.add("missing");
+		moduleIds.add("./main");
+		moduleIds.add("../package");
+
+		resolver = new NodeModuleResolver()
+		{
+			@Override
+			protected synchronized IPath nodeSrcPath()
+			{
+				return null;
+			}
+		};
+		JSCorePlugin.getDefault().getModuleResolutionCache().clear();
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		FileUtil.deleteRecursively(baseDir.toFile());
+		resolver = null;
+
+		super.tearDown();
+	}
+
+	public void testResolveFromDeepDependencyTree() throws Exception
+	{
+		for (int i = 0; i < 100; i++)
+		{
+			startMeasuring();
+			for (String moduleId : moduleIds)
+			{
+				resolver.resolve(moduleId, null, deepestDir, null);
+			}
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+}
@@ -8,6 +8,7 @@
 package com.aptana.js.internal.core.inferencing;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -15,7 +16,17 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.List;
 
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
 import org.eclipse.core.runtime.IPath;
+import org.hamcrest.Description;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.api.Action;
+import org.jmock.api.Invocation;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -34,6 +45,7 @@ public class NodeModuleResolverTest
 	private File baseDir;
 	private IPath dir;
 	private IPath nodeSrcPath;
+	private ModuleResolutionCache cache;
 	private NodeModuleResolver resolver;
 
 	@Before
@@ -47,6 +59,7 @@ public class NodeModuleResolverTest
 		assertTrue(dir.toFile().mkdirs());
 
 		// Hook up the resolver to it
+		cache = new ModuleResolutionCache();
 		resolver = new NodeModuleResolver()
 		{
 			@Override
@@ -54,6 +67,12 @@ public class NodeModuleResolverTest
 			{
 				return nodeSrcPath;
 			}
+
+			@Override
+			protected ModuleResolutionCache getCache()
+			{
+				return cache;
+			}
 		};
 	}
 
@@ -160,6 +179,53 @@ public class NodeModuleResolverTest
 		assertEquals(file2, resolver.resolve("file2", null, dir, null));
 	}
 
+	@Test
+	public void testResolutionIsCached() throws Exception
+	{
+		IPath nodeModules = dir.removeLastSegments(1).append("node_modules");
+		nodeModules.toFile().mkdirs();
+		IPath expected = createNodeDirectory(nodeModules, "file", "main.js");
+
+		assertEquals(expected, resolver.resolve("file", null, dir, null));
+		assertEquals("main.js", cache.getMainFile(expected.removeLastSegments(1)));
+
+		// Same module id from the same directory comes from the cache, even once the files are gone
+		FileUtil.deleteRecursively(nodeModules.toFile());
+		assertEquals(expected, resolver.resolve("file", null, dir, null));
+		assertNull(resolver.resolve("file", null, dir.removeLastSegments(1), null));
+
+		cache.clear();
+		assertNull(resolver.resolve("file", null, dir, null));
+	}
+
+	@Test
+	public void testChangedMainIsResolvedAgain() throws Exception
+	{
+		Mockery context = new Mockery();
+		final IProject project = context.mock(IProject.class);
+		final IPath projectLocation = dir.removeLastSegments(3);
+		IPath main = createNodeDirectory(dir, "sibling", "main.js");
+		IPath other = main.removeLastSegments(1).append("other.js");
+		other.toFile().createNewFile();
+		context.checking(new Expectations()
+		{
+			{
+				allowing(project).getLocation();
+				will(returnValue(projectLocation));
+			}
+		});
+
+		assertEquals(main, resolver.resolve("./sibling", project, dir, null));
+
+		// "main" now points at another file, and the workspace tells us about it
+		IPath packageJSON = main.removeLastSegments(1).append("package.json");
+		IOUtil.write(new FileOutputStream(packageJSON.toFile()), "{\"main\": \"other.js\"}");
+		cache.resourceChanged(contentChanged(context, project, packageJSON));
+
+		assertNull(cache.getMainFile(main.removeLastSegments(1)));
+		assertEquals(other, resolver.resolve("./sibling", project, dir, null));
+	}
+
 	@Test
 	public void testGetPossibleModuleIdsChecksNodeSourcePath() throws Exception
 	{
@@ -197,6 +263,52 @@ public class NodeModuleResolverTest
 	// TODO Add test for "node" file underneath node_modules dir above the current location
 	// TODO Add test for file in $NODE_PATH
 
+	/**
+	 * Returns an event for the change of the content of the given file of the given project.
+	 */
+	private IResourceChangeEvent contentChanged(Mockery context, final IProject project, final IPath location)
+			throws Exception
+	{
+		final IResourceChangeEvent event = context.mock(IResourceChangeEvent.class);
+		final IResourceDelta projectDelta = context.mock(IResourceDelta.class, "projectDelta");
+		final IResourceDelta fileDelta = context.mock(IResourceDelta.class, "fileDelta");
+		final IFile file = context.mock(IFile.class);
+		context.checking(new Expectations()
+		{
+			{
+				allowing(event).getDelta();
+				will(returnValue(projectDelta));
+				allowing(projectDelta).accept(with(any(IResourceDeltaVisitor.class)));
+				will(new Action()
+				{
+					public void describeTo(Description description)
+					{
+						description.appendText("visits the file delta");
+					}
+
+					public Object invoke(Invocation invocation) throws Throwable
+					{
+						((IResourceDeltaVisitor) invocation.getParameter(0)).visit(fileDelta);
+						return null;
+					}
+				});
+				allowing(fileDelta).getResource();
+				will(returnValue(file));
+				allowing(fileDelta).getKind();
+				will(returnValue(IResourceDelta.CHANGED));
+				allowing(fileDelta).getFlags();
+				will(returnValue(IResourceDelta.CONTENT));
+				allowing(file).getName();
+				will(returnValue(location.lastSegment()));
+				allowing(file).getLocation();
+				will(returnValue(location));
+				allowing(file).getProject();
+				will(returnValue(project));
+			}
+		});
+		return event;
+	}
+
 	private IPath createNodeDirectory(IPath parent, String dirName, String mainFilename) throws IOException
 	{
 		// Create subDir
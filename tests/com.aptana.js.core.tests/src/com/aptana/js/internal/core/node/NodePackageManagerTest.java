@@ -6,6 +6,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URL;
 import java.util.Set;
@@ -27,6 +28,8 @@ import org.junit.Test;
 
 import com.aptana.core.ShellExecutable;
 import com.aptana.core.util.CollectionsUtil;
+import com.aptana.core.util.FileUtil;
+import com.aptana.core.util.IOUtil;
 import com.aptana.core.util.IProcessRunner;
 import com.aptana.core.util.PlatformUtil;
 import com.aptana.core.util.ProcessStatus;
@@ -48,6 +51,12 @@ public class NodePackageManagerTest
 	private IPath path;
 	private File file;
 
+	/**
+	 * What the package manager answers queries from, null to make it run npm.
+	 */
+	private NodeModulesInventory inventory;
+	private IPath modulesDir;
+
 	@Before
 	public void setUp() throws Exception
 	{
@@ -85,6 +94,12 @@ public class NodePackageManagerTest
 			{
 				return Path.fromPortableString(NPM_ON_PATH);
 			}
+
+			@Override
+			protected NodeModulesInventory getInventory(boolean global, IPath workingDir)
+			{
+				return inventory;
+			}
 		};
 
 		context.checking(new Expectations()
@@ -126,6 +141,12 @@ public class NodePackageManagerTest
 	@After
 	public void tearDown() throws Exception
 	{
+		if (modulesDir != null)
+		{
+			FileUtil.deleteRecursively(modulesDir.toFile());
+			modulesDir = null;
+		}
+		inventory = null;
 		userHome = null;
 		monitor = null;
 		npm = null;
@@ -701,4 +722,82 @@ public class NodePackageManagerTest
 		assertEquals(Path.fromPortableString(NPM_ON_PATH), npm.getPath());
 		context.assertIsSatisfied();
 	}
+
+	@Test
+	public void testGetInstalledVersionFromInventory() throws Exception
+	{
+		createInventory();
+		addPackage(modulesDir, "titanium", "3.3.0");
+
+		// no expectations, npm mustn't be run
+		assertEquals("3.3.0", npm.getInstalledVersion("titanium"));
+		assertTrue(npm.isInstalled("titanium"));
+		assertNull(npm.getInstalledVersion("alloy"));
+		assertFalse(npm.isInstalled("alloy"));
+	}
+
+	@Test
+	public void testListFromInventory() throws Exception
+	{
+		createInventory();
+		IPath titanium = addPackage(modulesDir, "titanium", "3.3.0");
+		addPackage(titanium.append("node_modules"), "colors", "0.6.2");
+		addPackage(modulesDir, "@appcelerator/scoped", "1.0.0");
+		modulesDir.append(".bin").toFile().mkdirs();
+		modulesDir.append("notapackage").toFile().mkdirs();
+
+		Set<String> installed = npm.list(true);
+		assertEquals(CollectionsUtil.newSet("titanium", "colors", "@appcelerator/scoped"), installed);
+		assertEquals(titanium, npm.getModulesPath("titanium", true));
+	}
+
+	@Test
+	public void testInventorySeesPackageChanges() throws Exception
+	{
+		createInventory();
+		IPath titanium = addPackage(modulesDir, "titanium", "3.3.0");
+		assertEquals("3.3.0", npm.getInstalledVersion("titanium"));
+
+		addPackage(modulesDir, "titanium", "3.4.1");
+		addPackage(modulesDir, "alloy", "1.5.0");
+		assertEquals("3.4.1", npm.getInstalledVersion("titanium"));
+		assertTrue(npm.isInstalled("alloy"));
+
+		FileUtil.deleteRecursively(titanium.toFile());
+		assertFalse(npm.isInstalled("titanium"));
+		assertFalse(npm.list(true).contains("titanium"));
+	}
+
+	@Test
+	public void testInventorySeesPackagesInstalledIntoExistingScope() throws Exception
+	{
+		createInventory();
+		IPath scope = addPackage(modulesDir, "@appcelerator/first", "1.0.0").removeLastSegments(1);
+		// only installing into the scope directory will change its modification time
+		long past = System.currentTimeMillis() - 60000;
+		scope.toFile().setLastModified(past);
+		modulesDir.toFile().setLastModified(past);
+		assertTrue(npm.isInstalled("@appcelerator/first"));
+
+		addPackage(modulesDir, "@appcelerator/second", "1.0.0");
+		modulesDir.toFile().setLastModified(past);
+		assertTrue(npm.isInstalled("@appcelerator/second"));
+		assertEquals(CollectionsUtil.newSet("@appcelerator/first", "@appcelerator/second"), npm.list(true));
+	}
+
+	private void createInventory()
+	{
+		modulesDir = FileUtil.getTempDirectory().append("node_modules" + System.currentTimeMillis());
+		modulesDir.toFile().mkdirs();
+		inventory = new NodeModulesInventory(modulesDir);
+	}
+
+	private IPath addPackage(IPath dir, String name, String version) throws IOException
+	{
+		IPath packageDir = dir.append(name);
+		packageDir.toFile().mkdirs();
+		IOUtil.write(new FileOutputStream(packageDir.append("package.json").toFile()), "{\"name\": \"" + name
+				+ "\", \"version\": \"" + version + "\"}");
+		return packageDir;
+	}
 }
@@ -0,0 +1,304 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.parsing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import beaver.Symbol;
+
+import com.aptana.core.build.IProblem;
+import com.aptana.core.util.FileUtil;
+import com.aptana.parsing.ast.IParseError;
+import com.aptana.parsing.ast.IParseRootNode;
+import com.aptana.parsing.ast.ParseError;
+import com.aptana.parsing.ast.ParseRootNode;
+
+public class ParseResultStoreTest
+{
+
+	private static final String CONTENT_TYPE = "com.aptana.contenttype.test";
+
+	private static class TestRootNode extends ParseRootNode
+	{
+		TestRootNode(int start, int end)
+		{
+			super(new Symbol[0], start, end);
+		}
+
+		public String getLanguage()
+		{
+			return "test";
+		}
+	}
+
+	private static class TestSerializer implements IParseResultSerializer
+	{
+		String version = "1";
+
+		public String getVersion()
+		{
+			return version;
+		}
+
+		public void write(IParseRootNode root, DataOutput output) throws IOException
+		{
+			output.writeInt(root.getStartingOffset());
+			output.writeInt(root.getEndingOffset());
+		}
+
+		public IParseRootNode read(DataInput input) throws IOException
+		{
+			return new TestRootNode(input.readInt(), input.readInt());
+		}
+	}
+
+	private static class TestParser extends AbstractParser
+	{
+		int parses;
+
+		protected void parse(IParseState parseState, WorkingParseResult working) throws Exception
+		{
+			parses++;
+			working.setParseResult(new TestRootNode(0, parseState.getSource().length() - 1));
+		}
+	}
+
+	private File directory;
+	private TestSerializer serializer;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		directory = File.createTempFile("parse", "results");
+		directory.delete();
+		serializer = new TestSerializer();
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		FileUtil.deleteRecursively(directory);
+		directory = null;
+		serializer = null;
+	}
+
+	@Test
+	public void testReadsBackStoredResult() throws Exception
+	{
+		ParseResultStore store = new ParseResultStore(directory, 1024 * 1024);
+		String source = "a { b: c }";
+		ParseState parseState = new ParseState(source);
+		List<IParseError> errors = new ArrayList<IParseError>();
+		errors.add(new ParseError("test", 4, 2, "Unexpected token", IProblem.Severity.ERROR));
+		store.put(CONTENT_TYPE, parseState.getCacheKey(CONTENT_TYPE), source, serializer, new ParseResult(
+				new TestRootNode(0, 9), errors));
+
+		ParseResult result = new ParseResultStore(directory, 1024 * 1024).get(CONTENT_TYPE,
+				new ParseState(source).getCacheKey(CONTENT_TYPE), source, serializer);
+		assertNotNull(result);
+		assertEquals(0, result.getRootNode().getStartingOffset());
+		assertEquals(9, result.getRootNode().getEndingOffset());
+		assertEquals(1, result.getErrors().size());
+		IParseError error = result.getErrors().get(0);
+		assertEquals("test", error.getLangauge());
+		assertEquals("Unexpected token", error.getMessage());
+		assertEquals(4, error.getOffset());
+		assertEquals(2, error.getLength());
+		assertEquals(IProblem.Severity.ERROR, error.getSeverity());
+	}
+
+	@Test
+	public void testMissesForOtherSourceOrVersion() throws Exception
+	{
+		ParseResultStore store = new ParseResultStore(directory, 1024 * 1024);
+		String source = "a { b: c }";
+		store.put(CONTENT_TYPE, new ParseState(source).getCacheKey(CONTENT_TYPE), source, serializer, new ParseResult(
+				new TestRootNode(0, 9), Collections.<IParseError> emptyList()));
+
+		String other = "a { b: d }";
+		assertNull(store.get(CONTENT_TYPE, new ParseState(other).getCacheKey(CONTENT_TYPE), other, serializer));
+		assertNull(store.get(CONTENT_TYPE, new ParseState(source, 10).getCacheKey(CONTENT_TYPE), source, serializer));
+		assertNull(store.get("com.aptana.contenttype.other", new ParseState(source).getCacheKey(CONTENT_TYPE),
+				source, serializer));
+		serializer.version = "2";
+		assertNull(store.get(CONTENT_TYPE, new ParseState(source).getCacheKey(CONTENT_TYPE), source, serializer));
+	}
+
+	@Test
+	public void testResultsWithOtherErrorsAreNotStored() throws Exception
+	{
+		ParseResultStore store = new ParseResultStore(directory, 1024 * 1024);
+		String source = "a { b: c }";
+		List<IParseError> errors = new ArrayList<IParseError>();
+		errors.add(new ParseError("test", 4, 2, "Unexpected token", IProblem.Severity.ERROR)
+		{
+		});
+		store.put(CONTENT_TYPE, new ParseState(source).getCacheKey(CONTENT_TYPE), source, serializer, new ParseResult(
+				new TestRootNode(0, 9), errors));
+
+		assertNull(store.get(CONTENT_TYPE, new ParseState(source).getCacheKey(CONTENT_TYPE), source, serializer));
+		assertEquals(0, store.getSize());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedResultsArePruned() throws Exception
+	{
+		String a = "a { b: c }";
+		String b = "b { b: c }";
+		String c = "c { b: c }";
+		put(new ParseResultStore(directory, Long.MAX_VALUE), a);
+		long size = new ParseResultStore(directory, Long.MAX_VALUE).getSize();
+		assertTrue(size > 0);
+
+		// room for 2 results after pruning, not for 3.
+		ParseResultStore store = new ParseResultStore(directory, size * 14 / 5);
+		age();
+		put(store, b);
+		age();
+		assertNotNull(get(store, a));
+		put(store, c);
+
+		assertTrue(store.getSize() <= size * 2);
+		assertNotNull(get(store, a));
+		assertNull(get(store, b));
+		assertNotNull(get(store, c));
+	}
+
+	@Test
+	public void testParsingEngineReadsStoredResults() throws Exception
+	{
+		StringBuilder builder = new StringBuilder();
+		while (builder.length() < ParsingEngine.MINIMUM_NUMBER_OF_CHARS_TO_STORE)
+		{
+			builder.append("a { b: c }\n");
+		}
+		String source = builder.toString();
+
+		// the contents of an editor are not stored
+		TestParser parser = new TestParser();
+		ParsingEngine engine = createParsingEngine(parser);
+		engine.parse(CONTENT_TYPE, new ParseState(source));
+		engine.dispose();
+		assertEquals(0, new ParseResultStore(directory, 1024 * 1024).getSize());
+
+		parser = new TestParser();
+		engine = createParsingEngine(parser);
+		assertEquals(source.length() - 1, engine.parse(CONTENT_TYPE, createSavedParseState(source)).getRootNode()
+				.getEndingOffset());
+		assertEquals(1, parser.parses);
+		// waits for the result to be written
+		engine.dispose();
+
+		// a new session
+		parser = new TestParser();
+		engine = createParsingEngine(parser);
+		assertEquals(source.length() - 1, engine.parse(CONTENT_TYPE, createSavedParseState(source)).getRootNode()
+				.getEndingOffset());
+		assertEquals(0, parser.parses);
+
+		// not stored without a serializer
+		engine = createParsingEngine(parser);
+		engine.setParseResultStore(new ParseResultStore(directory, 1024 * 1024), null);
+		engine.parse(CONTENT_TYPE, createSavedParseState(source));
+		assertEquals(1, parser.parses);
+	}
+
+	private ParseState createSavedParseState(String source)
+	{
+		ParseState parseState = new ParseState(source);
+		parseState.setSavedContents(true);
+		return parseState;
+	}
+
+	private ParsingEngine createParsingEngine(final TestParser parser)
+	{
+		final IParserPool pool = new IParserPool()
+		{
+			public IParser create()
+			{
+				return parser;
+			}
+
+			public boolean validate(IParser o)
+			{
+				return true;
+			}
+
+			public void expire(IParser o)
+			{
+			}
+
+			public void dispose()
+			{
+			}
+
+			public IParser checkOut()
+			{
+				return parser;
+			}
+
+			public void checkIn(IParser t)
+			{
+			}
+		};
+		ParsingEngine engine = new ParsingEngine(new ParsingEngine.IParserPoolProvider()
+		{
+			public IParserPool getParserPool(String contentTypeId)
+			{
+				return pool;
+			}
+		});
+		engine.setParseResultStore(new ParseResultStore(directory, 1024 * 1024),
+				new ParsingEngine.IParseResultSerializerProvider()
+				{
+					public IParseResultSerializer getParseResultSerializer(String contentTypeId)
+					{
+						return serializer;
+					}
+				});
+		return engine;
+	}
+
+	private void put(ParseResultStore store, String source)
+	{
+		store.put(CONTENT_TYPE, new ParseState(source).getCacheKey(CONTENT_TYPE), source, serializer, new ParseResult(
+				new TestRootNode(0, source.length() - 1), Collections.<IParseError> emptyList()));
+	}
+
+	private ParseResult get(ParseResultStore store, String source)
+	{
+		return store.get(CONTENT_TYPE, new ParseState(source).getCacheKey(CONTENT_TYPE), source, serializer);
+	}
+
+	/**
+	 * Makes the stored results look older (the file system may not keep the modification time with enough precision
+	 * to tell apart results stored right after each other).
+	 */
+	private void age()
+	{
+		for (File file : directory.listFiles())
+		{
+			file.setLastModified(file.lastModified() - 10000);
+		}
+	}
+}
@@ -8,10 +8,14 @@
 package com.aptana.parsing.ast;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import org.junit.Test;
 
+import com.aptana.parsing.util.ParseUtil;
+
 @SuppressWarnings("nls")
 public class ParseNodeTests
 {
@@ -245,4 +249,113 @@ public class ParseNodeTests
 
 		assertEquals("MLKJIHGFEDCBA", buffer.toString());
 	}
+
+	/**
+	 * testNodeAtOffset
+	 */
+	@Test
+	public void testNodeAtOffset()
+	{
+		ParseNode root = new TextNode("root");
+		root.setLocation(0, 99);
+		for (int i = 0; i < 20; i++)
+		{
+			ParseNode child = new TextNode("child" + i);
+			// the last ones are empty
+			child.setLocation(i * 5, (i < 18) ? i * 5 + 4 : i * 5 - 1);
+			root.addChild(child);
+		}
+		ParseNode grandChild = new TextNode("grandChild");
+		grandChild.setLocation(36, 37);
+		root.getChild(7).addChild(grandChild);
+
+		for (int offset = 0; offset < 90; offset++)
+		{
+			IParseNode expected = (offset == 36 || offset == 37) ? grandChild : root.getChild(offset / 5);
+			assertEquals(expected, root.getNodeAtOffset(offset));
+		}
+		assertEquals(root, root.getNodeAtOffset(90));
+		assertEquals(root, root.getNodeAtOffset(99));
+		assertNull(root.getNodeAtOffset(100));
+		assertNull(root.getNodeAtOffset(-1));
+	}
+
+	/**
+	 * testNodeAtOffsetBetweenAdjacentChildren
+	 */
+	@Test
+	public void testNodeAtOffsetBetweenAdjacentChildren()
+	{
+		ParseNode root = new TextNode("root");
+		root.setLocation(0, 100);
+		for (int i = 0; i < 10; i++)
+		{
+			ParseNode child = new TextNode("child" + i);
+			child.setLocation(i * 10, i * 10 + 10);
+			root.addChild(child);
+		}
+
+		// the first child containing the offset wins
+		assertEquals(root.getChild(0), root.getNodeAtOffset(10));
+		assertEquals(root.getChild(4), root.getNodeAtOffset(50));
+		assertEquals(root.getChild(9), root.getNodeAtOffset(100));
+	}
+
+	/**
+	 * testNodeAtOffsetWithUnsortedChildren
+	 */
+	@Test
+	public void testNodeAtOffsetWithUnsortedChildren()
+	{
+		ParseNode root = new TextNode("root");
+		root.setLocation(0, 99);
+		for (int i = 0; i < 10; i++)
+		{
+			ParseNode child = new TextNode("child" + i);
+			child.setLocation(90 - i * 10, 99 - i * 10);
+			root.addChild(child);
+		}
+		assertEquals(root.getChild(9), root.getNodeAtOffset(5));
+
+		// changing the children is taken into account
+		ParseNode child = new TextNode("child");
+		child.setLocation(0, 9);
+		root.replaceChild(0, child);
+		assertEquals(child, root.getNodeAtOffset(5));
+	}
+
+	/**
+	 * testCopy
+	 */
+	@Test
+	public void testCopy()
+	{
+		ParseNode parent = new TextNode("parent");
+		ParseNode a = new TextNode("A");
+		a.setLocation(0, 9);
+		ParseNode b = new TextNode("B");
+		b.setLocation(10, 19);
+		ParseNode c = new TextNode("C");
+		c.setLocation(10, 14);
+		a.addChild(b);
+		b.addChild(c);
+		parent.addChild(a);
+
+		ParseNode copy = a.copy();
+		assertNull(copy.getParent());
+		assertEquals(1, copy.getChildCount());
+		IParseNode bCopy = copy.getChild(0);
+		assertNotSame(b, bCopy);
+		assertSame(copy, bCopy.getParent());
+		assertNotSame(c, bCopy.getChild(0));
+		assertSame(bCopy, bCopy.getChild(0).getParent());
+		assertEquals("C", bCopy.getChild(0).getText());
+
+		// moving the copy doesn't move the original
+		ParseUtil.addOffset(copy, 100);
+		assertEquals(110, bCopy.getStartingOffset());
+		assertEquals(10, b.getStartingOffset());
+		assertSame(parent, a.getParent());
+		assertSame(a, b.getParent());
+	}
 }
@@ -14,7 +14,7 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({ LocalSyncingTest.class, LocalSyncingWithSpacesTest.class, FTPSyncingTest.class,
 		FTPSyncingWithSpacesTest.class, SFTPSyncingTest.class, SFTPSyncingWithSpacesTest.class,
-		LocalLargeSampleSyncingTest.class, FTPLargeSampleSyncingTest.class, })
+		LocalLargeSampleSyncingTest.class, FTPLargeSampleSyncingTest.class, PooledSyncingTest.class, })
 public class AllTests
 {
 }
@@ -0,0 +1,298 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.syncing.core.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileInfo;
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aptana.core.io.efs.VirtualFile;
+import com.aptana.core.io.vfs.ExtendedFileInfo;
+import com.aptana.core.io.vfs.IConnectionFileManager;
+import com.aptana.core.io.vfs.IConnectionFileManagerFactory;
+import com.aptana.core.io.vfs.IExtendedFileInfo;
+import com.aptana.core.util.FileUtil;
+import com.aptana.ide.core.io.ConnectionPoint;
+import com.aptana.ide.core.io.LocalConnectionPoint;
+import com.aptana.ide.syncing.core.old.Synchronizer;
+import com.aptana.ide.syncing.core.old.VirtualFileSyncPair;
+
+/**
+ * Uploads to a connection point whose files are transferred over a
+ * {@link com.aptana.core.io.vfs.ConnectionFileManagerPool}.
+ */
+@SuppressWarnings("nls")
+public class PooledSyncingTest
+{
+	private static final int THREADS = 4;
+
+	private File clientDirectory;
+	private File serverDirectory;
+	private LocalConnectionPoint clientManager;
+	private PooledConnectionPoint serverManager;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		File baseTempFile = File.createTempFile("test", ".txt");
+		baseTempFile.deleteOnExit();
+		long millis = System.currentTimeMillis();
+		clientDirectory = new File(baseTempFile.getParentFile(), "client_" + millis);
+		serverDirectory = new File(baseTempFile.getParentFile(), "server_" + millis);
+		assertTrue(clientDirectory.mkdir());
+		assertTrue(serverDirectory.mkdir());
+
+		clientManager = new LocalConnectionPoint();
+		clientManager.setPath(new Path(clientDirectory.getAbsolutePath()));
+		serverManager = new PooledConnectionPoint(new Path(serverDirectory.getAbsolutePath()));
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		FileUtil.deleteRecursively(clientDirectory);
+		FileUtil.deleteRecursively(serverDirectory);
+	}
+
+	@Test
+	public void testConcurrentUploadOverPooledConnections() throws Exception
+	{
+		int count = 12;
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < count; i++)
+		{
+			content.append("0123456789");
+			IFileStore file = clientManager.getRoot().getFileStore(new Path("file" + i + ".txt"));
+			OutputStream stream = file.openOutputStream(EFS.NONE, null);
+			stream.write(content.toString().getBytes());
+			stream.close();
+		}
+
+		Synchronizer syncManager = new Synchronizer(false, 10);
+		syncManager.setMaxConcurrentTransfers(THREADS);
+		VirtualFileSyncPair[] items = syncManager.getSyncItems(clientManager, serverManager, clientManager.getRoot(),
+				serverManager.getRoot(), null);
+		RecordingProgressMonitor monitor = new RecordingProgressMonitor();
+		assertTrue(syncManager.upload(items, monitor));
+
+		for (int i = 0; i < count; i++)
+		{
+			IFileInfo info = EFS.getLocalFileSystem().getStore(new Path(serverDirectory.getAbsolutePath()))
+					.getChild("file" + i + ".txt").fetchInfo();
+			assertTrue(info.exists());
+			assertEquals((i + 1) * 10, info.getLength());
+		}
+
+		// the files went over the pooled connections, which were all closed afterwards
+		List<LocalFileManager> pooled = serverManager.getCreatedFileManagers();
+		assertFalse(pooled.isEmpty());
+		assertTrue(pooled.size() <= THREADS);
+		int written = 0;
+		for (LocalFileManager fileManager : pooled)
+		{
+			assertFalse(fileManager.isConnected());
+			written += fileManager.outputStreams.get();
+		}
+		assertEquals(count, written);
+		assertEquals(0, serverManager.fileManager.outputStreams.get());
+
+		// and the progress was only reported on the syncing thread
+		assertTrue(monitor.work > 0);
+		assertEquals(Collections.singleton(Thread.currentThread()), monitor.threads);
+	}
+
+	/**
+	 * Records which threads report progress.
+	 */
+	private static class RecordingProgressMonitor extends NullProgressMonitor
+	{
+		private final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+		private volatile double work;
+
+		@Override
+		public void worked(int work)
+		{
+			internalWorked(work);
+		}
+
+		@Override
+		public void internalWorked(double work)
+		{
+			threads.add(Thread.currentThread());
+			this.work += work;
+		}
+	}
+
+	/**
+	 * A connection point able to open extra file managers over a local directory.
+	 */
+	private static class PooledConnectionPoint extends ConnectionPoint implements IConnectionFileManagerFactory
+	{
+		private final IPath base;
+		private final LocalFileManager fileManager;
+		private final List<LocalFileManager> created = Collections.synchronizedList(new ArrayList<LocalFileManager>());
+
+		PooledConnectionPoint(IPath base)
+		{
+			this.base = base;
+			this.fileManager = new LocalFileManager(base);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see com.aptana.ide.core.io.ConnectionPoint#getRoot()
+		 */
+		@Override
+		public IFileStore getRoot() throws CoreException
+		{
+			return new VirtualFile(fileManager, getRootURI(), Path.ROOT);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see com.aptana.core.io.vfs.IConnectionFileManagerFactory#createConnectionFileManager()
+		 */
+		public IConnectionFileManager createConnectionFileManager()
+		{
+			LocalFileManager result = new LocalFileManager(base);
+			created.add(result);
+			return result;
+		}
+
+		List<LocalFileManager> getCreatedFileManagers()
+		{
+			return new ArrayList<LocalFileManager>(created);
+		}
+	}
+
+	/**
+	 * Serves the files of a local directory, counting the files written through it.
+	 */
+	private static class LocalFileManager implements IConnectionFileManager
+	{
+		private final IPath base;
+		private final AtomicInteger outputStreams = new AtomicInteger();
+		private volatile boolean connected;
+
+		LocalFileManager(IPath base)
+		{
+			this.base = base;
+		}
+
+		private IFileStore getStore(IPath path)
+		{
+			return EFS.getLocalFileSystem().getStore(base.append(path));
+		}
+
+		public void connect(IProgressMonitor monitor) throws CoreException
+		{
+			connected = true;
+		}
+
+		public boolean isConnected()
+		{
+			return connected;
+		}
+
+		public void disconnect(IProgressMonitor monitor) throws CoreException
+		{
+			connected = false;
+		}
+
+		public URI getCanonicalURI(IPath path)
+		{
+			return getStore(path).toURI();
+		}
+
+		public IExtendedFileInfo fetchInfo(IPath path, int options, IProgressMonitor monitor) throws CoreException
+		{
+			return toExtendedFileInfo(getStore(path).fetchInfo(options, monitor));
+		}
+
+		public String[] childNames(IPath path, int options, IProgressMonitor monitor) throws CoreException
+		{
+			return getStore(path).childNames(options, monitor);
+		}
+
+		public IExtendedFileInfo[] childInfos(IPath path, int options, IProgressMonitor monitor) throws CoreException
+		{
+			IFileInfo[] infos = getStore(path).childInfos(options, monitor);
+			IExtendedFileInfo[] result = new IExtendedFileInfo[infos.length];
+			for (int i = 0; i < infos.length; i++)
+			{
+				result[i] = toExtendedFileInfo(infos[i]);
+			}
+			return result;
+		}
+
+		public InputStream openInputStream(IPath path, int options, IProgressMonitor monitor) throws CoreException
+		{
+			return getStore(path).openInputStream(options, monitor);
+		}
+
+		public OutputStream openOutputStream(IPath path, int options, IProgressMonitor monitor) throws CoreException
+		{
+			outputStreams.incrementAndGet();
+			return getStore(path).openOutputStream(options, monitor);
+		}
+
+		public void delete(IPath path, int options, IProgressMonitor monitor) throws CoreException
+		{
+			getStore(path).delete(options, monitor);
+		}
+
+		public void mkdir(IPath path, int options, IProgressMonitor monitor) throws CoreException
+		{
+			getStore(path).mkdir(options, monitor);
+		}
+
+		public void putInfo(IPath path, IFileInfo info, int options, IProgressMonitor monitor) throws CoreException
+		{
+			getStore(path).putInfo(info, options, monitor);
+		}
+
+		public void move(IPath sourcePath, IPath destinationPath, int options, IProgressMonitor monitor)
+				throws CoreException
+		{
+			getStore(sourcePath).move(getStore(destinationPath), options, monitor);
+		}
+
+		private static IExtendedFileInfo toExtendedFileInfo(IFileInfo info)
+		{
+			ExtendedFileInfo result = new ExtendedFileInfo(info.getName());
+			result.setExists(info.exists());
+			result.setDirectory(info.isDirectory());
+			result.setLength(info.getLength());
+			result.setLastModified(info.getLastModified());
+			return result;
+		}
+	}
+}
@@ -10,6 +10,7 @@ package com.aptana.syncing.core.tests;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -861,6 +862,90 @@ public abstract class SyncingTests
 		assertEquals(SyncState.ItemsMatch, items[0].getSyncState());
 	}
 
+	/**
+	 * testFilesCRCsMatchAreRecorded
+	 *
+	 * @throws IOException
+	 * @throws CoreException
+	 */
+	@Test
+	public void testFilesCRCsMatchAreRecorded() throws IOException, CoreException
+	{
+		long currentTime = new Date().getTime();
+		String content = "abc123"; //$NON-NLS-1$
+		this.createClientFile(fileName, currentTime, content);
+		this.createServerFile(fileName, currentTime, content);
+
+		Synchronizer syncManager = new Synchronizer(true, 0);
+		VirtualFileSyncPair[] items = syncManager.getSyncItems(clientManager, serverManager, clientDirectory,
+				serverDirectory, null);
+		assertSyncPairLength(1, items);
+		assertEquals(SyncState.ItemsMatch, items[0].getSyncState());
+		assertNotNull(syncManager.getManifest().get(items[0].getRelativePath()));
+
+		// the manifest is persisted and picked up by the next sync of the same roots
+		syncManager = new Synchronizer(true, 0);
+		items = syncManager.getSyncItems(clientManager, serverManager, clientDirectory, serverDirectory, null);
+		assertSyncPairLength(1, items);
+		assertEquals(SyncState.ItemsMatch, items[0].getSyncState());
+		assertNotNull(syncManager.getManifest().get(items[0].getRelativePath()));
+	}
+
+	/**
+	 * testChangedFileComparedAgainstManifest
+	 *
+	 * @throws IOException
+	 * @throws CoreException
+	 */
+	@Test
+	public void testChangedFileComparedAgainstManifest() throws IOException, CoreException
+	{
+		long currentTime = new Date().getTime();
+		this.createClientFile(fileName, currentTime, "abc123"); //$NON-NLS-1$
+		this.createServerFile(fileName, currentTime, "abc123"); //$NON-NLS-1$
+
+		VirtualFileSyncPair[] items = this.getSyncItems(true, 0);
+		assertSyncPairLength(1, items);
+		assertEquals(SyncState.ItemsMatch, items[0].getSyncState());
+
+		// change the client content, keeping the modification time
+		this.createClientFile(fileName, currentTime, "abc1234"); //$NON-NLS-1$
+
+		items = this.getSyncItems(true, 0);
+		assertSyncPairLength(1, items);
+		assertEquals(SyncState.CRCMismatch, items[0].getSyncState());
+	}
+
+	/**
+	 * testDownloadUpdatesManifest
+	 *
+	 * @throws IOException
+	 * @throws CoreException
+	 */
+	@Test
+	public void testDownloadUpdatesManifest() throws IOException, CoreException
+	{
+		long currentTime = new Date().getTime();
+		this.createClientFile(fileName, currentTime - 10000, "abc"); //$NON-NLS-1$
+		this.createServerFile(fileName, currentTime, "abc123"); //$NON-NLS-1$
+
+		Synchronizer syncManager = new Synchronizer(true, 1000);
+		VirtualFileSyncPair[] items = syncManager.getSyncItems(clientManager, serverManager, clientDirectory,
+				serverDirectory, null);
+		assertSyncPairLength(1, items);
+		assertEquals(SyncState.ServerItemIsNewer, items[0].getSyncState());
+		String relativePath = items[0].getRelativePath();
+		assertNull(syncManager.getManifest().get(relativePath));
+
+		syncManager.download(items, null);
+		assertEquals(1, syncManager.getServerFileTransferedCount());
+		assertNotNull(syncManager.getManifest().get(relativePath));
+
+		items = this.getSyncItems(true, 1000);
+		assertSyncPairLength(1, items);
+		assertEquals(SyncState.ItemsMatch, items[0].getSyncState());
+	}
+
 	/**
 	 * testDirectoryCRCsMatch This confirms that turning on CRC checking doesn't involve directories
 	 * 
@@ -961,6 +1046,45 @@ public abstract class SyncingTests
 				"Server file: " + EFSUtils.getAbsolutePath(clientFileOnServer) + " does not exist.", clientFileOnServer.fetchInfo().exists()); //$NON-NLS-1$ //$NON-NLS-2$
 	}
 
+	/**
+	 * testConcurrentUpload
+	 * 
+	 * @throws IOException
+	 * @throws CoreException
+	 */
+	@Test
+	public void testConcurrentUpload() throws IOException, CoreException
+	{
+		long currentTime = new Date().getTime();
+		int count = 12;
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < count; i++)
+		{
+			// files of differing sizes, some of them in a directory that has to exist before they are copied
+			content.append("0123456789");
+			this.createClientFile((i % 2 == 0 ? folderName + "/" : "") + "file" + i + ".txt", currentTime,
+					content.toString());
+		}
+
+		Synchronizer syncManager = new Synchronizer(false, 10);
+		syncManager.setMaxConcurrentTransfers(4);
+		VirtualFileSyncPair[] items = syncManager.getSyncItems(clientManager, serverManager, clientDirectory,
+				serverDirectory, null);
+
+		assertTrue(syncManager.upload(items, null));
+
+		assertEquals(count, syncManager.getClientFileTransferedCount());
+		assertEquals(0, syncManager.getServerFileTransferedCount());
+		for (int i = 0; i < count; i++)
+		{
+			IFileStore serverFile = getFile(serverDirectory, (i % 2 == 0 ? folderName + "/" : "") + "file" + i
+					+ ".txt");
+			IFileInfo info = serverFile.fetchInfo();
+			assertTrue("Server file: " + EFSUtils.getAbsolutePath(serverFile) + " does not exist.", info.exists()); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals((i + 1) * 10, info.getLength());
+		}
+	}
+
 	/**
 	 * testClientOnlyDirectoryUpload
 	 * 
@@ -0,0 +1,316 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.testing.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A tiny HTTP/1.0 server bound to the loopback interface, used as a stand-in for remote servers in tests. Every request
+ * is recorded and answered by the configured {@link Handler}; connections are closed after each response.
+ */
+public class LocalHttpServer
+{
+
+	/**
+	 * Computes the response for a single request.
+	 */
+	public interface Handler
+	{
+		Response handle(Request request) throws IOException;
+	}
+
+	/**
+	 * A received request. Header names are lower-cased.
+	 */
+	public static class Request
+	{
+		public final String method;
+		public final String path;
+		public final Map<String, String> headers;
+		public final byte[] body;
+
+		Request(String method, String path, Map<String, String> headers, byte[] body)
+		{
+			this.method = method;
+			this.path = path;
+			this.headers = headers;
+			this.body = body;
+		}
+
+		public String getHeader(String name)
+		{
+			return headers.get(name.toLowerCase(Locale.ENGLISH));
+		}
+
+		public String getBody()
+		{
+			try
+			{
+				return new String(body, "UTF-8"); //$NON-NLS-1$
+			}
+			catch (IOException e)
+			{
+				return new String(body);
+			}
+		}
+	}
+
+	/**
+	 * A response to send back.
+	 */
+	public static class Response
+	{
+		public final int status;
+		public final Map<String, String> headers = new LinkedHashMap<String, String>();
+		public final byte[] body;
+
+		public Response(int status)
+		{
+			this(status, new byte[0]);
+		}
+
+		public Response(int status, byte[] body)
+		{
+			this.status = status;
+			this.body = body;
+		}
+
+		public Response header(String name, String value)
+		{
+			headers.put(name, value);
+			return this;
+		}
+	}
+
+	private final ServerSocket serverSocket;
+	private final List<Request> requests = Collections.synchronizedList(new ArrayList<Request>());
+	private volatile Handler handler;
+	private Thread thread;
+
+	public LocalHttpServer(Handler handler) throws IOException
+	{
+		this.handler = handler;
+		this.serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Starts accepting connections in a background thread.
+	 */
+	public synchronized void start()
+	{
+		thread = new Thread("LocalHttpServer:" + getPort()) //$NON-NLS-1$
+		{
+			@Override
+			public void run()
+			{
+				while (!serverSocket.isClosed())
+				{
+					try
+					{
+						final Socket socket = serverSocket.accept();
+						new Thread("LocalHttpServer connection") //$NON-NLS-1$
+						{
+							@Override
+							public void run()
+							{
+								serve(socket);
+							}
+						}.start();
+					}
+					catch (SocketException e)
+					{
+						// closed
+					}
+					catch (IOException e)
+					{
+						e.printStackTrace();
+					}
+				}
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public synchronized void stop()
+	{
+		try
+		{
+			serverSocket.close();
+		}
+		catch (IOException e)
+		{
+			// ignore
+		}
+		if (thread != null)
+		{
+			try
+			{
+				thread.join(1000);
+			}
+			catch (InterruptedException e)
+			{
+				// ignore
+			}
+			thread = null;
+		}
+	}
+
+	public int getPort()
+	{
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Returns the URL for the given path on this server, i.e. <code>http://127.0.0.1:port/path</code>.
+	 */
+	public String getURL(String path)
+	{
+		if (!path.startsWith("/")) //$NON-NLS-1$
+		{
+			path = '/' + path;
+		}
+		return "http://127.0.0.1:" + getPort() + path; //$NON-NLS-1$
+	}
+
+	public void setHandler(Handler handler)
+	{
+		this.handler = handler;
+	}
+
+	/**
+	 * Returns a copy of the requests received so far, in order.
+	 */
+	public List<Request> getRequests()
+	{
+		synchronized (requests)
+		{
+			return new ArrayList<Request>(requests);
+		}
+	}
+
+	public void clearRequests()
+	{
+		requests.clear();
+	}
+
+	private void serve(Socket socket)
+	{
+		try
+		{
+			InputStream in = socket.getInputStream();
+			String requestLine = readLine(in);
+			if (requestLine == null)
+			{
+				return;
+			}
+			String[] parts = requestLine.split(" "); //$NON-NLS-1$
+			Map<String, String> headers = new HashMap<String, String>();
+			String line;
+			while ((line = readLine(in)) != null && line.length() > 0)
+			{
+				int colon = line.indexOf(':');
+				if (colon > 0)
+				{
+					headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ENGLISH), line.substring(colon + 1)
+							.trim());
+				}
+			}
+			byte[] body = new byte[0];
+			String contentLength = headers.get("content-length"); //$NON-NLS-1$
+			if (contentLength != null)
+			{
+				body = new byte[Integer.parseInt(contentLength)];
+				int offset = 0;
+				while (offset < body.length)
+				{
+					int read = in.read(body, offset, body.length - offset);
+					if (read < 0)
+					{
+						break;
+					}
+					offset += read;
+				}
+			}
+			Request request = new Request(parts[0], parts.length > 1 ? parts[1] : "/", headers, body); //$NON-NLS-1$
+			requests.add(request);
+
+			Response response = handler.handle(request);
+			OutputStream out = socket.getOutputStream();
+			StringBuilder head = new StringBuilder();
+			head.append("HTTP/1.0 ").append(response.status).append(" Status\r\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			for (Map.Entry<String, String> header : response.headers.entrySet())
+			{
+				head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			boolean hasBody = !"HEAD".equals(request.method) && response.status != 204 && response.status != 304; //$NON-NLS-1$
+			if (!response.headers.containsKey("Content-Length")) //$NON-NLS-1$
+			{
+				head.append("Content-Length: ").append(hasBody ? response.body.length : 0).append("\r\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			head.append("Connection: close\r\n\r\n"); //$NON-NLS-1$
+			out.write(head.toString().getBytes("ISO-8859-1")); //$NON-NLS-1$
+			if (hasBody)
+			{
+				out.write(response.body);
+			}
+			out.flush();
+		}
+		catch (IOException e)
+		{
+			// client went away
+		}
+		finally
+		{
+			try
+			{
+				socket.close();
+			}
+			catch (IOException e)
+			{
+				// ignore
+			}
+		}
+	}
+
+	private static String readLine(InputStream in) throws IOException
+	{
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int b;
+		while ((b = in.read()) != -1)
+		{
+			if (b == '\n')
+			{
+				break;
+			}
+			if (b != '\r')
+			{
+				line.write(b);
+			}
+		}
+		if (b == -1 && line.size() == 0)
+		{
+			return null;
+		}
+		return line.toString("ISO-8859-1"); //$NON-NLS-1$
+	}
+}
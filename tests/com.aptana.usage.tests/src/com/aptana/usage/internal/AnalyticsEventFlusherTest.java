@@ -0,0 +1,144 @@
+package com.aptana.usage.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.HttpURLConnection;
+import java.util.List;
+
+import org.eclipse.core.runtime.jobs.Job;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aptana.core.util.FileUtil;
+import com.aptana.testing.utils.LocalHttpServer;
+import com.aptana.testing.utils.LocalHttpServer.Request;
+import com.aptana.testing.utils.LocalHttpServer.Response;
+import com.aptana.usage.AnalyticsEvent;
+import com.aptana.usage.IAnalyticsLogger;
+import com.aptana.usage.IAnalyticsUserManager;
+
+public class AnalyticsEventFlusherTest
+{
+
+	private LocalHttpServer server;
+	private AnalyticsLogger logger;
+	private DefaultAnalyticsEventHandler handler;
+	private AnalyticsEventFlusher flusher;
+	private volatile int status;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		status = HttpURLConnection.HTTP_OK;
+		server = new LocalHttpServer(new LocalHttpServer.Handler()
+		{
+			public Response handle(Request request)
+			{
+				return new Response(status);
+			}
+		});
+		server.start();
+
+		logger = new AnalyticsLogger(FileUtil.getTempDirectory().append("events_" + System.currentTimeMillis()));
+		handler = new DefaultAnalyticsEventHandler(DefaultAnalyticsEventHandler.DEFAULT_TIMEOUT,
+				server.getURL("/app-track"))
+		{
+			@Override
+			protected IAnalyticsLogger getAnalyticsLogger()
+			{
+				return logger;
+			}
+
+			@Override
+			protected IAnalyticsUserManager getUserManager()
+			{
+				// send anonymously
+				return null;
+			}
+		};
+		flusher = new AnalyticsEventFlusher(handler, 2, 0, 60 * 1000);
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		flusher.cancel();
+		server.stop();
+		logger.clearEvents();
+		logger.close();
+		server = null;
+		logger = null;
+		handler = null;
+		flusher = null;
+	}
+
+	@Test
+	public void testSendsQueuedEventsInBatches() throws Exception
+	{
+		for (int i = 0; i < 5; i++)
+		{
+			logger.logEvent(new AnalyticsEvent("testing", "testFlush" + i, null));
+		}
+		flusher.requestFlush();
+		waitFor(new Condition()
+		{
+			public boolean isTrue()
+			{
+				return logger.getEvents().isEmpty();
+			}
+		});
+
+		List<Request> requests = server.getRequests();
+		assertEquals(5, requests.size());
+		for (Request request : requests)
+		{
+			assertEquals("POST", request.method);
+			assertEquals("/app-track", request.path);
+			assertTrue(request.getBody().contains("event=testFlush"));
+		}
+		assertEquals(HttpURLConnection.HTTP_OK, handler.getLastResponseCode());
+		assertEquals(0, flusher.getFailureCount());
+	}
+
+	@Test
+	public void testBacksOffAndKeepsEventsWhenServerIsUnavailable() throws Exception
+	{
+		status = HttpURLConnection.HTTP_UNAVAILABLE;
+		logger.logEvent(new AnalyticsEvent("testing", "testBackoff1", null));
+		logger.logEvent(new AnalyticsEvent("testing", "testBackoff2", null));
+		flusher.requestFlush();
+		waitFor(new Condition()
+		{
+			public boolean isTrue()
+			{
+				return flusher.getFailureCount() > 0 && flusher.getState() == Job.SLEEPING;
+			}
+		});
+
+		// The first failure stops the batch, nothing is lost, and the retry is delayed
+		assertEquals(1, server.getRequests().size());
+		assertEquals(2, logger.getEvents().size());
+
+		// Further requests don't bypass the backoff
+		flusher.requestFlush();
+		Thread.sleep(500);
+		assertEquals(1, server.getRequests().size());
+	}
+
+	private interface Condition
+	{
+		boolean isTrue();
+	}
+
+	private static void waitFor(Condition condition) throws InterruptedException
+	{
+		long end = System.currentTimeMillis() + 10000;
+		while (!condition.isTrue())
+		{
+			assertTrue("Timed out waiting for the analytics events to be flushed", System.currentTimeMillis() < end);
+			Thread.sleep(50);
+		}
+	}
+}
@@ -5,6 +5,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.io.FileWriter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +34,7 @@ public class AnalyticsLoggerTest
 	@After
 	public void tearDown() throws Exception
 	{
+		logger.close();
 		FileUtil.deleteRecursively(dir.toFile());
 		dir = null;
 		logger = null;
@@ -45,18 +47,15 @@ public class AnalyticsLoggerTest
 		payload.put("key1", "value1");
 		AnalyticsEvent event = new AnalyticsEvent("testing", "testLogEvent", payload);
 		logger.logEvent(event);
-		File file = dir.append(event.hashCode() + ".json").toFile();
-		assertTrue(file.exists());
-		assertTrue(file.isFile());
+		List<File> segments = logger.getSegmentFiles();
+		assertEquals(1, segments.size());
+		assertTrue(segments.get(0).isFile());
 
 		List<AnalyticsEvent> events = logger.getEvents();
 		assertEquals(1, events.size());
 		assertEquals(event, events.get(0));
 
 		logger.clearEvent(event);
-		assertFalse(file.exists());
-		assertFalse(file.isFile());
-
 		events = logger.getEvents();
 		assertEquals(0, events.size());
 	}
@@ -68,17 +67,11 @@ public class AnalyticsLoggerTest
 		payload.put("key1", "value1");
 		AnalyticsEvent event1 = new AnalyticsEvent("testing", "testClearEvents", payload);
 		logger.logEvent(event1);
-		File eventFile1 = dir.append(event1.hashCode() + ".json").toFile();
-		assertTrue(eventFile1.exists());
-		assertTrue(eventFile1.isFile());
 
 		Map<String, String> payload2 = new HashMap<String, String>();
 		payload.put("key2", "value2");
 		AnalyticsEvent event2 = new AnalyticsEvent("testing", "testClearEvents2", payload2);
 		logger.logEvent(event2);
-		File eventFile2 = dir.append(event2.hashCode() + ".json").toFile();
-		assertTrue(eventFile2.exists());
-		assertTrue(eventFile2.isFile());
 
 		List<AnalyticsEvent> events = logger.getEvents();
 		assertEquals(2, events.size());
@@ -86,12 +79,86 @@ public class AnalyticsLoggerTest
 		assertTrue(events.contains(event2));
 
 		logger.clearEvents();
-		assertFalse(eventFile1.exists());
-		assertFalse(eventFile1.isFile());
-		assertFalse(eventFile2.exists());
-		assertFalse(eventFile2.isFile());
+		assertEquals(0, dir.toFile().list().length);
 
 		events = logger.getEvents();
 		assertEquals(0, events.size());
 	}
+
+	@Test
+	public void testEventsSurviveReload()
+	{
+		AnalyticsEvent event1 = new AnalyticsEvent("testing", "testReload1", null);
+		AnalyticsEvent event2 = new AnalyticsEvent("testing", "testReload2", null);
+		AnalyticsEvent event3 = new AnalyticsEvent("testing", "testReload3", null);
+		logger.logEvent(event1);
+		logger.logEvent(event2);
+		logger.logEvent(event3);
+		logger.clearEvent(event2);
+		logger.close();
+
+		logger = new AnalyticsLogger(dir);
+		List<AnalyticsEvent> events = logger.getEvents();
+		assertEquals(2, events.size());
+		assertEquals(event1, events.get(0));
+		assertEquals(event3, events.get(1));
+	}
+
+	@Test
+	public void testSegmentsRollOverAndAreCompacted()
+	{
+		logger = new AnalyticsLogger(dir, 512, 1024 * 1024);
+		AnalyticsEvent[] events = new AnalyticsEvent[20];
+		for (int i = 0; i < events.length; i++)
+		{
+			events[i] = new AnalyticsEvent("testing", "testSegments" + i, null);
+			logger.logEvent(events[i]);
+		}
+		assertTrue(logger.getSegmentFiles().size() > 1);
+
+		for (AnalyticsEvent event : events)
+		{
+			logger.clearEvent(event);
+		}
+		assertEquals(0, logger.getEvents().size());
+		// At most the active segment is left around
+		assertTrue(logger.getSegmentFiles().size() <= 1);
+	}
+
+	@Test
+	public void testBacklogIsBounded()
+	{
+		logger = new AnalyticsLogger(dir, 512, 2048);
+		for (int i = 0; i < 100; i++)
+		{
+			logger.logEvent(new AnalyticsEvent("testing", "testBacklog" + i, null));
+		}
+		long total = 0;
+		for (File segment : logger.getSegmentFiles())
+		{
+			total += segment.length();
+		}
+		// the limit may be exceeded by at most the active segment
+		assertTrue(total <= 2048 + 512);
+
+		List<AnalyticsEvent> events = logger.getEvents();
+		assertTrue(events.size() < 100);
+		// the newest events are kept
+		assertEquals("testBacklog99", events.get(events.size() - 1).getEventName());
+	}
+
+	@Test
+	public void testMigratesLegacyEventFiles() throws Exception
+	{
+		AnalyticsEvent event = new AnalyticsEvent("testing", "testLegacy", null);
+		File legacy = dir.append(event.hashCode() + ".json").toFile();
+		FileWriter writer = new FileWriter(legacy);
+		writer.write(event.toJSON());
+		writer.close();
+
+		List<AnalyticsEvent> events = logger.getEvents();
+		assertEquals(1, events.size());
+		assertEquals(event, events.get(0));
+		assertFalse(legacy.exists());
+	}
 }
@@ -5,7 +5,7 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ AnalyticsLoggerTest.class, DefaultAnalyticsEventHandlerTest.class })
+@SuiteClasses({ AnalyticsLoggerTest.class, AnalyticsEventFlusherTest.class, DefaultAnalyticsEventHandlerTest.class })
 public class InternalTests
 {
 
@@ -0,0 +1,155 @@
+/**
+ * Aptana Studio
+ * Copyright (c) 2014 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the GNU Public License (GPL) v3 (with exceptions).
+ * Please see the license.html included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.webserver.internal.core.builtin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.debug.core.ILaunchManager;
+import org.junit.experimental.categories.Category;
+
+import com.aptana.core.tests.GlobalTimePerformanceTestCase;
+import com.aptana.core.util.FileUtil;
+import com.aptana.testing.categories.PerformanceTests;
+
+/**
+ * Simulates reloading a single page app preview: a page pulling in a large number of script bundles, fetched
+ * repeatedly by the browser.
+ */
+@Category({ PerformanceTests.class })
+public class LocalWebServerPerformanceTest extends GlobalTimePerformanceTestCase
+{
+
+	private static final int FILE_COUNT = 100;
+	private static final int FILE_SIZE = 256 * 1024;
+	private static final int ITERATIONS = 20;
+
+	private File dir;
+	private LocalWebServer webServer;
+	private String[] etags;
+
+	@Override
+	public void setUp() throws Exception
+	{
+		super.setUp();
+		dir = File.createTempFile(getClass().getSimpleName(), "temp"); //$NON-NLS-1$
+		assertTrue(dir.delete());
+		assertTrue(dir.mkdir());
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < 8; i++)
+		{
+			line.append("var x").append(i).append(" = function(a, b) { return a + b; };\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		for (int i = 0; i < FILE_COUNT; i++)
+		{
+			OutputStreamWriter w = new OutputStreamWriter(new FileOutputStream(new File(dir, "bundle" + i + ".js"))); //$NON-NLS-1$ //$NON-NLS-2$
+			for (int written = 0; written < FILE_SIZE; written += line.length())
+			{
+				w.write(line.toString());
+			}
+			w.close();
+		}
+		webServer = new LocalWebServer(dir.toURI());
+		webServer.start(ILaunchManager.RUN_MODE, new NullProgressMonitor());
+		etags = new String[FILE_COUNT];
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		try
+		{
+			webServer.stop(true, new NullProgressMonitor());
+			FileUtil.deleteRecursively(dir);
+		}
+		finally
+		{
+			webServer = null;
+			dir = null;
+			etags = null;
+			super.tearDown();
+		}
+	}
+
+	public void testFullReload() throws Exception
+	{
+		for (int i = 0; i < ITERATIONS; i++)
+		{
+			startMeasuring();
+			fetchAll(false, null);
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	public void testCompressedReload() throws Exception
+	{
+		for (int i = 0; i < ITERATIONS; i++)
+		{
+			startMeasuring();
+			fetchAll(false, "gzip"); //$NON-NLS-1$
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	public void testRevalidatingReload() throws Exception
+	{
+		fetchAll(false, null);
+		for (int i = 0; i < ITERATIONS; i++)
+		{
+			startMeasuring();
+			fetchAll(true, null);
+			stopMeasuring();
+		}
+		commitMeasurements();
+		assertPerformance();
+	}
+
+	private void fetchAll(boolean revalidate, String acceptEncoding) throws IOException
+	{
+		byte[] buffer = new byte[8192];
+		for (int i = 0; i < FILE_COUNT; i++)
+		{
+			URL url = new URL(webServer.getBaseURL(), "bundle" + i + ".js"); //$NON-NLS-1$ //$NON-NLS-2$
+			HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+			connection.setUseCaches(false);
+			if (acceptEncoding != null)
+			{
+				connection.setRequestProperty("Accept-Encoding", acceptEncoding); //$NON-NLS-1$
+			}
+			if (revalidate && etags[i] != null)
+			{
+				connection.setRequestProperty("If-None-Match", etags[i]); //$NON-NLS-1$
+			}
+			int code = connection.getResponseCode();
+			etags[i] = connection.getHeaderField("ETag"); //$NON-NLS-1$
+			if (code == HttpURLConnection.HTTP_OK)
+			{
+				InputStream in = connection.getInputStream();
+				while (in.read(buffer) != -1)
+				{
+					// drain
+				}
+				in.close();
+			}
+			else
+			{
+				assertEquals(revalidate ? HttpURLConnection.HTTP_NOT_MODIFIED : HttpURLConnection.HTTP_OK, code);
+			}
+		}
+	}
+}
@@ -12,8 +12,11 @@
 package com.aptana.webserver.internal.core.builtin;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -22,12 +25,17 @@ import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.debug.core.ILaunchManager;
 import org.junit.Test;
 
+import com.aptana.core.util.FileUtil;
+import com.aptana.core.util.IOUtil;
+
 /**
  * @author Max Stepanov
  */
@@ -77,4 +85,169 @@ public class LocalWebServerTest
 			}
 		}
 	}
+
+	@Test
+	public void testConditionalGet() throws IOException, CoreException
+	{
+		File dir = createDocumentRoot();
+		LocalWebServer webServer = null;
+		try
+		{
+			webServer = startServer(dir);
+			URL url = new URL(webServer.getBaseURL(), "index.html"); //$NON-NLS-1$
+			HttpURLConnection connection = openConnection(url);
+			assertEquals(HttpURLConnection.HTTP_OK, connection.getResponseCode());
+			String etag = connection.getHeaderField("ETag"); //$NON-NLS-1$
+			String lastModified = connection.getHeaderField("Last-Modified"); //$NON-NLS-1$
+			assertNotNull(etag);
+			assertNotNull(lastModified);
+			assertEquals(PAGE_CONTENTS, read(connection.getInputStream()));
+
+			connection = openConnection(url);
+			connection.setRequestProperty("If-None-Match", etag); //$NON-NLS-1$
+			assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, connection.getResponseCode());
+
+			connection = openConnection(url);
+			connection.setRequestProperty("If-Modified-Since", lastModified); //$NON-NLS-1$
+			assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, connection.getResponseCode());
+
+			connection = openConnection(url);
+			connection.setRequestProperty("If-None-Match", "\"stale\""); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals(HttpURLConnection.HTTP_OK, connection.getResponseCode());
+			assertEquals(PAGE_CONTENTS, read(connection.getInputStream()));
+		}
+		finally
+		{
+			stopServer(webServer, dir);
+		}
+	}
+
+	@Test
+	public void testRangeRequests() throws IOException, CoreException
+	{
+		File dir = createDocumentRoot();
+		LocalWebServer webServer = null;
+		try
+		{
+			webServer = startServer(dir);
+			URL url = new URL(webServer.getBaseURL(), "index.html"); //$NON-NLS-1$
+			int length = PAGE_CONTENTS.length();
+
+			HttpURLConnection connection = openConnection(url);
+			connection.setRequestProperty("Range", "bytes=6-11"); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals(HttpURLConnection.HTTP_PARTIAL, connection.getResponseCode());
+			assertEquals("bytes 6-11/" + length, connection.getHeaderField("Content-Range")); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals(PAGE_CONTENTS.substring(6, 12), read(connection.getInputStream()));
+
+			connection = openConnection(url);
+			connection.setRequestProperty("Range", "bytes=-7"); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals(HttpURLConnection.HTTP_PARTIAL, connection.getResponseCode());
+			assertEquals(PAGE_CONTENTS.substring(length - 7), read(connection.getInputStream()));
+
+			connection = openConnection(url);
+			connection.setRequestProperty("Range", "bytes=" + length + "-"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			assertEquals(416, connection.getResponseCode());
+			assertEquals("bytes */" + length, connection.getHeaderField("Content-Range")); //$NON-NLS-1$ //$NON-NLS-2$
+
+			// A stale If-Range gets the full content
+			connection = openConnection(url);
+			connection.setRequestProperty("Range", "bytes=0-5"); //$NON-NLS-1$ //$NON-NLS-2$
+			connection.setRequestProperty("If-Range", "\"stale\""); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals(HttpURLConnection.HTTP_OK, connection.getResponseCode());
+			assertEquals(PAGE_CONTENTS, read(connection.getInputStream()));
+		}
+		finally
+		{
+			stopServer(webServer, dir);
+		}
+	}
+
+	@Test
+	public void testCompressedResponses() throws IOException, CoreException
+	{
+		File dir = createDocumentRoot();
+		LocalWebServer webServer = null;
+		try
+		{
+			webServer = startServer(dir);
+			URL url = new URL(webServer.getBaseURL(), "index.html"); //$NON-NLS-1$
+
+			HttpURLConnection connection = openConnection(url);
+			connection.setRequestProperty("Accept-Encoding", "gzip, deflate"); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals(HttpURLConnection.HTTP_OK, connection.getResponseCode());
+			assertEquals("gzip", connection.getContentEncoding()); //$NON-NLS-1$
+			assertEquals(PAGE_CONTENTS, read(new GZIPInputStream(connection.getInputStream())));
+
+			connection = openConnection(url);
+			connection.setRequestProperty("Accept-Encoding", "gzip;q=0"); //$NON-NLS-1$ //$NON-NLS-2$
+			assertNull(connection.getContentEncoding());
+			assertEquals(PAGE_CONTENTS, read(connection.getInputStream()));
+
+			// A precompressed sibling is served as-is
+			File precompressed = new File(dir, "index.html.gz"); //$NON-NLS-1$
+			String precompressedContents = PAGE_CONTENTS.toUpperCase();
+			GZIPOutputStream out = new GZIPOutputStream(new FileOutputStream(precompressed));
+			out.write(precompressedContents.getBytes(IOUtil.UTF_8));
+			out.close();
+			connection = openConnection(url);
+			connection.setRequestProperty("Accept-Encoding", "gzip"); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals("gzip", connection.getContentEncoding()); //$NON-NLS-1$
+			assertEquals(precompressedContents, read(new GZIPInputStream(connection.getInputStream())));
+		}
+		finally
+		{
+			stopServer(webServer, dir);
+		}
+	}
+
+	private File createDocumentRoot() throws IOException
+	{
+		File dir = File.createTempFile(getClass().getSimpleName(), "temp"); //$NON-NLS-1$
+		assertTrue(dir.delete());
+		assertTrue(dir.mkdir());
+		File file = new File(dir, "index.html"); //$NON-NLS-1$
+		assertTrue(file.createNewFile());
+		OutputStreamWriter w = new OutputStreamWriter(new FileOutputStream(file));
+		w.write(PAGE_CONTENTS);
+		w.close();
+		return dir;
+	}
+
+	private LocalWebServer startServer(File dir)
+	{
+		LocalWebServer webServer = new LocalWebServer(dir.toURI());
+		webServer.start(ILaunchManager.RUN_MODE, new NullProgressMonitor());
+		return webServer;
+	}
+
+	private void stopServer(LocalWebServer webServer, File dir)
+	{
+		if (webServer != null)
+		{
+			webServer.stop(true, new NullProgressMonitor());
+		}
+		FileUtil.deleteRecursively(dir);
+	}
+
+	private static HttpURLConnection openConnection(URL url) throws IOException
+	{
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setAllowUserInteraction(false);
+		connection.setUseCaches(false);
+		return connection;
+	}
+
+	private static String read(InputStream in) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try
+		{
+			IOUtil.pipe(in, out);
+		}
+		finally
+		{
+			in.close();
+		}
+		return out.toString(IOUtil.UTF_8);
+	}
 }